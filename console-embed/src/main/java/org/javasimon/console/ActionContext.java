@@ -135,6 +135,20 @@ public class ActionContext {
 		return defaultValue(stringToBoolean(getParameter(name)), defaultValue);
 	}
 
+	/**
+	 * Get request parameter as a Long.
+	 *
+	 * @param name Parameter name
+	 * @param defaultValue Parameter default value (can be null)
+	 * @return Parameter value
+	 * @throws NumberFormatException if the parameter is not a number
+	 * @since 4.3
+	 */
+	public Long getParameterAsLong(String name, Long defaultValue) {
+		final String s = blankToNull(getParameter(name));
+		return s == null ? defaultValue : Long.valueOf(s);
+	}
+
 	/**
 	 * Transform a string into an enum (using its name which is supposed to be
 	 * uppercase, handles null values.
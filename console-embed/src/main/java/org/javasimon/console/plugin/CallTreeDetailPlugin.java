@@ -7,6 +7,7 @@ import org.javasimon.Stopwatch;
 import org.javasimon.callback.calltree.CallTree;
 import org.javasimon.callback.calltree.CallTreeCallback;
 import org.javasimon.callback.calltree.CallTreeNode;
+import org.javasimon.callback.calltree.CallTreeProfile;
 import org.javasimon.console.ActionContext;
 import org.javasimon.console.SimonCallbacks;
 import org.javasimon.console.action.DetailHtmlBuilder;
@@ -17,7 +18,8 @@ import org.javasimon.console.json.ObjectJS;
 import org.javasimon.console.text.StringifierFactory;
 
 /**
- * Detail plugin to display call tree.
+ * Detail plugin to display call tree: last significant call tree and call tree profile
+ * (merged sampled call trees, also in collapsed stack format for flame graphs).
  * @author gquintana
  */
 public class CallTreeDetailPlugin extends DetailPlugin {
@@ -30,6 +32,10 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 	 * Message: Data not found in Simon
 	 */
 	private static final String NO_DATA_MESSAGE = "No call tree available yet";
+	/**
+	 * Message: Profile without call tree in the window
+	 */
+	private static final String NO_PROFILE_DATA_MESSAGE = "No sampled call tree in the window";
 
 	public CallTreeDetailPlugin() {
 		super("callTree", "Call Tree");
@@ -59,6 +65,24 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		return CallTreeCallback.getLastCallTree((Stopwatch) simon);
 	}
 
+	/**
+	 * Get CallTreeProfile data from Simon
+	 */
+	private CallTreeProfile getProfile(Simon simon) {
+		return CallTreeCallback.getCallTreeProfile((Stopwatch) simon);
+	}
+
+	/**
+	 * Returns profile window label like "Last 15m".
+	 */
+	private static String getWindowName(CallTreeProfile profile) {
+		long seconds = profile.getWindowLength() / 1000;
+		if (seconds % 60 == 0) {
+			return "Last " + (seconds / 60) + "m";
+		}
+		return "Last " + seconds + "s";
+	}
+
 	/**
 	 * Generate an HTML message row
 	 */
@@ -81,7 +105,11 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		htmlBuilder
 			.text("total&nbsp;").text(htmlStringifierFactory.toString(node.getTotal(), "Time"))
 			.text(", ")
-			.text("count&nbsp;").text(htmlStringifierFactory.toString(node.getSplitCount()));
+			.text("count&nbsp;").text(htmlStringifierFactory.toString(node.getSplitCount()))
+			.text(", ")
+			.text("min&nbsp;").text(htmlStringifierFactory.toString(node.getMin(), "Time"))
+			.text(", ")
+			.text("max&nbsp;").text(htmlStringifierFactory.toString(node.getMax(), "Time"));
 		if (!node.getChildren().isEmpty()) {
 			htmlBuilder.begin("ul");
 			for(CallTreeNode childNode:node.getChildren()) {
@@ -91,18 +119,53 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		}
 		return htmlBuilder.end("li");
 	}
+	/**
+	 * Generate HTML rows of the call tree profile: merged tree and collapsed stacks
+	 */
+	private void htmlProfile(CallTreeProfile profile, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory) throws IOException {
+		CallTreeProfile.MergedTree merged = profile.mergeWindow();
+		CallTreeNode mergedTree = merged.getRootNode();
+		htmlBuilder.beginRow()
+			.labelCell("Profile")
+			.valueCell(getWindowName(profile) + ", " + htmlStringifierFactory.toString(merged.getSampleCount()) + " samples")
+			.endRow();
+		if (mergedTree == null) {
+			htmlMessage(htmlBuilder, NO_PROFILE_DATA_MESSAGE);
+			return;
+		}
+		htmlBuilder.beginRow()
+			.labelCell("Profile tree")
+			.beginValueCell().begin("ul");
+		htmlTreeNode(mergedTree, htmlBuilder, htmlStringifierFactory)
+			.end("ul").endValueCell()
+			.endRow()
+			.beginRow()
+			.labelCell("Flame graph stacks")
+			.beginValueCell().begin("pre").text(merged.getCollapsedStacks()).end("pre").endValueCell()
+			.endRow();
+	}
+
 	@Override
 	public DetailHtmlBuilder executeHtml(ActionContext context, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory, Simon simon) throws IOException {
 		if (isCallTreeCallbackRegistered(context)) {
 			CallTree callTree = getData(simon);
-			if (callTree == null) {
+			CallTreeProfile profile = getProfile(simon);
+			if (callTree == null && profile == null) {
 				htmlMessage(htmlBuilder, NO_DATA_MESSAGE);
-			} else {
+			}
+			if (callTree != null) {
 				htmlBuilder
 					.beginRow()
 						.labelCell("Threshold")
 						.valueCell(htmlStringifierFactory.toString(callTree.getLogThreshold(), "Time"))
-					.endRow()
+					.endRow();
+				if (callTree.getDroppedSplitCount() > 0) {
+					htmlBuilder.beginRow()
+						.labelCell("Dropped splits")
+						.valueCell(htmlStringifierFactory.toString(callTree.getDroppedSplitCount()))
+						.endRow();
+				}
+				htmlBuilder
 					.beginRow()
 						.labelCell("Tree")
 						.beginValueCell().begin("ul");
@@ -110,6 +173,9 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 						.end("ul").endValueCell()
 					.endRow();
 			}
+			if (profile != null) {
+				htmlProfile(profile, htmlBuilder, htmlStringifierFactory);
+			}
 		} else {
 			htmlMessage(htmlBuilder, NO_CALLBACK_MESSAGE);
 		}
@@ -139,6 +205,24 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		return nodeJS;
 	}
 
+	/**
+	 * Generate a JSON call tree profile object: window name, sample count, merged tree and collapsed stacks
+	 */
+	private ObjectJS jsonProfile(CallTreeProfile profile, StringifierFactory jsonStringifierFactory) {
+		ObjectJS profileJS = new ObjectJS();
+		profileJS.setSimpleAttribute("name", getWindowName(profile), jsonStringifierFactory.getStringifier(String.class));
+		CallTreeProfile.MergedTree merged = profile.mergeWindow();
+		profileJS.setSimpleAttribute("sampleCount", merged.getSampleCount(), jsonStringifierFactory.getStringifier(Integer.class));
+		CallTreeNode mergedTree = merged.getRootNode();
+		if (mergedTree == null) {
+			profileJS.setSimpleAttribute("message", NO_PROFILE_DATA_MESSAGE, jsonStringifierFactory.getStringifier(String.class));
+		} else {
+			profileJS.setAttribute("rootNode", jsonTreeNode(mergedTree, jsonStringifierFactory));
+			profileJS.setSimpleAttribute("collapsedStacks", merged.getCollapsedStacks(), jsonStringifierFactory.getStringifier(String.class));
+		}
+		return profileJS;
+	}
+
 	/**
 	 * Generate a JSON call tree object or an error string if no call tree
 	 */
@@ -147,12 +231,18 @@ public class CallTreeDetailPlugin extends DetailPlugin {
 		ObjectJS callTreeJS;
 		if (isCallTreeCallbackRegistered(context)) {
 			CallTree callTree = getData(simon);
-			if (callTree == null) {
+			CallTreeProfile profile = getProfile(simon);
+			if (callTree == null && profile == null) {
 				callTreeJS = jsonMessage(NO_DATA_MESSAGE, jsonStringifierFactory);
+			} else if (callTree == null) {
+				callTreeJS = new ObjectJS();
 			} else {
 				callTreeJS = ObjectJS.create(callTree, jsonStringifierFactory);
 				callTreeJS.setAttribute("rootNode", jsonTreeNode(callTree.getRootNode(), jsonStringifierFactory));
 			}
+			if (profile != null) {
+				callTreeJS.setAttribute("profile", jsonProfile(profile, jsonStringifierFactory));
+			}
 		} else {
 			callTreeJS = jsonMessage(NO_CALLBACK_MESSAGE, jsonStringifierFactory);
 		}
@@ -7,6 +7,7 @@ import org.javasimon.Stopwatch;
 import org.javasimon.callback.quantiles.BucketSample;
 import org.javasimon.callback.quantiles.BucketsSample;
 import org.javasimon.callback.quantiles.QuantilesCallback;
+import org.javasimon.callback.quantiles.WindowSample;
 import org.javasimon.console.ActionContext;
 import org.javasimon.console.SimonCallbacks;
 import org.javasimon.console.action.DetailHtmlBuilder;
@@ -58,6 +59,17 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 		return QuantilesCallback.sampleBuckets((Stopwatch) simon);
 	}
 
+	/**
+	 * Returns window label like "Last 5m".
+	 */
+	static String getWindowName(WindowSample windowSample) {
+		long seconds = windowSample.getWindow() / 1000;
+		if (seconds % 60 == 0) {
+			return "Last " + (seconds / 60) + "m";
+		}
+		return "Last " + seconds + "s";
+	}
+
 	/**
 	 * Generate an HTML message row
 	 */
@@ -79,6 +91,16 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 					.labelCell("90%")
 					.valueCell(htmlStringifierFactory.toString(bucketsSample.getPercentile90(), "Time"))
 					.endRow();
+				for (WindowSample windowSample : bucketsSample.getWindows()) {
+					String windowName = getWindowName(windowSample);
+					htmlBuilder.beginRow()
+						.labelCell(windowName + " median")
+						.valueCell(htmlStringifierFactory.toString(windowSample.getMedian(), "Time"))
+						.labelCell(windowName + " 90% / 99%")
+						.valueCell(htmlStringifierFactory.toString(windowSample.getPercentile90(), "Time")
+							+ " / " + htmlStringifierFactory.toString(windowSample.getPercentile99(), "Time"))
+						.endRow();
+				}
 				htmlBuilder.beginRow().labelCell("Distribution").beginValueCell();
 				htmlBuilder.begin("table")
 					.beginRow().labelCell("Min").labelCell("Max").labelCell("Counter").endRow();
@@ -120,6 +142,13 @@ public class QuantilesDetailPlugin extends DetailPlugin {
 			} else {
 				bucketsJS = ObjectJS.create(bucketsSample, jsonStringifierFactory);
 				bucketsJS.setAttribute("buckets", ArrayJS.create(bucketsSample.getBuckets(), jsonStringifierFactory));
+				ArrayJS windowsJS = new ArrayJS(bucketsSample.getWindows().length);
+				for (WindowSample windowSample : bucketsSample.getWindows()) {
+					ObjectJS windowJS = ObjectJS.create(windowSample, jsonStringifierFactory);
+					windowJS.setSimpleAttribute("name", getWindowName(windowSample), jsonStringifierFactory.getStringifier(String.class));
+					windowsJS.addElement(windowJS);
+				}
+				bucketsJS.setAttribute("windows", windowsJS);
 			}
 		} else {
 			bucketsJS = jsonMessage(NO_CALLBACK_MESSAGE, jsonStringifierFactory);
@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.javasimon.Simon;
 import org.javasimon.Stopwatch;
 import org.javasimon.callback.timeline.StopwatchTimeRange;
+import org.javasimon.callback.timeline.TieredStopwatchTimeline;
 import org.javasimon.callback.timeline.TimeRange;
 import org.javasimon.callback.timeline.Timeline;
 import org.javasimon.callback.timeline.TimelineCallback;
@@ -20,7 +21,10 @@ import org.javasimon.console.json.ObjectJS;
 import org.javasimon.console.text.StringifierFactory;
 
 /**
- * Detail plugin to display {@link TimelineCallback} information
+ * Detail plugin to display {@link TimelineCallback} information.
+ * {@link TieredStopwatchTimeline} is downsampled on the server side, the sampled period (in ms) and the number
+ * of time ranges can be requested by {@value #PERIOD_PARAMETER} and {@value #POINTS_PARAMETER} parameters,
+ * by default the period of the first tier is sampled into {@value #DEFAULT_POINTS} time ranges.
  */
 public class TimelineDetailPlugin extends DetailPlugin {
 
@@ -32,6 +36,22 @@ public class TimelineDetailPlugin extends DetailPlugin {
 	 * Message: Data not found in Simon
 	 */
 	private static final String NO_DATA_MESSAGE = "No data available";
+	/**
+	 * Request parameter with the period of tiered timeline sample in ms
+	 */
+	public static final String PERIOD_PARAMETER = "timelinePeriod";
+	/**
+	 * Request parameter with the number of time ranges of tiered timeline sample
+	 */
+	public static final String POINTS_PARAMETER = "timelinePoints";
+	/**
+	 * Default number of time ranges of tiered timeline sample
+	 */
+	public static final int DEFAULT_POINTS = 60;
+	/**
+	 * Maximal number of time ranges of tiered timeline sample
+	 */
+	private static final int MAX_POINTS = 1000;
 	/**
 	 * Simon attribute name used to retrieved timeline information
 	 */
@@ -63,8 +83,28 @@ public class TimelineDetailPlugin extends DetailPlugin {
 	private boolean isTimelineCallbackRegistered(ActionContext context) {
 		return SimonCallbacks.getCallbackByType(context.getManager(), TimelineCallback.class) != null;
 	}
-	private TimelineSample getData(Simon simon) {
-		return ((Timeline) simon.getAttribute(attributeName)).sample();
+	private TimelineSample getData(ActionContext context, Simon simon) {
+		Object timeline = simon.getAttribute(attributeName);
+		if (timeline instanceof TieredStopwatchTimeline) {
+			TieredStopwatchTimeline tieredTimeline = (TieredStopwatchTimeline) timeline;
+			long period = getLongParameter(context, PERIOD_PARAMETER, tieredTimeline.getTiers()[0].getLength());
+			long points = getLongParameter(context, POINTS_PARAMETER, DEFAULT_POINTS);
+			return tieredTimeline.sample(Math.max(1, period), (int) Math.max(1, Math.min(points, MAX_POINTS)));
+		} else if (timeline instanceof Timeline) {
+			return ((Timeline) timeline).sample();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the request parameter as long, or the default value if the parameter is missing or not a number.
+	 */
+	private static long getLongParameter(ActionContext context, String name, long defaultValue) {
+		try {
+			return context.getParameterAsLong(name, defaultValue);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
 	}
 
 	/**
@@ -78,7 +118,7 @@ public class TimelineDetailPlugin extends DetailPlugin {
 	@Override
 	public DetailHtmlBuilder executeHtml(ActionContext context, DetailHtmlBuilder htmlBuilder, StringifierFactory htmlStringifierFactory, Simon simon) throws IOException {
 		if (isTimelineCallbackRegistered(context)) {
-			TimelineSample timelineSample = getData(simon);
+			TimelineSample timelineSample = getData(context, simon);
 			if (timelineSample == null) {
 				htmlMessage(htmlBuilder, NO_DATA_MESSAGE);
 			} else {
@@ -134,7 +174,7 @@ public class TimelineDetailPlugin extends DetailPlugin {
 	public ObjectJS executeJson(ActionContext context, StringifierFactory jsonStringifierFactory, Simon simon) {
 		ObjectJS timelineJS;
 		if (isTimelineCallbackRegistered(context)) {
-			TimelineSample timelineSample = getData(simon);
+			TimelineSample timelineSample = getData(context, simon);
 			if (timelineSample == null) {
 				timelineJS = jsonMessage(NO_DATA_MESSAGE, jsonStringifierFactory);
 			} else {
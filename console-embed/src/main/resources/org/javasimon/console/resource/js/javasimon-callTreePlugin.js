@@ -2,8 +2,31 @@
 var javasimon=window.javasimon;
 if (javasimon) {
 	(function(domUtil, viewPluginMgr) {
+		var fnAppendTreeTable=function(eCell, sId, oRootNode) {
+			var eTreeTable, oDataTreeTable;
+			eTreeTable=domUtil.fnAppendChildElement(
+				eCell,
+				"table",
+				{id:sId, style:"width:auto","class":"dataTreeTable"}
+			);
+			oDataTreeTable=new javasimon.DataTreeTable(
+				eTreeTable,{
+					aoColumns:[
+						{sTitle:"Name",		sField:"name", 		sClass:'string headCell'},
+						{sTitle:"Percent",	sField:"percent",	sClass:"number"},
+						{sTitle:"Total",	sField:"total",		sClass:"number"},
+						{sTitle:"Count",	sField:"splitCount",sClass:"number"},
+						{sTitle:"Min",		sField:"min",		sClass:"number"},
+						{sTitle:"Max",		sField:"max",		sClass:"number"}
+					]
+				}
+			);
+			oDataTreeTable.fnSetRootData(oRootNode);
+			oDataTreeTable.fnDrawHeader();
+			oDataTreeTable.fnDraw();
+		};
 		viewPluginMgr.fnAddPluginRenderer("callTree",function(eTableBody, oCallTree) {
-			var row, eTreeTable,oDataTreeTable;
+			var row, oProfile;
 			if (oCallTree.message) {
 				row=this.fnAppendRow(eTableBody);
 				this.fnAppendLabelValueCell(row,"Message", oCallTree.message, 3);
@@ -12,27 +35,33 @@ if (javasimon) {
 				row=this.fnAppendRow(eTableBody);
 				this.fnAppendLabelValueCell(row, "Threshold", oCallTree.logThreshold);
 			}
+			if (oCallTree.droppedSplitCount) {
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelValueCell(row, "Dropped splits", oCallTree.droppedSplitCount);
+			}
 			if (oCallTree.rootNode) {
 				row=this.fnAppendRow(eTableBody);
 				this.fnAppendLabelCell(row,"Tree");
-				eTreeTable=domUtil.fnAppendChildElement(
-					this.fnAppendValueCell(row, null, 1),
-					"table",
-					{id:"callDataTreeTable", style:"width:auto","class":"dataTreeTable"}
-				);
-				oDataTreeTable=new javasimon.DataTreeTable(
-					eTreeTable,{
-						aoColumns:[
-							{sTitle:"Name",		sField:"name", 		sClass:'string headCell'},
-							{sTitle:"Percent",	sField:"percent",	sClass:"number"},
-							{sTitle:"Total",	sField:"total",		sClass:"number"},
-							{sTitle:"Count",	sField:"splitCount",sClass:"number"}
-						]
-					}
-				);
-				oDataTreeTable.fnSetRootData(oCallTree.rootNode);
-				oDataTreeTable.fnDrawHeader();
-				oDataTreeTable.fnDraw();
+				fnAppendTreeTable(this.fnAppendValueCell(row, null, 1), "callDataTreeTable", oCallTree.rootNode);
+			}
+			oProfile=oCallTree.profile;
+			if (oProfile) {
+				row=this.fnAppendRow(eTableBody);
+				this.fnAppendLabelValueCell(row, "Profile", oProfile.name+", "+oProfile.sampleCount+" samples");
+				if (oProfile.message) {
+					row=this.fnAppendRow(eTableBody);
+					this.fnAppendLabelValueCell(row, "Message", oProfile.message, 3);
+				}
+				if (oProfile.rootNode) {
+					row=this.fnAppendRow(eTableBody);
+					this.fnAppendLabelCell(row,"Profile tree");
+					fnAppendTreeTable(this.fnAppendValueCell(row, null, 1), "callProfileTreeTable", oProfile.rootNode);
+					row=this.fnAppendRow(eTableBody);
+					this.fnAppendLabelCell(row,"Flame graph stacks");
+					domUtil.fnAppendChildText(
+						domUtil.fnAppendChildElement(this.fnAppendValueCell(row, null, 1), "pre"),
+						oProfile.collapsedStacks);
+				}
 			}
 		});
 	}(javasimon.DOMUtil, javasimon.ViewPluginManager));
@@ -4,7 +4,7 @@ if (javasimon) {
 	(function(domUtil, viewPluginMgr) {
 		viewPluginMgr.fnAddPluginRenderer("quantiles",function(eTableBody, oQuantiles) {
 			var row=this.fnAppendRow(eTableBody),
-				i,subTable,subRow, subTableSection, oBucket,
+				i,subTable,subRow, subTableSection, oBucket, oWindow,
 				eBucketCell,nBucketWidth;
 			if (oQuantiles.message) {
 				this.fnAppendLabelValueCell(row,"Message", oQuantiles.message, 3);
@@ -14,6 +14,15 @@ if (javasimon) {
 			this.fnAppendLabelValueCell(row, "Median", oQuantiles.median);
 			this.fnAppendLabelValueCell(row, "90%", oQuantiles.percentile90);
 
+			if (oQuantiles.windows) {
+				for(i=0; i<oQuantiles.windows.length; i++) {
+					oWindow=oQuantiles.windows[i];
+					row=this.fnAppendRow(eTableBody);
+					this.fnAppendLabelValueCell(row, oWindow.name+" median", oWindow.median);
+					this.fnAppendLabelValueCell(row, oWindow.name+" 90% / 99%", oWindow.percentile90+" / "+oWindow.percentile99);
+				}
+			}
+
 			row=this.fnAppendRow(eTableBody);
 			this.fnAppendLabelCell(row,"Distribution");
 			subTable=domUtil.fnAppendChildElement(this.fnAppendValueCell(row, " ", 3),"table");
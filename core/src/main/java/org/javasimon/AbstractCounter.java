@@ -0,0 +1,203 @@
+package org.javasimon;
+
+import org.javasimon.callback.Callback;
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Common base of {@link Counter} implementations. It implements enabled checks, callbacks and incremental
+ * sampling, while the concrete class decides how the values are stored and how concurrent updates are handled.
+ *
+ * @see CounterImpl
+ * @see StripedCounterImpl
+ * @since 4.3
+ */
+abstract class AbstractCounter extends AbstractSimon implements Counter {
+
+	/**
+	 * Constructor used internally by subclasses.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning Manager
+	 */
+	AbstractCounter(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	public Counter set(long val) {
+		if (!enabled) {
+			return this;
+		}
+
+		CounterSample sample = recordSet(val, manager.milliTime(), manager.callback().needsSample(Callback.Event.COUNTER_SET));
+		manager.callback().onCounterSet(this, val, sample);
+		return this;
+	}
+
+	@Override
+	public Counter increase() {
+		return increase(1);
+	}
+
+	@Override
+	public Counter increase(long inc) {
+		if (!enabled) {
+			return this;
+		}
+
+		CounterSample sample = recordIncrease(inc, manager.milliTime(), manager.callback().needsSample(Callback.Event.COUNTER_INCREASE));
+		manager.callback().onCounterIncrease(this, inc, sample);
+		return this;
+	}
+
+	@Override
+	public Counter decrease() {
+		return decrease(1);
+	}
+
+	@Override
+	public Counter decrease(long dec) {
+		if (!enabled) {
+			return this;
+		}
+
+		CounterSample sample = recordDecrease(dec, manager.milliTime(), manager.callback().needsSample(Callback.Event.COUNTER_DECREASE));
+		manager.callback().onCounterDecrease(this, dec, sample);
+		return this;
+	}
+
+	/**
+	 * Sets the counter to the value (including incremental Simons) and updates min/max.
+	 *
+	 * @param val new counter value
+	 * @param now current millis timestamp
+	 * @param sample whether sample should be created after the update
+	 * @return sample after the update if requested, {@code null} otherwise
+	 */
+	abstract CounterSample recordSet(long val, long now, boolean sample);
+
+	/**
+	 * Increases the counter (including incremental Simons) and updates increment sum and min/max.
+	 *
+	 * @param inc increment
+	 * @param now current millis timestamp
+	 * @param sample whether sample should be created after the update
+	 * @return sample after the update if requested, {@code null} otherwise
+	 */
+	abstract CounterSample recordIncrease(long inc, long now, boolean sample);
+
+	/**
+	 * Decreases the counter (including incremental Simons) and updates decrement sum and min/max.
+	 *
+	 * @param dec decrement
+	 * @param now current millis timestamp
+	 * @param sample whether sample should be created after the update
+	 * @return sample after the update if requested, {@code null} otherwise
+	 */
+	abstract CounterSample recordDecrease(long dec, long now, boolean sample);
+
+	@Override
+	public CounterSample sampleIncrement(Object key) {
+		return (CounterSample) sampleIncrementHelper(key);
+	}
+
+	@Override
+	public CounterSample sampleIncrementNoReset(Object key) {
+		return (CounterSample) sampleIncrementNoResetHelper(key);
+	}
+
+	/**
+	 * Records the counter value after the increase into the current epoch of incremental sampling, if there is any.
+	 *
+	 * @param inc increment
+	 * @param value counter value after the increase
+	 * @param now current millis timestamp
+	 */
+	void updateEpochIncrease(long inc, long value, long now) {
+		Epoch epoch = currentEpoch;
+		if (epoch != null) {
+			epoch.updateUsage(now);
+			if (inc > 0) {
+				epoch.updateMax(value, now, true);
+			} else {
+				epoch.updateMin(value, now, true);
+			}
+		}
+	}
+
+	/**
+	 * Records the counter value after the decrease into the current epoch of incremental sampling, if there is any.
+	 *
+	 * @param dec decrement
+	 * @param value counter value after the decrease
+	 * @param now current millis timestamp
+	 */
+	void updateEpochDecrease(long dec, long value, long now) {
+		Epoch epoch = currentEpoch;
+		if (epoch != null) {
+			epoch.updateUsage(now);
+			if (dec > 0) {
+				epoch.updateMin(value, now, true);
+			} else {
+				epoch.updateMax(value, now, true);
+			}
+		}
+	}
+
+	/**
+	 * Starts new epoch after the counter was set (if there is any incremental sampling), because the values
+	 * in incremental samples are not relative to the bookmarked counter after the set.
+	 *
+	 * @param value new counter value
+	 * @param now current millis timestamp
+	 */
+	void updateEpochSet(long value, long now) {
+		Epoch epoch = currentEpoch != null ? startEpoch(true) : null;
+		if (epoch != null) {
+			epoch.updateUsage(now);
+			epoch.updateMax(value, now, true);
+			epoch.updateMin(value, now, true);
+		}
+	}
+
+	/**
+	 * Computes the incremental sample as a difference of cumulative samples, extremes and usages are taken
+	 * from the epochs. Counter and extremes are relative to the counter value at the bookmark until the counter
+	 * is set - after that they are absolute.
+	 */
+	@Override
+	Sample incrementalSample(Sample bookmarkSample, Sample currentSample, Epoch since) {
+		CounterSample bookmark = (CounterSample) bookmarkSample;
+		CounterSample current = (CounterSample) currentSample;
+		Epoch.Guarded window = mergeEpochs(since, bookmark.getCounter(), true, Long.MIN_VALUE);
+
+		CounterSample sample = new CounterSample();
+		sample.setName(current.getName());
+		sample.setNote(current.getNote());
+		sample.setCounter(window.startedBySet ? current.getCounter() : current.getCounter() - bookmark.getCounter());
+		sample.setIncrementSum(current.getIncrementSum() - bookmark.getIncrementSum());
+		sample.setDecrementSum(current.getDecrementSum() - bookmark.getDecrementSum());
+		sample.setMin(window.min);
+		sample.setMinTimestamp(window.minTimestamp);
+		sample.setMax(window.max);
+		sample.setMaxTimestamp(window.maxTimestamp);
+		sample.setFirstUsage(window.firstUsage);
+		sample.setLastUsage(window.lastUsage);
+		return sample;
+	}
+
+	/**
+	 * Returns Simon basic information, counter, max value and min value as a human readable string.
+	 *
+	 * @return basic information, counter, max and min values
+	 * @see AbstractSimon#toString()
+	 */
+	@Override
+	public String toString() {
+		CounterSample sample = sample();
+		return "Simon Counter: counter=" + sample.getCounter() +
+			", max=" + SimonUtils.presentMinMaxCount(sample.getMax()) +
+			", min=" + SimonUtils.presentMinMaxCount(sample.getMin()) +
+			super.toString();
+	}
+}
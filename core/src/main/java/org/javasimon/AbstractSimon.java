@@ -1,10 +1,14 @@
 package org.javasimon;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * AbstractSimon implements basic enable/disable and hierarchy functionality.
@@ -20,11 +24,17 @@ abstract class AbstractSimon implements Simon {
 	/** Simon's effective state. */
 	protected volatile boolean enabled;
 
+	private static final AtomicLongFieldUpdater<AbstractSimon> FIRST_USAGE =
+		AtomicLongFieldUpdater.newUpdater(AbstractSimon.class, "firstUsage");
+
+	private static final AtomicLongFieldUpdater<AbstractSimon> LAST_USAGE =
+		AtomicLongFieldUpdater.newUpdater(AbstractSimon.class, "lastUsage");
+
 	/** Timestamp of the first usage. */
-	protected long firstUsage;
+	protected volatile long firstUsage;
 
 	/** Timestamp of the last usage. */
-	protected long lastUsage;
+	protected volatile long lastUsage;
 
 	private final String name;
 
@@ -32,13 +42,24 @@ abstract class AbstractSimon implements Simon {
 
 	private Simon parent;
 
-	private final List<Simon> children = new CopyOnWriteArrayList<>();
+	/** Children of this Simon, created with the first child - most of the Simons are leaves. */
+	private volatile List<Simon> children;
 
 	private String note;
 
-	private AttributesSupport attributesSupport = new AttributesSupport();
+	/** Attributes of this Simon, created with the first attribute. */
+	private volatile AttributesSupport attributesSupport;
+
+	/** Bookmarks of incremental sampling keys, {@code null} if there is no incremental sampling. */
+	private Map<Object, Bookmark> bookmarks;
 
-	final Map<Object, Simon> incrementalSimons = new ConcurrentHashMap<>();
+	/** Epochs still needed by some bookmark, oldest first. */
+	private ArrayDeque<Epoch> epochs;
+
+	private long lastEpochId;
+
+	/** Current epoch of incremental sampling updated on the hot path, {@code null} if there is no incremental sampling. */
+	volatile Epoch currentEpoch;
 
 	/**
 	 * Constructor of the abstract Simon is used internally by subclasses.
@@ -62,7 +83,46 @@ abstract class AbstractSimon implements Simon {
 
 	@Override
 	public final List<Simon> getChildren() {
-		return children;
+		List<Simon> list = children;
+		return list != null ? list : Collections.<Simon>emptyList();
+	}
+
+	/**
+	 * Returns list of children for modification, creates it if necessary.
+	 *
+	 * @return modifiable list of children
+	 */
+	private List<Simon> childrenForUpdate() {
+		List<Simon> list = children;
+		if (list == null) {
+			synchronized (this) {
+				list = children;
+				if (list == null) {
+					list = new CopyOnWriteArrayList<>();
+					children = list;
+				}
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns attributes of this Simon for modification, creates them if necessary.
+	 *
+	 * @return attributes of this Simon
+	 */
+	private AttributesSupport attributesForUpdate() {
+		AttributesSupport attributes = attributesSupport;
+		if (attributes == null) {
+			synchronized (this) {
+				attributes = attributesSupport;
+				if (attributes == null) {
+					attributes = new AttributesSupport();
+					attributesSupport = attributes;
+				}
+			}
+		}
+		return attributes;
 	}
 
 	/**
@@ -80,11 +140,20 @@ abstract class AbstractSimon implements Simon {
 	 * @param simon future child of this Simon
 	 */
 	final void addChild(AbstractSimon simon) {
-		children.add(simon);
+		childrenForUpdate().add(simon);
 		simon.setParent(this);
 		simon.enabled = enabled;
 	}
 
+	/**
+	 * Adds already set up child to the children of this Simon, parent of the child must be set already.
+	 *
+	 * @param simon new child of this Simon
+	 */
+	final void linkChild(AbstractSimon simon) {
+		childrenForUpdate().add(simon);
+	}
+
 	@Override
 	public final String getName() {
 		return name;
@@ -118,7 +187,7 @@ abstract class AbstractSimon implements Simon {
 
 	private synchronized void updateAndPropagateEffectiveState(boolean enabled, boolean overrule) {
 		this.enabled = enabled;
-		for (Simon child : children) {
+		for (Simon child : getChildren()) {
 			if (overrule) {
 				((AbstractSimon) child).state = SimonState.INHERIT;
 			}
@@ -145,6 +214,22 @@ abstract class AbstractSimon implements Simon {
 		}
 	}
 
+	/**
+	 * Updates usage statistics of a Simon updated without a lock. Last usage never goes backwards and it is not written
+	 * at all when it already contains the timestamp, which is the common case for millisecond timestamps.
+	 *
+	 * @param now current millis timestamp
+	 */
+	void updateUsagesConcurrently(long now) {
+		long last = lastUsage;
+		while (last < now && !LAST_USAGE.compareAndSet(this, last, now)) {
+			last = lastUsage;
+		}
+		if (firstUsage == 0) {
+			FIRST_USAGE.compareAndSet(this, 0, now);
+		}
+	}
+
 	@Override
 	public synchronized final SimonState getState() {
 		return state;
@@ -177,9 +262,12 @@ abstract class AbstractSimon implements Simon {
 	 * @param newSimon new Simon
 	 */
 	void replaceChild(Simon simon, AbstractSimon newSimon) {
-		children.remove(simon);
+		List<Simon> list = children;
+		if (list != null) {
+			list.remove(simon);
+		}
 		if (newSimon != null) {
-			children.add(newSimon);
+			childrenForUpdate().add(newSimon);
 			newSimon.setParent(this);
 		}
 	}
@@ -193,7 +281,7 @@ abstract class AbstractSimon implements Simon {
 	 */
 	@Override
 	public void setAttribute(String name, Object value) {
-		attributesSupport.setAttribute(name, value);
+		attributesForUpdate().setAttribute(name, value);
 	}
 
 	/**
@@ -206,7 +294,8 @@ abstract class AbstractSimon implements Simon {
 	 */
 	@Override
 	public Object getAttribute(String name) {
-		return attributesSupport.getAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttribute(name) : null;
 	}
 
 	/**
@@ -219,7 +308,8 @@ abstract class AbstractSimon implements Simon {
 	 */
 	@Override
 	public <T> T getAttribute(String name, Class<T> clazz) {
-		return attributesSupport.getAttribute(name, clazz);
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttribute(name, clazz) : null;
 	}
 
 	/**
@@ -230,7 +320,10 @@ abstract class AbstractSimon implements Simon {
 	 */
 	@Override
 	public void removeAttribute(String name) {
-		attributesSupport.removeAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		if (attributes != null) {
+			attributes.removeAttribute(name);
+		}
 	}
 
 	/**
@@ -242,12 +335,14 @@ abstract class AbstractSimon implements Simon {
 	 */
 	@Override
 	public Iterator<String> getAttributeNames() {
-		return attributesSupport.getAttributeNames();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttributeNames() : Collections.<String>emptyIterator();
 	}
 
 	@Override
 	public Map<String, Object> getCopyAsSortedMap() {
-		return attributesSupport.getCopyAsSortedMap();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getCopyAsSortedMap() : new TreeMap<String, Object>();
 	}
 
 	void sampleCommon(Sample sample) {
@@ -257,48 +352,151 @@ abstract class AbstractSimon implements Simon {
 		sample.setLastUsage(lastUsage);
 	}
 
-	synchronized Sample sampleIncrementHelper(Object key, Simon newSimon) {
-		Simon simon = getAndResetSampleKey(key, newSimon);
-		if (simon != null) {
-			return simon.sample();
+	/**
+	 * Returns incremental sample for the key - changes since the last incremental sample for the key. Cumulative sample
+	 * is bookmarked for the key and a new epoch is started, so the hot path updates only a single current epoch
+	 * regardless of the number of the keys.
+	 *
+	 * @param key sampling key
+	 * @return incremental sample or current sample if this is the first incremental sample for the key
+	 */
+	synchronized Sample sampleIncrementHelper(Object key) {
+		Bookmark bookmark = bookmarks != null ? bookmarks.get(key) : null;
+		Sample sample = sample();
+		Sample result = bookmark != null ? incrementalSample(bookmark.sample, sample, bookmark.epoch) : sample;
+		if (bookmarks == null) {
+			// usually there are just a few sampling keys
+			bookmarks = new HashMap<>(4);
+			epochs = new ArrayDeque<>(4);
+		}
+		bookmarks.put(key, new Bookmark(sample, startEpoch(false), manager.milliTime()));
+		pruneEpochs();
+		return result;
+	}
+
+	synchronized Sample sampleIncrementNoResetHelper(Object key) {
+		Bookmark bookmark = bookmarks != null ? bookmarks.get(key) : null;
+		if (bookmark != null) {
+			bookmark.lastRead = manager.milliTime();
+			return incrementalSample(bookmark.sample, sample(), bookmark.epoch);
 		} else {
 			return sample();
 		}
 	}
 
+	/**
+	 * Computes incremental sample from the bookmarked sample, current sample and epochs since the bookmark.
+	 *
+	 * @param bookmarkSample sample taken when the bookmark was created
+	 * @param currentSample current sample
+	 * @param since epoch started with the bookmark
+	 * @return incremental sample
+	 */
 	@MustBeInSynchronized
-	private Simon getAndResetSampleKey(Object key, Simon newSimon) {
-		Simon simon = incrementalSimons.get(key);
-		incrementalSimons.put(key, newSimon);
-		return simon;
+	abstract Sample incrementalSample(Sample bookmarkSample, Sample currentSample, Epoch since);
+
+	/**
+	 * Creates new epoch of the type suitable for this Simon.
+	 *
+	 * @param id sequential number of the epoch
+	 * @param startedBySet whether the epoch is started by Counter set
+	 * @return new epoch
+	 */
+	abstract Epoch newEpoch(long id, boolean startedBySet);
+
+	/**
+	 * Starts new epoch if there is any incremental sampling. Epoch started by Counter set is not started
+	 * if the current epoch was also started by set, because such epochs are not distinguished by any bookmark.
+	 *
+	 * @param startedBySet whether the epoch is started by Counter set
+	 * @return new current epoch or {@code null} if there is no incremental sampling
+	 */
+	synchronized Epoch startEpoch(boolean startedBySet) {
+		if (epochs == null) {
+			return null;
+		}
+		if (startedBySet && currentEpoch.startedBySet) {
+			return currentEpoch;
+		}
+		Epoch epoch = newEpoch(++lastEpochId, startedBySet);
+		epochs.addLast(epoch);
+		currentEpoch = epoch;
+		return epoch;
 	}
 
-	synchronized Sample sampleIncrementNoResetHelper(Object key) {
-		Simon simon = incrementalSimons.get(key);
+	/**
+	 * Merges extremes and usages of all the epochs since the specified one (including) into a single epoch.
+	 * Extremes are relative to the offset until the first epoch started by Counter set.
+	 *
+	 * @param since the oldest merged epoch
+	 * @param offset offset subtracted from extremes
+	 * @param replaceEqual whether equal extremes of younger epoch replace the older ones
+	 * @param initialMax initial value of the merged maximum
+	 * @return merged epoch, flagged as started by set if there was any epoch started by Counter set
+	 */
+	@MustBeInSynchronized
+	Epoch.Guarded mergeEpochs(Epoch since, long offset, boolean replaceEqual, long initialMax) {
+		boolean set = false;
+		for (Epoch epoch : epochs) {
+			if (epoch.id > since.id && epoch.startedBySet) {
+				set = true;
+				break;
+			}
+		}
+		Epoch.Guarded window = new Epoch.Guarded(since.id, set, initialMax);
+		for (Epoch epoch : epochs) {
+			if (epoch.id >= since.id) {
+				if (epoch.id > since.id && epoch.startedBySet) {
+					offset = 0;
+				}
+				epoch.mergeInto(window, offset, replaceEqual);
+			}
+		}
+		return window;
+	}
 
-		if (simon != null) {
-			return simon.sample();
-		} else {
-			return sample();
+	@MustBeInSynchronized
+	private void pruneEpochs() {
+		if (bookmarks.isEmpty()) {
+			bookmarks = null;
+			epochs = null;
+			currentEpoch = null;
+			return;
+		}
+		long oldestNeeded = Long.MAX_VALUE;
+		for (Bookmark bookmark : bookmarks.values()) {
+			oldestNeeded = Math.min(oldestNeeded, bookmark.epoch.id);
+		}
+		while (epochs.peekFirst().id < oldestNeeded) {
+			epochs.removeFirst();
 		}
 	}
 
 	@Override
 	public synchronized boolean stopIncrementalSampling(Object key) {
-		return incrementalSimons.remove(key) != null;
+		if (bookmarks == null || bookmarks.remove(key) == null) {
+			return false;
+		}
+		pruneEpochs();
+		return true;
 	}
 
+	/**
+	 * Removes bookmarks of the keys that were not sampled since the threshold.
+	 *
+	 * @param thresholdMs ms timestamp
+	 */
 	synchronized void purgeIncrementalSimonsOlderThan(long thresholdMs) {
-		Iterator<Map.Entry<Object, Simon>> iterator = incrementalSimons.entrySet().iterator();
+		if (bookmarks == null) {
+			return;
+		}
+		Iterator<Bookmark> iterator = bookmarks.values().iterator();
 		while (iterator.hasNext()) {
-			Map.Entry<Object, Simon> entry = iterator.next();
-			if (entry.getValue().getLastUsage() < thresholdMs) {
+			if (iterator.next().lastRead < thresholdMs) {
 				iterator.remove();
 			}
 		}
-		if (incrementalSimons.isEmpty()) {
-			incrementalSimons.clear();
-		}
+		pruneEpochs();
 	}
 
 	/**
@@ -311,4 +509,18 @@ abstract class AbstractSimon implements Simon {
 		return " [" + name + " " + state +
 			(getNote() != null && getNote().length() != 0 ? " \"" + getNote() + "\"]" : "]");
 	}
+
+	/** Cumulative sample and the epoch started when the incremental sample for a key was taken. */
+	private static final class Bookmark {
+
+		private final Sample sample;
+		private final Epoch epoch;
+		private long lastRead;
+
+		Bookmark(Sample sample, Epoch epoch, long lastRead) {
+			this.sample = sample;
+			this.epoch = epoch;
+			this.lastRead = lastRead;
+		}
+	}
 }
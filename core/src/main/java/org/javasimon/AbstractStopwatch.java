@@ -0,0 +1,338 @@
+package org.javasimon;
+
+import org.javasimon.callback.Callback;
+import org.javasimon.callback.CompositeCallback;
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Common base of {@link Stopwatch} implementations. It implements the start/stop/add flow including callbacks,
+ * sub-stopwatches and incremental sampling, while the concrete class decides how the statistics are stored
+ * and how concurrent updates are handled.
+ *
+ * @see StopwatchImpl
+ * @see StripedStopwatchImpl
+ * @since 4.3
+ */
+abstract class AbstractStopwatch extends AbstractSimon implements Stopwatch {
+
+	/** Shared disabled Split returned by {@link #start()} while this Stopwatch is disabled, created lazily. */
+	private Split disabledSplit;
+
+	/** Optional histogram of split times, set before the Stopwatch is published by the manager. */
+	private LatencyHistogram histogram;
+
+	/**
+	 * Constructor used internally by subclasses.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning Manager
+	 */
+	AbstractStopwatch(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	public Stopwatch addSplit(Split split) {
+		if (!enabled) {
+			return this;
+		}
+
+		long splitNs = split.runningFor();
+		long nowNanos = nanoTimeFromSplit(split, splitNs);
+		recordHistogram(splitNs);
+		StopwatchSample sample = recordSplit(splitNs, nowNanos, manager.callback().needsSample(Callback.Event.STOPWATCH_ADD));
+		manager.callback().onStopwatchAdd(this, split, sample);
+		return this;
+	}
+
+	private long nanoTimeFromSplit(Split split, long splitNs) {
+		if (split.getStopwatch() != null) {
+			return split.getStart() + splitNs;
+		} else {
+			return manager.nanoTime();
+		}
+	}
+
+	@Override
+	public Split start() {
+		if (!enabled) {
+			return disabledSplit();
+		}
+
+		recordStart(manager.milliTime());
+		Split split = new Split(this, manager, manager.nanoTime());
+		manager.callback().onStopwatchStart(split);
+		return split;
+	}
+
+	/**
+	 * Returns disabled Split of this Stopwatch. Disabled Split is immutable (it is never running and ignores
+	 * attributes), hence one instance is shared for all the calls - this makes the disabled path allocation-free.
+	 * Racy initialization is harmless, all the fields of the Split are final or never changed for disabled Split.
+	 */
+	private Split disabledSplit() {
+		Split split = disabledSplit;
+		if (split == null) {
+			split = new Split(this, manager);
+			disabledSplit = split;
+		}
+		return split;
+	}
+
+	@Override
+	public long startNanos() {
+		if (!enabled) {
+			return DISABLED_TOKEN;
+		}
+
+		recordStart(manager.milliTime());
+		long start = manager.nanoTime();
+		if (manager.callback().isInterestedIn(Callback.Event.STOPWATCH_START)) {
+			manager.callback().onStopwatchStart(new Split(this, manager, start));
+		}
+		return start;
+	}
+
+	@Override
+	public long stopNanos(long token) {
+		if (token == DISABLED_TOKEN) {
+			return 0;
+		}
+
+		long nowNanos = manager.nanoTime();
+		long splitNs = nowNanos - token;
+		recordHistogram(splitNs);
+		CompositeCallback callback = manager.callback();
+		StopwatchSample sample = recordStopAndSplit(splitNs, nowNanos, callback.needsSample(Callback.Event.STOPWATCH_STOP));
+		if (callback.isInterestedIn(Callback.Event.STOPWATCH_STOP)) {
+			callback.onStopwatchStop(new Split(this, manager, token, splitNs), sample);
+		}
+		return splitNs;
+	}
+
+	@Override
+	public Stopwatch addNanos(long nanos) {
+		if (!enabled) {
+			return this;
+		}
+
+		recordHistogram(nanos);
+		CompositeCallback callback = manager.callback();
+		StopwatchSample sample = recordSplit(nanos, manager.nanoTime(), callback.needsSample(Callback.Event.STOPWATCH_ADD));
+		if (callback.isInterestedIn(Callback.Event.STOPWATCH_ADD)) {
+			callback.onStopwatchAdd(this, Split.create(nanos, manager), sample);
+		}
+		return this;
+	}
+
+	/**
+	 * Protected method doing the stop work based on provided start nano-time.
+	 *
+	 * @param split Split object that has been stopped
+	 * @param start start nano-time of the split @return split time in ns
+	 * @param nowNanos current nano time
+	 * @param subSimon name of the sub-stopwatch (hierarchy delimiter is added automatically), may be {@code null}
+	 */
+	void stop(final Split split, final long start, final long nowNanos, final String subSimon) {
+		if (subSimon != null) {
+			recordStop(nowNanos);
+			Stopwatch effectiveStopwatch = manager.getStopwatch(getName() + Manager.HIERARCHY_DELIMITER + subSimon);
+			split.setAttribute(Split.ATTR_EFFECTIVE_STOPWATCH, effectiveStopwatch);
+			effectiveStopwatch.addSplit(split);
+			return;
+		}
+		recordHistogram(nowNanos - start);
+		StopwatchSample sample = recordStopAndSplit(nowNanos - start, nowNanos, manager.callback().needsSample(Callback.Event.STOPWATCH_STOP));
+		manager.callback().onStopwatchStop(split, sample);
+	}
+
+	/** Creates the histogram of split times, must be called before the Stopwatch is used. */
+	void enableHistogram() {
+		histogram = new LatencyHistogram();
+	}
+
+	private void recordHistogram(long splitNs) {
+		LatencyHistogram histogram = this.histogram;
+		if (histogram != null) {
+			histogram.record(splitNs);
+		}
+	}
+
+	/**
+	 * Returns the sample including the snapshot of the histogram (if the Stopwatch has one).
+	 * Samples passed to callbacks are created by {@link #sampleStatistics()} without the histogram,
+	 * copying the histogram on every split would be too expensive.
+	 */
+	@Override
+	public StopwatchSample sample() {
+		StopwatchSample sample = sampleStatistics();
+		if (histogram != null) {
+			sample.setHistogram(histogram.snapshot());
+		}
+		return sample;
+	}
+
+	/**
+	 * Creates the sample of the statistics without the histogram.
+	 *
+	 * @return sample without the histogram
+	 */
+	abstract StopwatchSample sampleStatistics();
+
+	/**
+	 * Updates usages and active counters when a new split is started.
+	 *
+	 * @param nowMillis current millis timestamp
+	 */
+	abstract void recordStart(long nowMillis);
+
+	/**
+	 * Updates usages and decreases active counter when a split is stopped without being added to this stopwatch
+	 * (stopped with the sub-stopwatch).
+	 *
+	 * @param nowNanos current nano time
+	 */
+	abstract void recordStop(long nowNanos);
+
+	/**
+	 * Decreases active counter and adds the split time to the statistics (including incremental Simons).
+	 *
+	 * @param splitNs split time in nanoseconds
+	 * @param nowNanos current nano time
+	 * @param sample whether sample should be created after the update
+	 * @return sample after the update if requested, {@code null} otherwise
+	 */
+	abstract StopwatchSample recordStopAndSplit(long splitNs, long nowNanos, boolean sample);
+
+	/**
+	 * Adds the split time to the statistics (including incremental Simons) without touching the active counter.
+	 *
+	 * @param splitNs split time in nanoseconds
+	 * @param nowNanos current nano time
+	 * @param sample whether sample should be created after the update
+	 * @return sample after the update if requested, {@code null} otherwise
+	 */
+	abstract StopwatchSample recordSplit(long splitNs, long nowNanos, boolean sample);
+
+	@Override
+	public StopwatchSample sampleIncrement(Object key) {
+		return (StopwatchSample) sampleIncrementHelper(key);
+	}
+
+	@Override
+	public StopwatchSample sampleIncrementNoReset(Object key) {
+		return (StopwatchSample) sampleIncrementNoResetHelper(key);
+	}
+
+	/**
+	 * Records the split into the current epoch of incremental sampling, if there is any.
+	 *
+	 * @param splitNs split time in nanoseconds
+	 * @param nowMillis current millis timestamp
+	 */
+	void updateEpoch(long splitNs, long nowMillis) {
+		Epoch epoch = currentEpoch;
+		if (epoch != null) {
+			epoch.updateUsage(nowMillis);
+			epoch.updateMax(splitNs, nowMillis, false);
+			epoch.updateMin(splitNs, nowMillis, false);
+		}
+	}
+
+	/**
+	 * Computes the incremental sample as a difference of cumulative samples, extremes and usages are taken
+	 * from the epochs. Variance of the increment is derived from the cumulative sums of squared deviations
+	 * (parallel variance algorithm). Active counters are not part of incremental sample (always 0).
+	 */
+	@Override
+	Sample incrementalSample(Sample bookmarkSample, Sample currentSample, Epoch since) {
+		StopwatchSample bookmark = (StopwatchSample) bookmarkSample;
+		StopwatchSample current = (StopwatchSample) currentSample;
+		Epoch.Guarded window = mergeEpochs(since, 0, false, 0);
+
+		StopwatchSample sample = new StopwatchSample();
+		long counter = current.getCounter() - bookmark.getCounter();
+		long total = current.getTotal() - bookmark.getTotal();
+		sample.setName(current.getName());
+		sample.setNote(current.getNote());
+		sample.setCounter(counter);
+		sample.setTotal(total);
+		sample.setMin(window.min);
+		sample.setMinTimestamp(window.minTimestamp);
+		sample.setMax(window.max);
+		sample.setMaxTimestamp(window.maxTimestamp);
+		sample.setFirstUsage(window.firstUsage);
+		sample.setLastUsage(window.lastUsage);
+		sample.setLast(counter > 0 ? current.getLast() : 0);
+
+		double mean = counter > 0 ? (double) total / counter : 0;
+		sample.setMean(mean);
+		double variance = Double.NaN;
+		double varianceN = Double.NaN;
+		if (counter == 1) {
+			variance = 0;
+			varianceN = 0;
+		} else if (counter > 1) {
+			double sumOfSquares = sumOfSquares(current) - sumOfSquares(bookmark);
+			double delta = mean - bookmark.getMean();
+			if (bookmark.getCounter() > 0) {
+				sumOfSquares -= delta * delta * bookmark.getCounter() * counter / current.getCounter();
+			}
+			sumOfSquares = Math.max(sumOfSquares, 0);
+			variance = sumOfSquares / (counter - 1);
+			varianceN = sumOfSquares / counter;
+		}
+		sample.setVariance(variance);
+		sample.setVarianceN(varianceN);
+		sample.setStandardDeviation(Math.sqrt(variance));
+		sample.setHistogram(histogramIncrement(bookmark.getHistogram(), current.getHistogram()));
+		return sample;
+	}
+
+	private static long[] histogramIncrement(long[] bookmark, long[] current) {
+		if (bookmark == null || current == null) {
+			return current;
+		}
+		long[] increment = new long[current.length];
+		for (int i = 0; i < current.length; i++) {
+			increment[i] = current[i] - bookmark[i];
+		}
+		return increment;
+	}
+
+	private static double sumOfSquares(StopwatchSample sample) {
+		return sample.getCounter() > 1 ? sample.getVarianceN() * sample.getCounter() : 0;
+	}
+
+	/**
+	 * Updates usage statistics without using {@link System#currentTimeMillis()} if client code already has
+	 * current nano timer value.
+	 *
+	 * @param nowNanos current value of nano timer
+	 */
+	void updateUsagesNanos(long nowNanos) {
+		updateUsages(manager.millisForNano(nowNanos));
+	}
+
+	@Override
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns Simon basic information, total time, counter, max value and min value as a human readable string.
+	 *
+	 * @return basic information, total time, counter, max and min values
+	 * @see AbstractSimon#toString()
+	 */
+	@Override
+	public String toString() {
+		StopwatchSample sample = sample();
+		return "Simon Stopwatch: total " + SimonUtils.presentNanoTime(sample.getTotal()) +
+			", counter " + sample.getCounter() +
+			", max " + SimonUtils.presentNanoTime(sample.getMax()) +
+			", min " + SimonUtils.presentNanoTime(sample.getMin()) +
+			", mean " + SimonUtils.presentNanoTime((long) sample.getMean()) +
+			super.toString();
+	}
+}
@@ -0,0 +1,92 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free holder of a minimum or maximum value together with the timestamp when the value was reached.
+ * Value and timestamp are always replaced together using compare-and-set on an immutable pair, so they are
+ * always consistent with each other. New pair is allocated only when the extreme actually changes, which
+ * happens rarely after the warm-up.
+ *
+ * @since 4.3
+ */
+final class AtomicExtreme {
+
+	private final AtomicReference<Value> value;
+
+	private final Value initial;
+
+	/**
+	 * Creates the extreme holder with the initial value and zero timestamp.
+	 *
+	 * @param initialValue initial value, typically {@code Long.MAX_VALUE} for minimum or {@code 0}/{@code Long.MIN_VALUE} for maximum
+	 */
+	AtomicExtreme(long initialValue) {
+		initial = new Value(initialValue, 0);
+		value = new AtomicReference<>(initial);
+	}
+
+	/**
+	 * Returns true if the value was updated since the creation of the holder.
+	 *
+	 * @return true if the value was updated
+	 */
+	boolean isUpdated() {
+		return value.get() != initial;
+	}
+
+	/**
+	 * Returns current value and its timestamp as a consistent immutable pair.
+	 *
+	 * @return current value with timestamp
+	 */
+	Value get() {
+		return value.get();
+	}
+
+	/**
+	 * Sets the value if it is greater than the current one (or equal when {@code replaceEqual} is true).
+	 *
+	 * @param newValue candidate value
+	 * @param timestamp ms timestamp of the candidate value
+	 * @param replaceEqual whether equal value replaces the current one (updating the timestamp)
+	 */
+	void updateMax(long newValue, long timestamp, boolean replaceEqual) {
+		Value current = value.get();
+		while (newValue > current.value || (replaceEqual && newValue == current.value)) {
+			if (value.compareAndSet(current, new Value(newValue, timestamp))) {
+				return;
+			}
+			current = value.get();
+		}
+	}
+
+	/**
+	 * Sets the value if it is lower than the current one (or equal when {@code replaceEqual} is true).
+	 *
+	 * @param newValue candidate value
+	 * @param timestamp ms timestamp of the candidate value
+	 * @param replaceEqual whether equal value replaces the current one (updating the timestamp)
+	 */
+	void updateMin(long newValue, long timestamp, boolean replaceEqual) {
+		Value current = value.get();
+		while (newValue < current.value || (replaceEqual && newValue == current.value)) {
+			if (value.compareAndSet(current, new Value(newValue, timestamp))) {
+				return;
+			}
+			current = value.get();
+		}
+	}
+
+	/** Immutable pair of the extreme value and the ms timestamp when it was reached. */
+	static final class Value {
+
+		final long value;
+		final long timestamp;
+
+		Value(long value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+}
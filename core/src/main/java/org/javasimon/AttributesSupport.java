@@ -53,7 +53,10 @@ final class AttributesSupport implements HasAttributes {
 	}
 
 	@Override
-	public Map<String, Object> getCopyAsSortedMap() {
+	public synchronized Map<String, Object> getCopyAsSortedMap() {
+		if (attributes == null) {
+			return new TreeMap<>();
+		}
 		return new TreeMap<>(attributes);
 	}
 }
@@ -0,0 +1,296 @@
+package org.javasimon;
+
+import java.util.Iterator;
+
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Implementation of {@link org.javasimon.Counter} accumulating increments and decrements in per-thread buffers
+ * that are merged into the shared state of the Counter only occasionally - by the owner thread when the merge
+ * interval elapses ({@link ManagerConfiguration#setBufferMergeInterval(long)}) and by any reader before the values
+ * are read (getters, {@link #sample()}). {@link #set(long)} merges all the buffers before the counter is set.
+ * Buffer of a thread that died is merged and removed during the next read.
+ * <p>
+ * Counter value, increment and decrement sums are exact. Max and min values are evaluated when the buffers are
+ * merged - for each buffer the highest (lowest) counter value reached by its updates relative to the counter value
+ * at the time of the merge - so they are exact only if updates of different threads did not interleave.
+ * <p>
+ * Sample for callbacks that need it is taken after the buffer of the updating thread is merged, but without merging
+ * buffers of the other threads, so it does not contain their updates since their last merge. Taking the sample still
+ * locks the Counter on every update, so with such callbacks this implementation does not scale better than
+ * {@link CounterImpl}.
+ * <p>
+ * Use {@link SimonImplementation#BUFFERED} in {@link ManagerConfiguration} to choose this implementation.
+ *
+ * @see org.javasimon.Counter
+ * @since 4.3
+ */
+final class BufferedCounterImpl extends AbstractCounter {
+
+	private final ThreadBuffers<DeltaBuffer> buffers = new ThreadBuffers<DeltaBuffer>() {
+		@Override
+		DeltaBuffer newBuffer() {
+			DeltaBuffer buffer = new DeltaBuffer();
+			buffer.mergedNanos = manager.milliTime() * SimonClock.NANOS_IN_MILLIS;
+			return buffer;
+		}
+	};
+
+	private final long mergeIntervalNanos;
+
+	private long counter;
+	private long incrementSum;
+	private long decrementSum;
+	private long max = Long.MIN_VALUE;
+	private long maxTimestamp;
+	private long min = Long.MAX_VALUE;
+	private long minTimestamp;
+
+	/**
+	 * Constructs Counter Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 * @noinspection WeakerAccess (EnabledManager calls this via reflection)
+	 */
+	BufferedCounterImpl(String name, Manager manager) {
+		super(name, manager);
+		mergeIntervalNanos = manager.configuration().getBufferMergeInterval() * SimonClock.NANOS_IN_MILLIS;
+	}
+
+	@Override
+	synchronized CounterSample recordSet(long val, long now, boolean sample) {
+		mergeBuffers();
+		updateUsages(now);
+		counter = val;
+		if (counter >= max) {
+			max = counter;
+			maxTimestamp = now;
+		}
+		if (counter <= min) {
+			min = counter;
+			minTimestamp = now;
+		}
+		updateEpochSet(val, now);
+		return sample ? sampleState() : null;
+	}
+
+	@Override
+	CounterSample recordIncrease(long inc, long now, boolean sample) {
+		return record(inc, 0, inc > 0, now, sample);
+	}
+
+	@Override
+	CounterSample recordDecrease(long dec, long now, boolean sample) {
+		return record(0, dec, dec <= 0, now, sample);
+	}
+
+	/** Towards max is true if the update can reach new max, otherwise it can reach new min (as in {@link CounterImpl}). */
+	private CounterSample record(long inc, long dec, boolean towardsMax, long now, boolean sample) {
+		DeltaBuffer buffer = buffers.local();
+		boolean merge;
+		synchronized (buffer) {
+			buffer.add(inc, dec, towardsMax, now);
+			long nowNanos = now * SimonClock.NANOS_IN_MILLIS;
+			merge = mergeIntervalNanos == 0 || nowNanos - buffer.mergedNanos >= mergeIntervalNanos;
+			if (merge) {
+				buffer.mergedNanos = nowNanos;
+			}
+		}
+		if (merge || sample) {
+			synchronized (this) {
+				merge(buffer);
+				return sample ? sampleState() : null;
+			}
+		}
+		return null;
+	}
+
+	/** Merges all the buffers into the shared state, removes buffers of dead threads. */
+	@MustBeInSynchronized
+	private void mergeBuffers() {
+		for (Iterator<DeltaBuffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+			DeltaBuffer buffer = iterator.next();
+			// owner must be checked before the merge, otherwise its last updates could be lost
+			boolean ownerDead = buffer.isOwnerDead();
+			merge(buffer);
+			if (ownerDead) {
+				iterator.remove();
+			}
+		}
+	}
+
+	@MustBeInSynchronized
+	private void merge(DeltaBuffer buffer) {
+		synchronized (buffer) {
+			if (!buffer.used) {
+				return;
+			}
+			if (firstUsage == 0 || buffer.firstUsage < firstUsage) {
+				firstUsage = buffer.firstUsage;
+			}
+			if (buffer.lastUsage > lastUsage) {
+				lastUsage = buffer.lastUsage;
+			}
+			Epoch epoch = currentEpoch;
+			if (epoch != null) {
+				epoch.updateUsage(buffer.firstUsage);
+				epoch.updateUsage(buffer.lastUsage);
+			}
+			long base = counter;
+			incrementSum += buffer.incrementSum;
+			decrementSum += buffer.decrementSum;
+			counter += buffer.incrementSum - buffer.decrementSum;
+			if (buffer.maxReached) {
+				long value = base + buffer.maxDelta;
+				if (value >= max) {
+					max = value;
+					maxTimestamp = buffer.maxTimestamp;
+				}
+				updateEpochIncrease(1, value, buffer.maxTimestamp);
+			}
+			if (buffer.minReached) {
+				long value = base + buffer.minDelta;
+				if (value <= min) {
+					min = value;
+					minTimestamp = buffer.minTimestamp;
+				}
+				updateEpochDecrease(1, value, buffer.minTimestamp);
+			}
+			buffer.clear();
+		}
+	}
+
+	@Override
+	public synchronized long getCounter() {
+		mergeBuffers();
+		return counter;
+	}
+
+	@Override
+	public synchronized long getMin() {
+		mergeBuffers();
+		return min;
+	}
+
+	@Override
+	public synchronized long getMinTimestamp() {
+		mergeBuffers();
+		return minTimestamp;
+	}
+
+	@Override
+	public synchronized long getMax() {
+		mergeBuffers();
+		return max;
+	}
+
+	@Override
+	public synchronized long getMaxTimestamp() {
+		mergeBuffers();
+		return maxTimestamp;
+	}
+
+	@Override
+	public synchronized long getIncrementSum() {
+		mergeBuffers();
+		return incrementSum;
+	}
+
+	@Override
+	public synchronized long getDecrementSum() {
+		mergeBuffers();
+		return decrementSum;
+	}
+
+	@Override
+	public synchronized long getFirstUsage() {
+		mergeBuffers();
+		return firstUsage;
+	}
+
+	@Override
+	public synchronized long getLastUsage() {
+		mergeBuffers();
+		return lastUsage;
+	}
+
+	@Override
+	public synchronized CounterSample sample() {
+		mergeBuffers();
+		return sampleState();
+	}
+
+	/** Samples the shared state, buffers that are not merged yet are not included. */
+	@MustBeInSynchronized
+	private CounterSample sampleState() {
+		CounterSample sample = new CounterSample();
+		sample.setCounter(counter);
+		sample.setMin(min);
+		sample.setMax(max);
+		sample.setMinTimestamp(minTimestamp);
+		sample.setMaxTimestamp(maxTimestamp);
+		sample.setIncrementSum(incrementSum);
+		sample.setDecrementSum(decrementSum);
+		sampleCommon(sample);
+		return sample;
+	}
+
+	@Override
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Guarded(id, startedBySet, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Updates of one thread not yet merged into the Counter, all fields are guarded by the buffer itself.
+	 * Extremes are tracked as the counter change relative to the beginning of the buffer.
+	 */
+	private static final class DeltaBuffer extends ThreadBuffers.Buffer {
+
+		private boolean used;
+		private long firstUsage;
+		private long lastUsage;
+		private long incrementSum;
+		private long decrementSum;
+		private boolean maxReached;
+		private long maxDelta;
+		private long maxTimestamp;
+		private boolean minReached;
+		private long minDelta;
+		private long minTimestamp;
+
+		void add(long inc, long dec, boolean towardsMax, long now) {
+			lastUsage = now;
+			if (!used) {
+				firstUsage = now;
+				used = true;
+			}
+			incrementSum += inc;
+			decrementSum += dec;
+			long delta = incrementSum - decrementSum;
+			if (towardsMax) {
+				if (!maxReached || delta >= maxDelta) {
+					maxDelta = delta;
+					maxTimestamp = now;
+					maxReached = true;
+				}
+			} else {
+				if (!minReached || delta <= minDelta) {
+					minDelta = delta;
+					minTimestamp = now;
+					minReached = true;
+				}
+			}
+		}
+
+		void clear() {
+			used = false;
+			firstUsage = 0;
+			lastUsage = 0;
+			incrementSum = 0;
+			decrementSum = 0;
+			maxReached = false;
+			minReached = false;
+		}
+	}
+}
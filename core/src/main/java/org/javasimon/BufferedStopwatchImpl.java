@@ -0,0 +1,386 @@
+package org.javasimon;
+
+import java.util.Iterator;
+
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Implementation of {@link org.javasimon.Stopwatch} accumulating splits in per-thread buffers that are merged
+ * into the shared state of the Stopwatch only occasionally - by the owner thread when the merge interval elapses
+ * ({@link ManagerConfiguration#setBufferMergeInterval(long)}) and by any reader before the values are read
+ * (getters, {@link #sample()}), so the values read from the Stopwatch are never stale. Buffer of a thread
+ * that died is merged and removed during the next read.
+ * <p>
+ * Statistics computed from splits (counter, total, min/max, mean, variance) are the same as with
+ * {@link StopwatchImpl}, except for the last split which is the last split of the most recently used buffer.
+ * Active splits are counted per thread and max active value is evaluated only when buffers are merged, hence
+ * it may be lower than the real maximum.
+ * <p>
+ * Sample for callbacks that need it ({@link org.javasimon.callback.Callback#onStopwatchStop}) is taken after the buffer
+ * of the stopping thread is merged, but without merging buffers of the other threads, so it does not contain their
+ * splits since their last merge. Taking the sample still locks the Stopwatch on every stop, so with such callbacks
+ * this implementation does not scale better than {@link StopwatchImpl}.
+ * <p>
+ * Use {@link SimonImplementation#BUFFERED} in {@link ManagerConfiguration} to choose this implementation.
+ *
+ * @see org.javasimon.Stopwatch
+ * @since 4.3
+ */
+final class BufferedStopwatchImpl extends AbstractStopwatch {
+
+	private final ThreadBuffers<SplitBuffer> buffers = new ThreadBuffers<SplitBuffer>() {
+		@Override
+		SplitBuffer newBuffer() {
+			SplitBuffer buffer = new SplitBuffer();
+			buffer.mergedNanos = manager.nanoTime();
+			return buffer;
+		}
+	};
+
+	private final long mergeIntervalNanos;
+
+	private long total;
+	private long counter;
+	private long active;
+	private long max;
+	private long maxTimestamp;
+	private long maxActive;
+	private long maxActiveTimestamp;
+	private long min = Long.MAX_VALUE;
+	private long minTimestamp;
+	private long last;
+	private long lastTimestamp;
+	private double mean; // used to calculate statistics
+	private double mean2; // used to calculate statistics
+
+	/**
+	 * Constructs Stopwatch Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 * @noinspection WeakerAccess (EnabledManager calls this via reflection)
+	 */
+	BufferedStopwatchImpl(String name, Manager manager) {
+		super(name, manager);
+		mergeIntervalNanos = manager.configuration().getBufferMergeInterval() * SimonClock.NANOS_IN_MILLIS;
+	}
+
+	@Override
+	void recordStart(long nowMillis) {
+		SplitBuffer buffer = buffers.local();
+		synchronized (buffer) {
+			buffer.updateUsages(nowMillis);
+			buffer.active++;
+		}
+	}
+
+	@Override
+	void recordStop(long nowNanos) {
+		SplitBuffer buffer = buffers.local();
+		synchronized (buffer) {
+			buffer.updateUsages(manager.millisForNano(nowNanos));
+			buffer.active--;
+		}
+	}
+
+	@Override
+	StopwatchSample recordStopAndSplit(long splitNs, long nowNanos, boolean sample) {
+		return record(splitNs, nowNanos, sample, true);
+	}
+
+	@Override
+	StopwatchSample recordSplit(long splitNs, long nowNanos, boolean sample) {
+		return record(splitNs, nowNanos, sample, false);
+	}
+
+	private StopwatchSample record(long splitNs, long nowNanos, boolean sample, boolean stop) {
+		SplitBuffer buffer = buffers.local();
+		boolean merge;
+		synchronized (buffer) {
+			if (stop) {
+				buffer.active--;
+			}
+			buffer.addSplit(splitNs, manager.millisForNano(nowNanos));
+			merge = mergeIntervalNanos == 0 || nowNanos - buffer.mergedNanos >= mergeIntervalNanos;
+			if (merge) {
+				buffer.mergedNanos = nowNanos;
+			}
+		}
+		if (merge || sample) {
+			synchronized (this) {
+				merge(buffer);
+				return sample ? sampleState() : null;
+			}
+		}
+		return null;
+	}
+
+	/** Merges all the buffers into the shared state, removes buffers of dead threads. */
+	@MustBeInSynchronized
+	private void mergeBuffers() {
+		for (Iterator<SplitBuffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+			SplitBuffer buffer = iterator.next();
+			// owner must be checked before the merge, otherwise its last updates could be lost
+			boolean ownerDead = buffer.isOwnerDead();
+			merge(buffer);
+			if (ownerDead) {
+				iterator.remove();
+			}
+		}
+	}
+
+	@MustBeInSynchronized
+	private void merge(SplitBuffer buffer) {
+		synchronized (buffer) {
+			if (!buffer.used) {
+				return;
+			}
+			if (firstUsage == 0 || buffer.firstUsage < firstUsage) {
+				firstUsage = buffer.firstUsage;
+			}
+			if (buffer.lastUsage > lastUsage) {
+				lastUsage = buffer.lastUsage;
+			}
+			active += buffer.active;
+			if (active >= maxActive) {
+				maxActive = active;
+				maxActiveTimestamp = lastUsage;
+			}
+			if (buffer.counter > 0) {
+				mergeSplits(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	@MustBeInSynchronized
+	private void mergeSplits(SplitBuffer buffer) {
+		if (buffer.lastTimestamp >= lastTimestamp) {
+			last = buffer.last;
+			lastTimestamp = buffer.lastTimestamp;
+		}
+		if (buffer.max > max) {
+			max = buffer.max;
+			maxTimestamp = buffer.maxTimestamp;
+		}
+		if (buffer.min < min) {
+			min = buffer.min;
+			minTimestamp = buffer.minTimestamp;
+		}
+		// parallel algorithm for the variance
+		long mergedCounter = counter + buffer.counter;
+		double delta = buffer.mean - mean;
+		mean2 += buffer.mean2 + delta * delta * counter * buffer.counter / mergedCounter;
+		total += buffer.total;
+		counter = mergedCounter;
+		mean = (double) total / counter;
+
+		Epoch epoch = currentEpoch;
+		if (epoch != null) {
+			epoch.updateMax(buffer.max, buffer.maxTimestamp, false);
+			epoch.updateMin(buffer.min, buffer.minTimestamp, false);
+			epoch.updateUsage(buffer.firstUsage);
+			epoch.updateUsage(buffer.lastUsage);
+		}
+	}
+
+	@Override
+	public synchronized double getMean() {
+		mergeBuffers();
+		return mean;
+	}
+
+	@Override
+	public synchronized double getVarianceN() {
+		mergeBuffers();
+		return variance(0);
+	}
+
+	@Override
+	public synchronized double getVariance() {
+		mergeBuffers();
+		return variance(1);
+	}
+
+	@MustBeInSynchronized
+	private double variance(long correction) {
+		if (counter == 0) {
+			return Double.NaN;
+		}
+		if (counter == 1) {
+			return 0d;
+		}
+		return mean2 / (counter - correction);
+	}
+
+	@Override
+	public synchronized long getTotal() {
+		mergeBuffers();
+		return total;
+	}
+
+	@Override
+	public synchronized long getLast() {
+		mergeBuffers();
+		return last;
+	}
+
+	@Override
+	public synchronized long getCounter() {
+		mergeBuffers();
+		return counter;
+	}
+
+	@Override
+	public synchronized long getMax() {
+		mergeBuffers();
+		return max;
+	}
+
+	@Override
+	public synchronized long getMin() {
+		mergeBuffers();
+		return min;
+	}
+
+	@Override
+	public synchronized long getMaxTimestamp() {
+		mergeBuffers();
+		return maxTimestamp;
+	}
+
+	@Override
+	public synchronized long getMinTimestamp() {
+		mergeBuffers();
+		return minTimestamp;
+	}
+
+	@Override
+	public synchronized long getActive() {
+		mergeBuffers();
+		return active;
+	}
+
+	@Override
+	public synchronized long getMaxActive() {
+		mergeBuffers();
+		return maxActive;
+	}
+
+	@Override
+	public synchronized long getMaxActiveTimestamp() {
+		mergeBuffers();
+		return maxActiveTimestamp;
+	}
+
+	@Override
+	public synchronized long getFirstUsage() {
+		mergeBuffers();
+		return firstUsage;
+	}
+
+	@Override
+	public synchronized long getLastUsage() {
+		mergeBuffers();
+		return lastUsage;
+	}
+
+	@Override
+	synchronized StopwatchSample sampleStatistics() {
+		mergeBuffers();
+		return sampleState();
+	}
+
+	/** Samples the shared state, buffers that are not merged yet are not included. */
+	@MustBeInSynchronized
+	private StopwatchSample sampleState() {
+		StopwatchSample sample = new StopwatchSample();
+		sample.setTotal(total);
+		sample.setCounter(counter);
+		sample.setMin(min);
+		sample.setMax(max);
+		sample.setMinTimestamp(minTimestamp);
+		sample.setMaxTimestamp(maxTimestamp);
+		sample.setActive(active);
+		sample.setMaxActive(maxActive);
+		sample.setMaxActiveTimestamp(maxActiveTimestamp);
+		sample.setMean(mean);
+		double variance = variance(1);
+		sample.setVariance(variance);
+		sample.setVarianceN(variance(0));
+		sample.setStandardDeviation(Math.sqrt(variance));
+		sample.setLast(last);
+		sampleCommon(sample);
+		return sample;
+	}
+
+	@Override
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Guarded(id, startedBySet, 0);
+	}
+
+	/** Splits of one thread not yet merged into the Stopwatch, all fields are guarded by the buffer itself. */
+	private static final class SplitBuffer extends ThreadBuffers.Buffer {
+
+		private boolean used;
+		private long firstUsage;
+		private long lastUsage;
+		private long active;
+		private long counter;
+		private long total;
+		private long max;
+		private long maxTimestamp;
+		private long min;
+		private long minTimestamp;
+		private long last;
+		private long lastTimestamp;
+		private double mean;
+		private double mean2;
+
+		SplitBuffer() {
+			clear();
+		}
+
+		void updateUsages(long nowMillis) {
+			lastUsage = nowMillis;
+			if (!used) {
+				firstUsage = nowMillis;
+				used = true;
+			}
+		}
+
+		void addSplit(long split, long nowMillis) {
+			updateUsages(nowMillis);
+			last = split;
+			lastTimestamp = nowMillis;
+			total += split;
+			counter++;
+			if (split > max) {
+				max = split;
+				maxTimestamp = nowMillis;
+			}
+			if (split < min) {
+				min = split;
+				minTimestamp = nowMillis;
+			}
+			double delta = split - mean;
+			mean = ((double) total) / counter;
+			mean2 += delta * (split - mean);
+		}
+
+		void clear() {
+			used = false;
+			firstUsage = 0;
+			lastUsage = 0;
+			active = 0;
+			counter = 0;
+			total = 0;
+			max = 0;
+			maxTimestamp = 0;
+			min = Long.MAX_VALUE;
+			minTimestamp = 0;
+			mean = 0;
+			mean2 = 0;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit of the number of Stopwatches and Counters in the whole manager or in a subtree of the Simon hierarchy
+ * (Simons with names starting with the prefix followed by {@link Manager#HIERARCHY_DELIMITER}). Holds the number
+ * of Simons currently counted against the limit, which is updated by {@link EnabledManager}. Unknown Simons
+ * (created for missing parents) and overflow Simons are not counted.
+ * <p>
+ * Requests for new Simons over the limit are routed to the overflow Simon of the limit
+ * ({@value #OVERFLOW_NAME} under the prefix, or top-level for the global limit) and counted by the Counter
+ * {@value #REJECTED_NAME} next to it.
+ *
+ * @see ManagerConfiguration#setCardinalityLimit(String, int)
+ * @since 4.3
+ */
+final class CardinalityLimit {
+
+	/** Name (last segment) of the Simon that replaces Simons over the limit. */
+	static final String OVERFLOW_NAME = "_overflow";
+
+	/** Name (last segment) of the Counter counting requests for Simons over the limit. */
+	static final String REJECTED_NAME = "_rejected";
+
+	private final String prefix;
+
+	private final int max;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	private final AtomicBoolean warned = new AtomicBoolean();
+
+	/**
+	 * Creates the limit.
+	 *
+	 * @param prefix name prefix of the limited subtree or {@code null} for the global limit
+	 * @param max maximum number of Simons
+	 */
+	CardinalityLimit(String prefix, int max) {
+		this.prefix = prefix;
+		this.max = max;
+	}
+
+	String getPrefix() {
+		return prefix;
+	}
+
+	int getMax() {
+		return max;
+	}
+
+	int getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns true if the Simon with the specified name is counted against this limit.
+	 *
+	 * @param name Simon name
+	 * @return true if the name is in the limited subtree and it is not an overflow Simon
+	 */
+	boolean covers(String name) {
+		if (isExempt(name)) {
+			return false;
+		}
+		return prefix == null || name.length() > prefix.length() && name.startsWith(prefix)
+			&& name.startsWith(Manager.HIERARCHY_DELIMITER, prefix.length());
+	}
+
+	boolean isFull() {
+		return count.get() >= max;
+	}
+
+	/**
+	 * Counts new Simon against the limit if the limit is not reached yet.
+	 *
+	 * @return true if the Simon can be created, false if the limit was reached
+	 */
+	boolean tryAcquire() {
+		while (true) {
+			int current = count.get();
+			if (current >= max) {
+				return false;
+			}
+			if (count.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/** Counts Simon against the limit regardless of the limit (existing Simon or Simon replacing unknown Simon). */
+	void acquire() {
+		count.incrementAndGet();
+	}
+
+	/** Releases the Simon that was destroyed. */
+	void release() {
+		count.decrementAndGet();
+	}
+
+	/** Resets the count and the warning after the manager is cleared. */
+	void reset() {
+		count.set(0);
+		warned.set(false);
+	}
+
+	/**
+	 * Returns true only for the first call after the limit was created or reset, so that the warning
+	 * is reported only once.
+	 *
+	 * @return true if the caller should report the warning
+	 */
+	boolean shouldWarn() {
+		return warned.compareAndSet(false, true);
+	}
+
+	String overflowName() {
+		return prefix == null ? OVERFLOW_NAME : prefix + Manager.HIERARCHY_DELIMITER + OVERFLOW_NAME;
+	}
+
+	String rejectedName() {
+		return prefix == null ? REJECTED_NAME : prefix + Manager.HIERARCHY_DELIMITER + REJECTED_NAME;
+	}
+
+	/**
+	 * Returns true for names of overflow and rejected Simons, these are never limited.
+	 *
+	 * @param name Simon name
+	 * @return true if the Simon is not subject to cardinality limits
+	 */
+	static boolean isExempt(String name) {
+		return name.equals(OVERFLOW_NAME) || name.equals(REJECTED_NAME)
+			|| name.endsWith(Manager.HIERARCHY_DELIMITER + OVERFLOW_NAME)
+			|| name.endsWith(Manager.HIERARCHY_DELIMITER + REJECTED_NAME);
+	}
+
+	@Override
+	public String toString() {
+		return (prefix == null ? "all Simons" : "subtree '" + prefix + "'") + " (max " + max + ")";
+	}
+}
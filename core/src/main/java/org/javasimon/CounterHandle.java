@@ -0,0 +1,62 @@
+package org.javasimon;
+
+/**
+ * Pre-resolved handle to the {@link Counter} with the specified name that can be kept in a static field.
+ *
+ * @see SimonHandle
+ * @since 4.3
+ */
+public final class CounterHandle extends SimonHandle<Counter> {
+
+	/**
+	 * Creates handle for the Counter with the specified name in the default {@link SimonManager}.
+	 *
+	 * @param name name of the Counter
+	 */
+	public CounterHandle(String name) {
+		this(SimonManager.manager(), name);
+	}
+
+	/**
+	 * Creates handle for the Counter with the specified name in the specified manager.
+	 *
+	 * @param manager manager of the Counter
+	 * @param name name of the Counter
+	 */
+	public CounterHandle(Manager manager, String name) {
+		super(manager, name);
+	}
+
+	@Override
+	protected Counter resolve(Manager manager, String name) {
+		return manager.getCounter(name);
+	}
+
+	/**
+	 * Increments the Counter by one, shortcut for {@code get().increase()}.
+	 *
+	 * @return the Counter
+	 */
+	public Counter increase() {
+		return get().increase();
+	}
+
+	/**
+	 * Decrements the Counter by one, shortcut for {@code get().decrease()}.
+	 *
+	 * @return the Counter
+	 */
+	public Counter decrease() {
+		return get().decrease();
+	}
+
+	/**
+	 * Sets the value of the Counter, shortcut for {@code get().set(val)}.
+	 *
+	 * @param val new value
+	 * @return the Counter
+	 */
+	public Counter set(long val) {
+		return get().set(val);
+	}
+}
@@ -1,14 +1,14 @@
 package org.javasimon;
 
-import org.javasimon.utils.SimonUtils;
-
 /**
  * Class implements {@link org.javasimon.Counter} interface - see there for how to use Counter.
+ * All the values are updated in a block synchronized on the Counter, for heavily used Counters
+ * see {@link StripedCounterImpl}.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @see org.javasimon.Counter
  */
-final class CounterImpl extends AbstractSimon implements Counter {
+final class CounterImpl extends AbstractCounter {
 
 	/** An internal counter. */
 	private long counter;
@@ -41,20 +41,10 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	}
 
 	@Override
-	public Counter set(long val) {
-		if (!enabled) {
-			return this;
-		}
-
-		long now = manager.milliTime();
-		CounterSample sample;
-		synchronized (this) {
-			setPrivate(val, now);
-			updateIncrementalSimonsSet(val, now);
-			sample = sampleIfCallbacksNotEmpty();
-		}
-		manager.callback().onCounterSet(this, val, sample);
-		return this;
+	synchronized CounterSample recordSet(long val, long now, boolean sample) {
+		setPrivate(val, now);
+		updateEpochSet(val, now);
+		return sample ? sample() : null;
 	}
 
 	@MustBeInSynchronized
@@ -65,13 +55,6 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		updateMin();
 	}
 
-	@MustBeInSynchronized
-	private void updateIncrementalSimonsSet(long val, long now) {
-		for (Simon simon : incrementalSimons.values()) {
-			((CounterImpl) simon).setPrivate(val, now);
-		}
-	}
-
 	private void updateMin() {
 		if (counter <= min) {
 			min = counter;
@@ -87,25 +70,10 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	}
 
 	@Override
-	public Counter increase() {
-		return increase(1);
-	}
-
-	@Override
-	public Counter increase(long inc) {
-		if (!enabled) {
-			return this;
-		}
-
-		long now = manager.milliTime();
-		CounterSample sample;
-		synchronized (this) {
-			increasePrivate(inc, now);
-			updateIncrementalSimonsIncrease(inc, now);
-			sample = sampleIfCallbacksNotEmpty();
-		}
-		manager.callback().onCounterIncrease(this, inc, sample);
-		return this;
+	synchronized CounterSample recordIncrease(long inc, long now, boolean sample) {
+		increasePrivate(inc, now);
+		updateEpochIncrease(inc, counter, now);
+		return sample ? sample() : null;
 	}
 
 	private void increasePrivate(long inc, long now) {
@@ -119,33 +87,11 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		}
 	}
 
-	// must be called from synchronized block (CHECKED)
-	private void updateIncrementalSimonsIncrease(long inc, long now) {
-		for (Simon simon : incrementalSimons.values()) {
-			((CounterImpl) simon).increasePrivate(inc, now);
-		}
-	}
-
 	@Override
-	public Counter decrease() {
-		return decrease(1);
-	}
-
-	@Override
-	public synchronized Counter decrease(long dec) {
-		if (!enabled) {
-			return this;
-		}
-
-		long now = manager.milliTime();
-		CounterSample sample;
-		synchronized (this) {
-			decreasePrivate(dec, now);
-			sample = sampleIfCallbacksNotEmpty();
-			updateIncrementalSimonsDecrease(dec, now);
-		}
-		manager.callback().onCounterDecrease(this, dec, sample);
-		return this;
+	synchronized CounterSample recordDecrease(long dec, long now, boolean sample) {
+		decreasePrivate(dec, now);
+		updateEpochDecrease(dec, counter, now);
+		return sample ? sample() : null;
 	}
 
 	private void decreasePrivate(long dec, long now) {
@@ -159,20 +105,6 @@ final class CounterImpl extends AbstractSimon implements Counter {
 		}
 	}
 
-	@MustBeInSynchronized
-	private void updateIncrementalSimonsDecrease(long dec, long now) {
-		for (Simon simon : incrementalSimons.values()) {
-			((CounterImpl) simon).decreasePrivate(dec, now);
-		}
-	}
-
-	private CounterSample sampleIfCallbacksNotEmpty() {
-		if (!manager.callback().callbacks().isEmpty()) {
-			return sample();
-		}
-		return null;
-	}
-
 	@Override
 	public synchronized long getCounter() {
 		return counter;
@@ -223,26 +155,7 @@ final class CounterImpl extends AbstractSimon implements Counter {
 	}
 
 	@Override
-	public CounterSample sampleIncrement(Object key) {
-		return (CounterSample) sampleIncrementHelper(key, new CounterImpl(null, manager));
-	}
-
-	@Override
-	public CounterSample sampleIncrementNoReset(Object key) {
-		return (CounterSample) sampleIncrementNoResetHelper(key);
-	}
-
-	/**
-	 * Returns Simon basic information, counter, max value and min value as a human readable string.
-	 *
-	 * @return basic information, counter, max and min values
-	 * @see AbstractSimon#toString()
-	 */
-	@Override
-	public synchronized String toString() {
-		return "Simon Counter: counter=" + counter +
-			", max=" + SimonUtils.presentMinMaxCount(max) +
-			", min=" + SimonUtils.presentMinMaxCount(min) +
-			super.toString();
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Guarded(id, startedBySet, Long.MIN_VALUE);
 	}
 }
@@ -87,6 +87,11 @@ public final class DisabledManager implements Manager {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public Collection<Simon> getSubtreeSimons(String name) {
+		return Collections.emptyList();
+	}
+
 	/** Throws {@link UnsupportedOperationException}. */
 	@Override
 	public void enable() {
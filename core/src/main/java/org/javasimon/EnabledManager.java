@@ -11,8 +11,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Implements fully functional {@link Manager} in the enabled state. Does not support
@@ -22,7 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class EnabledManager implements Manager {
 
-	private UnknownSimon rootSimon;
+	private volatile UnknownSimon rootSimon;
 
 	private final Map<String, AbstractSimon> allSimons = new ConcurrentHashMap<>();
 
@@ -32,13 +37,38 @@ public final class EnabledManager implements Manager {
 
 	private final SimonClock clock;
 
+	/**
+	 * Version of the manager, changed whenever a name may start to resolve to a different Simon instance
+	 * (clear, destroy, replacement of unknown Simon) - see {@link SimonHandle}.
+	 */
+	private final AtomicLong version;
+
+	/**
+	 * Creation of new Simons shares the read lock, so threads creating different Simons do not wait for each other.
+	 * Structural changes that may move or remove existing Simons (clear, destroy, replacement of unknown Simon)
+	 * require the write lock.
+	 */
+	private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+
 	/** Creates new enabled manager. */
 	public EnabledManager() {
 		this(SimonClock.SYSTEM);
 	}
 
+	/**
+	 * Creates new enabled manager using the specified clock, e.g. {@link org.javasimon.clock.CoarseClock}
+	 * to avoid system timer call for usage timestamps.
+	 *
+	 * @param clock clock used for all the measurements and timestamps
+	 */
 	public EnabledManager(SimonClock clock) {
+		this(clock, new AtomicLong());
+	}
+
+	/** Creates new enabled manager sharing the version with the switching manager. */
+	EnabledManager(SimonClock clock, AtomicLong version) {
 		this.clock = clock;
+		this.version = version;
 		rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
 		allSimons.put(ROOT_SIMON_NAME, rootSimon);
 		configuration = new ManagerConfiguration(this);
@@ -51,35 +81,71 @@ public final class EnabledManager implements Manager {
 	}
 
 	@Override
-	public synchronized void destroySimon(String name) {
+	public void destroySimon(String name) {
 		if (name.equals(ROOT_SIMON_NAME)) {
 			throw new SimonException("Root Simon cannot be destroyed!");
 		}
-		AbstractSimon simon = allSimons.remove(name);
-		if (simon.getChildren().size() > 0) {
-			replaceUnknownSimon(simon, UnknownSimon.class);
-		} else {
-			((AbstractSimon) simon.getParent()).replaceChild(simon, null);
+		AbstractSimon simon;
+		structureLock.writeLock().lock();
+		try {
+			simon = allSimons.remove(name);
+			if (simon == null) {
+				return;
+			}
+			if (!(simon instanceof UnknownSimon)) {
+				releaseLimits(name);
+			}
+			if (simon.getChildren().size() > 0) {
+				replaceUnknownSimon(simon, instantiateSimon(name, UnknownSimon.class));
+			} else {
+				((AbstractSimon) simon.getParent()).replaceChild(simon, null);
+			}
+			version.incrementAndGet();
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 		callback.onSimonDestroyed(simon);
 	}
 
+	/**
+	 * Runs the action with the structure write lock, so that no Simon is created, replaced or destroyed meanwhile.
+	 *
+	 * @param action action to run
+	 */
+	void withStructureLock(Runnable action) {
+		structureLock.writeLock().lock();
+		try {
+			action.run();
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+	}
+
 	@Override
-	public synchronized void clear() {
-		allSimons.clear();
-		rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
-		allSimons.put(ROOT_SIMON_NAME, rootSimon);
+	public void clear() {
+		structureLock.writeLock().lock();
+		try {
+			allSimons.clear();
+			rootSimon = new UnknownSimon(ROOT_SIMON_NAME, this);
+			allSimons.put(ROOT_SIMON_NAME, rootSimon);
+			for (CardinalityLimit limit : configuration.cardinalityLimits()) {
+				limit.reset();
+			}
+			version.incrementAndGet();
+		} finally {
+			structureLock.writeLock().unlock();
+		}
 		callback.onManagerClear();
 	}
 
 	@Override
 	public Counter getCounter(String name) {
-		return (Counter) getOrCreateSimon(name, CounterImpl.class);
+		return (Counter) getOrCreateSimon(name, Counter.class);
 	}
 
 	@Override
 	public Stopwatch getStopwatch(String name) {
-		return (Stopwatch) getOrCreateSimon(name, StopwatchImpl.class);
+		return (Stopwatch) getOrCreateSimon(name, Stopwatch.class);
 	}
 
 	@Override
@@ -99,6 +165,10 @@ public final class EnabledManager implements Manager {
 			return Collections.unmodifiableCollection((Collection) allSimons.values());
 		}
 		Collection<Simon> simons = new ArrayList<>();
+		if (simonFilter instanceof SimonPattern && ((SimonPattern) simonFilter).getNamePrefix() != null) {
+			collectByPrefix((SimonPattern) simonFilter, simons);
+			return simons;
+		}
 		for (AbstractSimon simon : allSimons.values()) {
 			if (simonFilter.accept(simon)) {
 				simons.add(simon);
@@ -107,45 +177,256 @@ public final class EnabledManager implements Manager {
 		return simons;
 	}
 
-	private Simon getOrCreateSimon(String name, Class<? extends AbstractSimon> simonClass) {
+	/**
+	 * Simon hierarchy is the index of Simon names - all names starting with some prefix are in the subtrees
+	 * of the children of the Simon named as the prefix up to its last delimiter. Only these children are
+	 * checked and only the subtrees of the matching children are traversed.
+	 */
+	private void collectByPrefix(SimonPattern pattern, Collection<Simon> simons) {
+		String prefix = pattern.getNamePrefix();
+		if (pattern.isExact()) {
+			Simon simon = allSimons.get(prefix);
+			if (simon != null && pattern.accept(simon)) {
+				simons.add(simon);
+			}
+			return;
+		}
+		int ix = prefix.lastIndexOf(HIERARCHY_DELIMITER);
+		Simon node = ix == -1 ? rootSimon : allSimons.get(prefix.substring(0, ix));
+		if (node == null) {
+			return;
+		}
+		for (Simon child : node.getChildren()) {
+			if (child.getName().startsWith(prefix)) {
+				collectSubtree(child, pattern, simons);
+			}
+		}
+	}
+
+	private static void collectSubtree(Simon simon, SimonFilter filter, Collection<Simon> simons) {
+		if (filter == null || filter.accept(simon)) {
+			simons.add(simon);
+		}
+		for (Simon child : simon.getChildren()) {
+			collectSubtree(child, filter, simons);
+		}
+	}
+
+	@Override
+	public Collection<Simon> getSubtreeSimons(String name) {
+		Collection<Simon> simons = new ArrayList<>();
+		Simon simon = allSimons.get(name);
+		if (simon != null) {
+			collectSubtree(simon, null, simons);
+		}
+		return simons;
+	}
+
+	private Simon getOrCreateSimon(String name, Class<? extends Simon> simonType) {
 		if (name == null) {
 			// create an "anonymous" Simon - Manager does not care about it anymore
-			return instantiateSimon(null, simonClass);
+			return instantiateSimon(null, simonType, new SimonConfiguration(null,
+				configuration.getDefaultImplementation(), configuration.isDefaultHistogram()));
 		}
 		if (name.equals(ROOT_SIMON_NAME)) {
 			throw new SimonException("Root Simon cannot be replaced or recreated!");
 		}
 		AbstractSimon simon = allSimons.get(name);
-		if (simon != null && simonClass.isInstance(simon)) {
-			return simon;
-		} else if (simon != null && !(simon instanceof UnknownSimon)) {
+		while (simon == null) {
+			CardinalityLimit limit = reachedLimit(name);
+			if (limit != null) {
+				return overflowSimon(limit, name, simonType);
+			}
+			simon = createSimon(name, simonType);
+		}
+		if (simon instanceof UnknownSimon) {
+			simon = replaceUnknownSimon(name, simonType);
+		}
+		if (!simonType.isInstance(simon)) {
 			throw new SimonException("Simon named '" + name + "' already exists and its type is '" +
-				simon.getClass().getName() + "' while requested type is '" + simonClass.getName() + "'.");
-		} else {
-			return createSimon(name, simonClass);
+				simon.getClass().getName() + "' while requested type is '" + simonType.getName() + "'.");
 		}
+		return simon;
 	}
 
 	/**
-	 * Even with ConcurrentHashMap we want to synchronize here, so newly created Simons can be fully
-	 * set up with {@link Callback#onSimonCreated(Simon)}. ConcurrentHashMap still works fine for
-	 * listing Simons, etc.
+	 * Returns the most specific reached cardinality limit covering the name, or {@code null} if the Simon
+	 * can be created.
 	 */
-	private synchronized Simon createSimon(String name, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon simon = allSimons.get(name);
-		if (simon == null) {
-			SimonUtils.validateSimonName(name);
-			simon = newSimon(name, simonClass);
-		} else if (simon instanceof UnknownSimon) {
-			simon = replaceUnknownSimon(simon, simonClass);
+	private CardinalityLimit reachedLimit(String name) {
+		CardinalityLimit reached = null;
+		for (CardinalityLimit limit : configuration.cardinalityLimits()) {
+			if (limit.isFull() && limit.covers(name) && (reached == null || reached.getPrefix() == null
+				|| limit.getPrefix() != null && limit.getPrefix().length() > reached.getPrefix().length()))
+			{
+				reached = limit;
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * Returns the overflow Simon of the reached cardinality limit instead of the new Simon, counts the rejected
+	 * request and reports the first one as the manager warning. If the overflow (or rejected) Simon already exists
+	 * with a different type, anonymous Simon is used instead - measurement is lost, but nothing is added
+	 * to the manager.
+	 */
+	private Simon overflowSimon(CardinalityLimit limit, String name, Class<? extends Simon> simonType) {
+		if (limit.shouldWarn()) {
+			warning("Cardinality limit reached for " + limit + ", Simon '" + name
+				+ "' and further new Simons are replaced by '" + limit.overflowName() + "'", null);
+		}
+		((Counter) limitSimon(limit.rejectedName(), Counter.class)).increase();
+		return limitSimon(limit.overflowName(), simonType);
+	}
+
+	private Simon limitSimon(String name, Class<? extends Simon> simonType) {
+		Simon simon = allSimons.get(name);
+		if (simon != null && !(simon instanceof UnknownSimon) && !simonType.isInstance(simon)) {
+			name = null;
+		}
+		return getOrCreateSimon(name, simonType);
+	}
+
+	/**
+	 * Counts new Simon against all the cardinality limits covering its name. Called before the Simon is created,
+	 * the count is released if the Simon was created concurrently by another thread.
+	 *
+	 * @return true if the Simon can be created, false if any of the limits was reached
+	 */
+	private boolean acquireLimits(String name) {
+		CardinalityLimit[] limits = configuration.cardinalityLimits();
+		for (int i = 0; i < limits.length; i++) {
+			if (limits[i].covers(name) && !limits[i].tryAcquire()) {
+				for (int j = 0; j < i; j++) {
+					if (limits[j].covers(name)) {
+						limits[j].release();
+					}
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Counts Simon against the cardinality limits regardless of the limits (replacement of unknown Simon). */
+	private void forceAcquireLimits(String name) {
+		for (CardinalityLimit limit : configuration.cardinalityLimits()) {
+			if (limit.covers(name)) {
+				limit.acquire();
+			}
+		}
+	}
+
+	private void releaseLimits(String name) {
+		for (CardinalityLimit limit : configuration.cardinalityLimits()) {
+			if (limit.covers(name)) {
+				limit.release();
+			}
+		}
+	}
+
+	/**
+	 * Returns the class implementing requested Simon type with the specified implementation.
+	 *
+	 * @param simonType requested Simon type ({@link Stopwatch} or {@link Counter})
+	 * @param implementation configured implementation
+	 * @return class of the Simon that can be instantiated
+	 */
+	private Class<? extends AbstractSimon> simonClass(Class<? extends Simon> simonType, SimonImplementation implementation) {
+		if (simonType == Stopwatch.class) {
+			switch (implementation) {
+				case STRIPED:
+					return StripedStopwatchImpl.class;
+				case BUFFERED:
+					return BufferedStopwatchImpl.class;
+				default:
+					return StopwatchImpl.class;
+			}
+		}
+		switch (implementation) {
+			case STRIPED:
+				return StripedCounterImpl.class;
+			case BUFFERED:
+				return BufferedCounterImpl.class;
+			default:
+				return CounterImpl.class;
+		}
+	}
+
+	/**
+	 * Creates new Simon for the name that is not in the manager yet. Threads creating different Simons do not block
+	 * each other (only structural changes are excluded), two threads creating the same Simon are resolved
+	 * by {@link ConcurrentHashMap#computeIfAbsent} - only one instance is created and set up (including its linking
+	 * into the hierarchy) before it is published in the map. {@link Callback#onSimonCreated(Simon)} is called
+	 * after the Simon is published and without holding any lock, only by the thread that actually created it.
+	 * <p>
+	 * If the name already belongs to another Simon (possibly created concurrently) that Simon is returned,
+	 * this can also be an {@link UnknownSimon} that must be replaced by the caller. Returns {@code null}
+	 * if the Simon was not created because of a cardinality limit. Cardinality limits are checked before
+	 * the missing parents are created, so a rejected Simon leaves no unknown parents behind.
+	 */
+	private AbstractSimon createSimon(String name, Class<? extends Simon> simonType) {
+		SimonUtils.validateSimonName(name);
+		SimonFactory factory = null;
+		AbstractSimon simon;
+		structureLock.readLock().lock();
+		try {
+			simon = allSimons.get(name);
+			if (simon == null) {
+				if (acquireLimits(name)) {
+					factory = new SimonFactory(simonType, parentFor(name));
+					simon = allSimons.computeIfAbsent(name, factory);
+					if (factory.created != simon) {
+						releaseLimits(name);
+					}
+				} else {
+					// the limit may have been reached by the same Simon created concurrently
+					simon = allSimons.get(name);
+				}
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+		if (factory != null && simon != null && factory.created == simon) {
+			callback.onSimonCreated(simon);
+		}
+		return simon;
+	}
+
+	/**
+	 * Replaces {@link UnknownSimon} with the Simon of the requested type. Replacement moves children of the
+	 * unknown Simon, hence it requires exclusive access. If the Simon was already replaced concurrently,
+	 * the replacement is returned as is.
+	 */
+	private AbstractSimon replaceUnknownSimon(String name, Class<? extends Simon> simonType) {
+		AbstractSimon simon;
+		boolean created = false;
+		structureLock.writeLock().lock();
+		try {
+			simon = allSimons.get(name);
+			if (simon == null) {
+				// destroyed in the meantime
+				simon = newSimon(name, simonType, parentFor(name));
+				allSimons.put(name, simon);
+				forceAcquireLimits(name);
+				created = true;
+			} else if (simon instanceof UnknownSimon) {
+				forceAcquireLimits(name);
+				simon = replaceUnknownSimon(simon, instantiateSimon(name, simonType, configuration.getConfig(name)));
+				created = true;
+			}
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+		if (created) {
+			callback.onSimonCreated(simon);
 		}
-		callback.onSimonCreated(simon);
 		return simon;
 	}
 
-	// called from synchronized method
-	private AbstractSimon replaceUnknownSimon(AbstractSimon simon, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon newSimon = instantiateSimon(simon.getName(), simonClass);
+	// called with write lock
+	private AbstractSimon replaceUnknownSimon(AbstractSimon simon, AbstractSimon newSimon) {
 		newSimon.enabled = simon.enabled;
 
 		// fixes parent link and parent's children list
@@ -158,19 +439,31 @@ public final class EnabledManager implements Manager {
 		}
 
 		allSimons.put(simon.getName(), newSimon);
+		version.incrementAndGet();
 		return newSimon;
 	}
 
-	// called from synchronized method
-	private AbstractSimon newSimon(String name, Class<? extends AbstractSimon> simonClass) {
-		AbstractSimon simon = instantiateSimon(name, simonClass);
-		if (name != null) {
-			addToHierarchy(simon, name);
-			SimonConfiguration config = configuration.getConfig(name);
-			if (config.getState() != null) {
-				simon.setState(config.getState(), false);
-			}
-			allSimons.put(name, simon);
+	/**
+	 * Creates fully set up Simon linked to the parent. Simon is added to the parent's children as the last step,
+	 * after its state is set.
+	 */
+	private AbstractSimon newSimon(String name, Class<? extends Simon> simonType, AbstractSimon parent) {
+		SimonConfiguration config = configuration.getConfig(name);
+		AbstractSimon simon = instantiateSimon(name, simonType, config);
+		simon.setParent(parent);
+		simon.enabled = parent.enabled;
+		if (config.getState() != null) {
+			simon.setState(config.getState(), false);
+		}
+		parent.linkChild(simon);
+		return simon;
+	}
+
+	/** Creates Stopwatch or Counter with the configured implementation and histogram. */
+	private AbstractSimon instantiateSimon(String name, Class<? extends Simon> simonType, SimonConfiguration config) {
+		AbstractSimon simon = instantiateSimon(name, simonClass(simonType, config.getImplementation()));
+		if (simon instanceof AbstractStopwatch && Boolean.TRUE.equals(config.getHistogram())) {
+			((AbstractStopwatch) simon).enableHistogram();
 		}
 		return simon;
 	}
@@ -186,19 +479,54 @@ public final class EnabledManager implements Manager {
 		return simon;
 	}
 
-	private void addToHierarchy(AbstractSimon simon, String name) {
+	/**
+	 * Returns parent for the Simon with the specified name, missing parents are created as {@link UnknownSimon}s.
+	 * Parents are resolved top-down before the Simon itself is created, so no map update is nested in another.
+	 * Called with read or write lock.
+	 */
+	private AbstractSimon parentFor(String name) {
 		int ix = name.lastIndexOf(HIERARCHY_DELIMITER);
-		AbstractSimon parent = rootSimon;
-		if (ix != -1) {
-			String parentName = name.substring(0, ix);
-			parent = allSimons.get(parentName);
-			if (parent == null) {
-				parent = new UnknownSimon(parentName, this);
-				addToHierarchy(parent, parentName);
-				allSimons.put(parentName, parent);
+		if (ix == -1) {
+			return rootSimon;
+		}
+		String parentName = name.substring(0, ix);
+		AbstractSimon parent = allSimons.get(parentName);
+		if (parent == null) {
+			parent = allSimons.computeIfAbsent(parentName, new SimonFactory(null, parentFor(parentName)));
+		}
+		return parent;
+	}
+
+	/**
+	 * Creates Simons for {@link ConcurrentHashMap#computeIfAbsent}, remembers the created Simon, so that
+	 * the caller knows whether it should call {@link Callback#onSimonCreated(Simon)}.
+	 */
+	private final class SimonFactory implements Function<String, AbstractSimon> {
+
+		/** Requested Simon type or null for unknown Simon. */
+		private final Class<? extends Simon> simonType;
+
+		private final AbstractSimon parent;
+
+		private AbstractSimon created;
+
+		SimonFactory(Class<? extends Simon> simonType, AbstractSimon parent) {
+			this.simonType = simonType;
+			this.parent = parent;
+		}
+
+		@Override
+		public AbstractSimon apply(String name) {
+			if (simonType == null) {
+				created = new UnknownSimon(name, EnabledManager.this);
+				created.setParent(parent);
+				created.enabled = parent.enabled;
+				parent.linkChild(created);
+			} else {
+				created = newSimon(name, simonType, parent);
 			}
+			return created;
 		}
-		parent.addChild(simon);
 	}
 
 	@Override
@@ -258,6 +586,111 @@ public final class EnabledManager implements Manager {
 		return clock.millisForNano(nanos);
 	}
 
+	/** Returns version of the manager, see {@link SimonHandle}. */
+	AtomicLong version() {
+		return version;
+	}
+
+	/**
+	 * Destroys leaf Stopwatches and Counters not used since the threshold and, if there are still more than
+	 * {@code maxSimons} Stopwatches and Counters, also the least recently used leaf ones. Unknown Simons
+	 * left without children are destroyed too. Stopwatches with active splits are never destroyed.
+	 * <p>
+	 * Candidates are selected without any lock, then they are destroyed under the write lock (excluding Simon
+	 * creation) only if they are still registered, have no children and were not used in the meantime.
+	 * New Simon with the same name is created on the next request, {@link SimonHandle}s resolve it automatically.
+	 * {@link Callback#onSimonDestroyed(Simon)} is called for every destroyed Simon after the lock is released.
+	 *
+	 * @param thresholdMs Simons last used before this timestamp are destroyed, Simons never used are not
+	 * destroyed because of the threshold
+	 * @param maxSimons maximum number of Stopwatches and Counters kept, 0 for no limit
+	 * @return number of destroyed Simons
+	 */
+	int purgeIdleSimons(long thresholdMs, int maxSimons) {
+		List<IdleCandidate> victims = new ArrayList<>();
+		List<IdleCandidate> leaves = new ArrayList<>();
+		int count = 0;
+		for (AbstractSimon simon : allSimons.values()) {
+			if (simon instanceof UnknownSimon) {
+				continue;
+			}
+			count++;
+			if (simon.getChildren().isEmpty() && !isActive(simon)) {
+				IdleCandidate candidate = new IdleCandidate(simon);
+				if (candidate.lastUsage != 0 && candidate.lastUsage < thresholdMs) {
+					victims.add(candidate);
+				} else {
+					leaves.add(candidate);
+				}
+			}
+		}
+		int excess = maxSimons > 0 ? count - victims.size() - maxSimons : 0;
+		if (excess > 0) {
+			Collections.sort(leaves);
+			victims.addAll(leaves.subList(0, Math.min(excess, leaves.size())));
+		}
+		if (victims.isEmpty()) {
+			return 0;
+		}
+
+		List<Simon> destroyed = new ArrayList<>();
+		structureLock.writeLock().lock();
+		try {
+			for (IdleCandidate victim : victims) {
+				AbstractSimon simon = victim.simon;
+				if (allSimons.get(simon.getName()) == simon && simon.getChildren().isEmpty() && !isActive(simon)
+					&& simon.getLastUsage() == victim.lastUsage)
+				{
+					destroyLeaf(simon, destroyed);
+				}
+			}
+			if (!destroyed.isEmpty()) {
+				version.incrementAndGet();
+			}
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+		for (Simon simon : destroyed) {
+			callback.onSimonDestroyed(simon);
+		}
+		return destroyed.size();
+	}
+
+	private static boolean isActive(AbstractSimon simon) {
+		return simon instanceof Stopwatch && ((Stopwatch) simon).getActive() > 0;
+	}
+
+	/** Removes leaf Simon and its unknown ancestors left without children, called with write lock. */
+	private void destroyLeaf(AbstractSimon simon, List<Simon> destroyed) {
+		allSimons.remove(simon.getName());
+		if (!(simon instanceof UnknownSimon)) {
+			releaseLimits(simon.getName());
+		}
+		AbstractSimon parent = (AbstractSimon) simon.getParent();
+		parent.replaceChild(simon, null);
+		destroyed.add(simon);
+		if (parent instanceof UnknownSimon && parent != rootSimon && parent.getChildren().isEmpty()) {
+			destroyLeaf(parent, destroyed);
+		}
+	}
+
+	/** Leaf Simon selected for destruction with its last usage at the time of the selection. */
+	private static final class IdleCandidate implements Comparable<IdleCandidate> {
+
+		private final AbstractSimon simon;
+		private final long lastUsage;
+
+		IdleCandidate(AbstractSimon simon) {
+			this.simon = simon;
+			lastUsage = simon.getLastUsage();
+		}
+
+		@Override
+		public int compareTo(IdleCandidate other) {
+			return Long.compare(lastUsage, other.lastUsage);
+		}
+	}
+
 	synchronized void purgeIncrementalSimonsOlderThan(long thresholdMs) {
 		for (Simon simon : allSimons.values()) {
 			if (simon instanceof AbstractSimon) {
@@ -0,0 +1,186 @@
+package org.javasimon;
+
+/**
+ * Extremes and usages of a Simon collected during one epoch of incremental sampling. Epoch starts when any
+ * incremental sample is taken (or when Counter is set) and the Simon updates only its current epoch
+ * on the hot path. Incremental sample for a key is computed from the cumulative sample bookmarked
+ * with the key and the epochs started since then, see {@link AbstractSimon#sampleIncrementHelper(Object)}.
+ * <p>
+ * {@link Guarded} epoch is used by Simons updated in synchronized blocks, {@link Concurrent} by lock-free Simons.
+ * Guarded epoch is also used as an accumulator merging the epochs for the incremental sample.
+ *
+ * @since 4.3
+ */
+abstract class Epoch {
+
+	/** Sequential number of the epoch within the Simon. */
+	final long id;
+
+	/** True if the epoch was started by Counter set, values in the epoch are not relative to the older epochs. */
+	final boolean startedBySet;
+
+	/**
+	 * Constructor used by subclasses.
+	 *
+	 * @param id sequential number of the epoch
+	 * @param startedBySet whether the epoch was started by setting the Counter
+	 */
+	Epoch(long id, boolean startedBySet) {
+		this.id = id;
+		this.startedBySet = startedBySet;
+	}
+
+	/**
+	 * Updates maximum if the new value is greater (or equal when {@code replaceEqual} is true).
+	 *
+	 * @param value new value
+	 * @param now ms timestamp
+	 * @param replaceEqual whether equal value replaces the current one
+	 */
+	abstract void updateMax(long value, long now, boolean replaceEqual);
+
+	/**
+	 * Updates minimum if the new value is lower (or equal when {@code replaceEqual} is true).
+	 *
+	 * @param value new value
+	 * @param now ms timestamp
+	 * @param replaceEqual whether equal value replaces the current one
+	 */
+	abstract void updateMin(long value, long now, boolean replaceEqual);
+
+	/**
+	 * Updates first and last usage of the epoch.
+	 *
+	 * @param now ms timestamp
+	 */
+	abstract void updateUsage(long now);
+
+	/**
+	 * Merges this epoch into the accumulator, this epoch must be younger than all the epochs already merged.
+	 *
+	 * @param window accumulator
+	 * @param offset offset subtracted from the extremes (to make them relative to the bookmark)
+	 * @param replaceEqual whether equal extremes of younger epoch replace the older ones
+	 */
+	abstract void mergeInto(Guarded window, long offset, boolean replaceEqual);
+
+	/** Epoch with plain fields that must be accessed in a block synchronized on the owning Simon. */
+	static final class Guarded extends Epoch {
+
+		long max;
+		long maxTimestamp;
+		long min = Long.MAX_VALUE;
+		long minTimestamp;
+		long firstUsage;
+		long lastUsage;
+
+		private final long initialMax;
+
+		/**
+		 * Creates the epoch.
+		 *
+		 * @param id sequential number of the epoch
+		 * @param startedBySet whether the epoch was started by setting the Counter
+		 * @param initialMax initial value of the maximum, minimum always starts at {@code Long.MAX_VALUE}
+		 */
+		Guarded(long id, boolean startedBySet, long initialMax) {
+			super(id, startedBySet);
+			this.initialMax = initialMax;
+			max = initialMax;
+		}
+
+		@Override
+		void updateMax(long value, long now, boolean replaceEqual) {
+			if (value > max || (replaceEqual && value == max)) {
+				max = value;
+				maxTimestamp = now;
+			}
+		}
+
+		@Override
+		void updateMin(long value, long now, boolean replaceEqual) {
+			if (value < min || (replaceEqual && value == min)) {
+				min = value;
+				minTimestamp = now;
+			}
+		}
+
+		@Override
+		void updateUsage(long now) {
+			lastUsage = now;
+			if (firstUsage == 0) {
+				firstUsage = now;
+			}
+		}
+
+		@Override
+		void mergeInto(Guarded window, long offset, boolean replaceEqual) {
+			if (max != initialMax || maxTimestamp != 0) {
+				window.updateMax(max - offset, maxTimestamp, replaceEqual);
+			}
+			if (min != Long.MAX_VALUE || minTimestamp != 0) {
+				window.updateMin(min - offset, minTimestamp, replaceEqual);
+			}
+			mergeUsages(window, firstUsage, lastUsage);
+		}
+	}
+
+	/** Lock-free epoch for Simons updated concurrently. */
+	static final class Concurrent extends Epoch {
+
+		private final AtomicExtreme max;
+		private final AtomicExtreme min = new AtomicExtreme(Long.MAX_VALUE);
+		private volatile long firstUsage;
+		private volatile long lastUsage;
+
+		/**
+		 * Creates the epoch.
+		 *
+		 * @param id sequential number of the epoch
+		 * @param startedBySet whether the epoch was started by setting the Counter
+		 * @param initialMax initial value of the maximum, minimum always starts at {@code Long.MAX_VALUE}
+		 */
+		Concurrent(long id, boolean startedBySet, long initialMax) {
+			super(id, startedBySet);
+			max = new AtomicExtreme(initialMax);
+		}
+
+		@Override
+		void updateMax(long value, long now, boolean replaceEqual) {
+			max.updateMax(value, now, replaceEqual);
+		}
+
+		@Override
+		void updateMin(long value, long now, boolean replaceEqual) {
+			min.updateMin(value, now, replaceEqual);
+		}
+
+		@Override
+		void updateUsage(long now) {
+			lastUsage = now;
+			if (firstUsage == 0) {
+				firstUsage = now;
+			}
+		}
+
+		@Override
+		void mergeInto(Guarded window, long offset, boolean replaceEqual) {
+			if (max.isUpdated()) {
+				AtomicExtreme.Value value = max.get();
+				window.updateMax(value.value - offset, value.timestamp, replaceEqual);
+			}
+			if (min.isUpdated()) {
+				AtomicExtreme.Value value = min.get();
+				window.updateMin(value.value - offset, value.timestamp, replaceEqual);
+			}
+			mergeUsages(window, firstUsage, lastUsage);
+		}
+	}
+
+	private static void mergeUsages(Guarded window, long firstUsage, long lastUsage) {
+		if (firstUsage != 0) {
+			window.updateUsage(firstUsage);
+			window.updateUsage(lastUsage);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.javasimon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically destroys idle Simons of the specified Manager - leaf Stopwatches and Counters that were not used
+ * for the specified idle time (based on {@link Simon#getLastUsage()}) and, if the size bound is set, least recently
+ * used leaf Stopwatches and Counters above the bound. Long running applications with Simons named after URIs
+ * or SQL statements otherwise keep all the Simons ever used, including their JMX beans and console rows.
+ * <p>
+ * Destroyed Simons are reported via {@link org.javasimon.callback.Callback#onSimonDestroyed(Simon)}, so JMX
+ * and other callbacks can clean up. Unknown Simons left without children are destroyed as well, Stopwatches with
+ * active splits and Simons never used are never destroyed because of the idle time. Simon is destroyed only if it was
+ * not used between the selection and the destruction, new Simon with the same name is created with the next request
+ * and {@link SimonHandle}s resolve it automatically. Measurement on a Simon obtained just before it was destroyed
+ * is lost.
+ * <p>
+ * Purger is started and cancelled the same way as {@link IncrementalSimonsPurger}, e.g. to destroy Simons not used
+ * for a day and keep at most 10000 Stopwatches and Counters, checking every 10 minutes:
+ * <pre>
+ * {@code
+ * IdleSimonsPurger purger = new IdleSimonsPurger(SimonManager.manager(), 1, TimeUnit.DAYS, 10000);
+ * purger.start(10, TimeUnit.MINUTES);
+ * }
+ * </pre>
+ *
+ * @since 4.3
+ */
+public final class IdleSimonsPurger {
+
+	private static final Logger logger = LoggerFactory.getLogger(IdleSimonsPurger.class);
+
+	private final Manager manager;
+
+	/** Idle time in ms, 0 if Simons are not destroyed because of the idle time. */
+	private final long maxIdleMs;
+
+	/** Maximum number of Stopwatches and Counters, 0 if there is no limit. */
+	private final int maxSimons;
+
+	private final ScheduledExecutorService executorService;
+
+	private ScheduledFuture<?> scheduledFuture;
+
+	/**
+	 * Creates purger destroying Simons not used for the specified time.
+	 *
+	 * @param manager manager whose Simons are destroyed
+	 * @param maxIdleTime time after which unused Simon is destroyed
+	 * @param unit time unit of the idle time
+	 */
+	public IdleSimonsPurger(Manager manager, long maxIdleTime, TimeUnit unit) {
+		this(manager, maxIdleTime, unit, 0);
+	}
+
+	/**
+	 * Creates purger destroying Simons not used for the specified time and least recently used Simons
+	 * above the specified number of Stopwatches and Counters.
+	 *
+	 * @param manager manager whose Simons are destroyed
+	 * @param maxIdleTime time after which unused Simon is destroyed, 0 to use only the size bound
+	 * @param unit time unit of the idle time
+	 * @param maxSimons maximum number of Stopwatches and Counters, 0 for no size bound
+	 */
+	public IdleSimonsPurger(Manager manager, long maxIdleTime, TimeUnit unit, int maxSimons) {
+		this(manager, maxIdleTime, unit, maxSimons,
+			Executors.newSingleThreadScheduledExecutor(new IncrementalSimonsPurger.DaemonThreadFactory()));
+	}
+
+	IdleSimonsPurger(Manager manager, long maxIdleTime, TimeUnit unit, int maxSimons, ScheduledExecutorService executorService) {
+		if (maxIdleTime < 0 || maxSimons < 0 || maxIdleTime == 0 && maxSimons == 0) {
+			throw new IllegalArgumentException("Idle time and maximum Simons must not be negative and one of them"
+				+ " must be positive, were: " + maxIdleTime + ", " + maxSimons);
+		}
+		this.manager = manager;
+		this.maxIdleMs = unit.toMillis(maxIdleTime);
+		this.maxSimons = maxSimons;
+		this.executorService = executorService;
+	}
+
+	/**
+	 * Start periodical Simons purging with the specified period.
+	 *
+	 * @param period duration of purging period
+	 * @param timeUnit time unit of period duration
+	 */
+	public synchronized void start(long period, TimeUnit timeUnit) {
+		if (scheduledFuture == null) {
+			scheduledFuture = executorService.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					purge();
+				}
+			}, period, period, timeUnit);
+		} else {
+			throw new IllegalStateException("IdleSimonsPurger has already been started");
+		}
+	}
+
+	/** Cancel periodical Simons purging if it was started. */
+	public synchronized void cancel() {
+		if (scheduledFuture != null) {
+			scheduledFuture.cancel(false);
+			scheduledFuture = null;
+		} else {
+			throw new IllegalStateException("IdleSimonsPurger is either cancelled or was not started");
+		}
+	}
+
+	/**
+	 * Destroys idle Simons right now, this is what the purger does periodically after it is started.
+	 *
+	 * @return number of destroyed Simons
+	 */
+	public int purge() {
+		long threshold = maxIdleMs > 0 ? manager.milliTime() - maxIdleMs : Long.MIN_VALUE;
+		int destroyed = 0;
+		try {
+			if (manager instanceof EnabledManager) {
+				destroyed = ((EnabledManager) manager).purgeIdleSimons(threshold, maxSimons);
+			} else if (manager instanceof SwitchingManager) {
+				destroyed = ((SwitchingManager) manager).purgeIdleSimons(threshold, maxSimons);
+			}
+		} catch (RuntimeException e) {
+			// exception would cancel the periodic task
+			manager.warning("Purging of idle Simons failed", e);
+		}
+		logger.debug("Destroyed {} idle Simons", destroyed);
+		return destroyed;
+	}
+}
@@ -6,8 +6,10 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.*;
 
 /**
- * This class implements periodical removing of old incremental Simons for specified Manager.
- * Unused incremental samples can cause memory leaks and performance degradation and should be purged regularly.
+ * This class implements periodical removing of old incremental sampling keys for specified Manager.
+ * Simon keeps a bookmark (cumulative sample) for every key used with {@link Simon#sampleIncrement(Object)}
+ * and the bookmark is purged if the key was not sampled since the previous run of the purger.
+ * Unused incremental sampling keys can cause memory leaks and should be purged regularly.
  *
  * Purger can be in one of two states: stopped or started. When an instance of the class is create it is in the
  * stopped stated. Method {@link IncrementalSimonsPurger#start(long, java.util.concurrent.TimeUnit)}
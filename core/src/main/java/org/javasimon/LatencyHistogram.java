@@ -0,0 +1,225 @@
+package org.javasimon;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of split times with log-linear bucket layout (similar to HDR histogram). Every power of two
+ * is divided into {@value #SUB_BUCKETS} linear sub-buckets, so the width of the bucket is at most 1/32 of its lower
+ * bound and the value reported for the bucket (its middle) differs from any value counted in it by less than 1.6 %.
+ * Values lower than 64 ns have their own buckets, values over 2<sup>36</sup> ns (68.7 s) are counted in the last
+ * bucket. Histogram has {@value #BUCKET_COUNT} buckets, so it takes fixed 8 kB of memory, recording is a single
+ * atomic increment of the bucket counter with index computed in constant time.
+ * <p>
+ * Histogram is optional part of the Stopwatch, see {@link ManagerConfiguration#setDefaultHistogram(boolean)}.
+ * Bucket counts are available in {@link StopwatchSample#getHistogram()} together with quantiles computed from them,
+ * bucket bounds can be obtained by {@link #bucketLowerBound(int)} and {@link #bucketUpperBound(int)}.
+ * <p>
+ * All histograms share the same bucket layout, so histograms of different Stopwatches (or of the same Stopwatch
+ * in different JVMs) are merged simply by adding their bucket counts ({@link #merge(long[], long[])}) and quantiles
+ * of the merged histogram have the same accuracy. This is used by
+ * {@link org.javasimon.utils.SimonUtils#calculateStopwatchAggregate(Simon)} and other aggregation methods.
+ * Bucket counts can be transferred in compact form produced by {@link #encode(long[])}.
+ *
+ * @since 4.3
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/** Number of linear sub-buckets in every power of two. */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Highest power of two with its own buckets, higher values are counted in the last bucket. */
+	private static final int MAX_EXPONENT = 35;
+
+	/** Number of buckets of the histogram. */
+	public static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	/** Version of the {@link #encode(long[])} format, first byte of the encoded histogram. */
+	private static final int ENCODING_VERSION = 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * Counts the value in its bucket.
+	 *
+	 * @param value value (split time in ns)
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(bucketIndex(value));
+	}
+
+	/**
+	 * Returns copy of the bucket counts. Buckets are read one by one while they may be updated concurrently,
+	 * so the snapshot does not necessarily represent the histogram in one moment.
+	 *
+	 * @return array of bucket counts
+	 */
+	public long[] snapshot() {
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns the index of the bucket for the value.
+	 *
+	 * @param value value (split time in ns), negative values are counted in the first bucket
+	 * @return bucket index
+	 */
+	public static int bucketIndex(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return value < 0 ? 0 : (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	/**
+	 * Returns the lowest value counted in the bucket.
+	 *
+	 * @param index bucket index
+	 * @return lower bound of the bucket (inclusive)
+	 */
+	public static long bucketLowerBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+	}
+
+	/**
+	 * Returns the highest value counted in the bucket. The last bucket counts also all the higher values.
+	 *
+	 * @param index bucket index
+	 * @return upper bound of the bucket (inclusive)
+	 */
+	public static long bucketUpperBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		return bucketLowerBound(index) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Returns the estimate of the quantile from the bucket counts - the middle of the bucket where the quantile falls.
+	 *
+	 * @param counts bucket counts (see {@link #snapshot()})
+	 * @param quantile quantile from 0 to 1 (e.g. 0.99 for the 99th percentile)
+	 * @return estimated quantile value or 0 if there are no values
+	 */
+	public static long quantile(long[] counts, double quantile) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long cumulative = 0;
+		for (int i = 0; i < counts.length; i++) {
+			cumulative += counts[i];
+			if (cumulative >= rank) {
+				return (bucketLowerBound(i) + bucketUpperBound(i)) / 2;
+			}
+		}
+		return bucketUpperBound(counts.length - 1);
+	}
+
+	/**
+	 * Adds bucket counts of one histogram to the other one.
+	 *
+	 * @param target bucket counts that are increased
+	 * @param counts bucket counts that are added
+	 * @throws IllegalArgumentException if the arrays have different length
+	 */
+	public static void merge(long[] target, long[] counts) {
+		if (target.length != counts.length) {
+			throw new IllegalArgumentException("Histograms have different number of buckets: "
+				+ target.length + ", " + counts.length);
+		}
+		for (int i = 0; i < counts.length; i++) {
+			target[i] += counts[i];
+		}
+	}
+
+	/**
+	 * Encodes bucket counts into compact binary form - only non-empty buckets are stored as pairs of index gap
+	 * and count, both as variable length numbers (7 bits per byte). Histogram with values in few buckets takes
+	 * just tens of bytes instead of 8 kB. Use {@link #decode(byte[])} to restore bucket counts.
+	 *
+	 * @param counts bucket counts (see {@link #snapshot()})
+	 * @return encoded histogram
+	 */
+	public static byte[] encode(long[] counts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(ENCODING_VERSION);
+		int previous = -1;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				writeVarLong(out, i - previous - 1);
+				writeVarLong(out, counts[i]);
+				previous = i;
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes bucket counts encoded by {@link #encode(long[])}.
+	 *
+	 * @param bytes encoded histogram
+	 * @return array of {@link #BUCKET_COUNT} bucket counts
+	 * @throws IllegalArgumentException if the bytes are not valid encoded histogram
+	 */
+	public static long[] decode(byte[] bytes) {
+		if (bytes.length == 0 || bytes[0] != ENCODING_VERSION) {
+			throw new IllegalArgumentException("Unsupported histogram encoding");
+		}
+		long[] counts = new long[BUCKET_COUNT];
+		int[] position = {1};
+		long index = -1;
+		while (position[0] < bytes.length) {
+			index += readVarLong(bytes, position) + 1;
+			long count = readVarLong(bytes, position);
+			if (index < 0 || index >= BUCKET_COUNT) {
+				throw new IllegalArgumentException("Histogram bucket index out of range: " + index);
+			}
+			counts[(int) index] = count;
+		}
+		return counts;
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(byte[] bytes, int[] position) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (position[0] >= bytes.length) {
+				throw new IllegalArgumentException("Truncated histogram encoding");
+			}
+			byte b = bytes[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed histogram encoding");
+	}
+}
@@ -3,6 +3,7 @@ package org.javasimon;
 import org.javasimon.callback.CompositeCallback;
 import org.javasimon.clock.SimonClock;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -74,7 +75,9 @@ public interface Manager extends SimonClock {
 	/**
 	 * Returns collection containing all existing Simons accepted by specified {@link SimonFilter}.
 	 * If {@code null} filter is provided all Simons are returned in an unmodifiable Collection.
-	 * Otherwise new collection with matching Simons is returned.
+	 * Otherwise new collection with matching Simons is returned. If the filter is {@link SimonPattern}
+	 * without the leading wildcard (exact name or prefix) only the matching part of the Simon hierarchy
+	 * is searched instead of all the Simons.
 	 *
 	 * @param simonFilter filter accepting the Simons to result collection
 	 * @return collection of all Simons which pass the filter
@@ -83,9 +86,32 @@ public interface Manager extends SimonClock {
 	 */
 	Collection<Simon> getSimons(SimonFilter simonFilter);
 
+	/**
+	 * Returns new collection containing the Simon with the specified name and all its descendants
+	 * (including {@link UnknownSimon}s in the hierarchy). Time of this operation is proportional to the size
+	 * of the subtree, not to the number of all Simons in the manager.
+	 * <p>
+	 * Default implementation (for managers not provided by Java Simon) filters all the Simons by name.
+	 *
+	 * @param name name of the Simon at the top of the subtree, {@link #ROOT_SIMON_NAME} returns all the Simons
+	 * @return collection of Simons in the subtree, empty if the Simon does not exist
+	 * @since 4.3
+	 */
+	default Collection<Simon> getSubtreeSimons(String name) {
+		Collection<Simon> simons = new ArrayList<>();
+		String prefix = name + HIERARCHY_DELIMITER;
+		for (Simon simon : getSimons(null)) {
+			String simonName = simon.getName();
+			if (ROOT_SIMON_NAME.equals(name) || name.equals(simonName) || simonName != null && simonName.startsWith(prefix)) {
+				simons.add(simon);
+			}
+		}
+		return simons;
+	}
+
 	/**
 	 * Removes Simon from the Manager. If Simon has some children it will be replaced
-	 * by UnknownSimon.
+	 * by UnknownSimon. Nothing happens if there is no Simon with the name.
 	 *
 	 * @param name name of the Simon
 	 */
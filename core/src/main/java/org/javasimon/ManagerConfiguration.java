@@ -3,6 +3,7 @@ package org.javasimon;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,23 +43,200 @@ import org.javasimon.utils.bean.SimonBeanUtils;
 // of the config - so it can be set up by Spring for instance
 public final class ManagerConfiguration {
 
-	private Map<SimonPattern, SimonConfiguration> configs;
+	/** Default interval of buffer merging for {@link SimonImplementation#BUFFERED} Simons is 1 s. */
+	public static final long DEFAULT_BUFFER_MERGE_INTERVAL = 1000;
 
-	private final Manager manager;
+	/**
+	 * Configurations of Simon patterns, immutable snapshot replaced as a whole when changed, so that Simon creation
+	 * can read it without locking.
+	 */
+	private volatile Map<SimonPattern, SimonConfiguration> configs;
+
+	private volatile SimonImplementation defaultImplementation;
+
+	private volatile long bufferMergeInterval;
+
+	private volatile boolean defaultHistogram;
+
+	/** Cardinality limits, replaced as a whole when changed, so that Simon creation can read them without locking. */
+	private volatile CardinalityLimit[] cardinalityLimits;
+
+	private final EnabledManager manager;
 
 	/**
 	 * Creates manager configuration for a specified manager.
 	 *
 	 * @param manager manager on whose behalf this configuration is created
 	 */
-	ManagerConfiguration(Manager manager) {
+	ManagerConfiguration(EnabledManager manager) {
 		this.manager = manager;
 		clear();
 	}
 
 	/** Clears any previously loaded configuration. */
-	public void clear() {
-		configs = new LinkedHashMap<>();
+	public synchronized void clear() {
+		configs = Collections.emptyMap();
+		defaultImplementation = SimonImplementation.SYNCHRONIZED;
+		bufferMergeInterval = DEFAULT_BUFFER_MERGE_INTERVAL;
+		defaultHistogram = false;
+		cardinalityLimits = new CardinalityLimit[0];
+	}
+
+	/**
+	 * Returns implementation used for newly created Stopwatches and Counters unless configured otherwise
+	 * for the particular Simon name.
+	 *
+	 * @return default Simon implementation of the manager
+	 * @since 4.3
+	 */
+	public SimonImplementation getDefaultImplementation() {
+		return defaultImplementation;
+	}
+
+	/**
+	 * Sets implementation used for newly created Stopwatches and Counters unless configured otherwise
+	 * for the particular Simon name. Existing Simons are not affected.
+	 *
+	 * @param defaultImplementation default Simon implementation of the manager
+	 * @since 4.3
+	 */
+	public void setDefaultImplementation(SimonImplementation defaultImplementation) {
+		if (defaultImplementation == null) {
+			throw new IllegalArgumentException("Default implementation must not be null");
+		}
+		this.defaultImplementation = defaultImplementation;
+	}
+
+	/**
+	 * Returns whether newly created Stopwatches have the {@link LatencyHistogram} unless configured otherwise
+	 * for the particular Simon name.
+	 *
+	 * @return true if Stopwatches have the histogram by default
+	 * @since 4.3
+	 */
+	public boolean isDefaultHistogram() {
+		return defaultHistogram;
+	}
+
+	/**
+	 * Sets whether newly created Stopwatches have the {@link LatencyHistogram} unless configured otherwise
+	 * for the particular Simon name (attribute {@code histogram} of the {@code simon} element). Histogram takes
+	 * 8 kB per Stopwatch and adds one atomic increment to every split. Existing Stopwatches are not affected.
+	 *
+	 * @param defaultHistogram true if Stopwatches should have the histogram by default
+	 * @since 4.3
+	 */
+	public void setDefaultHistogram(boolean defaultHistogram) {
+		this.defaultHistogram = defaultHistogram;
+	}
+
+	/**
+	 * Returns the interval (in ms) after which the thread merges its buffer into the shared state
+	 * of a {@link SimonImplementation#BUFFERED} Simon.
+	 *
+	 * @return merge interval in ms
+	 * @since 4.3
+	 */
+	public long getBufferMergeInterval() {
+		return bufferMergeInterval;
+	}
+
+	/**
+	 * Sets the interval (in ms) after which the thread merges its buffer into the shared state
+	 * of a {@link SimonImplementation#BUFFERED} Simon. Values are always merged before they are read from the Simon,
+	 * the interval limits how long the updates of a thread stay out of the shared state while the thread
+	 * keeps updating the Simon. Applies to newly created Simons only, 0 means that every update is merged immediately.
+	 *
+	 * @param bufferMergeInterval merge interval in ms
+	 * @since 4.3
+	 */
+	public void setBufferMergeInterval(long bufferMergeInterval) {
+		if (bufferMergeInterval < 0) {
+			throw new IllegalArgumentException("Buffer merge interval must not be negative: " + bufferMergeInterval);
+		}
+		this.bufferMergeInterval = bufferMergeInterval;
+	}
+
+	/**
+	 * Limits the number of Stopwatches and Counters in the subtree of the Simon hierarchy (Simons named
+	 * {@code prefix.*}) or in the whole manager if the prefix is {@code null}. This protects the manager from
+	 * unbounded growth when Simon names are derived from unbounded data (e.g. unparameterized SQL).
+	 * <p>
+	 * When the limit is reached, requests for new Simons in the subtree return the overflow Simon
+	 * {@code prefix._overflow} (top-level {@code _overflow} for the global limit) instead, every such request
+	 * increases the Counter {@code prefix._rejected} ({@code _rejected}) and the first one is reported as the manager
+	 * warning. Existing Simons are counted against the new limit, Simons over the limit are not removed.
+	 * Unknown Simons created for missing parents, overflow and rejected Simons are not counted.
+	 *
+	 * @param prefix name prefix of the limited subtree or {@code null} for the global limit
+	 * @param maxSimons maximum number of Simons, must be positive
+	 * @since 4.3
+	 */
+	public synchronized void setCardinalityLimit(String prefix, int maxSimons) {
+		if (maxSimons <= 0) {
+			throw new IllegalArgumentException("Cardinality limit must be positive: " + maxSimons);
+		}
+		final CardinalityLimit limit = new CardinalityLimit(prefix, maxSimons);
+		final List<CardinalityLimit> limits = cardinalityLimitsWithout(prefix);
+		limits.add(limit);
+		// no Simon can be created or destroyed between counting the existing Simons and installing the limit
+		manager.withStructureLock(new Runnable() {
+			@Override
+			public void run() {
+				for (Simon simon : limit.getPrefix() == null ? manager.getSimons(null) : manager.getSubtreeSimons(limit.getPrefix())) {
+					if (!(simon instanceof UnknownSimon) && limit.covers(simon.getName())) {
+						limit.acquire();
+					}
+				}
+				cardinalityLimits = limits.toArray(new CardinalityLimit[limits.size()]);
+			}
+		});
+	}
+
+	/**
+	 * Removes the cardinality limit for the subtree (or the global limit if the prefix is {@code null}).
+	 *
+	 * @param prefix name prefix of the limited subtree or {@code null} for the global limit
+	 * @since 4.3
+	 */
+	public synchronized void removeCardinalityLimit(String prefix) {
+		List<CardinalityLimit> limits = cardinalityLimitsWithout(prefix);
+		cardinalityLimits = limits.toArray(new CardinalityLimit[limits.size()]);
+	}
+
+	/**
+	 * Returns the cardinality limit for the subtree (or the global limit if the prefix is {@code null}).
+	 *
+	 * @param prefix name prefix of the limited subtree or {@code null} for the global limit
+	 * @return maximum number of Simons or 0 if there is no limit
+	 * @since 4.3
+	 */
+	public int getCardinalityLimit(String prefix) {
+		for (CardinalityLimit limit : cardinalityLimits) {
+			if (prefix == null ? limit.getPrefix() == null : prefix.equals(limit.getPrefix())) {
+				return limit.getMax();
+			}
+		}
+		return 0;
+	}
+
+	private List<CardinalityLimit> cardinalityLimitsWithout(String prefix) {
+		List<CardinalityLimit> limits = new ArrayList<>();
+		for (CardinalityLimit limit : cardinalityLimits) {
+			if (prefix == null ? limit.getPrefix() != null : !prefix.equals(limit.getPrefix())) {
+				limits.add(limit);
+			}
+		}
+		return limits;
+	}
+
+	/**
+	 * Returns current cardinality limits, the array must not be modified.
+	 *
+	 * @return cardinality limits
+	 */
+	CardinalityLimit[] cardinalityLimits() {
+		return cardinalityLimits;
 	}
 
 	/**
@@ -81,6 +259,8 @@ public final class ManagerConfiguration {
 						manager.callback().addCallback(processFilterCallback(xr));
 					} else if (isStartTag(xr, "simon")) {
 						processSimon(xr);
+					} else if (isStartTag(xr, "cardinality-limit")) {
+						processCardinalityLimit(xr);
 					} else {
 						break;
 					}
@@ -214,18 +394,37 @@ public final class ManagerConfiguration {
 		Map<String, String> attrs = processStartElement(xr, "simon", "pattern");
 		String pattern = attrs.get("pattern");
 		SimonState state = attrs.get("state") != null ? SimonState.valueOf(toEnum(attrs.get("state"))) : null;
-		configs.put(new SimonPattern(pattern), new SimonConfiguration(state));
+		SimonImplementation implementation = attrs.get("implementation") != null
+			? SimonImplementation.valueOf(toEnum(attrs.get("implementation"))) : null;
+		Boolean histogram = attrs.get("histogram") != null ? Boolean.valueOf(attrs.get("histogram").trim()) : null;
+		Map<SimonPattern, SimonConfiguration> newConfigs = new LinkedHashMap<>(configs);
+		newConfigs.put(new SimonPattern(pattern), new SimonConfiguration(state, implementation, histogram));
+		configs = Collections.unmodifiableMap(newConfigs);
 		processEndElement(xr, "simon");
 	}
 
+	private void processCardinalityLimit(XMLStreamReader xr) throws XMLStreamException {
+		Map<String, String> attrs = processStartElement(xr, "cardinality-limit", "max");
+		try {
+			setCardinalityLimit(attrs.get("prefix"), Integer.parseInt(attrs.get("max").trim()));
+		} catch (IllegalArgumentException e) {
+			throw new XMLStreamException("Attribute 'max' must be a positive number (element: cardinality-limit). "
+				+ readerPosition(xr), e);
+		}
+		processEndElement(xr, "cardinality-limit");
+	}
+
 	/**
-	 * Returns configuration for the Simon with the specified name.
+	 * Returns configuration for the Simon with the specified name. Called for every new Simon, reads the current
+	 * configuration snapshot without locking.
 	 *
 	 * @param name Simon name
 	 * @return configuration for that particular Simon
 	 */
-	synchronized SimonConfiguration getConfig(String name) {
+	SimonConfiguration getConfig(String name) {
 		SimonState state = null;
+		SimonImplementation implementation = defaultImplementation;
+		boolean histogram = defaultHistogram;
 
 		for (Map.Entry<SimonPattern, SimonConfiguration> entry : configs.entrySet()) {
 			if (entry.getKey().matches(name)) {
@@ -233,9 +432,15 @@ public final class ManagerConfiguration {
 				if (config.getState() != null) {
 					state = config.getState();
 				}
+				if (config.getImplementation() != null) {
+					implementation = config.getImplementation();
+				}
+				if (config.getHistogram() != null) {
+					histogram = config.getHistogram();
+				}
 			}
 		}
-		return new SimonConfiguration(state);
+		return new SimonConfiguration(state, implementation, histogram);
 	}
 
 	private String toEnum(String enumVal) {
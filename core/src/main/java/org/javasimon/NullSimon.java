@@ -237,6 +237,21 @@ final class NullStopwatch extends NullSimon implements Stopwatch {
 		return NULL_SPLIT;
 	}
 
+	@Override
+	public long startNanos() {
+		return DISABLED_TOKEN;
+	}
+
+	@Override
+	public long stopNanos(long token) {
+		return 0;
+	}
+
+	@Override
+	public Stopwatch addNanos(long nanos) {
+		return this;
+	}
+
 	@Override
 	public long getTotal() {
 		return 0;
@@ -2,20 +2,29 @@ package org.javasimon;
 
 /**
  * Stores configuration for the particular Simon or the set of Simons.
- * Currently it holds only the state of the Simon.
+ * Currently it holds the state of the Simon, the implementation used for Stopwatches and Counters and whether
+ * Stopwatches have the histogram.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public final class SimonConfiguration {
 	private SimonState state;
 
+	private SimonImplementation implementation;
+
+	private Boolean histogram;
+
 	/**
 	 * Creates SimonConfiguration item.
 	 *
 	 * @param state preferred state - SimonManager sets inherit if null is specified here
+	 * @param implementation implementation of the Simon - manager default is used if null is specified here
+	 * @param histogram whether Stopwatch has the histogram - manager default is used if null is specified here
 	 */
-	SimonConfiguration(SimonState state) {
+	SimonConfiguration(SimonState state, SimonImplementation implementation, Boolean histogram) {
 		this.state = state;
+		this.implementation = implementation;
+		this.histogram = histogram;
 	}
 
 	/**
@@ -27,6 +36,26 @@ public final class SimonConfiguration {
 		return state;
 	}
 
+	/**
+	 * Returns implementation for Stopwatches and Counters for this configuration item.
+	 *
+	 * @return configured Simon implementation or null if nothing was specified
+	 * @since 4.3
+	 */
+	public SimonImplementation getImplementation() {
+		return implementation;
+	}
+
+	/**
+	 * Returns whether Stopwatches have the {@link LatencyHistogram} for this configuration item.
+	 *
+	 * @return true/false for configured histogram or null if nothing was specified
+	 * @since 4.3
+	 */
+	public Boolean getHistogram() {
+		return histogram;
+	}
+
 	/**
 	 * Returns configuration information about Simon (stat processor type and state) as a human readable string.
 	 *
@@ -36,6 +65,8 @@ public final class SimonConfiguration {
 	public String toString() {
 		return "SimonConfiguration {\n" +
 			"  state=" + state + "\n" +
+			"  implementation=" + implementation + "\n" +
+			"  histogram=" + histogram + "\n" +
 			"}";
 	}
 }
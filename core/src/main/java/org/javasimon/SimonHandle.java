@@ -0,0 +1,125 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle resolving a named Simon from the {@link Manager} only when necessary. Handle is meant to be created
+ * once and kept (e.g. in a static field) by the code that would otherwise call {@code manager.getStopwatch(name)}
+ * on every invocation - {@link #get()} then costs only one volatile read of the manager's version instead
+ * of {@link SwitchingManager} delegation and map lookup by name (often concatenated right before the call).
+ * <p>
+ * Handle stays valid when the Simon instance for the name changes - after {@link Manager#clear()},
+ * {@link Manager#destroySimon(String)} or {@link Manager#enable()}/{@link Manager#disable()} switch.
+ * {@link EnabledManager} and {@link SwitchingManager} change their version in these cases and the handle
+ * re-resolves the Simon lazily on the next {@link #get()}. For other Manager implementations the Simon is resolved
+ * on every call.
+ *
+ * @param <T> type of the Simon
+ * @see StopwatchHandle
+ * @see CounterHandle
+ * @since 4.3
+ */
+public abstract class SimonHandle<T extends Simon> {
+
+	private final Manager manager;
+
+	private final String name;
+
+	/** Version of the manager or null if the manager does not support versions. */
+	private final AtomicLong version;
+
+	/** Not volatile - {@link Binding} is immutable and the racy publication is harmless. */
+	private Binding<T> binding;
+
+	/**
+	 * Creates handle for a Simon with the specified name in the specified manager.
+	 * Simon is not resolved until the first {@link #get()}.
+	 *
+	 * @param manager manager of the Simon
+	 * @param name name of the Simon, anonymous Simons are not supported
+	 * @throws SimonException if the name is null
+	 */
+	protected SimonHandle(Manager manager, String name) {
+		if (name == null) {
+			throw new SimonException("Simon handle requires Simon name, anonymous Simons are not supported");
+		}
+		this.manager = manager;
+		this.name = name;
+		this.version = versionOf(manager);
+	}
+
+	private static AtomicLong versionOf(Manager manager) {
+		if (manager instanceof SwitchingManager) {
+			return ((SwitchingManager) manager).version();
+		} else if (manager instanceof EnabledManager) {
+			return ((EnabledManager) manager).version();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the Simon for the name of this handle - previously resolved Simon is returned if the manager did not
+	 * change since then.
+	 *
+	 * @return Simon for the name of this handle
+	 */
+	public final T get() {
+		if (version == null) {
+			return resolve(manager, name);
+		}
+		// version must be read before resolution, concurrent change then causes re-resolution next time
+		long currentVersion = version.get();
+		Binding<T> currentBinding = binding;
+		if (currentBinding != null && currentBinding.version == currentVersion) {
+			return currentBinding.simon;
+		}
+		T simon = resolve(manager, name);
+		binding = new Binding<>(currentVersion, simon);
+		return simon;
+	}
+
+	/**
+	 * Resolves the Simon from the manager, typically creating it if necessary.
+	 *
+	 * @param manager manager of the Simon
+	 * @param name name of the Simon
+	 * @return resolved Simon
+	 */
+	protected abstract T resolve(Manager manager, String name);
+
+	/**
+	 * Returns the name of the Simon.
+	 *
+	 * @return name of the Simon
+	 */
+	public final String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the manager of the Simon.
+	 *
+	 * @return manager of the Simon
+	 */
+	public final Manager getManager() {
+		return manager;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{" + name + "}";
+	}
+
+	/** Resolved Simon with the version of the manager it was resolved for. */
+	private static final class Binding<T> {
+
+		private final long version;
+
+		private final T simon;
+
+		Binding(long version, T simon) {
+			this.version = version;
+			this.simon = simon;
+		}
+	}
+}
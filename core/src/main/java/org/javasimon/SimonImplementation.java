@@ -0,0 +1,35 @@
+package org.javasimon;
+
+/**
+ * Implementation used for newly created Stopwatches and Counters. Implementation affects only how concurrent updates
+ * of the Simon are handled, the API and the semantics of the values are the same. Implementation can be set
+ * for the whole manager via {@link ManagerConfiguration#setDefaultImplementation(SimonImplementation)} or for
+ * Simons matching a pattern using {@code implementation} attribute of the {@code simon} element in the configuration XML.
+ *
+ * @see ManagerConfiguration
+ * @since 4.3
+ */
+public enum SimonImplementation {
+
+	/**
+	 * Default implementation updating all the values in a block synchronized on the Simon. Values are always consistent,
+	 * but heavily used Simon can become a point of contention.
+	 */
+	SYNCHRONIZED,
+
+	/**
+	 * Lock-free implementation using striped cells for sums and compare-and-set for min/max values. Scales with
+	 * the number of cores, but values of a sample are not taken in one atomic moment.
+	 */
+	STRIPED,
+
+	/**
+	 * Implementation accumulating updates in per-thread buffers that are merged into the shared state at the interval
+	 * set by {@link ManagerConfiguration#setBufferMergeInterval(long)} or when the values are read. Updates do not touch
+	 * any memory shared with other threads most of the time, reads are more expensive. Max active splits of Stopwatch
+	 * and min/max of Counter are evaluated only during the merge. Callbacks that need a sample on every update lock
+	 * the Simon on every update (only the buffer of the updating thread is merged for such sample), which removes
+	 * the scalability advantage of this implementation.
+	 */
+	BUFFERED,
+}
@@ -9,6 +9,8 @@ import java.util.Collection;
 
 import org.javasimon.callback.Callback;
 import org.javasimon.callback.CompositeCallback;
+import org.javasimon.clock.CoarseClock;
+import org.javasimon.clock.SimonClock;
 import org.javasimon.utils.SystemDebugCallback;
 
 /**
@@ -23,6 +25,8 @@ import org.javasimon.utils.SystemDebugCallback;
  * <pre>-Djavasimon.config.file=some-path/simon.config.xml</pre>
  * To configure the SimonManager via resource that can be found on classpath:
  * <pre>-Djavasimon.config.resource=org/javasimon/example/wannabe-config.xml</pre>
+ * Usage timestamps can be taken from {@link CoarseClock} instead of {@link System#currentTimeMillis()}:
+ * <pre>-Djavasimon.clock.coarse=true</pre>
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
@@ -34,7 +38,15 @@ public final class SimonManager {
 	/** Property name for the Simon configuration resource is "javasimon.config.resource". */
 	public static final String PROPERTY_CONFIG_RESOURCE_NAME = "javasimon.config.resource";
 
-	private static final Manager manager = new SwitchingManager();
+	/**
+	 * Property name for switching the default manager to {@link CoarseClock} is "javasimon.clock.coarse".
+	 *
+	 * @since 4.3
+	 */
+	public static final String PROPERTY_COARSE_CLOCK = "javasimon.clock.coarse";
+
+	private static final Manager manager = new SwitchingManager(
+		Boolean.getBoolean(PROPERTY_COARSE_CLOCK) ? new CoarseClock() : SimonClock.SYSTEM);
 
 	/* Calls {@link #init()}. */
 	static {
@@ -172,6 +184,18 @@ public final class SimonManager {
 		return manager.getSimons(simonFilter);
 	}
 
+	/**
+	 * Returns new collection containing the Simon with the specified name and all its descendants.
+	 *
+	 * @param name name of the Simon at the top of the subtree
+	 * @return collection of Simons in the subtree, empty if the Simon does not exist
+	 * @see Manager#getSubtreeSimons(String)
+	 * @since 4.3
+	 */
+	public static Collection<Simon> getSubtreeSimons(String name) {
+		return manager.getSubtreeSimons(name);
+	}
+
 	/**
 	 * Clears the SimonManager (ignored if manager is disabled). All Simons are lost,
 	 * but configuration is preserved.
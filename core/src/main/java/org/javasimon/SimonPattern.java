@@ -137,6 +137,26 @@ public final class SimonPattern implements SimonFilter {
 		}
 	}
 
+	/**
+	 * Returns the part of the name that must match from the beginning of the name - whole name for the exact
+	 * pattern, {@code something} for {@code something*} or {@code something*else} patterns. Returns {@code null}
+	 * if the pattern starts with wildcard.
+	 *
+	 * @return required name prefix or {@code null}
+	 */
+	String getNamePrefix() {
+		return all != null ? all : start;
+	}
+
+	/**
+	 * Returns true if the pattern does not contain any wildcard.
+	 *
+	 * @return true for exact name pattern
+	 */
+	boolean isExact() {
+		return all != null;
+	}
+
 	private void validatePattern(String simonNamePart, String pattern) {
 		if (!SimonUtils.checkName(simonNamePart)) {
 			throw new SimonException(INVALID_PATTERN + pattern);
@@ -1,7 +1,9 @@
 package org.javasimon;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.javasimon.clock.SimonClock;
 import org.javasimon.utils.SimonUtils;
@@ -17,6 +19,10 @@ import org.javasimon.utils.SimonUtils;
  * Split can never be running ({@link #isRunning()}) if it is disabled. Enabled split is running until it is stopped.
  * Stopped split (not running) will never again be running. Split never changes enabled flag after creation.
  * <p>
+ * Split of a disabled Stopwatch (and {@link #DISABLED}) is immutable - it ignores attributes - because disabled
+ * Stopwatch returns the same shared instance for every {@link Stopwatch#start()} to avoid any allocation while disabled.
+ * Other splits that are not enabled (e.g. {@link #create(long)}) keep their attributes.
+ * <p>
  * Split implements {@link java.lang.AutoCloseable} hence it can be used in try-with-resource construction.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
@@ -30,24 +36,32 @@ public final class Split implements HasAttributes, AutoCloseable {
 	/** Attribute name under which effectively used stopwatch is stored if the split was stopped with {@link #stop(String)}. */
 	public static final String ATTR_EFFECTIVE_STOPWATCH = "effective-stopwatch";
 
-	private volatile Stopwatch stopwatch;
+	private final Stopwatch stopwatch;
 	private final boolean enabled;
+	/** True for the splits shared by all callers of a disabled Stopwatch, they ignore attributes. */
+	private final boolean shared;
 	private final SimonClock clock;
 	private volatile boolean running;
 
-	private volatile long start;
+	private final long start;
 	private volatile long total;
 
-	private AttributesSupport attributesSupport = new AttributesSupport();
+	/** Created lazily with the first attribute, most of the splits never use any. */
+	private volatile AttributesSupport attributesSupport;
 
 	private Split() {
 		enabled = false;
+		shared = true;
 		clock = null;
+		stopwatch = null;
+		start = 0;
 	}
 
 	private Split(boolean enabled, SimonClock clock) {
 		this.enabled = enabled;
+		shared = false;
 		this.clock = clock;
+		stopwatch = null;
 		start = clock.nanoTime();
 	}
 
@@ -65,6 +79,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 		this.start = start;
 		this.clock = clock;
 		enabled = true;
+		shared = false;
 		running = true;
 	}
 
@@ -77,8 +92,29 @@ public final class Split implements HasAttributes, AutoCloseable {
 	Split(Stopwatch stopwatch, SimonClock clock) {
 		assert !(stopwatch.isEnabled()) : "stopwatch must be disabled in this constructor!";
 		this.enabled = false;
+		shared = true;
+		this.stopwatch = stopwatch;
+		this.clock = clock;
+		start = 0;
+	}
+
+	/**
+	 * Creates a new already stopped Split for an enabled Stopwatch - <b>called internally only</b>.
+	 * Used to provide Split object to callbacks when the Stopwatch was used via primitive API
+	 * ({@link Stopwatch#startNanos()}, {@link Stopwatch#stopNanos(long)}).
+	 *
+	 * @param stopwatch owning Stopwatch (enabled)
+	 * @param clock Clock for this Split
+	 * @param start start timestamp in nanoseconds
+	 * @param total split time in nanoseconds
+	 */
+	Split(Stopwatch stopwatch, SimonClock clock, long start, long total) {
 		this.stopwatch = stopwatch;
+		this.start = start;
 		this.clock = clock;
+		this.total = total;
+		enabled = true;
+		shared = false;
 	}
 
 	/**
@@ -190,7 +226,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 		long nowNanos = clock.nanoTime();
 		total = nowNanos - start; // we update total before calling the stop so that callbacks can use it
 		if (stopwatch != null) {
-			((StopwatchImpl) stopwatch).stop(this, start, nowNanos, subSimon);
+			((AbstractStopwatch) stopwatch).stop(this, start, nowNanos, subSimon);
 		}
 		return this;
 	}
@@ -263,6 +299,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 
 	/**
 	 * Stores an attribute in this Split. Attributes can be used to store any custom objects.
+	 * Split of a disabled Stopwatch ignores attributes, because it is shared.
 	 *
 	 * @param name a String specifying the name of the attribute
 	 * @param value the Object to be stored
@@ -270,7 +307,10 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public void setAttribute(String name, Object value) {
-		attributesSupport.setAttribute(name, value);
+		if (shared) {
+			return;
+		}
+		attributesSupport().setAttribute(name, value);
 	}
 
 	/**
@@ -283,7 +323,8 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public Object getAttribute(String name) {
-		return attributesSupport.getAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttribute(name) : null;
 	}
 
 	/**
@@ -297,7 +338,7 @@ public final class Split implements HasAttributes, AutoCloseable {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T getAttribute(String name, Class<T> clazz) {
-		return attributesSupport.getAttribute(name, clazz);
+		return (T) getAttribute(name);
 	}
 
 	/**
@@ -308,7 +349,10 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public void removeAttribute(String name) {
-		attributesSupport.removeAttribute(name);
+		AttributesSupport attributes = attributesSupport;
+		if (attributes != null) {
+			attributes.removeAttribute(name);
+		}
 	}
 
 	/**
@@ -320,12 +364,28 @@ public final class Split implements HasAttributes, AutoCloseable {
 	 */
 	@Override
 	public Iterator<String> getAttributeNames() {
-		return attributesSupport.getAttributeNames();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getAttributeNames() : Collections.<String>emptyIterator();
 	}
 
 	@Override
 	public Map<String, Object> getCopyAsSortedMap() {
-		return attributesSupport.getCopyAsSortedMap();
+		AttributesSupport attributes = attributesSupport;
+		return attributes != null ? attributes.getCopyAsSortedMap() : new TreeMap<String, Object>();
+	}
+
+	private AttributesSupport attributesSupport() {
+		AttributesSupport attributes = attributesSupport;
+		if (attributes == null) {
+			synchronized (this) {
+				attributes = attributesSupport;
+				if (attributes == null) {
+					attributes = new AttributesSupport();
+					attributesSupport = attributes;
+				}
+			}
+		}
+		return attributes;
 	}
 
 	/**
@@ -9,6 +9,9 @@ package org.javasimon;
  * updates usage times, increase usage counter by one and updates total time of the stopwatch.
  * Split object enables multiple time-splits to be measured in parallel.
  * <p>
+ * For very hot code paths where even the allocation of the Split matters there is primitive
+ * equivalent {@link #startNanos()}/{@link #stopNanos(long)} and {@link #addNanos(long)}.
+ * <p>
  * Example:
  * <pre>
  * Split split = SimonManager.getStopwatch("com.my.stopwatch").start();
@@ -24,6 +27,14 @@ package org.javasimon;
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
 public interface Stopwatch extends Simon {
+
+	/**
+	 * Token returned by {@link #startNanos()} of a disabled Stopwatch, {@link #stopNanos(long)} ignores it.
+	 *
+	 * @since 4.3
+	 */
+	long DISABLED_TOKEN = Long.MIN_VALUE;
+
 	/**
 	 * Starts the new split for this stopwatch. This action does not hold any resources and
 	 * if {@link Split} object is collected, no leak occurs. However, active count is increased
@@ -51,6 +62,65 @@ public interface Stopwatch extends Simon {
 	 */
 	Stopwatch addSplit(Split split);
 
+	/**
+	 * Starts the measurement without creating any {@link Split} object - the returned primitive token must be passed
+	 * to {@link #stopNanos(long)} to finish the measurement. This is intended for very hot code paths where
+	 * allocation of the Split is not acceptable. Active count is increased the same way like with {@link #start()}.
+	 * <p>
+	 * Split objects are created only if there are callbacks interested in the events
+	 * (see {@link org.javasimon.callback.SelectiveCallback}) - in that case
+	 * {@link org.javasimon.callback.Callback#onStopwatchStart(Split)} gets running Split and
+	 * {@link org.javasimon.callback.Callback#onStopwatchStop(Split, StopwatchSample)} gets another (already stopped)
+	 * Split with the same start.
+	 * <p>
+	 * Usage:
+	 * <pre>
+	 * long token = stopwatch.startNanos();
+	 * //... here goes the measured code
+	 * stopwatch.stopNanos(token);</pre>
+	 * <p>
+	 * Default implementation (for Stopwatches not provided by Java Simon) only reads the nano timer,
+	 * {@link #stopNanos(long)} then adds the split with {@link #addSplit(Split)} - active count is not tracked.
+	 *
+	 * @return start token (nano time of the start) or {@link #DISABLED_TOKEN} if the Stopwatch is disabled
+	 * @see #stopNanos(long)
+	 * @since 4.3
+	 */
+	default long startNanos() {
+		return isEnabled() ? System.nanoTime() : DISABLED_TOKEN;
+	}
+
+	/**
+	 * Stops the measurement started with {@link #startNanos()}. Tokens returned by disabled Stopwatch
+	 * ({@link #DISABLED_TOKEN}) are ignored.
+	 *
+	 * @param token token returned by {@link #startNanos()}
+	 * @return split time in nanoseconds or 0 for the disabled token
+	 * @since 4.3
+	 */
+	default long stopNanos(long token) {
+		if (token == DISABLED_TOKEN) {
+			return 0;
+		}
+		long nanos = System.nanoTime() - token;
+		addSplit(Split.create(nanos));
+		return nanos;
+	}
+
+	/**
+	 * Adds the time in nanoseconds to the stopwatch without creating any {@link Split} object - it is primitive
+	 * equivalent of {@link #addSplit(Split)} for a stopped Split. Split object for
+	 * {@link org.javasimon.callback.Callback#onStopwatchAdd(Stopwatch, Split, StopwatchSample)} is created only
+	 * if there are any callbacks interested in this event.
+	 *
+	 * @param nanos measured time in nanoseconds
+	 * @return this stopwatch
+	 * @since 4.3
+	 */
+	default Stopwatch addNanos(long nanos) {
+		return addSplit(Split.create(nanos));
+	}
+
 	/**
 	 * Returns total sum of all split times in nanoseconds.
 	 *
@@ -0,0 +1,64 @@
+package org.javasimon;
+
+/**
+ * Pre-resolved handle to the {@link Stopwatch} with the specified name that can be kept in a static field.
+ * Typical usage:
+ * <pre>
+ * private static final StopwatchHandle SERVICE = new StopwatchHandle("org.acme.service");
+ *
+ * public void service() {
+ *     try (Split ignored = SERVICE.start()) {
+ *         ...
+ *     }
+ * }</pre>
+ * For the primitive API ({@link Stopwatch#startNanos()}) get the Stopwatch once and call both start and stop
+ * on it, so that the stop is not counted to a different instance if the manager is cleared in the meantime.
+ *
+ * @see SimonHandle
+ * @since 4.3
+ */
+public final class StopwatchHandle extends SimonHandle<Stopwatch> {
+
+	/**
+	 * Creates handle for the Stopwatch with the specified name in the default {@link SimonManager}.
+	 *
+	 * @param name name of the Stopwatch
+	 */
+	public StopwatchHandle(String name) {
+		this(SimonManager.manager(), name);
+	}
+
+	/**
+	 * Creates handle for the Stopwatch with the specified name in the specified manager.
+	 *
+	 * @param manager manager of the Stopwatch
+	 * @param name name of the Stopwatch
+	 */
+	public StopwatchHandle(Manager manager, String name) {
+		super(manager, name);
+	}
+
+	@Override
+	protected Stopwatch resolve(Manager manager, String name) {
+		return manager.getStopwatch(name);
+	}
+
+	/**
+	 * Starts new split on the Stopwatch, shortcut for {@code get().start()}.
+	 *
+	 * @return split object
+	 */
+	public Split start() {
+		return get().start();
+	}
+
+	/**
+	 * Adds split (in ns) to the Stopwatch, shortcut for {@code get().addNanos(nanos)}.
+	 *
+	 * @param nanos split in ns
+	 * @return the Stopwatch
+	 */
+	public Stopwatch addNanos(long nanos) {
+		return get().addNanos(nanos);
+	}
+}
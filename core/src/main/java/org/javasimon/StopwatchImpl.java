@@ -1,14 +1,14 @@
 package org.javasimon;
 
-import org.javasimon.utils.SimonUtils;
-
 /**
  * Class implements {@link org.javasimon.Stopwatch} interface - see there for how to use Stopwatch.
+ * All the statistics are updated in a block synchronized on the Stopwatch which makes them perfectly consistent,
+ * but a single heavily used Stopwatch may become a point of contention - see {@link StripedStopwatchImpl}.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @see org.javasimon.Stopwatch
  */
-final class StopwatchImpl extends AbstractSimon implements Stopwatch {
+final class StopwatchImpl extends AbstractStopwatch {
 
 	private long total;
 	private long counter;
@@ -35,90 +35,31 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	}
 
 	@Override
-	public Stopwatch addSplit(Split split) {
-		if (!enabled) {
-			return this;
-		}
-
-		long splitNs = split.runningFor();
-		long nowNanos = nanoTimeFromSplit(split, splitNs);
-
-		StopwatchSample sample = null;
-		synchronized (this) {
-			// using parameter version saves one currentTimeMillis call
-			updateUsagesNanos(nowNanos);
-			addSplit(splitNs);
-			if (!manager.callback().callbacks().isEmpty()) {
-				sample = sample();
-			}
-			updateIncrementalSimons(splitNs, nowNanos);
-		}
-		manager.callback().onStopwatchAdd(this, split, sample);
-		return this;
+	synchronized void recordStart(long nowMillis) {
+		updateUsages(nowMillis);
+		activeStart();
 	}
 
-	private long nanoTimeFromSplit(Split split, long splitNs) {
-		if (split.getStopwatch() != null) {
-			return split.getStart() + splitNs;
-		} else {
-			return manager.nanoTime();
-		}
+	@Override
+	synchronized void recordStop(long nowNanos) {
+		active--;
+		updateUsagesNanos(nowNanos);
 	}
 
-	@MustBeInSynchronized
-	private void updateIncrementalSimons(long splitNs, long nowNanos) {
-		for (Simon simon : incrementalSimons.values()) {
-			StopwatchImpl stopwatch = (StopwatchImpl) simon;
-			stopwatch.addSplit(splitNs);
-			stopwatch.updateUsagesNanos(nowNanos);
-		}
+	@Override
+	synchronized StopwatchSample recordStopAndSplit(long splitNs, long nowNanos, boolean sample) {
+		active--;
+		return recordSplit(splitNs, nowNanos, sample);
 	}
 
 	@Override
-	public Split start() {
-		if (!enabled) {
-			return new Split(this, manager);
-		}
-
-		synchronized (this) {
-			updateUsages(manager.milliTime());
-			activeStart();
-		}
-		Split split = new Split(this, manager, manager.nanoTime());
-		manager.callback().onStopwatchStart(split);
-		return split;
+	synchronized StopwatchSample recordSplit(long splitNs, long nowNanos, boolean sample) {
+		updateUsagesNanos(nowNanos);
+		addSplit(splitNs);
+		updateEpoch(splitNs, lastUsage);
+		return sample ? sampleStatistics() : null;
 	}
 
-	/**
-	 * Protected method doing the stop work based on provided start nano-time.
-	 *
-	 * @param split Split object that has been stopped
-	 * @param start start nano-time of the split @return split time in ns
-	 * @param nowNanos current nano time
-	 * @param subSimon name of the sub-stopwatch (hierarchy delimiter is added automatically), may be {@code null}
-	 */
-	void stop(final Split split, final long start, final long nowNanos, final String subSimon) {
-		StopwatchSample sample = null;
-		synchronized (this) {
-			active--;
-			updateUsagesNanos(nowNanos);
-			if (subSimon == null) {
-				long splitNs = nowNanos - start;
-				addSplit(splitNs);
-				if (!manager.callback().callbacks().isEmpty()) {
-					sample = sample();
-				}
-				updateIncrementalSimons(splitNs, nowNanos);
-			}
-		}
-		if (subSimon != null) {
-			Stopwatch effectiveStopwatch = manager.getStopwatch(getName() + Manager.HIERARCHY_DELIMITER + subSimon);
-			split.setAttribute(Split.ATTR_EFFECTIVE_STOPWATCH, effectiveStopwatch);
-			effectiveStopwatch.addSplit(split);
-			return;
-		}
-		manager.callback().onStopwatchStop(split, sample);
-	}
 	// Uses last usage, hence it must be placed after usages update
 
 	private void activeStart() {
@@ -174,11 +115,6 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 		return mean2 / (counter - 1);
 	}
 
-	@Override
-	public synchronized double getStandardDeviation() {
-		return Math.sqrt(getVariance());
-	}
-
 	@Override
 	public synchronized long getTotal() {
 		return total;
@@ -230,7 +166,7 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	}
 
 	@Override
-	public synchronized StopwatchSample sample() {
+	synchronized StopwatchSample sampleStatistics() {
 		StopwatchSample sample = new StopwatchSample();
 		sample.setTotal(total);
 		sample.setCounter(counter);
@@ -251,38 +187,7 @@ final class StopwatchImpl extends AbstractSimon implements Stopwatch {
 	}
 
 	@Override
-	public StopwatchSample sampleIncrement(Object key) {
-		return (StopwatchSample) sampleIncrementHelper(key, new StopwatchImpl(null, manager));
-	}
-
-	@Override
-	public StopwatchSample sampleIncrementNoReset(Object key) {
-		return (StopwatchSample) sampleIncrementNoResetHelper(key);
-	}
-
-	/**
-	 * Updates usage statistics without using {@link System#currentTimeMillis()} if client code already has
-	 * current nano timer value.
-	 *
-	 * @param nowNanos current value of nano timer
-	 */
-	private void updateUsagesNanos(long nowNanos) {
-		updateUsages(manager.millisForNano(nowNanos));
-	}
-
-	/**
-	 * Returns Simon basic information, total time, counter, max value and min value as a human readable string.
-	 *
-	 * @return basic information, total time, counter, max and min values
-	 * @see AbstractSimon#toString()
-	 */
-	@Override
-	public synchronized String toString() {
-		return "Simon Stopwatch: total " + SimonUtils.presentNanoTime(total) +
-			", counter " + counter +
-			", max " + SimonUtils.presentNanoTime(max) +
-			", min " + SimonUtils.presentNanoTime(min) +
-			", mean " + SimonUtils.presentNanoTime((long) mean) +
-			super.toString();
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Guarded(id, startedBySet, 0);
 	}
 }
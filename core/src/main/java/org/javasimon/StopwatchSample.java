@@ -25,6 +25,7 @@ public class StopwatchSample extends Sample {
 	private double standardDeviation;
 	private double variance;
 	private double varianceN;
+	private long[] histogram;
 
 	/**
 	 * Returns the total sum of all split times in nanoseconds.
@@ -279,6 +280,81 @@ public class StopwatchSample extends Sample {
 		this.varianceN = varianceN;
 	}
 
+	/**
+	 * Returns bucket counts of the Stopwatch {@link LatencyHistogram} (or of its increment for incremental sample).
+	 * Samples passed to callbacks on Stopwatch stop/add do not contain the histogram, use {@link Stopwatch#sample()}.
+	 *
+	 * @return bucket counts or {@code null} if the Stopwatch has no histogram
+	 * @since 4.3
+	 */
+	public final long[] getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * Sets bucket counts of the Stopwatch {@link LatencyHistogram}.
+	 *
+	 * @param histogram bucket counts or {@code null} if the Stopwatch has no histogram
+	 * @since 4.3
+	 */
+	public final void setHistogram(long[] histogram) {
+		this.histogram = histogram;
+	}
+
+	/**
+	 * Returns the estimate of the quantile of split times computed from the histogram, limited by the min and max.
+	 *
+	 * @param quantile quantile from 0 to 1 (e.g. 0.99 for the 99th percentile)
+	 * @return estimated quantile in ns or 0 if there is no histogram or no split
+	 * @since 4.3
+	 */
+	public final long quantile(double quantile) {
+		if (histogram == null || counter == 0) {
+			return 0;
+		}
+		return Math.max(min, Math.min(max, LatencyHistogram.quantile(histogram, quantile)));
+	}
+
+	/**
+	 * Returns the median of split times estimated from the histogram.
+	 *
+	 * @return median in ns or 0 if there is no histogram or no split
+	 * @since 4.3
+	 */
+	public final long getP50() {
+		return quantile(0.5);
+	}
+
+	/**
+	 * Returns the 90th percentile of split times estimated from the histogram.
+	 *
+	 * @return 90th percentile in ns or 0 if there is no histogram or no split
+	 * @since 4.3
+	 */
+	public final long getP90() {
+		return quantile(0.9);
+	}
+
+	/**
+	 * Returns the 99th percentile of split times estimated from the histogram.
+	 *
+	 * @return 99th percentile in ns or 0 if there is no histogram or no split
+	 * @since 4.3
+	 */
+	public final long getP99() {
+		return quantile(0.99);
+	}
+
+	/**
+	 * Returns the 99.9th percentile of split times estimated from the histogram.
+	 *
+	 * @return 99.9th percentile in ns or 0 if there is no histogram or no split
+	 * @since 4.3
+	 */
+	public final long getP999() {
+		return quantile(0.999);
+	}
+
 	/**
 	 * Returns readable representation of object.
 	 *
@@ -305,6 +381,12 @@ public class StopwatchSample extends Sample {
 		sb.append(", standardDeviation=").append(SimonUtils.presentNanoTime((long) getStandardDeviation()));
 		sb.append(", variance=").append(getVariance());
 		sb.append(", varianceN=").append(getVarianceN());
+		if (histogram != null) {
+			sb.append(", p50=").append(SimonUtils.presentNanoTime(getP50()));
+			sb.append(", p90=").append(SimonUtils.presentNanoTime(getP90()));
+			sb.append(", p99=").append(SimonUtils.presentNanoTime(getP99()));
+			sb.append(", p999=").append(SimonUtils.presentNanoTime(getP999()));
+		}
 		toStringCommon(sb);
 		return sb.toString();
 	}
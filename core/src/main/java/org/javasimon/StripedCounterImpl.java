@@ -0,0 +1,143 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free implementation of {@link org.javasimon.Counter} for Counters updated by many threads where waiting
+ * for the monitor of {@link CounterImpl} would become a point of contention.
+ * Increment and decrement sums are accumulated in striped cells ({@link LongAdder}) that are combined only when read.
+ * The counter value itself is a single atomic value updated by one atomic add - min/max tracking needs
+ * the exact current value after each update, so this part is not striped and concurrent updates still share
+ * one cache line. Min/max values are updated with compare-and-set together with their timestamps only when
+ * a new extreme is reached - for a Counter fluctuating within a range (e.g. number of active requests) this is rare,
+ * for a Counter that only grows every increment is a new maximum.
+ * <p>
+ * Values read from this Counter (or its sample) are not taken in one atomic moment - e.g. counter can already
+ * contain an increment that is not yet part of the increment sum. Timestamp of min/max is the first time the extreme
+ * was reached, not the last one as for {@link CounterImpl}, so that repeating the extreme does not update the shared
+ * holder. Semantics of the values is otherwise the same as for {@link CounterImpl}.
+ * <p>
+ * Use {@link SimonImplementation#STRIPED} in {@link ManagerConfiguration} to choose this implementation.
+ *
+ * @see org.javasimon.Counter
+ * @since 4.3
+ */
+final class StripedCounterImpl extends AbstractCounter {
+
+	private final AtomicLong counter = new AtomicLong();
+	private final LongAdder incrementSum = new LongAdder();
+	private final LongAdder decrementSum = new LongAdder();
+	private final AtomicExtreme max = new AtomicExtreme(Long.MIN_VALUE);
+	private final AtomicExtreme min = new AtomicExtreme(Long.MAX_VALUE);
+
+	/**
+	 * Constructs Counter Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 * @noinspection WeakerAccess (EnabledManager calls this via reflection)
+	 */
+	StripedCounterImpl(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	void updateUsages(long now) {
+		updateUsagesConcurrently(now);
+	}
+
+	@Override
+	CounterSample recordSet(long val, long now, boolean sample) {
+		updateUsages(now);
+		counter.set(val);
+		max.updateMax(val, now, false);
+		min.updateMin(val, now, false);
+		updateEpochSet(val, now);
+		return sample ? sample() : null;
+	}
+
+	@Override
+	CounterSample recordIncrease(long inc, long now, boolean sample) {
+		updateUsages(now);
+		incrementSum.add(inc);
+		long value = counter.addAndGet(inc);
+		if (inc > 0) {
+			max.updateMax(value, now, false);
+		} else {
+			min.updateMin(value, now, false);
+		}
+		updateEpochIncrease(inc, value, now);
+		return sample ? sample() : null;
+	}
+
+	@Override
+	CounterSample recordDecrease(long dec, long now, boolean sample) {
+		updateUsages(now);
+		decrementSum.add(dec);
+		long value = counter.addAndGet(-dec);
+		if (dec > 0) {
+			min.updateMin(value, now, false);
+		} else {
+			max.updateMax(value, now, false);
+		}
+		updateEpochDecrease(dec, value, now);
+		return sample ? sample() : null;
+	}
+
+	@Override
+	public long getCounter() {
+		return counter.get();
+	}
+
+	@Override
+	public long getMin() {
+		return min.get().value;
+	}
+
+	@Override
+	public long getMinTimestamp() {
+		return min.get().timestamp;
+	}
+
+	@Override
+	public long getMax() {
+		return max.get().value;
+	}
+
+	@Override
+	public long getMaxTimestamp() {
+		return max.get().timestamp;
+	}
+
+	@Override
+	public long getIncrementSum() {
+		return incrementSum.sum();
+	}
+
+	@Override
+	public long getDecrementSum() {
+		return decrementSum.sum();
+	}
+
+	@Override
+	public CounterSample sample() {
+		CounterSample sample = new CounterSample();
+		AtomicExtreme.Value minValue = min.get();
+		AtomicExtreme.Value maxValue = max.get();
+		sample.setCounter(counter.get());
+		sample.setMin(minValue.value);
+		sample.setMax(maxValue.value);
+		sample.setMinTimestamp(minValue.timestamp);
+		sample.setMaxTimestamp(maxValue.timestamp);
+		sample.setIncrementSum(incrementSum.sum());
+		sample.setDecrementSum(decrementSum.sum());
+		sampleCommon(sample);
+		return sample;
+	}
+
+	@Override
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Concurrent(id, startedBySet, Long.MIN_VALUE);
+	}
+}
@@ -0,0 +1,212 @@
+package org.javasimon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free implementation of {@link org.javasimon.Stopwatch} intended for heavily used Stopwatches (e.g. one Stopwatch
+ * measuring all the requests of a servlet filter) where {@link StopwatchImpl} would become a point of contention.
+ * Counter, total and sum of squares are accumulated in striped cells ({@link LongAdder}, {@link DoubleAdder}) that
+ * are combined only when read, min/max values are updated with compare-and-set together with their timestamps.
+ * <p>
+ * The price for this is that values read from this Stopwatch (or its sample) are not taken in one atomic moment -
+ * e.g. counter can already contain a split that is not yet part of the total. Variance is computed
+ * from the sum of squares of splits shifted by the very first split, which keeps the numerical error low,
+ * but still it may slightly differ from the value computed by {@link StopwatchImpl}. Timestamp of max active is
+ * the first time the maximum was reached, not the last one, so that repeating the maximum does not update
+ * the shared holder on every start.
+ * <p>
+ * Use {@link SimonImplementation#STRIPED} in {@link ManagerConfiguration} to choose this implementation.
+ *
+ * @see org.javasimon.Stopwatch
+ * @since 4.3
+ */
+final class StripedStopwatchImpl extends AbstractStopwatch {
+
+	/** Marks that the shift for variance computation was not set yet. */
+	private static final long SHIFT_NOT_SET = Long.MIN_VALUE;
+
+	private final LongAdder total = new LongAdder();
+	private final LongAdder counter = new LongAdder();
+	private final DoubleAdder shiftedSquares = new DoubleAdder();
+	private final AtomicLong shift = new AtomicLong(SHIFT_NOT_SET);
+	private final AtomicLong active = new AtomicLong();
+	private final AtomicExtreme max = new AtomicExtreme(0);
+	private final AtomicExtreme min = new AtomicExtreme(Long.MAX_VALUE);
+	private final AtomicExtreme maxActive = new AtomicExtreme(0);
+	private volatile long last;
+
+	/**
+	 * Constructs Stopwatch Simon with a specified name and for the specified manager.
+	 *
+	 * @param name Simon's name
+	 * @param manager owning manager
+	 * @noinspection WeakerAccess (EnabledManager calls this via reflection)
+	 */
+	StripedStopwatchImpl(String name, Manager manager) {
+		super(name, manager);
+	}
+
+	@Override
+	void updateUsages(long now) {
+		updateUsagesConcurrently(now);
+	}
+
+	@Override
+	void recordStart(long nowMillis) {
+		updateUsages(nowMillis);
+		maxActive.updateMax(active.incrementAndGet(), nowMillis, false);
+	}
+
+	@Override
+	void recordStop(long nowNanos) {
+		active.decrementAndGet();
+		updateUsagesNanos(nowNanos);
+	}
+
+	@Override
+	StopwatchSample recordStopAndSplit(long splitNs, long nowNanos, boolean sample) {
+		active.decrementAndGet();
+		return recordSplit(splitNs, nowNanos, sample);
+	}
+
+	@Override
+	StopwatchSample recordSplit(long splitNs, long nowNanos, boolean sample) {
+		long nowMillis = manager.millisForNano(nowNanos);
+		addSplit(splitNs, nowMillis);
+		updateEpoch(splitNs, nowMillis);
+		return sample ? sampleStatistics() : null;
+	}
+
+	private void addSplit(long split, long nowMillis) {
+		updateUsages(nowMillis);
+		last = split;
+		total.add(split);
+		counter.increment();
+		max.updateMax(split, nowMillis, false);
+		min.updateMin(split, nowMillis, false);
+		double shifted = split - shift(split);
+		shiftedSquares.add(shifted * shifted);
+	}
+
+	/** Returns the shift used for the variance computation - the very first split added to this Stopwatch. */
+	private long shift(long split) {
+		long currentShift = shift.get();
+		if (currentShift == SHIFT_NOT_SET) {
+			shift.compareAndSet(SHIFT_NOT_SET, split);
+			currentShift = shift.get();
+		}
+		return currentShift;
+	}
+
+	@Override
+	public double getMean() {
+		long count = counter.sum();
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+
+	@Override
+	public double getVarianceN() {
+		return variance(counter.sum(), total.sum(), 0);
+	}
+
+	@Override
+	public double getVariance() {
+		return variance(counter.sum(), total.sum(), 1);
+	}
+
+	private double variance(long count, long sum, long correction) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count == 1) {
+			return 0d;
+		}
+		double shiftedSum = sum - count * shift.get();
+		double mean2 = shiftedSquares.sum() - shiftedSum * shiftedSum / count;
+		return Math.max(mean2, 0d) / (count - correction);
+	}
+
+	@Override
+	public long getTotal() {
+		return total.sum();
+	}
+
+	@Override
+	public long getLast() {
+		return last;
+	}
+
+	@Override
+	public long getCounter() {
+		return counter.sum();
+	}
+
+	@Override
+	public long getMax() {
+		return max.get().value;
+	}
+
+	@Override
+	public long getMin() {
+		return min.get().value;
+	}
+
+	@Override
+	public long getMaxTimestamp() {
+		return max.get().timestamp;
+	}
+
+	@Override
+	public long getMinTimestamp() {
+		return min.get().timestamp;
+	}
+
+	@Override
+	public long getActive() {
+		return active.get();
+	}
+
+	@Override
+	public long getMaxActive() {
+		return maxActive.get().value;
+	}
+
+	@Override
+	public long getMaxActiveTimestamp() {
+		return maxActive.get().timestamp;
+	}
+
+	@Override
+	StopwatchSample sampleStatistics() {
+		StopwatchSample sample = new StopwatchSample();
+		long count = counter.sum();
+		long sum = total.sum();
+		AtomicExtreme.Value minValue = min.get();
+		AtomicExtreme.Value maxValue = max.get();
+		AtomicExtreme.Value maxActiveValue = maxActive.get();
+		sample.setTotal(sum);
+		sample.setCounter(count);
+		sample.setMin(minValue.value);
+		sample.setMax(maxValue.value);
+		sample.setMinTimestamp(minValue.timestamp);
+		sample.setMaxTimestamp(maxValue.timestamp);
+		sample.setActive(active.get());
+		sample.setMaxActive(maxActiveValue.value);
+		sample.setMaxActiveTimestamp(maxActiveValue.timestamp);
+		sample.setMean(count == 0 ? 0 : (double) sum / count);
+		double variance = variance(count, sum, 1);
+		sample.setVariance(variance);
+		sample.setVarianceN(variance(count, sum, 0));
+		sample.setStandardDeviation(Math.sqrt(variance));
+		sample.setLast(last);
+		sampleCommon(sample);
+		return sample;
+	}
+
+	@Override
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Concurrent(id, startedBySet, 0);
+	}
+}
@@ -1,8 +1,10 @@
 package org.javasimon;
 
 import org.javasimon.callback.CompositeCallback;
+import org.javasimon.clock.SimonClock;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link Manager} implementation that supports {@link #enable()} and {@link #disable()} and switches between
@@ -12,11 +14,30 @@ import java.util.Collection;
  */
 public final class SwitchingManager implements Manager {
 
-	private Manager enabled = new EnabledManager();
+	private final Manager enabled;
 
-	private Manager disabled = new DisabledManager();
+	private final Manager disabled = new DisabledManager();
 
-	private Manager manager = enabled;
+	private volatile Manager manager;
+
+	/** Version shared with the enabled manager, changed also on every switch - see {@link SimonHandle}. */
+	private final AtomicLong version = new AtomicLong();
+
+	/** Creates new switching manager using {@link SimonClock#SYSTEM}. */
+	public SwitchingManager() {
+		this(SimonClock.SYSTEM);
+	}
+
+	/**
+	 * Creates new switching manager using the specified clock, e.g. {@link org.javasimon.clock.CoarseClock}.
+	 *
+	 * @param clock clock used by the enabled manager
+	 * @since 4.3
+	 */
+	public SwitchingManager(SimonClock clock) {
+		enabled = new EnabledManager(clock, version);
+		manager = enabled;
+	}
 
 	@Override
 	public Simon getRootSimon() {
@@ -48,6 +69,11 @@ public final class SwitchingManager implements Manager {
 		return manager.getSimons(simonFilter);
 	}
 
+	@Override
+	public Collection<Simon> getSubtreeSimons(String name) {
+		return manager.getSubtreeSimons(name);
+	}
+
 	@Override
 	public void destroySimon(String name) {
 		manager.destroySimon(name);
@@ -72,12 +98,14 @@ public final class SwitchingManager implements Manager {
 	@Override
 	public void enable() {
 		manager = enabled;
+		version.incrementAndGet();
 	}
 
 	/** Disables the Simon Manager. Disabled manager provides null Simons that actually do nothing. */
 	@Override
 	public void disable() {
 		manager = disabled;
+		version.incrementAndGet();
 	}
 
 	/**
@@ -115,6 +143,19 @@ public final class SwitchingManager implements Manager {
 		return manager.millisForNano(nanos);
 	}
 
+	/** Returns version of the manager, see {@link SimonHandle}. */
+	AtomicLong version() {
+		return version;
+	}
+
+	int purgeIdleSimons(long thresholdMs, int maxSimons) {
+		Manager currentManager = manager;
+		if (currentManager instanceof EnabledManager) {
+			return ((EnabledManager) currentManager).purgeIdleSimons(thresholdMs, maxSimons);
+		}
+		return 0;
+	}
+
 	void purgeIncrementalSimonsOlderThan(long thresholdMs) {
 		// Store reference to current manager to avoid check-than-act
 		Manager currentManager = manager;
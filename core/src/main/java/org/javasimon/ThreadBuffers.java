@@ -0,0 +1,77 @@
+package org.javasimon;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registry of per-thread buffers of one buffered Simon. Each thread gets its own buffer on the first update,
+ * the buffer is also registered here, so that the Simon can merge all the buffers - including buffers of threads
+ * that are already dead, hence no data is lost. Buffers of dead threads are removed after they are merged.
+ * <p>
+ * Buffer is accessed by the owner thread all the time and by the merging thread only occasionally, both access it
+ * in a block synchronized on the buffer - this lock is practically always uncontended and local to the owner thread.
+ *
+ * @param <B> type of the buffer
+ * @see BufferedStopwatchImpl
+ * @see BufferedCounterImpl
+ * @since 4.3
+ */
+abstract class ThreadBuffers<B extends ThreadBuffers.Buffer> implements Iterable<B> {
+
+	private final ThreadLocal<B> localBuffer = new ThreadLocal<>();
+
+	private final Queue<B> buffers = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Returns buffer of the current thread, creates and registers it if necessary.
+	 *
+	 * @return buffer of the current thread
+	 */
+	final B local() {
+		B buffer = localBuffer.get();
+		if (buffer == null) {
+			buffer = newBuffer();
+			localBuffer.set(buffer);
+			buffers.add(buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Creates new buffer for the current thread.
+	 *
+	 * @return new buffer
+	 */
+	abstract B newBuffer();
+
+	/**
+	 * Returns iterator over all registered buffers, {@link Iterator#remove()} unregisters the buffer.
+	 *
+	 * @return iterator over all buffers
+	 */
+	@Override
+	public final Iterator<B> iterator() {
+		return buffers.iterator();
+	}
+
+	/** Base class for the buffers remembering the owner thread. */
+	abstract static class Buffer {
+
+		private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+
+		/** Nano time of the last merge initiated by the owner thread. */
+		long mergedNanos;
+
+		/**
+		 * Returns true if the owner thread is dead and the buffer cannot receive any more updates.
+		 *
+		 * @return true if the owner thread is dead
+		 */
+		final boolean isOwnerDead() {
+			Thread thread = owner.get();
+			return thread == null || !thread.isAlive();
+		}
+	}
+}
@@ -41,6 +41,17 @@ final class UnknownSimon extends AbstractSimon {
 		return false;
 	}
 
+	/** Unknown Simon does not support incremental sampling, current sample is returned. */
+	@Override
+	Sample incrementalSample(Sample bookmarkSample, Sample currentSample, Epoch since) {
+		return currentSample;
+	}
+
+	@Override
+	Epoch newEpoch(long id, boolean startedBySet) {
+		return new Epoch.Guarded(id, startedBySet, 0);
+	}
+
 	/**
 	 * Returns the label {@code Unknown Simon} and basic information for the Simon as a human readable string.
 	 *
@@ -17,7 +17,8 @@ import java.util.Map;
  * that can be obtained by calling {@link org.javasimon.Manager#callback()}. After adding the callback
  * into the main composite callback (or anywhere lower into the callback tree) by calling
  * {@link CompositeCallback#addCallback(Callback)} all events are propagated to all Callbacks (unless filtered
- * using {@link FilterCallback}). Methods called on various events are named {@code onEventXY} with type of the source
+ * using {@link FilterCallback} or the callback is a {@link SelectiveCallback} not interested in the event).
+ * Methods called on various events are named {@code onEventXY} with type of the source
  * clearly mentioned in the name (Manager, Simon, Stopwatch, Counter).
  * <p>
  * Callbacks can be configured via Manager configuration facility. (Configuration part is still rather WIP.)
@@ -8,13 +8,74 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Implements {@link Callback} interface so that it does nothing - intended for extension by simple (non-composite)
  * callbacks. This class is to be subclassed when just a few methods need to be implemented instead of the whole Callback interface.
+ * <p>
+ * As a {@link SelectiveCallback} the skeleton is interested only in events with overridden {@code onXY} methods
+ * and it requires samples for all of them. Subclasses not using samples should override {@link #needsSample(Event)}.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
-public class CallbackSkeleton implements Callback {
+public class CallbackSkeleton implements SelectiveCallback {
+
+	private final Set<Event> handledEvents = overriddenEvents();
+
+	private Set<Event> overriddenEvents() {
+		Set<Event> events = EnumSet.noneOf(Event.class);
+		addIfOverridden(events, Event.STOPWATCH_START, "onStopwatchStart", Split.class);
+		addIfOverridden(events, Event.STOPWATCH_STOP, "onStopwatchStop", Split.class, StopwatchSample.class);
+		addIfOverridden(events, Event.STOPWATCH_ADD, "onStopwatchAdd", Stopwatch.class, Split.class, StopwatchSample.class);
+		addIfOverridden(events, Event.COUNTER_INCREASE, "onCounterIncrease", Counter.class, long.class, CounterSample.class);
+		addIfOverridden(events, Event.COUNTER_DECREASE, "onCounterDecrease", Counter.class, long.class, CounterSample.class);
+		addIfOverridden(events, Event.COUNTER_SET, "onCounterSet", Counter.class, long.class, CounterSample.class);
+		addIfOverridden(events, Event.CREATED, "onSimonCreated", Simon.class);
+		addIfOverridden(events, Event.DESTROYED, "onSimonDestroyed", Simon.class);
+		addIfOverridden(events, Event.MANAGER_CLEAR, "onManagerClear");
+		addIfOverridden(events, Event.MESSAGE, "onManagerMessage", String.class);
+		addIfOverridden(events, Event.WARNING, "onManagerWarning", String.class, Exception.class);
+		if (!events.isEmpty()) {
+			events.add(Event.ALL);
+		}
+		return events;
+	}
+
+	private void addIfOverridden(Set<Event> events, Event event, String methodName, Class<?>... parameterTypes) {
+		try {
+			if (getClass().getMethod(methodName, parameterTypes).getDeclaringClass() != CallbackSkeleton.class) {
+				events.add(event);
+			}
+		} catch (NoSuchMethodException e) {
+			events.add(event);
+		}
+	}
+
+	/**
+	 * Returns true if the {@code onXY} method for the event is overridden.
+	 *
+	 * @param event event type
+	 * @return true, if the event should be dispatched to this callback
+	 * @since 4.3
+	 */
+	@Override
+	public boolean isInterestedIn(Event event) {
+		return handledEvents.contains(event);
+	}
+
+	/**
+	 * Returns true for all handled events, override this method if the callback does not use samples.
+	 *
+	 * @param event event type
+	 * @return true, if the sample must be provided with the event
+	 * @since 4.3
+	 */
+	@Override
+	public boolean needsSample(Event event) {
+		return isInterestedIn(event);
+	}
 	@Override
 	public void initialize(Manager manager) {
 	}
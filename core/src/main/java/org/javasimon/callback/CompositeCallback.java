@@ -9,11 +9,39 @@ import java.util.List;
  * This can be configured via Manager configuration facility. (Configuration part is still rather WIP.)
  * <p>
  * Callback tree has no correlation with Simon tree in the {@link org.javasimon.Manager}).
+ * <p>
+ * Composite callback is a {@link SelectiveCallback} that is interested in events (and needs samples for them)
+ * if any of its child-callbacks is.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  * @since 3.2
  */
-public interface CompositeCallback extends Callback {
+public interface CompositeCallback extends SelectiveCallback {
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Default implementation (for composite callbacks not provided by Java Simon) returns true, the same way
+	 * as callbacks not implementing {@link SelectiveCallback} are treated.
+	 *
+	 * @since 4.3
+	 */
+	@Override
+	default boolean isInterestedIn(Event event) {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Default implementation (for composite callbacks not provided by Java Simon) returns true.
+	 *
+	 * @since 4.3
+	 */
+	@Override
+	default boolean needsSample(Event event) {
+		return true;
+	}
 
 	/**
 	 * Returns the list of all child-callbacks.
@@ -8,12 +8,16 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Composite callbacks holds child-callbacks and delegates any operations to all of them.
  * It implements {@link #callbacks()}, {@link #addCallback(Callback)} and {@link #removeCallback(Callback)}.
+ * <p>
+ * Events are dispatched using per-event arrays of interested callbacks (see {@link SelectiveCallback})
+ * that are precomputed whenever a callback is added or removed.
  *
  * @author <a href="mailto:virgo47@gmail.com">Richard "Virgo" Richter</a>
  */
@@ -23,6 +27,8 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 
 	private Manager manager; // not null indicates, that this callback is initialized (joined to manager)
 
+	private volatile Dispatch dispatch = new Dispatch(callbacks);
+
 	/** Calls initialize on all children. */
 	@Override
 	public synchronized void initialize(Manager manager) {
@@ -59,7 +65,10 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 		if (manager != null) {
 			callback.initialize(manager);
 		}
-		callbacks.add(callback);
+		synchronized (this) {
+			callbacks.add(callback);
+			dispatch = new Dispatch(callbacks);
+		}
 	}
 
 	/**
@@ -69,12 +78,25 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 	 */
 	@Override
 	public void removeCallback(Callback callback) {
-		callbacks.remove(callback);
+		synchronized (this) {
+			callbacks.remove(callback);
+			dispatch = new Dispatch(callbacks);
+		}
 		if (manager != null) {
 			callback.cleanup();
 		}
 	}
 
+	@Override
+	public boolean isInterestedIn(Event event) {
+		return dispatch.isInterestedIn(event);
+	}
+
+	@Override
+	public boolean needsSample(Event event) {
+		return dispatch.needsSample(event);
+	}
+
 	/** Removes specified callback from this callback, properly cleans up all the removed callbacks. */
 	@Override
 	public void removeAllCallbacks() {
@@ -98,78 +120,146 @@ public final class CompositeCallbackImpl implements CompositeCallback {
 
 	@Override
 	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.STOPWATCH_ADD)) {
 			callback.onStopwatchAdd(stopwatch, split, sample);
 		}
 	}
 
 	@Override
 	public void onStopwatchStart(Split split) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.STOPWATCH_START)) {
 			callback.onStopwatchStart(split);
 		}
 	}
 
 	@Override
 	public void onStopwatchStop(Split split, StopwatchSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.STOPWATCH_STOP)) {
 			callback.onStopwatchStop(split, sample);
 		}
 	}
 
 	@Override
 	public void onCounterDecrease(Counter counter, long dec, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.COUNTER_DECREASE)) {
 			callback.onCounterDecrease(counter, dec, sample);
 		}
 	}
 
 	@Override
 	public void onCounterIncrease(Counter counter, long inc, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.COUNTER_INCREASE)) {
 			callback.onCounterIncrease(counter, inc, sample);
 		}
 	}
 
 	@Override
 	public void onCounterSet(Counter counter, long val, CounterSample sample) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.COUNTER_SET)) {
 			callback.onCounterSet(counter, val, sample);
 		}
 	}
 
 	@Override
 	public void onSimonCreated(Simon simon) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.CREATED)) {
 			callback.onSimonCreated(simon);
 		}
 	}
 
 	@Override
 	public void onSimonDestroyed(Simon simon) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.DESTROYED)) {
 			callback.onSimonDestroyed(simon);
 		}
 	}
 
 	@Override
 	public void onManagerClear() {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.MANAGER_CLEAR)) {
 			callback.onManagerClear();
 		}
 	}
 
 	@Override
 	public void onManagerMessage(String message) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.MESSAGE)) {
 			callback.onManagerMessage(message);
 		}
 	}
 
 	@Override
 	public void onManagerWarning(String warning, Exception cause) {
-		for (Callback callback : callbacks) {
+		for (Callback callback : dispatch.callbacks(Event.WARNING)) {
 			callback.onManagerWarning(warning, cause);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Immutable snapshot of callbacks interested in each event. Child composites are always included in dispatch
+	 * and asked for their interest each time, because their children may change later.
+	 */
+	private static final class Dispatch {
+
+		private final Callback[][] callbacks = new Callback[Event.values().length][];
+		private final boolean[] interested = new boolean[Event.values().length];
+		private final boolean[] samples = new boolean[Event.values().length];
+		private final CompositeCallback[] composites;
+
+		Dispatch(List<Callback> allCallbacks) {
+			List<CompositeCallback> compositeList = new ArrayList<>();
+			for (Callback callback : allCallbacks) {
+				if (callback instanceof CompositeCallback) {
+					compositeList.add((CompositeCallback) callback);
+				}
+			}
+			composites = compositeList.toArray(new CompositeCallback[compositeList.size()]);
+
+			for (Event event : Event.values()) {
+				List<Callback> eventCallbacks = new ArrayList<>();
+				for (Callback callback : allCallbacks) {
+					if (callback instanceof CompositeCallback) {
+						eventCallbacks.add(callback);
+					} else if (!(callback instanceof SelectiveCallback)) {
+						eventCallbacks.add(callback);
+						interested[event.ordinal()] = true;
+						samples[event.ordinal()] = true;
+					} else if (((SelectiveCallback) callback).isInterestedIn(event)) {
+						eventCallbacks.add(callback);
+						interested[event.ordinal()] = true;
+						samples[event.ordinal()] |= ((SelectiveCallback) callback).needsSample(event);
+					}
+				}
+				callbacks[event.ordinal()] = eventCallbacks.toArray(new Callback[eventCallbacks.size()]);
+			}
+		}
+
+		Callback[] callbacks(Event event) {
+			return callbacks[event.ordinal()];
+		}
+
+		boolean isInterestedIn(Event event) {
+			if (interested[event.ordinal()]) {
+				return true;
+			}
+			for (CompositeCallback composite : composites) {
+				if (composite.isInterestedIn(event)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean needsSample(Event event) {
+			if (samples[event.ordinal()]) {
+				return true;
+			}
+			for (CompositeCallback composite : composites) {
+				if (composite.needsSample(event)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
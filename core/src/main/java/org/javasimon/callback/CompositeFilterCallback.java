@@ -65,6 +65,22 @@ public final class CompositeFilterCallback implements FilterCallback, CompositeC
 		this.callback.removeAllCallbacks();
 	}
 
+	/**
+	 * Returns true if any of the child-callbacks is interested in the event, rules are not considered.
+	 *
+	 * @param event event type
+	 * @return true, if the event should be dispatched to this callback
+	 */
+	@Override
+	public boolean isInterestedIn(Event event) {
+		return callback.isInterestedIn(event);
+	}
+
+	@Override
+	public boolean needsSample(Event event) {
+		return callback.needsSample(event);
+	}
+
 	@Override
 	public void initialize(Manager manager) {
 		callback.initialize(manager);
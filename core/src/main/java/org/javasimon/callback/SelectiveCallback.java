@@ -0,0 +1,38 @@
+package org.javasimon.callback;
+
+/**
+ * Callback declaring which events it handles and for which of them it needs {@link org.javasimon.Sample}.
+ * {@link CompositeCallback} dispatches events only to the callbacks interested in them and Simons create
+ * samples only if some callback needs them - this way e.g. callback handling only Simon creation does not
+ * cause any work on every Stopwatch stop. Callbacks not implementing this interface get all the events
+ * with samples.
+ * <p>
+ * Answers of a callback must not change after the callback is added into the callback tree, with the exception
+ * of {@link CompositeCallback} that is always asked again. {@link CallbackSkeleton} implements this interface
+ * by detecting which event methods are overridden.
+ *
+ * @see CallbackSkeleton
+ * @since 4.3
+ */
+public interface SelectiveCallback extends Callback {
+
+	/**
+	 * Returns true if the callback handles the event. For {@link Callback.Event#ALL} returns true
+	 * if the callback handles any event.
+	 *
+	 * @param event event type
+	 * @return true, if the event should be dispatched to this callback
+	 */
+	boolean isInterestedIn(Event event);
+
+	/**
+	 * Returns true if the callback uses the sample provided with the event (applies only to Stopwatch stop/add
+	 * and all Counter events). If false is returned the sample argument may be {@code null}.
+	 * Callbacks using only the split (or the Simon itself) should return false, creating the sample
+	 * on every Stopwatch stop is the most expensive part of the hot path.
+	 *
+	 * @param event event type
+	 * @return true, if the sample must be provided with the event
+	 */
+	boolean needsSample(Event event);
+}
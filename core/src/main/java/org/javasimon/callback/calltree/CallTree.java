@@ -1,35 +1,121 @@
 package org.javasimon.callback.calltree;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.javasimon.Split;
 import org.javasimon.callback.logging.LogMessageSource;
 
 /**
  * Call tree contains the root call tree node and the current call stack.
+ * <p>
+ * Tree is bounded: at most {@code maxNodes} nodes and {@code maxDepth} levels are kept. Splits of calls which
+ * would exceed these limits (and splits of calls nested in them) are not added to any node, they are counted
+ * as dropped and their time is still included in the total of the nearest tracked parent node.
+ * Call stack is a preallocated array. Nodes are taken from a pool, {@link #recycle()} returns all nodes
+ * of the tree to the pool so that the call tree of a thread can be reused without allocating nodes.
+ * <p>
+ * Call trees of tasks executed in other threads on behalf of this tree (see {@link CallTreeContext}) are queued
+ * by the executing threads and merged as asynchronous nodes by the thread owning this tree.
  *
  * @author gquintana
  * @since 3.2
  */
 public class CallTree implements LogMessageSource<Split> {
 
-	// TODO in what unit?
-	/** Log threshold. */
+	/**
+	 * Default maximal number of nodes.
+	 *
+	 * @since 4.3
+	 */
+	public static final int DEFAULT_MAX_NODES = 1000;
+
+	/**
+	 * Default maximal depth.
+	 *
+	 * @since 4.3
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 64;
+
+	/** Log threshold in milliseconds. */
 	private final Long logThreshold;
 
+	/** Maximal number of nodes. */
+	private final int maxNodes;
+
 	/** Call stack is the path (made of tree nodes) from root tree node to the current tree node. */
-	private final LinkedList<CallTreeNode> callStack = new LinkedList<>();
+	private final CallTreeNode[] callStack;
+
+	/** Number of tree nodes in the call stack. */
+	private int depth;
+
+	/** Number of started calls nested in the last call stack node which are not tracked (over the limits). */
+	private int droppedDepth;
+
+	/** Number of splits not added to the tree because of limits. */
+	private int droppedSplitCount;
+
+	/** Nodes of the current tree. */
+	private final List<CallTreeNode> nodes = new ArrayList<>();
+
+	/** Pool of unused nodes. */
+	private final List<CallTreeNode> nodePool = new ArrayList<>();
 
 	/** Root call tree node. */
 	private CallTreeNode rootNode;
 
+	/** Context of the task whose calls are tracked by this tree, null for trees of root calls. */
+	private final CallTreeContext context;
+
+	/** Number of finished root calls, call trees of tasks are attached only if the root call did not end yet. */
+	private volatile int generation;
+
 	/**
-	 * Main constructor.
+	 * Call trees of finished tasks to be merged, created by the owning thread when the first context is captured
+	 * (before the context is handed over to other threads).
+	 */
+	private Queue<AsyncCall> asyncCalls;
+
+	/**
+	 * Constructor with default limits.
 	 *
 	 * @param logThreshold Log threshold
 	 */
 	public CallTree(Long logThreshold) {
+		this(logThreshold, DEFAULT_MAX_NODES, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param logThreshold Log threshold
+	 * @param maxNodes maximal number of tree nodes
+	 * @param maxDepth maximal depth of the tree
+	 * @throws IllegalArgumentException if a limit is not positive
+	 * @since 4.3
+	 */
+	public CallTree(Long logThreshold, int maxNodes, int maxDepth) {
+		this(logThreshold, maxNodes, maxDepth, null);
+	}
+
+	/**
+	 * Constructor of the call tree of a task executed in given context.
+	 *
+	 * @param logThreshold Log threshold
+	 * @param maxNodes maximal number of tree nodes
+	 * @param maxDepth maximal depth of the tree
+	 * @param context context of the task, null for tree of root calls
+	 */
+	CallTree(Long logThreshold, int maxNodes, int maxDepth, CallTreeContext context) {
+		if (maxNodes <= 0 || maxDepth <= 0) {
+			throw new IllegalArgumentException("Expected positive max nodes and max depth: " + maxNodes + "/" + maxDepth);
+		}
 		this.logThreshold = logThreshold;
+		this.maxNodes = maxNodes;
+		this.callStack = new CallTreeNode[maxDepth];
+		this.context = context;
 	}
 
 	/**
@@ -37,40 +123,199 @@ public class CallTree implements LogMessageSource<Split> {
 	 * tree node and pushed on the call stack.
 	 * As a result, child tree node becomes the current tree node.
 	 *
-	 * @return Current (child) tree node
+	 * When the tree is full, no tree node is added and null is returned.
+	 *
+	 * @return Current (child) tree node, null if the call is not tracked
 	 */
 	public CallTreeNode onStopwatchStart(Split split) {
 		final String name = split.getStopwatch().getName();
 		CallTreeNode currentNode;
-		if (callStack.isEmpty()) {
-			// Root tree node
-			rootNode = new CallTreeNode(name);
+		if (droppedDepth > 0 || (depth == 0 && context != null && context.isIgnored())) {
+			droppedDepth++;
+			return null;
+		}
+		mergeAsyncCalls();
+		if (depth == 0) {
+			// Root tree node, nodes of the previous tree are not recycled unless recycle was called
+			nodes.clear();
+			droppedDepth = 0;
+			droppedSplitCount = 0;
+			rootNode = createNode(name);
 			currentNode = rootNode;
 			onRootStopwatchStart(currentNode, split);
+		} else if (depth == callStack.length) {
+			droppedDepth++;
+			return null;
 		} else {
 			// Child node
-			currentNode = callStack.getLast().getOrAddChild(name);
+			CallTreeNode parentNode = callStack[depth - 1];
+			currentNode = parentNode.getChild(name);
+			if (currentNode == null) {
+				if (nodes.size() == maxNodes) {
+					droppedDepth++;
+					return null;
+				}
+				currentNode = parentNode.addChild(createNode(name));
+			}
 		}
-		callStack.addLast(currentNode);
+		callStack[depth++] = currentNode;
 		return currentNode;
 	}
 
+	/**
+	 * Returns true when no call is in progress, the next started stopwatch will be the root call.
+	 *
+	 * @return true if the next call is a root call
+	 */
+	boolean isIdle() {
+		return depth == 0 && droppedDepth == 0;
+	}
+
+	/**
+	 * When stopwatch is started, but the call (and the calls nested in it) should not be tracked,
+	 * for instance because the root call is not sampled.
+	 */
+	void ignoreStopwatchStart() {
+		droppedDepth++;
+	}
+
+	/**
+	 * Captures the context of the current call, see {@link CallTreeContext}.
+	 *
+	 * @param callback callback owning this tree
+	 * @return context of the current call, ignored context if the current call is not tracked, context of this tree
+	 * if no call is in progress (may be null)
+	 */
+	CallTreeContext captureContext(CallTreeCallback callback) {
+		if (droppedDepth > 0) {
+			return new CallTreeContext(callback, null, null, 0);
+		}
+		if (depth == 0) {
+			return context;
+		}
+		if (asyncCalls == null) {
+			asyncCalls = new ConcurrentLinkedQueue<>();
+		}
+		return new CallTreeContext(callback, this, callStack[depth - 1], generation);
+	}
+
+	/**
+	 * Returns context of the task whose calls are tracked by this tree.
+	 *
+	 * @return task context, null for tree of root calls
+	 */
+	CallTreeContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Queues call tree of a task executed in another thread, called by the executing thread.
+	 * Call tree is dropped if the root call of this tree already ended.
+	 */
+	void addAsyncCall(CallTreeNode node, int generation, CallTreeNode rootNode, long start, long end) {
+		if (this.generation == generation) {
+			asyncCalls.offer(new AsyncCall(node, generation, rootNode, start, end));
+		}
+	}
+
+	/** Merges queued call trees of tasks into this tree. */
+	private void mergeAsyncCalls() {
+		if (asyncCalls == null) {
+			return;
+		}
+		AsyncCall asyncCall;
+		while ((asyncCall = asyncCalls.poll()) != null) {
+			if (asyncCall.generation == generation) {
+				CallTreeNode asyncNode = mergeNode(asyncCall.node, asyncCall.rootNode);
+				if (asyncNode != null) {
+					asyncNode.addAsyncSpan(asyncCall.start, asyncCall.end);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges source node and its children into the child of given parent node.
+	 *
+	 * @return merged child node, null if the tree is full
+	 */
+	private CallTreeNode mergeNode(CallTreeNode parentNode, CallTreeNode sourceNode) {
+		CallTreeNode node = parentNode.getChild(sourceNode.getName());
+		if (node == null) {
+			if (nodes.size() == maxNodes) {
+				droppedSplitCount += sourceNode.getSplitCount();
+				return null;
+			}
+			node = parentNode.addChild(createNode(sourceNode.getName()));
+		}
+		node.addStatistics(sourceNode);
+		for (CallTreeNode sourceChild : sourceNode.getChildren()) {
+			mergeNode(node, sourceChild);
+		}
+		return node;
+	}
+
+	/** Takes a node from the pool or creates a new one. */
+	private CallTreeNode createNode(String name) {
+		CallTreeNode node;
+		if (nodePool.isEmpty()) {
+			node = new CallTreeNode(name);
+		} else {
+			node = nodePool.remove(nodePool.size() - 1);
+			node.reset(name);
+		}
+		nodes.add(node);
+		return node;
+	}
+
 	/**
 	 * When stopwatch is stopped, the the split is added to current tree node
 	 * and this tree node is popped from call stack.
 	 * As a result, parent tree node becomes current tree node.
 	 *
-	 * @return Current (child) tree node
+	 * @return Current (child) tree node, null if the call is not tracked
 	 */
 	public CallTreeNode onStopwatchStop(Split split) {
-		CallTreeNode currentNode = callStack.removeLast();
+		if (droppedDepth > 0) {
+			droppedDepth--;
+			if (depth > 0) {
+				droppedSplitCount++;
+			}
+			return null;
+		}
+		mergeAsyncCalls();
+		CallTreeNode currentNode = callStack[--depth];
+		callStack[depth] = null;
 		currentNode.addSplit(split);
-		if (callStack.isEmpty()) {
-			onRootStopwatchStop(currentNode, split);
+		if (depth == 0) {
+			generation++;
+			if (context == null) {
+				onRootStopwatchStop(currentNode, split);
+			} else {
+				context.attach(currentNode, split);
+			}
 		}
 		return currentNode;
 	}
 
+	/**
+	 * Returns all nodes of this tree to the node pool, nodes are reused by the next root call.
+	 * Tree must not be used (or referenced by a Simon attribute) once it is recycled. Does nothing
+	 * while a call is in progress.
+	 *
+	 * @since 4.3
+	 */
+	public void recycle() {
+		if (depth > 0) {
+			return;
+		}
+		for (int i = 0; i < nodes.size(); i++) {
+			nodePool.add(nodes.get(i));
+		}
+		nodes.clear();
+		rootNode = null;
+	}
+
 	/**
 	 * When stopwatch is started, and the root tree node is pushed into
 	 * the call stack, this method is called.
@@ -105,4 +350,50 @@ public class CallTree implements LogMessageSource<Split> {
 	public CallTreeNode getRootNode() {
 		return rootNode;
 	}
+
+	/**
+	 * Returns number of nodes of the tree.
+	 *
+	 * @return node count
+	 * @since 4.3
+	 */
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	/**
+	 * Returns number of splits not added to the tree, because the tree was too large or too deep.
+	 *
+	 * @return dropped split count
+	 * @since 4.3
+	 */
+	public int getDroppedSplitCount() {
+		return droppedSplitCount;
+	}
+
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	public int getMaxDepth() {
+		return callStack.length;
+	}
+
+	/** Call tree of a task executed in another thread waiting to be merged. */
+	private static final class AsyncCall {
+
+		private final CallTreeNode node;
+		private final int generation;
+		private final CallTreeNode rootNode;
+		private final long start;
+		private final long end;
+
+		private AsyncCall(CallTreeNode node, int generation, CallTreeNode rootNode, long start, long end) {
+			this.node = node;
+			this.generation = generation;
+			this.rootNode = rootNode;
+			this.start = start;
+			this.end = end;
+		}
+	}
 }
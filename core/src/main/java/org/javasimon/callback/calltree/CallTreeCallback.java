@@ -3,12 +3,15 @@ package org.javasimon.callback.calltree;
 import static org.javasimon.callback.logging.LogTemplates.toSLF4J;
 import static org.javasimon.callback.logging.LogTemplates.whenSplitLongerThanMilliseconds;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.javasimon.callback.CallbackSkeleton;
 import org.javasimon.callback.logging.LogTemplate;
 import org.javasimon.callback.logging.SplitThresholdLogTemplate;
+import org.javasimon.clock.SimonClock;
 
 /**
  * Callback which logs the call tree when the main call is bigger than specified threshold.
@@ -24,6 +27,17 @@ import org.javasimon.callback.logging.SplitThresholdLogTemplate;
  * 		org.javasimon.data.SecondDAO.findByRelation 20ms, 10%, 3
  * 	org.javasimon.business.SecondService.do 10ms, 5%
  * </pre>
+ * Tree nodes keep only aggregated statistics, tree size and depth are bounded (see {@link #setMaxNodes(int)}
+ * and {@link #setMaxDepth(int)}), and the call tree of each thread is recycled after the root call unless it was
+ * remembered as the last significant call tree, so the callback can stay enabled in production.
+ * <p>
+ * Call trees can be built for 1 in N root calls only (see {@link #setSamplingRate(int)}), calls of other root calls
+ * are only counted to find the end of the root call. Sampled call trees can be merged into a {@link CallTreeProfile}
+ * of the root stopwatch over a rolling window (see {@link #setProfileWindow(long, int)}), which can be exported
+ * in collapsed stack format for flame graphs.
+ * <p>
+ * Call tree is kept per thread. Work executed in other threads on behalf of the current call is attached to the call
+ * tree when its context is propagated, see {@link #captureContext()} and {@link CallTreeExecutors}.
  *
  * @author gquintana
  * @see CallTree
@@ -40,9 +54,45 @@ public class CallTreeCallback extends CallbackSkeleton {
 	/** Simon attribute name used to store last significant call tree. */
 	public static final String ATTR_NAME_LAST = "lastCallTree";
 
+	/**
+	 * Simon attribute name used to store call tree profile of the root stopwatch.
+	 *
+	 * @since 4.3
+	 */
+	public static final String ATTR_NAME_PROFILE = "callTreeProfile";
+
+	/**
+	 * Default length of the profile window slot - 1 minute.
+	 *
+	 * @since 4.3
+	 */
+	public static final long DEFAULT_PROFILE_SLOT_MILLIS = 60000L;
+
+	/**
+	 * Default number of profile window slots - 15 minute window with the default slot length.
+	 *
+	 * @since 4.3
+	 */
+	public static final int DEFAULT_PROFILE_SLOT_COUNT = 15;
+
 	/** Duration threshold used to trigger logging and remembering. */
 	private Long logThreshold;
 
+	/** Maximal number of nodes of each call tree. */
+	private int maxNodes = CallTree.DEFAULT_MAX_NODES;
+
+	/** Maximal depth of each call tree. */
+	private int maxDepth = CallTree.DEFAULT_MAX_DEPTH;
+
+	/** Call tree is built for 1 in {@code samplingRate} root calls. */
+	private int samplingRate = 1;
+
+	/** Length of the profile window slot in ms, 0 if profile is disabled. */
+	private long profileSlotMillis;
+
+	/** Number of profile window slots. */
+	private int profileSlotCount;
+
 	/** Default constructor. */
 	public CallTreeCallback() {
 		initLogThreshold(500L);
@@ -90,6 +140,83 @@ public class CallTreeCallback extends CallbackSkeleton {
 		initLogThreshold(logThreshold);
 	}
 
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Sets maximal number of nodes of call trees created afterwards, calls creating more nodes are not tracked.
+	 *
+	 * @param maxNodes maximal number of nodes
+	 * @since 4.3
+	 */
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Sets maximal depth of call trees created afterwards, deeper calls are not tracked.
+	 *
+	 * @param maxDepth maximal depth
+	 * @since 4.3
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public int getSamplingRate() {
+		return samplingRate;
+	}
+
+	/**
+	 * Sets sampling rate - call tree is built for 1 in {@code samplingRate} root calls chosen randomly,
+	 * calls of other root calls are not tracked. Default 1 builds call tree for every root call.
+	 *
+	 * @param samplingRate sampling rate
+	 * @throws IllegalArgumentException if sampling rate is not positive
+	 * @since 4.3
+	 */
+	public void setSamplingRate(int samplingRate) {
+		if (samplingRate <= 0) {
+			throw new IllegalArgumentException("Expected positive sampling rate: " + samplingRate);
+		}
+		this.samplingRate = samplingRate;
+	}
+
+	/**
+	 * Enables merging of sampled call trees into {@link CallTreeProfile} of the root stopwatch,
+	 * profiles are created afterwards.
+	 *
+	 * @param slotMillis length of the window slot in ms, 0 disables the profile
+	 * @param slotCount number of window slots
+	 * @since 4.3
+	 */
+	public void setProfileWindow(long slotMillis, int slotCount) {
+		this.profileSlotMillis = slotMillis;
+		this.profileSlotCount = slotCount;
+	}
+
+	/**
+	 * Enables call tree profile with the default window - 15 slots of 1 minute.
+	 *
+	 * @since 4.3
+	 */
+	public void enableProfile() {
+		setProfileWindow(DEFAULT_PROFILE_SLOT_MILLIS, DEFAULT_PROFILE_SLOT_COUNT);
+	}
+
+	public long getProfileSlotMillis() {
+		return profileSlotMillis;
+	}
+
+	public int getProfileSlotCount() {
+		return profileSlotCount;
+	}
+
 	/**
 	 * Returns call tree for current thread.
 	 *
@@ -105,7 +232,7 @@ public class CallTreeCallback extends CallbackSkeleton {
 	 * @return Created call tree
 	 */
 	private CallTree initCallTree() {
-		final CallTree callTree = new CallTree(logThreshold) {
+		final CallTree callTree = new CallTree(logThreshold, maxNodes, maxDepth) {
 			@Override
 			protected void onRootStopwatchStop(CallTreeNode rootNode, Split split) {
 				CallTreeCallback.this.onRootStopwatchStop(this, split);
@@ -120,6 +247,44 @@ public class CallTreeCallback extends CallbackSkeleton {
 		threadCallTree.remove();
 	}
 
+	/**
+	 * Captures call tree context of the current thread, it can be restored in another thread to attach calls
+	 * made there to the current call tree node.
+	 *
+	 * @return call tree context or {@code null} if no call is in progress in the current thread
+	 * @see CallTreeContext#wrap(Runnable)
+	 * @since 4.3
+	 */
+	public CallTreeContext captureContext() {
+		CallTree callTree = getCallTree();
+		return callTree == null ? null : callTree.captureContext(this);
+	}
+
+	/**
+	 * Sets call tree for the task executed in given context in the current thread.
+	 *
+	 * @param context call tree context
+	 * @return previous call tree of the current thread, may be null
+	 */
+	CallTree bindContext(CallTreeContext context) {
+		CallTree previousCallTree = getCallTree();
+		threadCallTree.set(new CallTree(logThreshold, maxNodes, maxDepth, context));
+		return previousCallTree;
+	}
+
+	/**
+	 * Restores previous call tree of the current thread after the task executed in a context.
+	 *
+	 * @param previousCallTree call tree returned by {@link #bindContext(CallTreeContext)}
+	 */
+	void unbindContext(CallTree previousCallTree) {
+		if (previousCallTree == null) {
+			removeCallTree();
+		} else {
+			threadCallTree.set(previousCallTree);
+		}
+	}
+
 	@Override
 	public void onStopwatchStart(Split split) {
 		CallTree callTree = getCallTree();
@@ -127,7 +292,18 @@ public class CallTreeCallback extends CallbackSkeleton {
 			// New tree root
 			callTree = initCallTree();
 		}
-		callTree.onStopwatchStart(split);
+		if (samplingRate > 1 && callTree.isIdle() && callTree.getContext() == null && ThreadLocalRandom.current().nextInt(samplingRate) != 0) {
+			// Root call not sampled
+			callTree.ignoreStopwatchStart();
+		} else {
+			callTree.onStopwatchStart(split);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsSample(Event event) {
+		return false;
 	}
 
 	@Override
@@ -137,17 +313,51 @@ public class CallTreeCallback extends CallbackSkeleton {
 
 	/**
 	 * When stopwatch corresponding to root tree node is stopped, this method is called.
-	 * Logs call tree when split is longer than threshold.
+	 * Logs call tree when split is longer than threshold and merges it into the call tree profile when enabled.
+	 * Call tree is recycled for the next root call of the thread unless it was stored in stopwatch attributes.
 	 *
 	 * @param callTree call tree to log
 	 * @param split stopped split
 	 */
 	public void onRootStopwatchStop(CallTree callTree, Split split) {
+		if (profileSlotMillis > 0) {
+			getOrCreateCallTreeProfile(split.getStopwatch()).add(callTree.getRootNode());
+		}
 		callTreeLogTemplate.log(split, callTree);
-		if (logThreshold != null && split.runningFor() > logThreshold) {
+		if (logThreshold != null && split.runningFor() > logThreshold * SimonClock.NANOS_IN_MILLIS) {
 			split.getStopwatch().setAttribute(ATTR_NAME_LAST, callTree);
 		}
-		removeCallTree();
+		if (getLastCallTree(split.getStopwatch()) == callTree) {
+			removeCallTree();
+		} else {
+			callTree.recycle();
+		}
+	}
+
+	/** Returns call tree profile of the stopwatch, creates it if needed. */
+	private CallTreeProfile getOrCreateCallTreeProfile(Stopwatch stopwatch) {
+		CallTreeProfile profile = getCallTreeProfile(stopwatch);
+		if (profile == null) {
+			synchronized (this) {
+				profile = getCallTreeProfile(stopwatch);
+				if (profile == null) {
+					profile = new CallTreeProfile(stopwatch.getManager(), profileSlotMillis, profileSlotCount);
+					stopwatch.setAttribute(ATTR_NAME_PROFILE, profile);
+				}
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Returns call tree profile stored in stopwatch attributes.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @return call tree profile or {@code null} if the stopwatch was not a sampled root call yet
+	 * @since 4.3
+	 */
+	public static CallTreeProfile getCallTreeProfile(Stopwatch stopwatch) {
+		return (CallTreeProfile) stopwatch.getAttribute(ATTR_NAME_PROFILE);
 	}
 
 	/**
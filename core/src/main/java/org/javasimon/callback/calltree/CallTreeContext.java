@@ -0,0 +1,157 @@
+package org.javasimon.callback.calltree;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.javasimon.Split;
+
+/**
+ * Call tree context captured in one thread (see {@link CallTreeCallback#captureContext()}) and restored in another
+ * thread executing work on behalf of the current call, typically a task submitted to an executor.
+ * <p>
+ * While the wrapped task runs, its calls are tracked in a separate call tree of the executing thread. When the
+ * outermost call of the task ends, its tree is handed over to the originating call tree and attached as an
+ * asynchronous child of the node which was current when the context was captured. Handed over trees are merged
+ * by the originating thread on its next stopwatch start or stop, at the latest when its root call ends. Calls ending
+ * after the end of the originating root call are dropped.
+ * <p>
+ * If the current call was not tracked (root call not sampled or tree limits exceeded), the context is ignored and calls
+ * of the wrapped task are not tracked either, instead of starting a new root call.
+ *
+ * @see CallTreeExecutors
+ * @since 4.3
+ */
+public final class CallTreeContext {
+
+	/** Callback owning the thread local call trees. */
+	private final CallTreeCallback callback;
+
+	/** Originating call tree, null if the context is ignored. */
+	private final CallTree callTree;
+
+	/** Node current in the originating call tree when the context was captured, null if the context is ignored. */
+	private final CallTreeNode node;
+
+	/** Generation (root call number) of the originating call tree when the context was captured. */
+	private final int generation;
+
+	CallTreeContext(CallTreeCallback callback, CallTree callTree, CallTreeNode node, int generation) {
+		this.callback = callback;
+		this.callTree = callTree;
+		this.node = node;
+		this.generation = generation;
+	}
+
+	/**
+	 * Returns true if calls in this context are not tracked.
+	 *
+	 * @return true for ignored context
+	 */
+	public boolean isIgnored() {
+		return callTree == null;
+	}
+
+	/**
+	 * Attaches call tree of the task to the originating node, called by the thread executing the task.
+	 *
+	 * @param rootNode root node of the task call tree
+	 * @param split split of the root call of the task
+	 */
+	void attach(CallTreeNode rootNode, Split split) {
+		if (callTree != null) {
+			callTree.addAsyncCall(node, generation, rootNode, split.getStart(), split.getStart() + split.runningFor());
+		}
+	}
+
+	/**
+	 * Restores this context in the current thread, runs the callable and restores the previous call tree.
+	 *
+	 * @param callable Callable to run in this context
+	 * @param <T> result type
+	 * @return callable result
+	 * @throws Exception exception thrown by the callable
+	 */
+	public <T> T call(Callable<T> callable) throws Exception {
+		CallTree previousCallTree = callback.bindContext(this);
+		try {
+			return callable.call();
+		} finally {
+			callback.unbindContext(previousCallTree);
+		}
+	}
+
+	/**
+	 * Wraps runnable to run in this context.
+	 *
+	 * @param runnable Runnable
+	 * @return wrapped runnable
+	 */
+	public Runnable wrap(final Runnable runnable) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				CallTree previousCallTree = callback.bindContext(CallTreeContext.this);
+				try {
+					runnable.run();
+				} finally {
+					callback.unbindContext(previousCallTree);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wraps callable to run in this context.
+	 *
+	 * @param callable Callable
+	 * @param <T> result type
+	 * @return wrapped callable
+	 */
+	public <T> Callable<T> wrap(final Callable<T> callable) {
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return CallTreeContext.this.call(callable);
+			}
+		};
+	}
+
+	/**
+	 * Wraps executor to run all tasks in this context regardless of the thread submitting them, e.g. dependent
+	 * stages of {@link java.util.concurrent.CompletableFuture} which are submitted by the thread completing
+	 * the previous stage.
+	 *
+	 * @param executor Executor
+	 * @return wrapped executor
+	 */
+	public Executor wrap(final Executor executor) {
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executor.execute(wrap(command));
+			}
+		};
+	}
+
+	/**
+	 * Wraps supplier (e.g. of {@link java.util.concurrent.CompletableFuture#supplyAsync(Supplier)}) to run in this context.
+	 *
+	 * @param supplier Supplier
+	 * @param <T> result type
+	 * @return wrapped supplier
+	 */
+	public <T> Supplier<T> wrap(final Supplier<T> supplier) {
+		return new Supplier<T>() {
+			@Override
+			public T get() {
+				CallTree previousCallTree = callback.bindContext(CallTreeContext.this);
+				try {
+					return supplier.get();
+				} finally {
+					callback.unbindContext(previousCallTree);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,200 @@
+package org.javasimon.callback.calltree;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wrappers propagating call tree context of {@link CallTreeCallback} to tasks executed by executors
+ * and {@link CompletableFuture}s. Context is captured in the thread submitting the task and restored in the thread
+ * executing it, calls of the task are attached to the call tree node current at submission time.
+ * <pre>
+ * ExecutorService executorService = CallTreeExecutors.executorService(callTreeCallback, Executors.newFixedThreadPool(4));
+ * Future&lt;Result&gt; future = executorService.submit(callable);
+ * </pre>
+ * Dependent stages of {@link CompletableFuture} are submitted by the thread completing the previous stage,
+ * possibly after the context of the previous stage was left, chains should use an executor bound to the context
+ * captured once:
+ * <pre>
+ * Executor executor = CallTreeExecutors.contextExecutor(callTreeCallback, pool);
+ * CompletableFuture&lt;Result&gt; future = CompletableFuture.supplyAsync(supplier, executor)
+ * 	.thenApplyAsync(function, executor);
+ * </pre>
+ * For other asynchronous APIs (e.g. servlet {@code AsyncContext.start}) the context can be propagated explicitly,
+ * see {@link CallTreeCallback#captureContext()}.
+ *
+ * @see CallTreeContext
+ * @since 4.3
+ */
+public final class CallTreeExecutors {
+
+	private CallTreeExecutors() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Wraps runnable to run in the call tree context of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param runnable Runnable
+	 * @return wrapped runnable, the runnable itself if there is no context to propagate
+	 */
+	public static Runnable wrap(CallTreeCallback callback, Runnable runnable) {
+		CallTreeContext context = callback.captureContext();
+		return context == null ? runnable : context.wrap(runnable);
+	}
+
+	/**
+	 * Wraps supplier to run in the call tree context of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param supplier Supplier
+	 * @param <T> result type
+	 * @return wrapped supplier, the supplier itself if there is no context to propagate
+	 */
+	public static <T> Supplier<T> wrap(CallTreeCallback callback, Supplier<T> supplier) {
+		CallTreeContext context = callback.captureContext();
+		return context == null ? supplier : context.wrap(supplier);
+	}
+
+	/**
+	 * Wraps executor to run tasks in the call tree context of the submitting thread.
+	 *
+	 * @param callback call tree callback
+	 * @param executor wrapped executor
+	 * @return executor propagating call tree context
+	 */
+	public static Executor executor(final CallTreeCallback callback, final Executor executor) {
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executor.execute(wrap(callback, command));
+			}
+		};
+	}
+
+	/**
+	 * Wraps executor to run all tasks in the call tree context of the current thread, see
+	 * {@link CallTreeContext#wrap(Executor)}.
+	 *
+	 * @param callback call tree callback
+	 * @param executor wrapped executor
+	 * @return executor bound to the current call tree context, the executor itself if there is no context to propagate
+	 */
+	public static Executor contextExecutor(CallTreeCallback callback, Executor executor) {
+		CallTreeContext context = callback.captureContext();
+		return context == null ? executor : context.wrap(executor);
+	}
+
+	/**
+	 * Wraps executor service to run tasks in the call tree context of the submitting thread.
+	 * All tasks (including submitted and invoked callables) are passed to {@link ExecutorService#execute(Runnable)}
+	 * of the wrapped executor service.
+	 *
+	 * @param callback call tree callback
+	 * @param executorService wrapped executor service
+	 * @return executor service propagating call tree context
+	 */
+	public static ExecutorService executorService(CallTreeCallback callback, ExecutorService executorService) {
+		return new ContextExecutorService(callback, executorService);
+	}
+
+	/**
+	 * Same as {@link CompletableFuture#supplyAsync(Supplier, Executor)}, supplier runs in the call tree context
+	 * of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param supplier Supplier
+	 * @param executor executor running the supplier
+	 * @param <T> result type
+	 * @return completable future
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(CallTreeCallback callback, Supplier<T> supplier, Executor executor) {
+		return CompletableFuture.supplyAsync(wrap(callback, supplier), executor);
+	}
+
+	/**
+	 * Same as {@link CompletableFuture#supplyAsync(Supplier)}, supplier runs in the call tree context
+	 * of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param supplier Supplier
+	 * @param <T> result type
+	 * @return completable future
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(CallTreeCallback callback, Supplier<T> supplier) {
+		return supplyAsync(callback, supplier, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Same as {@link CompletableFuture#runAsync(Runnable, Executor)}, runnable runs in the call tree context
+	 * of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param runnable Runnable
+	 * @param executor executor running the runnable
+	 * @return completable future
+	 */
+	public static CompletableFuture<Void> runAsync(CallTreeCallback callback, Runnable runnable, Executor executor) {
+		return CompletableFuture.runAsync(wrap(callback, runnable), executor);
+	}
+
+	/**
+	 * Same as {@link CompletableFuture#runAsync(Runnable)}, runnable runs in the call tree context
+	 * of the current thread.
+	 *
+	 * @param callback call tree callback
+	 * @param runnable Runnable
+	 * @return completable future
+	 */
+	public static CompletableFuture<Void> runAsync(CallTreeCallback callback, Runnable runnable) {
+		return runAsync(callback, runnable, ForkJoinPool.commonPool());
+	}
+
+	/** Executor service wrapper capturing the call tree context when the task is executed. */
+	private static final class ContextExecutorService extends AbstractExecutorService {
+
+		private final CallTreeCallback callback;
+		private final ExecutorService executorService;
+
+		private ContextExecutorService(CallTreeCallback callback, ExecutorService executorService) {
+			this.callback = callback;
+			this.executorService = executorService;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			executorService.execute(wrap(callback, command));
+		}
+
+		@Override
+		public void shutdown() {
+			executorService.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return executorService.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return executorService.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return executorService.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return executorService.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -2,21 +2,26 @@ package org.javasimon.callback.calltree;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.javasimon.Split;
 import org.javasimon.utils.SimonUtils;
 
 /**
- * Call tree node is one Simon one for one call level, all splits for this
- * Simon+Level(+Thread) tuple are kept for later analysis.
+ * Call tree node is one Simon one for one call level, splits for this
+ * Simon+Level(+Thread) tuple are aggregated (count, total, min and max) for later analysis,
+ * splits themselves are not retained.
  * Simon name is unique within parent tree node. Said differently a tree node can
  * not have two children with same name.
+ * <p>
+ * Tree nodes created by {@link CallTree} are pooled, once the call tree is recycled its nodes are reused.
+ * <p>
+ * Calls executed in other threads on behalf of the parent call (see {@link CallTreeContext}) are kept in
+ * asynchronous child nodes. Their splits run in parallel with the parent, so their total may exceed the total
+ * of the parent; {@link #getWallTime()} gives the elapsed time from the first start to the last end instead.
  *
  * @author gquintana
  * @since 3.2
@@ -25,13 +30,28 @@ public class CallTreeNode {
 	/**
 	 * Name, used as a key.
 	 */
-	private final String name;
+	private String name;
 
-	/**
-	 * Splits.
-	 * Size defaults to 1, because most of the time there are no loops.
-	 */
-	private final List<Split> splits = new ArrayList<>(1);
+	/** Number of splits. */
+	private int splitCount;
+
+	/** Total time of splits in ns. */
+	private long total;
+
+	/** Shortest split in ns. */
+	private long min = Long.MAX_VALUE;
+
+	/** Longest split in ns. */
+	private long max = Long.MIN_VALUE;
+
+	/** True if splits of this node were executed in another thread than the parent node. */
+	private boolean async;
+
+	/** Start of the first asynchronous split in ns. */
+	private long firstStart = Long.MAX_VALUE;
+
+	/** End of the last asynchronous split in ns. */
+	private long lastEnd = Long.MIN_VALUE;
 
 	/**
 	 * Child tree nodes.
@@ -68,7 +88,98 @@ public class CallTreeNode {
 	 * @param split Split
 	 */
 	public void addSplit(Split split) {
-		splits.add(split);
+		addSplit(split.runningFor());
+	}
+
+	/**
+	 * Adds a split duration to the current tree node.
+	 *
+	 * @param duration split duration in ns
+	 * @since 4.3
+	 */
+	public void addSplit(long duration) {
+		splitCount++;
+		total += duration;
+		if (duration < min) {
+			min = duration;
+		}
+		if (duration > max) {
+			max = duration;
+		}
+	}
+
+	/**
+	 * Adds aggregated statistics of splits (of another tree node) to the current tree node.
+	 *
+	 * @param count number of splits
+	 * @param total total time of splits in ns
+	 * @param min shortest split in ns
+	 * @param max longest split in ns
+	 */
+	private void addStatistics(int count, long total, long min, long max) {
+		if (count == 0) {
+			return;
+		}
+		splitCount += count;
+		this.total += total;
+		if (min < this.min) {
+			this.min = min;
+		}
+		if (max > this.max) {
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Adds aggregated statistics of another tree node to the current tree node, including the asynchronous flag
+	 * and the time span of asynchronous splits.
+	 *
+	 * @param node Tree node
+	 */
+	void addStatistics(CallTreeNode node) {
+		addStatistics(node.splitCount, node.total, node.min, node.max);
+		if (node.async) {
+			addAsyncSpan(node.firstStart, node.lastEnd);
+		}
+	}
+
+	/**
+	 * Marks this node as asynchronous and extends the time span of asynchronous splits.
+	 *
+	 * @param start start of the asynchronous split in ns
+	 * @param end end of the asynchronous split in ns
+	 */
+	void addAsyncSpan(long start, long end) {
+		async = true;
+		if (start < firstStart) {
+			firstStart = start;
+		}
+		if (end > lastEnd) {
+			lastEnd = end;
+		}
+	}
+
+	/**
+	 * Returns true if the splits of this node were executed in another thread than the parent node,
+	 * see {@link CallTreeContext}.
+	 *
+	 * @return true for asynchronous node
+	 * @since 4.3
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * Returns elapsed (wall clock) time of the splits. For asynchronous nodes it is the time from the start of
+	 * the first split to the end of the last split, concurrent splits are counted once (and gaps between them are
+	 * included). For other nodes splits are sequential and the wall time is the same as {@link #getTotal()}.
+	 *
+	 * @return wall time in ns
+	 * @since 4.3
+	 */
+	public long getWallTime() {
+		return async && lastEnd >= firstStart ? lastEnd - firstStart : total;
 	}
 
 	/**
@@ -77,7 +188,7 @@ public class CallTreeNode {
 	 * @return Split count
 	 */
 	public int getSplitCount() {
-		return splits.size();
+		return splitCount;
 	}
 
 	/**
@@ -86,13 +197,29 @@ public class CallTreeNode {
 	 * @return total time of splits
 	 */
 	public long getTotal() {
-		long total = 0;
-		for (Split split : splits) {
-			total += split.runningFor();
-		}
 		return total;
 	}
 
+	/**
+	 * Returns the shortest split in this node.
+	 *
+	 * @return shortest split in ns, 0 if there is no split
+	 * @since 4.3
+	 */
+	public long getMin() {
+		return splitCount == 0 ? 0 : min;
+	}
+
+	/**
+	 * Returns the longest split in this node.
+	 *
+	 * @return longest split in ns, 0 if there is no split
+	 * @since 4.3
+	 */
+	public long getMax() {
+		return splitCount == 0 ? 0 : max;
+	}
+
 	/**
 	 * Returns the part of time spent in this node compared to parent.
 	 *
@@ -102,8 +229,10 @@ public class CallTreeNode {
 		Integer percent;
 		if (parent == null) {
 			percent = null;
+		} else if (parent.total == 0L) {
+			percent = 0;
 		} else {
-			percent = (int) (getTotal() * 100L / getParent().getTotal());
+			percent = (int) (total * 100L / parent.total);
 		}
 		return percent;
 	}
@@ -115,15 +244,44 @@ public class CallTreeNode {
 	 * @return Created child node
 	 */
 	public CallTreeNode addChild(String name) {
+		return addChild(new CallTreeNode(name));
+	}
+
+	/**
+	 * Adds given node as a child of this tree node.
+	 *
+	 * @param child Child node
+	 * @return Child node
+	 */
+	CallTreeNode addChild(CallTreeNode child) {
 		if (children == null) {
 			children = new HashMap<>();
 		}
-		CallTreeNode child = new CallTreeNode(name);
-		children.put(name, child);
+		children.put(child.name, child);
 		child.parent = this;
 		return child;
 	}
 
+	/**
+	 * Prepares pooled tree node for reuse: sets the name, removes statistics, children and parent.
+	 *
+	 * @param name Simon name
+	 */
+	void reset(String name) {
+		this.name = name;
+		splitCount = 0;
+		total = 0;
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+		async = false;
+		firstStart = Long.MAX_VALUE;
+		lastEnd = Long.MIN_VALUE;
+		if (children != null) {
+			children.clear();
+		}
+		parent = null;
+	}
+
 	/**
 	 * Returns the child node by Simon name.
 	 *
@@ -188,6 +346,10 @@ public class CallTreeNode {
 			printWriter.print(", ");
 			printWriter.print(counter);
 		}
+		if (async) {
+			printWriter.print(", async, wall ");
+			printWriter.print(SimonUtils.presentNanoTime(getWallTime()));
+		}
 		printWriter.println();
 		for (CallTreeNode child : getChildren()) {
 			child.print(printWriter, prefix + "\t", total);
@@ -203,6 +365,47 @@ public class CallTreeNode {
 		print(printWriter, "", null);
 	}
 
+	/**
+	 * Recursively prints this tree node in collapsed stack format used by flame graph tools, one line per node:
+	 * semicolon separated names from this node to the node, space and self time of the node (total of the node
+	 * minus totals of its children) in nanoseconds. Nodes without self time are skipped. Asynchronous children
+	 * ran in parallel, their time is not subtracted from the self time of the parent.
+	 *
+	 * @param printWriter Output print writer
+	 * @since 4.3
+	 */
+	public void printCollapsedStacks(PrintWriter printWriter) {
+		printCollapsedStacks(printWriter, new StringBuilder());
+	}
+
+	/**
+	 * Recursively prints this tree node in collapsed stack format.
+	 *
+	 * @param printWriter Output print writer
+	 * @param stack Names of parent nodes separated by semicolons, restored before return
+	 */
+	private void printCollapsedStacks(PrintWriter printWriter, StringBuilder stack) {
+		int parentLength = stack.length();
+		if (parentLength > 0) {
+			stack.append(';');
+		}
+		stack.append(name);
+		long selfTime = total;
+		for (CallTreeNode child : getChildren()) {
+			if (!child.async) {
+				selfTime -= child.total;
+			}
+		}
+		if (selfTime > 0) {
+			printWriter.append(stack).append(' ').print(selfTime);
+			printWriter.print('\n');
+		}
+		for (CallTreeNode child : getChildren()) {
+			child.printCollapsedStacks(printWriter, stack);
+		}
+		stack.setLength(parentLength);
+	}
+
 	/**
 	 * Returns a string representing the tree from this tree node, visiting recursively this tree branch.
 	 *
@@ -0,0 +1,262 @@
+package org.javasimon.callback.calltree;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Call trees of sampled root calls of one Stopwatch merged into one aggregated call tree over a rolling window.
+ * <p>
+ * Window is a ring of slots (by default 15 slots of 1 minute), call trees are merged into the slot of the current
+ * period ({@code clock.milliTime() / slotMillis}), slot is cleared when it is reused for a newer period.
+ * Slots of the last {@code slotCount} periods are merged on demand by {@link #mergeWindow()}.
+ * Each slot contains at most {@code maxNodes} nodes, nodes of merged call trees over this limit are dropped.
+ * <p>
+ * Merged call tree can be exported in collapsed stack format for flame graph tools, see
+ * {@link #printCollapsedStacks(PrintWriter)}.
+ *
+ * @see CallTreeCallback#setProfileWindow(long, int)
+ * @since 4.3
+ */
+public final class CallTreeProfile {
+
+	/** Default maximal number of nodes of each slot. */
+	public static final int DEFAULT_MAX_NODES = 10000;
+
+	/** Clock used to select the slot. */
+	private final SimonClock clock;
+	/** Length of the period of each slot in ms. */
+	private final long slotMillis;
+	/** Maximal number of nodes of each slot. */
+	private final int maxNodes;
+	/** Ring of slots indexed by period modulo slot count. */
+	private final Slot[] slots;
+
+	/**
+	 * Constructor with default maximal number of nodes.
+	 *
+	 * @param clock clock used to select the slot
+	 * @param slotMillis length of the period of each slot in ms
+	 * @param slotCount number of slots
+	 */
+	public CallTreeProfile(SimonClock clock, long slotMillis, int slotCount) {
+		this(clock, slotMillis, slotCount, DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param clock clock used to select the slot
+	 * @param slotMillis length of the period of each slot in ms
+	 * @param slotCount number of slots
+	 * @param maxNodes maximal number of nodes of each slot
+	 * @throws IllegalArgumentException if slot length, slot count or max nodes is not positive
+	 */
+	public CallTreeProfile(SimonClock clock, long slotMillis, int slotCount, int maxNodes) {
+		if (slotMillis <= 0 || slotCount <= 0 || maxNodes <= 0) {
+			throw new IllegalArgumentException("Expected positive slot length, slot count and max nodes: " + slotMillis + "/" + slotCount + "/" + maxNodes);
+		}
+		this.clock = clock;
+		this.slotMillis = slotMillis;
+		this.maxNodes = maxNodes;
+		this.slots = new Slot[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = new Slot();
+		}
+	}
+
+	/**
+	 * Returns length of the window.
+	 *
+	 * @return slot length multiplied by slot count in ms
+	 */
+	public long getWindowLength() {
+		return slotMillis * slots.length;
+	}
+
+	private long currentPeriod() {
+		return Math.floorDiv(clock.milliTime(), slotMillis);
+	}
+
+	/**
+	 * Merges call tree into the slot of the current period.
+	 *
+	 * @param rootNode root node of the call tree
+	 */
+	public synchronized void add(CallTreeNode rootNode) {
+		long period = currentPeriod();
+		Slot slot = slots[(int) Math.floorMod(period, (long) slots.length)];
+		if (slot.period != period) {
+			slot.reset(period);
+		}
+		slot.merge(rootNode);
+	}
+
+	/**
+	 * Merges all slots of the window, merged call tree and the number of merged call trees are taken at once,
+	 * so they are consistent even if call trees are added concurrently.
+	 *
+	 * @return merged call tree with the sample count
+	 */
+	public synchronized MergedTree mergeWindow() {
+		long period = currentPeriod();
+		Slot merged = new Slot();
+		int sampleCount = 0;
+		for (Slot slot : slots) {
+			if (slot.period <= period && slot.period > period - slots.length) {
+				if (slot.rootNode != null) {
+					merged.merge(slot.rootNode);
+				}
+				sampleCount += slot.sampleCount;
+			}
+		}
+		return new MergedTree(merged.rootNode, sampleCount);
+	}
+
+	/**
+	 * Returns call tree merged from all slots of the window.
+	 *
+	 * @return merged call tree root node, null if there is no call tree in the window
+	 */
+	public CallTreeNode getMergedTree() {
+		return mergeWindow().getRootNode();
+	}
+
+	/**
+	 * Returns number of call trees merged in the window.
+	 *
+	 * @return sample count
+	 */
+	public synchronized int getSampleCount() {
+		long period = currentPeriod();
+		int sampleCount = 0;
+		for (Slot slot : slots) {
+			if (slot.period <= period && slot.period > period - slots.length) {
+				sampleCount += slot.sampleCount;
+			}
+		}
+		return sampleCount;
+	}
+
+	/**
+	 * Prints call tree merged from all slots of the window in collapsed stack format.
+	 *
+	 * @param printWriter Output print writer
+	 * @see CallTreeNode#printCollapsedStacks(PrintWriter)
+	 */
+	public void printCollapsedStacks(PrintWriter printWriter) {
+		CallTreeNode mergedTree = getMergedTree();
+		if (mergedTree != null) {
+			mergedTree.printCollapsedStacks(printWriter);
+		}
+		printWriter.flush();
+	}
+
+	/**
+	 * Returns call tree merged from all slots of the window in collapsed stack format.
+	 *
+	 * @return collapsed stacks, one line per call tree node, empty if there is no call tree in the window
+	 */
+	public String getCollapsedStacks() {
+		return mergeWindow().getCollapsedStacks();
+	}
+
+	/** Removes all call trees. */
+	public synchronized void clear() {
+		for (Slot slot : slots) {
+			slot.reset(Long.MIN_VALUE);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CallTreeProfile{window=" + getWindowLength() + "ms, samples=" + getSampleCount() + '}';
+	}
+
+	/** Call tree merged from all slots of the window with the number of merged call trees. */
+	public static final class MergedTree {
+
+		private final CallTreeNode rootNode;
+		private final int sampleCount;
+
+		private MergedTree(CallTreeNode rootNode, int sampleCount) {
+			this.rootNode = rootNode;
+			this.sampleCount = sampleCount;
+		}
+
+		/**
+		 * Returns root node of the merged call tree.
+		 *
+		 * @return merged call tree root node, null if there is no call tree in the window
+		 */
+		public CallTreeNode getRootNode() {
+			return rootNode;
+		}
+
+		/**
+		 * Returns number of call trees merged in the window.
+		 *
+		 * @return sample count
+		 */
+		public int getSampleCount() {
+			return sampleCount;
+		}
+
+		/**
+		 * Returns the merged call tree in collapsed stack format.
+		 *
+		 * @return collapsed stacks, one line per call tree node, empty if there is no call tree in the window
+		 * @see CallTreeNode#printCollapsedStacks(PrintWriter)
+		 */
+		public String getCollapsedStacks() {
+			StringWriter stringWriter = new StringWriter();
+			PrintWriter printWriter = new PrintWriter(stringWriter);
+			if (rootNode != null) {
+				rootNode.printCollapsedStacks(printWriter);
+			}
+			printWriter.flush();
+			return stringWriter.toString();
+		}
+	}
+
+	/** Call tree merged from call trees of one period. */
+	private final class Slot {
+
+		private long period = Long.MIN_VALUE;
+		private CallTreeNode rootNode;
+		private int nodeCount;
+		private int sampleCount;
+
+		private void reset(long period) {
+			this.period = period;
+			rootNode = null;
+			nodeCount = 0;
+			sampleCount = 0;
+		}
+
+		private void merge(CallTreeNode sourceRootNode) {
+			if (rootNode == null) {
+				rootNode = new CallTreeNode(sourceRootNode.getName());
+				nodeCount = 1;
+			}
+			merge(sourceRootNode, rootNode);
+			sampleCount++;
+		}
+
+		private void merge(CallTreeNode sourceNode, CallTreeNode targetNode) {
+			targetNode.addStatistics(sourceNode);
+			for (CallTreeNode sourceChild : sourceNode.getChildren()) {
+				CallTreeNode targetChild = targetNode.getChild(sourceChild.getName());
+				if (targetChild == null) {
+					if (nodeCount >= maxNodes) {
+						continue;
+					}
+					targetChild = targetNode.addChild(sourceChild.getName());
+					nodeCount++;
+				}
+				merge(sourceChild, targetChild);
+			}
+		}
+	}
+}
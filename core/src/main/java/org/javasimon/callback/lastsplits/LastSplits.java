@@ -3,23 +3,43 @@ package org.javasimon.callback.lastsplits;
 import static org.javasimon.callback.logging.LogTemplates.disabled;
 import static org.javasimon.utils.SimonUtils.presentNanoTime;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import org.javasimon.Split;
 import org.javasimon.callback.logging.LogMessageSource;
 import org.javasimon.callback.logging.LogTemplate;
 
 /**
  * Object stored among Stopwatch's attributes in charge of <ul>
- * <li>Managing concurrent access to the inner ring buffer through synchronized blocks</li>
+ * <li>Retaining durations and start times of the last splits in a primitive ring buffer</li>
  * <li>Computing som statistics (min, max, mean, trend) based on retained values</li>
  * <li>Log retained values and statistics
  * </ul>
+ * Splits themselves are not retained, each split takes 24 bytes (duration, start and sequence number), so keeping
+ * the last 1000 splits costs about 24 kB per Stopwatch. Splits are added without locking: each producer claims
+ * a sequence number and writes the slot {@code sequence % capacity}, readers skip slots being written concurrently.
+ * Statistics are computed without allocation (besides the boxed result) and may miss splits added meanwhile.
  *
  * @author gquintana
  * @since 3.2
  */
 public class LastSplits implements LogMessageSource<Split> {
-	/** Ring buffer containing splits. */
-	private final CircularList<Split> splits;
+	/** Sequence number of a slot being written. */
+	private static final long WRITING = -1;
+
+	/** Number of splits retained. */
+	private final int capacity;
+	/** Durations of splits in ns. */
+	private final AtomicLongArray durations;
+	/** Start times of splits in ns. */
+	private final AtomicLongArray starts;
+	/** Sequence number of the split in each slot, {@link #WRITING} while the slot is written. */
+	private final AtomicLongArray sequences;
+	/** Number of splits ever added, sequence number of the next split. */
+	private final AtomicLong sequence = new AtomicLong();
+	/** Sequence number of the first split after the last {@link #clear()}. */
+	private volatile long clearedSequence;
 
 	/** Log template used to log this list of splits. */
 	private LogTemplate<Split> logTemplate = disabled();
@@ -28,9 +48,19 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * Constructor with ring buffer size.
 	 *
 	 * @param capacity Buffer size
+	 * @throws IllegalArgumentException if capacity is not positive
 	 */
 	public LastSplits(int capacity) {
-		this.splits = new CircularList<>(capacity);
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Expected positive capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		this.durations = new AtomicLongArray(capacity);
+		this.starts = new AtomicLongArray(capacity);
+		this.sequences = new AtomicLongArray(capacity);
+		for (int slot = 0; slot < capacity; slot++) {
+			sequences.set(slot, WRITING);
+		}
 	}
 
 	/**
@@ -39,16 +69,28 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @param split Split
 	 */
 	public void add(Split split) {
-		synchronized (splits) {
-			splits.add(split);
-		}
+		add(split.getStart(), split.runningFor());
+	}
+
+	/**
+	 * Adds split start and duration to the buffer.
+	 *
+	 * @param start split start in ns
+	 * @param duration split duration in ns
+	 * @since 4.3
+	 */
+	public void add(long start, long duration) {
+		long splitSequence = sequence.getAndIncrement();
+		int slot = slot(splitSequence);
+		sequences.set(slot, WRITING);
+		durations.set(slot, duration);
+		starts.set(slot, start);
+		sequences.set(slot, splitSequence);
 	}
 
 	/** Removes all splits from buffer. */
 	public void clear() {
-		synchronized (splits) {
-			splits.clear();
-		}
+		clearedSequence = sequence.get();
 	}
 
 	public LogTemplate<Split> getLogTemplate() {
@@ -65,85 +107,30 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Split number
 	 */
 	public int getCount() {
-		synchronized (splits) {
-			return splits.size();
-		}
+		long last = sequence.get();
+		return (int) (last - first(last));
 	}
 
-	/**
-	 * Evaluate a function over the list of splits.
-	 *
-	 * @param <T> Function result type
-	 * @param function Function to evaluate
-	 * @return Function result, null if no splits
-	 */
-	private <T> T processFunction(SplitFunction<T> function) {
-		synchronized (splits) {
-			if (splits.isEmpty()) {
-				return null;
-			}
-			for (Split split : splits) {
-				function.evaluate(split);
-			}
-			return function.result();
-		}
+	private int slot(long splitSequence) {
+		return (int) (splitSequence % capacity);
 	}
 
-	/**
-	 * Function.
-	 *
-	 * @param <T> Result type
-	 */
-	private static interface SplitFunction<T> {
-		/**
-		 * Called for each split.
-		 *
-		 * @param split Current split
-		 */
-		void evaluate(Split split);
-
-		/**
-		 * Called after all splits.
-		 *
-		 * @return Function result
-		 */
-		T result();
+	/** Returns sequence number of the oldest split retained when the next split has the given sequence number. */
+	private long first(long last) {
+		return Math.max(last - capacity, clearedSequence);
 	}
 
 	/**
-	 * Base implementation of functions.
-	 *
-	 * @param <T> Function return type
+	 * Returns duration of the split with given sequence number or {@link Long#MIN_VALUE} if the split was
+	 * overwritten or is being written.
 	 */
-	private static abstract class AbstractSplitFunction<T> implements SplitFunction<T> {
-		/** Function result. */
-		protected T result;
-
-		/** Initial function result. */
-		public AbstractSplitFunction(T result) {
-			this.result = result;
-		}
-
-		/**
-		 * Running for duration of the split.
-		 *
-		 * @param runningFor Running for
-		 */
-		public abstract void evaluate(long runningFor);
-
-		/**
-		 * Calls evaluate with split running for duration.
-		 *
-		 * @param split Current split
-		 */
-		public final void evaluate(Split split) {
-			evaluate(split.runningFor());
-		}
-
-		/** Final result. */
-		public T result() {
-			return result;
+	private long duration(long splitSequence) {
+		int slot = slot(splitSequence);
+		if (sequences.get(slot) != splitSequence) {
+			return Long.MIN_VALUE;
 		}
+		long duration = durations.get(slot);
+		return sequences.get(slot) == splitSequence ? duration : Long.MIN_VALUE;
 	}
 
 	/**
@@ -152,18 +139,17 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Mean or average
 	 */
 	public Double getMean() {
-		return processFunction(new AbstractSplitFunction<Double>(0.0D) {
-			@Override
-			public void evaluate(long runningFor) {
-				result += (double) runningFor;
-			}
-
-			@Override
-			public Double result() {
-				return result / (double) splits.size();
+		long last = sequence.get();
+		double total = 0;
+		int count = 0;
+		for (long i = first(last); i < last; i++) {
+			long duration = duration(i);
+			if (duration != Long.MIN_VALUE) {
+				total += duration;
+				count++;
 			}
-
-		});
+		}
+		return count > 0 ? total / count : null;
 	}
 
 	/**
@@ -172,14 +158,17 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Minimum
 	 */
 	public Long getMin() {
-		return processFunction(new AbstractSplitFunction<Long>(Long.MAX_VALUE) {
-			@Override
-			public void evaluate(long runningFor) {
-				if (runningFor < result) {
-					result = runningFor;
-				}
+		long last = sequence.get();
+		long min = Long.MAX_VALUE;
+		boolean found = false;
+		for (long i = first(last); i < last; i++) {
+			long duration = duration(i);
+			if (duration != Long.MIN_VALUE) {
+				min = Math.min(min, duration);
+				found = true;
 			}
-		});
+		}
+		return found ? min : null;
 	}
 
 	/**
@@ -188,14 +177,17 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @return Maximum
 	 */
 	public Long getMax() {
-		return processFunction(new AbstractSplitFunction<Long>(Long.MIN_VALUE) {
-			@Override
-			public void evaluate(long runningFor) {
-				if (runningFor > result) {
-					result = runningFor;
-				}
+		long last = sequence.get();
+		long max = Long.MIN_VALUE;
+		boolean found = false;
+		for (long i = first(last); i < last; i++) {
+			long duration = duration(i);
+			if (duration != Long.MIN_VALUE) {
+				max = Math.max(max, duration);
+				found = true;
 			}
-		});
+		}
+		return found ? max : null;
 	}
 
 	/**
@@ -219,87 +211,73 @@ public class LastSplits implements LogMessageSource<Split> {
 	 * @param timeDeltaThreshold Accepted splits space
 	 * @return Trend, average delta of splits
 	 */
-	public Double getTrend(final long timeDeltaThreshold) {
-		return processFunction(new SplitFunction<Double>() {
-			Split lastSplit;
-			long result;
-			int count;
-
-			public void evaluate(Split split) {
-				if (lastSplit == null) {
-					lastSplit = split;
-				} else {
-					long timeDelta = split.getStart() - lastSplit.getStart();
-					if (timeDelta > timeDeltaThreshold) {
-						long durationDelta = split.runningFor() - lastSplit.runningFor();
-						result += durationDelta;
-						count++;
-						lastSplit = split;
-					}
-				}
+	public Double getTrend(long timeDeltaThreshold) {
+		long last = sequence.get();
+		boolean hasLast = false;
+		long lastStart = 0;
+		long lastDuration = 0;
+		long result = 0;
+		int count = 0;
+		for (long i = first(last); i < last; i++) {
+			int slot = slot(i);
+			if (sequences.get(slot) != i) {
+				continue;
 			}
-
-			public Double result() {
-				return count > 0 ? (result / ((double) count)) : null;
+			long duration = durations.get(slot);
+			long start = starts.get(slot);
+			if (sequences.get(slot) != i) {
+				continue;
 			}
-		});
-	}
-
-	/**
-	 * Transforms split values into a String
-	 *
-	 * @return Splits presented in a String
-	 */
-	private String getSplitsAsString() {
-		return processFunction(new AbstractSplitFunction<StringBuilder>(new StringBuilder()) {
-			private boolean first = true;
-
-			@Override
-			public void evaluate(long runningFor) {
-				if (first) {
-					first = false;
-				} else {
-					result.append(',');
-				}
-				result.append(presentNanoTime(runningFor));
+			if (!hasLast) {
+				hasLast = true;
+			} else if (start - lastStart > timeDeltaThreshold) {
+				result += duration - lastDuration;
+				count++;
+			} else {
+				continue;
 			}
-		}).toString();
+			lastStart = start;
+			lastDuration = duration;
+		}
+		return count > 0 ? (result / ((double) count)) : null;
 	}
 
 	/**
-	 * String containing: count, min, mean, max and trend(1ms).
+	 * String containing: count, values, min, mean, max and trend(1ms).
 	 * This method can be expensive, because many computations are done.
 	 *
 	 * @return String
 	 */
 	@Override
 	public String toString() {
-		int count;
-		long min = 0, mean = 0, max = 0, trend = 0;
-		String values = null;
-		// First extract data
-		synchronized (splits) {
-			count = getCount();
-			if (count > 0) {
-				min = getMin();
-				mean = getMean().longValue();
-				max = getMax();
-				values = getSplitsAsString();
-				if (count > 1) {
-					trend = getTrend().longValue();
+		long last = sequence.get();
+		StringBuilder values = new StringBuilder();
+		int count = 0;
+		long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+		double total = 0;
+		for (long i = first(last); i < last; i++) {
+			long duration = duration(i);
+			if (duration != Long.MIN_VALUE) {
+				if (count > 0) {
+					values.append(',');
 				}
+				values.append(presentNanoTime(duration));
+				min = Math.min(min, duration);
+				max = Math.max(max, duration);
+				total += duration;
+				count++;
 			}
 		}
-		// Then free lock, and format data
 		StringBuilder stringBuilder = new StringBuilder("LastSplits[size=");
 		stringBuilder.append(count);
 		if (count > 0) {
 			stringBuilder.append(",values=[").append(values).append("]")
 				.append(",min=").append(presentNanoTime(min))
-				.append(",mean=").append(presentNanoTime(mean))
+				.append(",mean=").append(presentNanoTime((long) (total / count)))
 				.append(",max=").append(presentNanoTime(max));
-			if (count > 1) {
-				stringBuilder.append(",trend=").append(presentNanoTime(trend));
+			Double trend = count > 1 ? getTrend() : null;
+			if (trend != null) {
+				stringBuilder.append(",trend=").append(presentNanoTime(trend.longValue()));
 			}
 		}
 		stringBuilder.append("]");
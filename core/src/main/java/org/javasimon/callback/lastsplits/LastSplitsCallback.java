@@ -81,6 +81,12 @@ public class LastSplitsCallback extends CallbackSkeleton {
 
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsSample(Event event) {
+		return false;
+	}
+
 	/**
 	 * When a Splits is stopped, it is added to the stopwatch a Last Splits attribute.
 	 */
@@ -88,6 +88,12 @@ public class LoggingCallback extends CallbackSkeleton {
 		return stopwatchLogTemplate;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsSample(Event event) {
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * Split and stopwatch are logger to log template is enabled.
@@ -5,8 +5,7 @@ import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.clock.SimonClock;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Callback which stores data in buckets to compute quantiles.
@@ -18,7 +17,7 @@ import java.util.List;
  * <ul>
  * <li>Buckets do not exist</li>
  * <li>Quantiles can not be computed</li>
- * <li>Splits are kept</li>
+ * <li>Splits are kept (in a primitive array)</li>
  * </ul></li>
  * <li><em>Trigger</em>: splits count &lt;= warmup count threshold
  * <ul>
@@ -31,8 +30,16 @@ import java.util.List;
  * <ul>
  * <li>Buckets are filled/updated with new splits as they come</li>
  * <li>Quantiles can be computed (provided there is enough splits and buckets are properly configured)</li>
+ * <li>When the ratio of splits out of the buckets range (lower than min or greater than max) exceeds
+ * the rescale ratio (1 % by default, see {@link #setRescaleRatio(double)}), buckets are replaced with buckets covering
+ * also the values out of range, counts of the old buckets are moved to the new ones; the new buckets
+ * keep the resolution of the old ones, so there are more of them (at most {@value #MAX_RESCALED_BUCKET_NB})</li>
  * </ul></li>
  * </ol>
+ * Buckets range follows the changes of the split times, so that quantiles can be computed even when the split times
+ * drift far away from the split times during warm up. Range is only extended, never narrowed, as the buckets
+ * represent all the splits since the warmup. Because the resolution is kept, a tail of outliers far from the other
+ * splits does not squeeze them into a single bucket and quantiles can still be computed.
  *
  * @author gquintana
  * @see Buckets
@@ -41,9 +48,15 @@ import java.util.List;
 @SuppressWarnings("UnusedDeclaration")
 public class AutoQuantilesCallback extends QuantilesCallback {
 
-	/** Simon attribute name of the list of split values stored in Simons before warmup time. */
+	/** Simon attribute name of the split values stored in Simons before warmup time. */
 	public static final String ATTR_NAME_BUCKETS_VALUES = "bucketsValues";
 
+	/** Default ratio of values out of range that triggers rescaling of buckets. */
+	public static final double DEFAULT_RESCALE_RATIO = 0.01D;
+
+	/** Maximal number of buckets created by rescaling, resolution of wider ranges is lower. */
+	public static final int MAX_RESCALED_BUCKET_NB = 256;
+
 	/**
 	 * Number of splits before buckets are initialized.
 	 * Default 10
@@ -53,6 +66,9 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 	/** Number of buckets of data for each Simon. */
 	private final int bucketNb;
 
+	/** Ratio of values out of range that triggers rescaling of buckets. */
+	private volatile double rescaleRatio = DEFAULT_RESCALE_RATIO;
+
 	/** Default constructor. */
 	public AutoQuantilesCallback() {
 		this.warmupCounter = 10;
@@ -78,13 +94,41 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 		this.bucketNb = bucketNb;
 	}
 
+	/**
+	 * Returns ratio of values out of range (in the first and the last bucket) that triggers rescaling of buckets.
+	 *
+	 * @return rescale ratio
+	 * @since 4.3
+	 */
+	public double getRescaleRatio() {
+		return rescaleRatio;
+	}
+
+	/**
+	 * Sets ratio of values out of range (in the first and the last bucket) that triggers rescaling of buckets.
+	 * Default is {@value #DEFAULT_RESCALE_RATIO}, lower ratio allows computing of higher quantiles, ratio 1 or more
+	 * disables rescaling.
+	 *
+	 * @param rescaleRatio rescale ratio, must be positive
+	 * @since 4.3
+	 */
+	public void setRescaleRatio(double rescaleRatio) {
+		if (rescaleRatio <= 0) {
+			throw new IllegalArgumentException("Rescale ratio must be positive: " + rescaleRatio);
+		}
+		this.rescaleRatio = rescaleRatio;
+	}
+
 	/** Get the bucket values attribute or create it if it does not exist. */
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-	private List<Long> getOrCreateBucketsValues(final Stopwatch stopwatch) {
+	private WarmupValues getOrCreateBucketsValues(final Stopwatch stopwatch) {
 		synchronized (stopwatch) {
-			List<Long> values = getBucketsValues(stopwatch);
+			WarmupValues values = getBucketsValues(stopwatch);
 			if (values == null) {
-				values = new ArrayList<>((int) warmupCounter);
+				if (getBuckets(stopwatch) != null) {
+					return WarmupValues.ENDED;
+				}
+				values = new WarmupValues((int) Math.min(warmupCounter + 1, 1024));
 				stopwatch.setAttribute(ATTR_NAME_BUCKETS_VALUES, values);
 			}
 			return values;
@@ -92,9 +136,8 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 	}
 
 	/** Get the bucket values attribute. */
-	@SuppressWarnings("unchecked")
-	private List<Long> getBucketsValues(final Stopwatch stopwatch) {
-		return (List<Long>) stopwatch.getAttribute(ATTR_NAME_BUCKETS_VALUES);
+	private WarmupValues getBucketsValues(final Stopwatch stopwatch) {
+		return stopwatch.getAttribute(ATTR_NAME_BUCKETS_VALUES, WarmupValues.class);
 	}
 
 	/** Remove the bucket values attribute (after warmup). */
@@ -116,22 +159,80 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 	 * @return new Buckets objects
 	 */
 	protected Buckets createBucketsAfterWarmup(Stopwatch stopwatch) {
-		// Compute min
-		long min = stopwatch.getMin() * 90L / 100L; // min -10%
+		return createBuckets(stopwatch, stopwatch.getMin(), stopwatch.getMax());
+	}
+
+	/**
+	 * Creates buckets for the range from the lowest to the highest value with 10% margin rounded to milliseconds.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param lowest lowest value that should be within range
+	 * @param highest highest value that should be within range
+	 * @return new Buckets object
+	 */
+	private Buckets createBuckets(Stopwatch stopwatch, long lowest, long highest) {
+		return createBuckets(stopwatch, lowerBound(lowest), upperBound(highest), bucketNb);
+	}
+
+	/** Computes buckets min from the lowest value - 10% lower, rounded to lower millisecond. */
+	private long lowerBound(long lowest) {
+		long min = lowest * 90L / 100L; // min -10%
 		min = Math.max(0, min); // no negative mins
 		min = (min / SimonClock.NANOS_IN_MILLIS) * SimonClock.NANOS_IN_MILLIS; // round to lower millisecond
-		// Compute max
-		long max = (stopwatch.getMax() * 110L) / 100L; // max +10%
-		max = (max / SimonClock.NANOS_IN_MILLIS + 1) * SimonClock.NANOS_IN_MILLIS; // round to upper millisecond
-		return createBuckets(stopwatch, min, max, bucketNb);
+		if (getBucketsType() == BucketsType.EXPONENTIAL) {
+			min = Math.max(1, min); // logarithm of zero is undefined
+		}
+		return min;
+	}
+
+	/** Computes buckets max from the highest value - 10% higher, rounded to upper millisecond. */
+	private long upperBound(long highest) {
+		long max = (highest * 110L) / 100L; // max +10%
+		return (max / SimonClock.NANOS_IN_MILLIS + 1) * SimonClock.NANOS_IN_MILLIS; // round to upper millisecond
+	}
+
+	/**
+	 * Creates the buckets replacing the buckets with too many values out of range.
+	 * Can be overridden to customize buckets configuration.
+	 * By default buckets are created with the same type as after warmup, only the range covers
+	 * the range of the old buckets and the lowest and highest values out of range (with the same margin
+	 * and rounding as after warmup). Number of buckets grows with the range, so that the new buckets are as
+	 * narrow as the old ones (linear) or span the same ratio (exponential), see {@link #MAX_RESCALED_BUCKET_NB}.
+	 * Counts of the old buckets are moved to the new buckets after this method.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param buckets buckets that are replaced
+	 * @return new Buckets object
+	 * @since 4.3
+	 */
+	protected Buckets createRescaledBuckets(Stopwatch stopwatch, Buckets buckets) {
+		long min = buckets.getUnderflowMin() < buckets.getMin() ? lowerBound(buckets.getUnderflowMin()) : buckets.getMin();
+		long max = buckets.getOverflowMax() >= buckets.getMax() ? upperBound(buckets.getOverflowMax()) : buckets.getMax();
+		return createBuckets(stopwatch, min, max, rescaledBucketNb(buckets, min, max));
+	}
+
+	/** Computes number of buckets for the new range keeping the resolution of the old buckets. */
+	private int rescaledBucketNb(Buckets buckets, long min, long max) {
+		double rangeRatio;
+		if (getBucketsType() == BucketsType.EXPONENTIAL) {
+			rangeRatio = Math.log((double) max / min) / Math.log((double) buckets.getMax() / buckets.getMin());
+		} else {
+			rangeRatio = (double) (max - min) / (buckets.getMax() - buckets.getMin());
+		}
+		double rescaledNb = Math.ceil(buckets.getBucketNb() * rangeRatio);
+		return (int) Math.max(bucketNb, Math.min(MAX_RESCALED_BUCKET_NB, rescaledNb));
 	}
 
 	/** When warmup ends, buckets are create and retained splits are sorted in the buckets. */
 	protected final Buckets createBuckets(Stopwatch stopwatch) {
 		if (stopwatch.getCounter() > warmupCounter) {
 			Buckets buckets = createBucketsAfterWarmup(stopwatch);
+			buckets.nextRangeCheck = bucketNb;
 			// Add retained splits to buckets
-			buckets.addValues(getBucketsValues(stopwatch));
+			WarmupValues values = getBucketsValues(stopwatch);
+			if (values != null) {
+				values.moveTo(buckets);
+			}
 			removeBucketsValues(stopwatch);
 			return buckets;
 		} else {
@@ -139,7 +240,37 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 		}
 	}
 
-	/** When simon is created, the list containing Split values is added to stopwatch attributes. */
+	/**
+	 * Checks whether there are too many values out of range and replaces the buckets with the rescaled ones
+	 * if necessary. Check is cheap until the number of values out of range reaches the next check count.
+	 */
+	private void checkRange(Stopwatch stopwatch, Buckets buckets) {
+		if (buckets.getOutOfRangeCount() < buckets.nextRangeCheck) {
+			return;
+		}
+		synchronized (buckets) {
+			int outOfRange = buckets.getOutOfRangeCount();
+			if (outOfRange < buckets.nextRangeCheck) {
+				return;
+			}
+			int threshold = (int) (buckets.getTotalCount() * rescaleRatio);
+			if (outOfRange <= threshold) {
+				// next check when out of range values exceed current threshold
+				buckets.nextRangeCheck = threshold + 1;
+				return;
+			}
+			Buckets rescaled = createRescaledBuckets(stopwatch, buckets);
+			rescaled.nextRangeCheck = bucketNb;
+			if (replaceBuckets(stopwatch, buckets, rescaled)) {
+				// new splits already go to the new buckets, only values added meanwhile may be lost
+				rescaled.addBuckets(buckets);
+			}
+			// the old buckets do not trigger rescaling again
+			buckets.nextRangeCheck = Integer.MAX_VALUE;
+		}
+	}
+
+	/** When simon is created, the buffer for warmup Split values is added to stopwatch attributes. */
 	@Override
 	public void onSimonCreated(Simon simon) {
 		if (simon instanceof Stopwatch) {
@@ -152,7 +283,8 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 	 * Called when there is a new split on a Stopwatch, either
 	 * {@link #onStopwatchStop} or {@link #onStopwatchAdd}.
 	 * If buckets have been initialized, the value is added to appropriate bucket.
-	 * Else if stopwatch is warming up value is added to value list.
+	 * Else if stopwatch is warming up value is added to warmup values.
+	 * Buckets are rescaled if there are too many values out of range.
 	 */
 	@Override
 	protected void onStopwatchSplit(Stopwatch stopwatch, Split split) {
@@ -160,11 +292,59 @@ public class AutoQuantilesCallback extends QuantilesCallback {
 		long value = split.runningFor();
 		if (buckets == null) {
 			// Warming up
-			getOrCreateBucketsValues(stopwatch).add(value);
-		} else {
-			// Warm
-			buckets.addValue(value);
-			buckets.log(split);
+			if (getOrCreateBucketsValues(stopwatch).add(value)) {
+				return;
+			}
+			// warmup ended meanwhile
+			buckets = getOrCreateBuckets(stopwatch);
+		}
+		// Warm
+		buckets.addValue(value);
+		checkRange(stopwatch, buckets);
+		buckets.log(split);
+	}
+
+	/** Split values kept during warmup in a growing primitive array. */
+	static final class WarmupValues {
+
+		/** Values returned when the warmup has already ended, never accept a value. */
+		static final WarmupValues ENDED = new WarmupValues();
+
+		private long[] values;
+		private int size;
+		private boolean closed;
+
+		WarmupValues(int capacity) {
+			values = new long[Math.max(capacity, 1)];
+		}
+
+		private WarmupValues() {
+			closed = true;
+		}
+
+		/**
+		 * Adds the value unless the values were already moved to the buckets.
+		 *
+		 * @return true if the value was kept, false if warmup already ended
+		 */
+		synchronized boolean add(long value) {
+			if (closed) {
+				return false;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+			return true;
+		}
+
+		/** Adds all the values into the buckets, no values are kept after this. */
+		synchronized void moveTo(Buckets buckets) {
+			if (!closed) {
+				buckets.addValues(values, size);
+			}
+			closed = true;
+			values = null;
 		}
 	}
 }
@@ -1,19 +1,24 @@
 package org.javasimon.callback.quantiles;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
- * Bucket count the number of samples in the range min-max.
+ * Bucket count the number of samples in the range min-max. Count is updated atomically without locking.
  *
  * @author gquintana
  * @since 3.2
  */
 public final class Bucket {
 
+	private static final AtomicIntegerFieldUpdater<Bucket> COUNT_UPDATER =
+		AtomicIntegerFieldUpdater.newUpdater(Bucket.class, "count");
+
 	/** Minimal value. */
 	private final long min;
 	/** Maximal value. */
 	private final long max;
 	/** Number of values in the range min-max. */
-	private int count;
+	private volatile int count;
 
 	/**
 	 * Constructor with min/max value specified.
@@ -67,7 +72,16 @@ public final class Bucket {
 	 * Increment value number
 	 */
 	public void incrementCount() {
-		count++;
+		COUNT_UPDATER.incrementAndGet(this);
+	}
+
+	/**
+	 * Adds the number of values at once, used when the counts are moved from other buckets.
+	 *
+	 * @param count number of values
+	 */
+	void addCount(int count) {
+		COUNT_UPDATER.addAndGet(this, count);
 	}
 
 	/**
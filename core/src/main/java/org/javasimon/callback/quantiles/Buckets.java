@@ -6,16 +6,29 @@ import static org.javasimon.utils.SimonUtils.presentNanoTime;
 import org.javasimon.Split;
 import org.javasimon.callback.logging.LogMessageSource;
 import org.javasimon.callback.logging.LogTemplate;
+import org.javasimon.clock.SimonClock;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * List of buckets and quantiles computer.
  * Samples are not kept in buckets only the counter indicates their presence.
  * <p>
+ * Values are added without locking - subclasses find the bucket for the value arithmetically and bucket counts
+ * are incremented atomically. Quantiles and samples are computed from a copy of bucket counts that is taken
+ * while values may be added concurrently, so the copy may miss some of the concurrently added values, but the total
+ * count always matches the copied bucket counts.
+ * <p>
+ * Buckets count all values since they were created (or cleared), so the quantiles react slowly to recent changes.
+ * Optional sliding window ({@link #setWindow(SimonClock, long, int)}) counts values also in a ring of time slots,
+ * quantiles of the last 1, 5 and 15 minutes are then part of the {@link #sample()}.
+ * <p>
  * Some details impact quantiles computation precision:
  * <ul><li><em>Not enough samples</em>: The more samples you have, the more precise interpolation are</li>
  * <li><em>Not enough buckets</em>: the more buckets are used, the more regular the distribution is and the more memory you'll need as well!</li>
@@ -44,6 +57,18 @@ public abstract class Buckets implements LogMessageSource<Split> {
 	protected final long max;
 	/** Log template used to log quantiles. */
 	private LogTemplate<Split> logTemplate = disabled();
+	/** Lowest value counted in the first bucket (below min). */
+	private final AtomicLong underflowMin = new AtomicLong(Long.MAX_VALUE);
+	/** Highest value counted in the last bucket (above max). */
+	private final AtomicLong overflowMax = new AtomicLong(Long.MIN_VALUE);
+	/** Number of values out of range when {@link AutoQuantilesCallback} checks the range again. */
+	volatile int nextRangeCheck;
+	/** Sliding window of bucket counts, null if not enabled. */
+	private volatile BucketsWindow window;
+
+	/** Lengths of the windows in {@link #sample()}, in ms. */
+	private static final long[] SAMPLED_WINDOWS = {
+		TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(15)};
 
 	/**
 	 * Constructor, initializes buckets.
@@ -70,18 +95,27 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		buckets[bucketNb + 1] = new Bucket(max, Long.MAX_VALUE);
 	}
 
+	/** Copies bounds and counts of all buckets. */
+	private BucketSample[] sampleBuckets() {
+		BucketSample[] bucketSamples = new BucketSample[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			bucketSamples[i] = buckets[i].sample();
+		}
+		return bucketSamples;
+	}
+
 	/** Computes expected count and check used buckets number. */
-	private int checkAndGetTotalCount() throws IllegalStateException {
+	private int checkAndGetTotalCount(BucketSample[] bucketSamples) throws IllegalStateException {
 		int usedBuckets = 0;
-		int totalCount = buckets[0].getCount();
+		int totalCount = bucketSamples[0].getCount();
 		for (int i = 1; i <= bucketNb; i++) {
-			int bucketCount = buckets[i].getCount();
+			int bucketCount = bucketSamples[i].getCount();
 			totalCount += bucketCount;
 			if (bucketCount > 0) {
 				usedBuckets++;
 			}
 		}
-		totalCount += buckets[bucketNb + 1].getCount();
+		totalCount += bucketSamples[bucketNb + 1].getCount();
 		if (usedBuckets < 3) {
 			throw new IllegalStateException("Only " + usedBuckets + " buckets used, not enough for interpolation, consider reconfiguring min/max/nb");
 		}
@@ -92,13 +126,14 @@ public abstract class Buckets implements LogMessageSource<Split> {
 	 * Computes given quantile.
 	 *
 	 * @param ration Nth quantile: 0.5 is median
+	 * @param bucketSamples Copy of all buckets
 	 * @param totalCount Total count over all buckets
 	 * @return Quantile
 	 * @throws IllegalStateException Buckets are poorly configured and
 	 * quantile can not be computed
 	 * @throws IllegalArgumentException
 	 */
-	private double computeQuantile(double ration, int totalCount) throws IllegalStateException, IllegalArgumentException {
+	private double computeQuantile(double ration, BucketSample[] bucketSamples, int totalCount) throws IllegalStateException, IllegalArgumentException {
 		if (ration <= 0.0D || ration >= 1.0D) {
 			throw new IllegalArgumentException("Expected ratio between 0 and 1 excluded: " + ration);
 		}
@@ -106,8 +141,8 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		// Search bucket corresponding to expected count
 		double lastCount = 0D, newCount;
 		int bucketIndex = 0;
-		for (int i = 0; i < buckets.length; i++) {
-			newCount = lastCount + buckets[i].getCount();
+		for (int i = 0; i < bucketSamples.length; i++) {
+			newCount = lastCount + bucketSamples[i].getCount();
 			if (expectedCount >= lastCount && expectedCount < newCount) {
 				bucketIndex = i;
 				break;
@@ -121,23 +156,22 @@ public abstract class Buckets implements LogMessageSource<Split> {
 			throw new IllegalStateException("Quantile out of bounds: increase max");
 		}
 		// Interpolation of value
-		final Bucket bucket = buckets[bucketIndex];
-		return estimateQuantile(bucket, expectedCount, lastCount);
+		return estimateQuantile(bucketSamples[bucketIndex], expectedCount, lastCount);
 	}
 
 	/**
 	 * Interpolate quantile located in given Bucket using linear regression.
 	 * <ul>
-	 * <li>Quantile is between {@link Bucket#min} and {@link Bucket#max}</li>
-	 * <li>Expected count is between last count and last count+{@link Bucket#count}</li>
+	 * <li>Quantile is between {@link BucketSample#getMin()} and {@link BucketSample#getMax()}</li>
+	 * <li>Expected count is between last count and last count+{@link BucketSample#getCount()}</li>
 	 * </ul>
 	 *
-	 * @param bucket Current bucket containing the quantile
+	 * @param bucket Copy of the current bucket containing the quantile
 	 * @param expectedCount Searched value
 	 * @param lastCount Value of the bucket lower bound
 	 * @return Compute quantile
 	 */
-	protected double estimateQuantile(Bucket bucket, double expectedCount, double lastCount) {
+	protected double estimateQuantile(BucketSample bucket, double expectedCount, double lastCount) {
 		return bucket.getMin() + (expectedCount - lastCount) * (bucket.getMax() - bucket.getMin()) / bucket.getCount();
 	}
 
@@ -149,9 +183,21 @@ public abstract class Buckets implements LogMessageSource<Split> {
 	 * @return Bucket containing given value
 	 */
 	protected Bucket getBucketForValue(long value) {
-		for (Bucket bucket : buckets) {
-			if (bucket.contains(value)) {
-				return bucket;
+		return buckets[getBucketIndexForValue(value)];
+	}
+
+	/**
+	 * Get the index of the bucket containing the given value. Subclasses should override this method
+	 * to find the bucket faster than by searching all the buckets.
+	 *
+	 * @param value Value
+	 * @return index of the bucket containing given value
+	 * @since 4.3
+	 */
+	protected int getBucketIndexForValue(long value) {
+		for (int i = 0; i < buckets.length; i++) {
+			if (buckets[i].contains(value)) {
+				return i;
 			}
 		}
 		throw new IllegalStateException("Non continuous buckets.");
@@ -159,18 +205,117 @@ public abstract class Buckets implements LogMessageSource<Split> {
 
 	/** Searches the appropriate bucket and add the value in it. */
 	public void addValue(long value) {
-		synchronized (buckets) {
-			getBucketForValue(value).incrementCount();
+		int index = getBucketIndexForValue(value);
+		buckets[index].incrementCount();
+		if (index == 0) {
+			updateExtreme(underflowMin, value, true);
+		} else if (index == bucketNb + 1) {
+			updateExtreme(overflowMax, value, false);
+		}
+		BucketsWindow window = this.window;
+		if (window != null) {
+			window.add(index);
+		}
+	}
+
+	private static void updateExtreme(AtomicLong extreme, long value, boolean lowest) {
+		long current = extreme.get();
+		while ((lowest ? value < current : value > current) && !extreme.compareAndSet(current, value)) {
+			current = extreme.get();
 		}
 	}
 
 	/** For each value, search the appropriate bucket and add the value in it. */
 	public void addValues(Collection<Long> values) {
-		synchronized (buckets) {
-			for (Long value : values) {
-				addValue(value);
+		for (Long value : values) {
+			addValue(value);
+		}
+	}
+
+	/**
+	 * For each value, search the appropriate bucket and add the value in it.
+	 *
+	 * @param values array with values
+	 * @param length number of values in the array
+	 * @since 4.3
+	 */
+	public void addValues(long[] values, int length) {
+		for (int i = 0; i < length; i++) {
+			addValue(values[i]);
+		}
+	}
+
+	/**
+	 * Adds the values counted in other buckets - count of each bucket is added to the bucket containing the middle
+	 * of its range, values out of range of the other buckets are placed in the middle between its min (max)
+	 * and the lowest (highest) value out of range.
+	 *
+	 * @param other buckets whose values are added
+	 * @since 4.3
+	 */
+	public void addBuckets(Buckets other) {
+		int[] bucketMapping = new int[other.buckets.length];
+		for (int i = 0; i < bucketMapping.length; i++) {
+			long value;
+			if (i == 0) {
+				value = other.getUnderflowMin() == Long.MAX_VALUE ? other.min - 1 : middle(other.getUnderflowMin(), other.min);
+			} else if (i == other.bucketNb + 1) {
+				value = other.getOverflowMax() == Long.MIN_VALUE ? other.max : middle(other.max, other.getOverflowMax());
+			} else {
+				value = middle(other.buckets[i].getMin(), other.buckets[i].getMax());
+			}
+			bucketMapping[i] = getBucketIndexForValue(value);
+		}
+		BucketSample[] bucketSamples = other.sampleBuckets();
+		for (int i = 0; i < bucketSamples.length; i++) {
+			int count = bucketSamples[i].getCount();
+			if (count > 0) {
+				buckets[bucketMapping[i]].addCount(count);
 			}
 		}
+		BucketsWindow window = this.window;
+		BucketsWindow otherWindow = other.window;
+		if (window != null && otherWindow != null) {
+			window.addWindow(otherWindow, bucketMapping);
+		}
+	}
+
+	private static long middle(long low, long high) {
+		return low + (high - low) / 2;
+	}
+
+	/**
+	 * Returns the lowest value lower than min, that is counted in the first bucket.
+	 *
+	 * @return lowest value below min or {@link Long#MAX_VALUE} if all values are within range
+	 * @since 4.3
+	 */
+	public long getUnderflowMin() {
+		return underflowMin.get();
+	}
+
+	/**
+	 * Returns the highest value greater than max, that is counted in the last bucket.
+	 *
+	 * @return highest value above max or {@link Long#MIN_VALUE} if all values are within range
+	 * @since 4.3
+	 */
+	public long getOverflowMax() {
+		return overflowMax.get();
+	}
+
+	/** Returns number of values out of range (in the first and the last bucket). */
+	int getOutOfRangeCount() {
+		return buckets[0].getCount() + buckets[bucketNb + 1].getCount();
+	}
+
+	/** Returns number of all values. */
+	int getTotalCount() {
+		int totalCount = 0;
+		for (Bucket bucket : buckets) {
+			totalCount += bucket.getCount();
+		}
+		return totalCount;
 	}
 
 	/**
@@ -180,10 +325,9 @@ public abstract class Buckets implements LogMessageSource<Split> {
 	 * @return quantile
 	 */
 	public double getQuantile(double ratio) {
-		synchronized (buckets) {
-			int totalCount = checkAndGetTotalCount();
-			return computeQuantile(ratio, totalCount);
-		}
+		BucketSample[] bucketSamples = sampleBuckets();
+		int totalCount = checkAndGetTotalCount(bucketSamples);
+		return computeQuantile(ratio, bucketSamples, totalCount);
 	}
 
 	/**
@@ -206,22 +350,93 @@ public abstract class Buckets implements LogMessageSource<Split> {
 	 * @param ratios Nth quantiles, 0.5 is median. Expects values between 0 and 1.
 	 * @return quantiles or {@code null}, if computation failed
 	 */
-	@SuppressWarnings("EmptyCatchBlock")
 	public Double[] getQuantiles(double... ratios) {
-		synchronized (buckets) {
-			final Double[] quantiles = new Double[ratios.length];
-			try {
-				final int totalCount = checkAndGetTotalCount();
-				for (int i = 0; i < ratios.length; i++) {
-					try {
-						quantiles[i] = computeQuantile(ratios[i], totalCount);
-					} catch (IllegalStateException e) {
-					}
+		return getQuantiles(sampleBuckets(), ratios);
+	}
+
+	@SuppressWarnings("EmptyCatchBlock")
+	private Double[] getQuantiles(BucketSample[] bucketSamples, double... ratios) {
+		final Double[] quantiles = new Double[ratios.length];
+		try {
+			final int totalCount = checkAndGetTotalCount(bucketSamples);
+			for (int i = 0; i < ratios.length; i++) {
+				try {
+					quantiles[i] = computeQuantile(ratios[i], bucketSamples, totalCount);
+				} catch (IllegalStateException e) {
 				}
-			} catch (IllegalStateException e) {
 			}
-			return quantiles;
+		} catch (IllegalStateException e) {
+		}
+		return quantiles;
+	}
+
+	/**
+	 * Enables sliding window - values are counted also in a ring of slots, each slot counts values added during
+	 * one period of the slot length. Window takes {@code slotCount * (bucketNb + 2)} int counters, adding
+	 * a value costs one more atomic increment. Window should be set before the buckets are used,
+	 * values added before are not counted in the window.
+	 *
+	 * @param clock clock used to find the current slot
+	 * @param slotMillis length of one slot in ms, quantiles of the window are updated with this step
+	 * @param slotCount number of slots, length of the whole window is {@code slotMillis * slotCount}
+	 * @throws IllegalArgumentException if slot length or count is not positive
+	 * @since 4.3
+	 */
+	public void setWindow(SimonClock clock, long slotMillis, int slotCount) {
+		window = new BucketsWindow(clock, slotMillis, slotCount, buckets.length);
+	}
+
+	/**
+	 * Returns the length of the sliding window.
+	 *
+	 * @return length of the whole window in ms, 0 if the window is not enabled
+	 * @since 4.3
+	 */
+	public long getWindowLength() {
+		BucketsWindow window = this.window;
+		return window == null ? 0 : window.getLength();
+	}
+
+	/**
+	 * Computes quantiles of the values added within the last time window. Window is rounded up
+	 * to the whole slots, current slot is only partially finished, so the sample covers values from the time
+	 * between {@code windowMillis - slotMillis} and {@code windowMillis} ago.
+	 *
+	 * @param windowMillis length of the window in ms, limited to the length of the whole sliding window
+	 * @return window sample or null if the sliding window is not enabled
+	 * @since 4.3
+	 */
+	public WindowSample sampleWindow(long windowMillis) {
+		BucketsWindow window = this.window;
+		if (window == null) {
+			return null;
+		}
+		int[] counts = window.sum(windowMillis);
+		BucketSample[] bucketSamples = new BucketSample[buckets.length];
+		int totalCount = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			bucketSamples[i] = new BucketSample(buckets[i].getMin(), buckets[i].getMax(), counts[i]);
+			totalCount += counts[i];
+		}
+		Double[] quantiles = getQuantiles(bucketSamples, 0.50D, 0.90D, 0.99D);
+		return new WindowSample(Math.min(windowMillis, window.getLength()), totalCount, quantiles[0], quantiles[1], quantiles[2]);
+	}
+
+	private WindowSample[] sampleWindows() {
+		long windowLength = getWindowLength();
+		if (windowLength == 0) {
+			return new WindowSample[0];
+		}
+		List<WindowSample> windowSamples = new ArrayList<>();
+		for (long sampledWindow : SAMPLED_WINDOWS) {
+			if (sampledWindow <= windowLength) {
+				windowSamples.add(sampleWindow(sampledWindow));
+			}
+		}
+		if (windowSamples.isEmpty() || windowLength > SAMPLED_WINDOWS[SAMPLED_WINDOWS.length - 1]) {
+			windowSamples.add(sampleWindow(windowLength));
 		}
+		return windowSamples.toArray(new WindowSample[windowSamples.size()]);
 	}
 
 	public LogTemplate<Split> getLogTemplate() {
@@ -234,14 +449,9 @@ public abstract class Buckets implements LogMessageSource<Split> {
 
 	/** Sample buckets and quantiles state. */
 	public BucketsSample sample() {
-		synchronized (buckets) {
-			BucketSample[] bucketSamples = new BucketSample[buckets.length];
-			for (int i = 0; i < buckets.length; i++) {
-				bucketSamples[i] = buckets[i].sample();
-			}
-			Double[] quantiles = getQuantiles(0.50D, 0.90D);
-			return new BucketsSample(bucketSamples, quantiles[0], quantiles[1]);
-		}
+		BucketSample[] bucketSamples = sampleBuckets();
+		Double[] quantiles = getQuantiles(bucketSamples, 0.50D, 0.90D);
+		return new BucketsSample(bucketSamples, quantiles[0], quantiles[1], sampleWindows());
 	}
 
 	/**
@@ -299,12 +509,16 @@ public abstract class Buckets implements LogMessageSource<Split> {
 		return stringBuilder.toString();
 	}
 
-	/** Clears all buckets. */
+	/** Clears all buckets, values added concurrently may be counted or not. */
 	public void clear() {
-		synchronized (buckets) {
-			for (Bucket bucket : buckets) {
-				bucket.clear();
-			}
+		for (Bucket bucket : buckets) {
+			bucket.clear();
+		}
+		underflowMin.set(Long.MAX_VALUE);
+		overflowMax.set(Long.MIN_VALUE);
+		BucketsWindow window = this.window;
+		if (window != null) {
+			window.clear();
 		}
 	}
 
@@ -16,10 +16,29 @@ public class BucketsSample {
 	 */
 	private final Double percentile90;
 
+	/**
+	 * Quantiles of the sliding windows.
+	 */
+	private final WindowSample[] windows;
+
 	public BucketsSample(BucketSample[] buckets, Double median, Double quantile90) {
+		this(buckets, median, quantile90, new WindowSample[0]);
+	}
+
+	/**
+	 * Constructor with quantiles of the sliding windows.
+	 *
+	 * @param buckets bucket samples
+	 * @param median median of all values
+	 * @param quantile90 90% percentile of all values
+	 * @param windows quantiles of the sliding windows
+	 * @since 4.3
+	 */
+	public BucketsSample(BucketSample[] buckets, Double median, Double quantile90, WindowSample[] windows) {
 		this.buckets = buckets;
 		this.median = median;
 		this.percentile90 = quantile90;
+		this.windows = windows;
 	}
 
 	public BucketSample[] getBuckets() {
@@ -34,6 +53,17 @@ public class BucketsSample {
 		return percentile90;
 	}
 
+	/**
+	 * Returns quantiles of the values within the last time windows (e.g. last 1, 5 and 15 minutes),
+	 * shortest window first.
+	 *
+	 * @return window samples, empty array if the buckets have no sliding window
+	 * @since 4.3
+	 */
+	public WindowSample[] getWindows() {
+		return windows;
+	}
+
 	private boolean hasNoBuckets() {
 		return buckets == null || buckets.length == 0;
 	}
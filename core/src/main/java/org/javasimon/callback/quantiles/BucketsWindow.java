@@ -0,0 +1,144 @@
+package org.javasimon.callback.quantiles;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Sliding time window of bucket counts - ring of slots, each slot counts values of one time period of fixed length
+ * in its own copy of bucket counters. Slot of the current period is found from the time, when the period
+ * changes the slot of the oldest period is reused - its period number is replaced atomically and its counters
+ * are cleared. Values added concurrently just at the moment of slot reuse may be lost.
+ * Counts of the last periods are summed when the window is read.
+ *
+ * @since 4.3
+ */
+final class BucketsWindow {
+
+	/** Period number of a slot that was not used yet. */
+	private static final long NO_PERIOD = Long.MIN_VALUE;
+
+	private final SimonClock clock;
+	private final long slotMillis;
+	private final int slotCount;
+	/** Bucket counters of every slot. */
+	private final AtomicIntegerArray[] slotBuckets;
+	/** Period number (time divided by slot length) counted in every slot. */
+	private final AtomicLongArray slotPeriods;
+
+	BucketsWindow(SimonClock clock, long slotMillis, int slotCount, int bucketCount) {
+		if (slotMillis <= 0 || slotCount <= 0) {
+			throw new IllegalArgumentException("Expected positive slot length and count: " + slotMillis + "/" + slotCount);
+		}
+		this.clock = clock;
+		this.slotMillis = slotMillis;
+		this.slotCount = slotCount;
+		slotBuckets = new AtomicIntegerArray[slotCount];
+		slotPeriods = new AtomicLongArray(slotCount);
+		for (int i = 0; i < slotCount; i++) {
+			slotBuckets[i] = new AtomicIntegerArray(bucketCount);
+			slotPeriods.set(i, NO_PERIOD);
+		}
+	}
+
+	long getSlotMillis() {
+		return slotMillis;
+	}
+
+	int getSlotCount() {
+		return slotCount;
+	}
+
+	/** Returns the length of the whole window in ms. */
+	long getLength() {
+		return slotMillis * slotCount;
+	}
+
+	/** Returns the number of the current period. */
+	long currentPeriod() {
+		return clock.milliTime() / slotMillis;
+	}
+
+	/** Counts the value in the bucket of the current period. */
+	void add(int bucketIndex) {
+		add(currentPeriod(), bucketIndex, 1);
+	}
+
+	/** Adds the count to the bucket of the period, unless the period is already out of the window. */
+	void add(long period, int bucketIndex, int count) {
+		int slot = (int) (period % slotCount);
+		long slotPeriod = slotPeriods.get(slot);
+		while (slotPeriod < period) {
+			if (slotPeriods.compareAndSet(slot, slotPeriod, period)) {
+				AtomicIntegerArray counts = slotBuckets[slot];
+				for (int i = 0; i < counts.length(); i++) {
+					counts.set(i, 0);
+				}
+				break;
+			}
+			slotPeriod = slotPeriods.get(slot);
+		}
+		if (slotPeriod <= period) {
+			slotBuckets[slot].addAndGet(bucketIndex, count);
+		}
+	}
+
+	/**
+	 * Sums bucket counts of the periods within the window of given length ending with the current period.
+	 * The current period is not complete, so the values from up to one slot length less than the requested
+	 * window are summed.
+	 *
+	 * @param windowMillis window length in ms, longer windows are limited to the length of the ring
+	 * @return bucket counts
+	 */
+	int[] sum(long windowMillis) {
+		long period = currentPeriod();
+		long periods = Math.min(slotCount, Math.max(1, (windowMillis + slotMillis - 1) / slotMillis));
+		int[] counts = new int[slotBuckets[0].length()];
+		for (int slot = 0; slot < slotCount; slot++) {
+			long slotPeriod = slotPeriods.get(slot);
+			if (slotPeriod <= period && slotPeriod > period - periods) {
+				AtomicIntegerArray slotCounts = slotBuckets[slot];
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] += slotCounts.get(i);
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Moves counts of all periods of other window into this window, bucket indexes are translated by the mapping.
+	 *
+	 * @param other window of other buckets
+	 * @param bucketMapping index of the bucket in this window for each bucket index of the other window
+	 */
+	void addWindow(BucketsWindow other, int[] bucketMapping) {
+		long oldestPeriod = currentPeriod() - slotCount;
+		for (int slot = 0; slot < other.slotCount; slot++) {
+			long otherPeriod = other.slotPeriods.get(slot);
+			long period = otherPeriod * other.slotMillis / slotMillis;
+			if (otherPeriod != NO_PERIOD && period > oldestPeriod) {
+				AtomicIntegerArray counts = other.slotBuckets[slot];
+				for (int i = 0; i < counts.length(); i++) {
+					int count = counts.get(i);
+					if (count > 0) {
+						add(period, bucketMapping[i], count);
+					}
+				}
+			}
+		}
+	}
+
+	/** Clears all slots. */
+	void clear() {
+		for (int slot = 0; slot < slotCount; slot++) {
+			slotPeriods.set(slot, NO_PERIOD);
+			AtomicIntegerArray counts = slotBuckets[slot];
+			for (int i = 0; i < counts.length(); i++) {
+				counts.set(i, 0);
+			}
+		}
+	}
+}
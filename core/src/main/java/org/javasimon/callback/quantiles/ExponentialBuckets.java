@@ -16,6 +16,11 @@ public class ExponentialBuckets extends Buckets {
 	 */
 	private final double logMin;
 
+	/**
+	 * Inverse of the power, so that bucket index is computed by multiplication.
+	 */
+	private final double inversePower;
+
 	/**
 	 * Constructor.
 	 *
@@ -27,6 +32,7 @@ public class ExponentialBuckets extends Buckets {
 		super(min, max, bucketNb);
 		logMin = Math.log(this.min);
 		power = (Math.log(this.max) - logMin) / bucketNb;
+		inversePower = 1 / power;
 		long currentMin, currentMax = this.min;
 		for (int i = 1; i <= bucketNb; i++) {
 			currentMin = currentMax;
@@ -38,24 +44,26 @@ public class ExponentialBuckets extends Buckets {
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * Override the base method making it faster thanks to exponential regression.
+	 * Override the base method computing the bucket index from the logarithm of the value. Upper bound
+	 * of the bucket is exclusive. Bucket bounds are rounded, so the computed index is corrected if the value
+	 * is out of the bucket, which takes more than one step only for buckets narrower than min.
 	 */
-	protected Bucket getBucketForValue(long value) {
-		Bucket bucket;
+	@Override
+	protected int getBucketIndexForValue(long value) {
 		if (value >= max) {
-			bucket = buckets[bucketNb + 1];
-		} else {
-			if (value < min) {
-				bucket = buckets[0];
-			} else {
-				int idx = (int) Math.floor((Math.log(value) - logMin) / power) + 1;
-				bucket = buckets[idx];
-				if (value >= bucket.getMax()) {
-					bucket = buckets[idx + 1];
-				}
-			}
+			return bucketNb + 1;
+		}
+		if (value < min) {
+			return 0;
+		}
+		int idx = Math.max(1, Math.min(bucketNb, (int) ((Math.log(value) - logMin) * inversePower) + 1));
+		while (idx > 1 && value < buckets[idx].getMin()) {
+			idx--;
+		}
+		while (idx <= bucketNb && value >= buckets[idx].getMax()) {
+			idx++;
 		}
-		return bucket;
+		return idx;
 	}
 
 	/**
@@ -63,7 +71,7 @@ public class ExponentialBuckets extends Buckets {
 	 * <p>
 	 * Used during quantiles computation to do exponential regression over one bucket.
 	 */
-	protected double estimateQuantile(Bucket bucket, double expectedCount, double lastCount) {
+	protected double estimateQuantile(BucketSample bucket, double expectedCount, double lastCount) {
 		return bucket.getMin() + (bucket.getMax() - bucket.getMin()) * Math.exp(Math.log(expectedCount - lastCount) / Math.log(bucket.getCount()));
 	}
 }
@@ -63,6 +63,10 @@ package org.javasimon.callback.quantiles;
  * @author Alexej Vlasov
  */
 public class LinearBuckets extends Buckets {
+
+	/** Width of all real buckets. */
+	private final long width;
+
 	/**
 	 * Constructor
 	 *
@@ -72,7 +76,7 @@ public class LinearBuckets extends Buckets {
 	 */
 	public LinearBuckets(long min, long max, int bucketNb) {
 		super(min, max, bucketNb);
-		long width = (max - min) / bucketNb;
+		width = (max - min) / bucketNb;
 		long currentMin, currentMax = min;
 		for (int i = 1; i <= bucketNb; i++) {
 			currentMin = currentMax;
@@ -84,26 +88,23 @@ public class LinearBuckets extends Buckets {
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * Override the base method making it generally faster thanks to linear regression.
+	 * Override the base method computing the bucket index directly by division by the bucket width.
+	 * Upper bound of the bucket is inclusive, values between the last real bucket and the max (remainder
+	 * of the division of the range) are counted in the last real bucket.
 	 */
-	protected Bucket getBucketForValue(long value) {
-		Bucket bucket;
+	@Override
+	protected int getBucketIndexForValue(long value) {
 		if (value < min) {
-			bucket = buckets[0];
-		} else {
-			if (value >= max) {
-				bucket = buckets[bucketNb + 1];
-			} else {
-				// Linear interpolation
-				int bucketIndex = 1 + (int) ((value - min) * (bucketNb - 1) / (max - min));
-				bucket = buckets[bucketIndex];
-				// As the division above was round at floor, bucket may be the next one
-				if (value > bucket.getMax()) {
-					bucketIndex++;
-					bucket = buckets[bucketIndex];
-				}
-			}
+			return 0;
+		}
+		if (value >= max) {
+			return bucketNb + 1;
+		}
+		long offset = value - min;
+		if (offset == 0 || width == 0) {
+			return offset == 0 ? 1 : bucketNb;
 		}
-		return bucket;
+		long bucketIndex = (offset - 1) / width + 1;
+		return (int) Math.min(bucketIndex, bucketNb);
 	}
 }
@@ -24,7 +24,14 @@ import java.util.Properties;
  *
  * # Can use Exponential buckets for some Stopwatches
  * org.javasimon.special.type=EXPONENTIAL
+ *
+ * # Quantiles of the last 1, 5 and 15 minutes for web requests: 90 slots of 10 s
+ * org.javasimon.web.windowSlots=90
+ * org.javasimon.web.windowSlot=10000
  * </pre>
+ * Sliding window is enabled by {@code windowSlots} property, slot length in ms ({@code windowSlot}) is optional,
+ * default is {@link #DEFAULT_WINDOW_SLOT_MILLIS}. Without these properties callback's window settings
+ * are used (see {@link #setWindow(long, int)}).
  *
  * @author gquintana
  */
@@ -58,9 +65,28 @@ public class PropertiesQuantilesCallback extends QuantilesCallback {
 		// Build buckets
 		Buckets buckets = type.createBuckets(stopwatch, min, max, nb);
 		buckets.setLogTemplate(createLogTemplate(stopwatch));
+		configureWindow(stopwatch, buckets);
 		return buckets;
 	}
 
+	/**
+	 * Enables sliding window if {@code windowSlots} property is set for the Stopwatch or its parent,
+	 * otherwise uses the callback's window settings.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param buckets new buckets of the Stopwatch
+	 */
+	@Override
+	protected void configureWindow(Stopwatch stopwatch, Buckets buckets) {
+		Integer slotCount = integerPropertyType.get(stopwatch, "windowSlots");
+		if (slotCount == null) {
+			super.configureWindow(stopwatch, buckets);
+		} else if (slotCount > 0) {
+			Long slotMillis = longPropertyType.get(stopwatch, "windowSlot");
+			buckets.setWindow(stopwatch.getManager(), slotMillis != null ? slotMillis : getWindowSlotMillis(), slotCount);
+		}
+	}
+
 	/**
 	 * Returns value of Simon property.
 	 *
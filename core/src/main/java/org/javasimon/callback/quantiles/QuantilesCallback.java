@@ -4,6 +4,10 @@ import static org.javasimon.callback.logging.LogTemplates.disabled;
 import static org.javasimon.callback.logging.LogTemplates.everyNSeconds;
 import static org.javasimon.callback.logging.LogTemplates.toSLF4J;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.javasimon.Simon;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
@@ -14,7 +18,10 @@ import org.javasimon.callback.logging.LogTemplate;
  * Callback which stores data in buckets to compute quantiles.
  * The {@link #createBuckets(org.javasimon.Stopwatch)} should be
  * implemented to configure the width and resolution of buckets.
- * Then {@link Buckets} are stored among Simon attributes.
+ * Then {@link Buckets} are stored among Simon attributes. Callback also keeps the buckets of each Stopwatch
+ * in a concurrent map, so that splits are added without locking or attribute lookup.
+ * Buckets count all splits since their creation, sliding window of recent splits can be enabled by
+ * {@link #setWindow(long, int)}.
  * There are 2 implementations:
  * <ul>
  * <li>{@link AutoQuantilesCallback} tries to determine the best configuration for each Stopwatch.</li>
@@ -31,6 +38,21 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	/** Simon attribute name of the buckets stored in Simons after warmup time. */
 	public static final String ATTR_NAME_BUCKETS = "buckets";
 
+	/**
+	 * Default length of the sliding window slot - 10 s, with {@link #DEFAULT_WINDOW_SLOT_COUNT} slots
+	 * it gives quantiles of the last 1, 5 and 15 minutes.
+	 *
+	 * @since 4.3
+	 */
+	public static final long DEFAULT_WINDOW_SLOT_MILLIS = 10000;
+
+	/**
+	 * Default number of the sliding window slots - 90 slots of 10 s cover 15 minutes.
+	 *
+	 * @since 4.3
+	 */
+	public static final int DEFAULT_WINDOW_SLOT_COUNT = 90;
+
 	/** SLF4J log template shared by all stopwatches. */
 	private final LogTemplate<Split> enabledStopwatchLogTemplate = toSLF4J(getClass().getName(), "debug");
 
@@ -38,6 +60,12 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	private boolean logEnabled = false;
 	/** Type of the buckets: linear or exponential. */
 	private BucketsType bucketsType;
+	/** Length of one slot of the sliding window in ms. */
+	private long windowSlotMillis = DEFAULT_WINDOW_SLOT_MILLIS;
+	/** Number of slots of the sliding window, 0 if the window is disabled. */
+	private int windowSlotCount;
+	/** Buckets of the Stopwatches for fast lookup on every split, the same as the Stopwatch attributes. */
+	private final ConcurrentMap<Stopwatch, Buckets> stopwatchBuckets = new ConcurrentHashMap<>();
 
 	/** Default constructor. */
 	protected QuantilesCallback() {
@@ -70,6 +98,57 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 		this.logEnabled = logEnabled;
 	}
 
+	/**
+	 * Enables sliding window of all buckets created after this call, so that the {@link BucketsSample}
+	 * contains also quantiles of the recent splits (see {@link Buckets#setWindow(org.javasimon.clock.SimonClock, long, int)}).
+	 * Window is rotated according to the clock of the Stopwatch's manager.
+	 *
+	 * @param slotMillis length of one slot in ms
+	 * @param slotCount number of slots, 0 disables the window
+	 * @throws IllegalArgumentException if the slot length is not positive or slot count is negative
+	 * @since 4.3
+	 */
+	public void setWindow(long slotMillis, int slotCount) {
+		if (slotMillis <= 0 || slotCount < 0) {
+			throw new IllegalArgumentException("Expected positive slot length and not negative slot count: "
+				+ slotMillis + "/" + slotCount);
+		}
+		this.windowSlotMillis = slotMillis;
+		this.windowSlotCount = slotCount;
+	}
+
+	/**
+	 * Enables sliding window with default 90 slots of 10 s, so that quantiles of the last 1, 5 and 15 minutes
+	 * are available.
+	 *
+	 * @since 4.3
+	 */
+	public void enableWindow() {
+		setWindow(DEFAULT_WINDOW_SLOT_MILLIS, DEFAULT_WINDOW_SLOT_COUNT);
+	}
+
+	public long getWindowSlotMillis() {
+		return windowSlotMillis;
+	}
+
+	public int getWindowSlotCount() {
+		return windowSlotCount;
+	}
+
+	/**
+	 * Enables sliding window of the buckets if configured. This method can be overridden to configure
+	 * the window for each Stopwatch differently.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param buckets new buckets of the Stopwatch
+	 * @since 4.3
+	 */
+	protected void configureWindow(Stopwatch stopwatch, Buckets buckets) {
+		if (windowSlotCount > 0) {
+			buckets.setWindow(stopwatch.getManager(), windowSlotMillis, windowSlotCount);
+		}
+	}
+
 	/**
 	 * Create log template for given stopwatch.
 	 * This method can be overridden to tune logging strategy.
@@ -106,6 +185,7 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	protected final Buckets createBuckets(Stopwatch stopwatch, long min, long max, int bucketNb) {
 		Buckets buckets = bucketsType.createBuckets(stopwatch, min, max, bucketNb);
 		buckets.setLogTemplate(createLogTemplate(stopwatch));
+		configureWindow(stopwatch, buckets);
 		return buckets;
 	}
 
@@ -121,16 +201,45 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	/** Returns the buckets attribute or create it if it does not exist. */
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
 	protected final Buckets getOrCreateBuckets(Stopwatch stopwatch) {
+		Buckets buckets = stopwatchBuckets.get(stopwatch);
+		if (buckets != null) {
+			return buckets;
+		}
 		synchronized (stopwatch) {
-			Buckets buckets = getBuckets(stopwatch);
+			buckets = getBuckets(stopwatch);
 			if (buckets == null) {
 				buckets = createBuckets(stopwatch);
 				stopwatch.setAttribute(ATTR_NAME_BUCKETS, buckets);
 			}
+			if (buckets != null) {
+				stopwatchBuckets.put(stopwatch, buckets);
+			}
 			return buckets;
 		}
 	}
 
+	/**
+	 * Replaces the buckets of the Stopwatch (both the attribute and the buckets used for new splits)
+	 * if the Stopwatch still has the old buckets.
+	 *
+	 * @param stopwatch Stopwatch
+	 * @param oldBuckets buckets that are replaced
+	 * @param newBuckets new buckets
+	 * @return true if the buckets were replaced
+	 * @since 4.3
+	 */
+	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+	protected final boolean replaceBuckets(Stopwatch stopwatch, Buckets oldBuckets, Buckets newBuckets) {
+		synchronized (stopwatch) {
+			if (getBuckets(stopwatch) != oldBuckets) {
+				return false;
+			}
+			stopwatch.setAttribute(ATTR_NAME_BUCKETS, newBuckets);
+			stopwatchBuckets.put(stopwatch, newBuckets);
+			return true;
+		}
+	}
+
 	/** Returns the buckets attribute and sample them. */
 	public static BucketsSample sampleBuckets(Stopwatch stopwatch) {
 		final Buckets buckets = getBuckets(stopwatch);
@@ -150,6 +259,26 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 		}
 	}
 
+	/** Forgets the buckets of the destroyed Stopwatch. */
+	@Override
+	public void onSimonDestroyed(Simon simon) {
+		if (simon instanceof Stopwatch) {
+			stopwatchBuckets.remove(simon);
+		}
+	}
+
+	/** Forgets the buckets of all Stopwatches. */
+	@Override
+	public void onManagerClear() {
+		stopwatchBuckets.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsSample(Event event) {
+		return false;
+	}
+
 	/**
 	 * When a split is stopped, if buckets have been initialized, the value
 	 * is added to appropriate bucket.
@@ -162,6 +291,6 @@ public abstract class QuantilesCallback extends CallbackSkeleton {
 	/** When a split is added, if buckets have been initialized, the value is added to appropriate bucket. */
 	@Override
 	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
-		onStopwatchSplit(split.getStopwatch(), split);
+		onStopwatchSplit(stopwatch, split);
 	}
 }
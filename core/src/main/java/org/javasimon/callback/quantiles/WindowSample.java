@@ -0,0 +1,75 @@
+package org.javasimon.callback.quantiles;
+
+/**
+ * Quantiles of the values added to {@link Buckets} within the last time window (e.g. the last 5 minutes),
+ * part of the {@link BucketsSample} when the buckets have sliding window enabled.
+ *
+ * @see Buckets#setWindow(org.javasimon.clock.SimonClock, long, int)
+ * @since 4.3
+ */
+public final class WindowSample {
+
+	/** Window length in ms. */
+	private final long window;
+	/** Number of values in the window. */
+	private final int count;
+	/** Median (50% percentile). */
+	private final Double median;
+	/** 90% percentile. */
+	private final Double percentile90;
+	/** 99% percentile. */
+	private final Double percentile99;
+
+	/**
+	 * Constructor with window length, count of values and quantiles.
+	 *
+	 * @param window window length in ms
+	 * @param count number of values in the window
+	 * @param median median or null if it can not be computed
+	 * @param percentile90 90% percentile or null if it can not be computed
+	 * @param percentile99 99% percentile or null if it can not be computed
+	 */
+	public WindowSample(long window, int count, Double median, Double percentile90, Double percentile99) {
+		this.window = window;
+		this.count = count;
+		this.median = median;
+		this.percentile90 = percentile90;
+		this.percentile99 = percentile99;
+	}
+
+	/**
+	 * Returns length of the window.
+	 *
+	 * @return window length in ms
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Returns number of values added within the window.
+	 *
+	 * @return number of values
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	public Double getMedian() {
+		return median;
+	}
+
+	public Double getPercentile90() {
+		return percentile90;
+	}
+
+	public Double getPercentile99() {
+		return percentile99;
+	}
+
+	@Override
+	public String toString() {
+		return "WindowSample{window=" + window + ", count=" + count + ", median=" + median
+			+ ", percentile90=" + percentile90 + ", percentile99=" + percentile99 + '}';
+	}
+}
@@ -1,32 +1,46 @@
 package org.javasimon.callback.timeline;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 import org.javasimon.utils.SimonUtils;
 
 /**
  * Stopwatch statistics gathered for a specific time range.
- * This class is not intended to be thread safe.
+ * Splits are added without locking, all fields are updated atomically (but not all together), so the statistics
+ * read while splits are added concurrently may be slightly inconsistent.
  *
  * @author gerald
  */
 public class StopwatchTimeRange extends TimeRange {
 
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> MIN_UPDATER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "min");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> MAX_UPDATER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "max");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> TOTAL_UPDATER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "total");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> SQUARE_TOTAL_UPDATER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "squareTotalBits");
+	private static final AtomicLongFieldUpdater<StopwatchTimeRange> COUNTER_UPDATER =
+		AtomicLongFieldUpdater.newUpdater(StopwatchTimeRange.class, "counter");
+
 	/** Last value. */
-	private long last;
+	private volatile long last;
 
 	/** Minimum value. */
-	private long min = Long.MAX_VALUE;
+	private volatile long min = Long.MAX_VALUE;
 
 	/** Maximum value. */
-	private long max = Long.MIN_VALUE;
+	private volatile long max = Long.MIN_VALUE;
 
 	/** Total sum of all values. */
-	private long total;
+	private volatile long total;
 
-	/** Sum of squares. */
-	private long squareTotal;
+	/** Sum of squares as raw bits of double, squares of nanoseconds overflow long for splits over 3 seconds. */
+	private volatile long squareTotalBits;
 
 	/** Counter - number of values. */
-	private long counter;
+	private volatile long counter;
 
 	/** Main constructor. */
 	public StopwatchTimeRange(long startTimestamp, long endTimestamp) {
@@ -41,16 +55,57 @@ public class StopwatchTimeRange extends TimeRange {
 	 */
 	public void addSplit(long timestampInMs, long durationInNs) {
 		last = durationInNs;
-		total += durationInNs;
-		squareTotal += durationInNs * durationInNs;
-		if (durationInNs > max) {
-			max = durationInNs;
+		TOTAL_UPDATER.addAndGet(this, durationInNs);
+		addSquareTotal((double) durationInNs * durationInNs);
+		updateMax(durationInNs);
+		updateMin(durationInNs);
+		COUNTER_UPDATER.incrementAndGet(this);
+		lastTimestamp = timestampInMs;
+	}
+
+	/**
+	 * Adds statistics of other time range, used when the time ranges are merged.
+	 *
+	 * @param timestampInMs start of the merged time range, last value of the latest merged time range is kept
+	 * @param counter number of values
+	 * @param total sum of values
+	 * @param squareTotal sum of squares of values
+	 * @param min minimum value
+	 * @param max maximum value
+	 * @param last last value
+	 */
+	void addStatistics(long timestampInMs, long counter, long total, double squareTotal, long min, long max, long last) {
+		if (timestampInMs >= lastTimestamp || this.counter == 0) {
+			this.last = last;
+			lastTimestamp = timestampInMs;
 		}
-		if (durationInNs < min) {
-			min = durationInNs;
+		TOTAL_UPDATER.addAndGet(this, total);
+		addSquareTotal(squareTotal);
+		updateMax(max);
+		updateMin(min);
+		COUNTER_UPDATER.addAndGet(this, counter);
+	}
+
+	private void addSquareTotal(double value) {
+		long currentBits = squareTotalBits;
+		while (!SQUARE_TOTAL_UPDATER.compareAndSet(this, currentBits,
+			Double.doubleToRawLongBits(Double.longBitsToDouble(currentBits) + value))) {
+			currentBits = squareTotalBits;
+		}
+	}
+
+	private void updateMax(long value) {
+		long currentMax = max;
+		while (value > currentMax && !MAX_UPDATER.compareAndSet(this, currentMax, value)) {
+			currentMax = max;
+		}
+	}
+
+	private void updateMin(long value) {
+		long currentMin = min;
+		while (value < currentMin && !MIN_UPDATER.compareAndSet(this, currentMin, value)) {
+			currentMin = min;
 		}
-		counter++;
-		lastTimestamp = timestampInMs;
 	}
 
 	public long getLast() {
@@ -74,7 +129,7 @@ public class StopwatchTimeRange extends TimeRange {
 	}
 
 	/** Computes mean (average) using total and non-zero counter. */
-	private double computeMean() {
+	private double computeMean(long counter) {
 		return ((double) total) / counter;
 	}
 
@@ -84,7 +139,8 @@ public class StopwatchTimeRange extends TimeRange {
 	 * @return mean (average) duration.
 	 */
 	public Double getMean() {
-		return counter == 0 ? Double.NaN : computeMean();
+		long counter = this.counter;
+		return counter == 0 ? Double.NaN : computeMean(counter);
 	}
 
 	/**
@@ -93,12 +149,13 @@ public class StopwatchTimeRange extends TimeRange {
 	 * @return variance
 	 */
 	public Double getVariance() {
+		long counter = this.counter;
 		if (counter == 0) {
 			return Double.NaN;
 		} else {
-			final double mean = computeMean();
+			final double mean = computeMean(counter);
 			final double meanSquare = mean * mean;
-			final double squareMean = ((double) squareTotal) / counter;
+			final double squareMean = Double.longBitsToDouble(squareTotalBits) / counter;
 			return squareMean - meanSquare;
 		}
 	}
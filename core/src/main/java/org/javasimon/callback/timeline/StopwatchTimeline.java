@@ -1,5 +1,7 @@
 package org.javasimon.callback.timeline;
 
+import java.util.List;
+
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.clock.SimonClock;
@@ -38,21 +40,15 @@ public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 	 * <li>Split start is used to determine in which time-range it should be split. A new time range may be created if needed.</li>
 	 * <li>Split duration is added to time range statistics.
 	 * </ol>
-	 * The split might be drop if it's too old.
+	 * The split might be drop if it's too old. Split is added without locking.
 	 *
 	 * @param split Split
 	 */
 	public void addSplit(Split split) {
 		final long timestamp = split.getStartMillis();
-		StopwatchTimeRange timeRange;
-		synchronized (this) {
-			timeRange = getOrCreateTimeRange(timestamp);
-		}
+		StopwatchTimeRange timeRange = getOrCreateTimeRange(timestamp);
 		if (timeRange != null) {
-			//noinspection SynchronizationOnLocalVariableOrMethodParameter
-			synchronized (timeRange) {
-				timeRange.addSplit(timestamp, split.runningFor());
-			}
+			timeRange.addSplit(timestamp, split.runningFor());
 		}
 	}
 
@@ -63,11 +59,9 @@ public final class StopwatchTimeline extends Timeline<StopwatchTimeRange> {
 	 */
 	@Override
 	public TimelineSample<StopwatchTimeRange> sample() {
-		StopwatchTimeRange[] timeRangesCopy;
-		synchronized (this) {
-			timeRangesCopy = timeRanges.toArray(new StopwatchTimeRange[timeRanges.size()]);
-		}
+		List<StopwatchTimeRange> timeRanges = getTimeRanges();
 		// TODO sample each time-range by making a copy of it
-		return new TimelineSample<>(timeRanges.getCapacity(), timeRangeWidth * SimonClock.NANOS_IN_MILLIS, timeRangesCopy);
+		return new TimelineSample<>(getCapacity(), timeRangeWidth * SimonClock.NANOS_IN_MILLIS,
+			timeRanges.toArray(new StopwatchTimeRange[timeRanges.size()]));
 	}
 }
@@ -0,0 +1,377 @@
+package org.javasimon.callback.timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.javasimon.Split;
+import org.javasimon.clock.SimonClock;
+
+/**
+ * Round-robin database style timeline for Stopwatches - time ranges are kept in tiers with decreasing resolution
+ * and increasing retention, by default 10 seconds for an hour, 1 minute for a day and 10 minutes for a week
+ * (see {@link #defaultTiers()}).
+ * <p>
+ * Splits are added to the time ranges of the first tier. Each tier is a ring of time ranges, slot of the time range
+ * is computed from the timestamp as in {@link Timeline}. When the slot is reused for a new time range, statistics
+ * of the old time range roll up into the time range of the next tier, statistics of the last tier are dropped.
+ * Each split is counted exactly once, either in the first tier or in the time range it rolled up to.
+ * <p>
+ * Statistics are not kept in time range objects, each tier stores them in columnar primitive arrays (counter,
+ * total, sum of squares, min, max, last value and number of splits being added), so every time range takes
+ * 60 bytes. Splits are added to the current time range without locking, only the reuse of the slot (once per
+ * time range) and sampling are synchronized. The slot reuse waits until the splits being added to the old time
+ * range are finished before the old statistics roll up, later splits of the old time range go to the next tier.
+ * Columns of a tier are allocated with its first time range, so a timeline of an unused Stopwatch takes no arrays
+ * and coarser tiers are allocated only after the first roll-up.
+ * Sum of squares is kept as double, so that it does not overflow for long splits.
+ * <p>
+ * Timeline is queried by {@link #sample(long, long, int)} - time ranges of all tiers are merged into the requested
+ * number of equally wide time ranges (downsampled on the server side).
+ *
+ * @see TimelineCallback#TimelineCallback(String, TimelineTier...)
+ * @since 4.3
+ */
+public final class TieredStopwatchTimeline {
+
+	/** Time range number of an empty (or just reused) slot. */
+	private static final long NO_RANGE = Long.MIN_VALUE;
+
+	/** Tiers from the finest to the coarsest. */
+	private final Tier[] tiers;
+	/** Length of the longest tier, older time ranges are not sampled even if their slots were not reused yet. */
+	private final long retention;
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param tiers tiers from the finest to the coarsest, width of each tier must be a multiple of the width
+	 * of the previous tier
+	 * @throws IllegalArgumentException if there are no tiers or tier width is not a multiple of the previous one
+	 */
+	public TieredStopwatchTimeline(TimelineTier... tiers) {
+		checkTiers(tiers);
+		this.tiers = new Tier[tiers.length];
+		long longestLength = 0;
+		for (int i = 0; i < tiers.length; i++) {
+			this.tiers[i] = new Tier(tiers[i]);
+			longestLength = Math.max(longestLength, tiers[i].getLength());
+		}
+		this.retention = longestLength;
+	}
+
+	/** Checks that there is at least one tier and the tier widths are multiples of the previous ones. */
+	static void checkTiers(TimelineTier[] tiers) {
+		if (tiers.length == 0) {
+			throw new IllegalArgumentException("Expected at least one tier");
+		}
+		for (int i = 1; i < tiers.length; i++) {
+			if (tiers[i].getWidth() <= tiers[i - 1].getWidth() || tiers[i].getWidth() % tiers[i - 1].getWidth() != 0) {
+				throw new IllegalArgumentException("Tier width must be a multiple of the previous tier width: " + tiers[i] + ", " + tiers[i - 1]);
+			}
+		}
+	}
+
+	/**
+	 * Returns default tiers: 10 seconds for 1 hour, 1 minute for 24 hours and 10 minutes for 7 days.
+	 * Timeline with default tiers takes about 170 kB once all the tiers are used, columns of each tier are allocated
+	 * with its first time range.
+	 *
+	 * @return array of default tiers
+	 */
+	public static TimelineTier[] defaultTiers() {
+		return new TimelineTier[]{
+			new TimelineTier(TimeUnit.SECONDS.toMillis(10), 360),
+			new TimelineTier(TimeUnit.MINUTES.toMillis(1), 1440),
+			new TimelineTier(TimeUnit.MINUTES.toMillis(10), 1008)};
+	}
+
+	/**
+	 * Returns configuration of the tiers.
+	 *
+	 * @return tiers from the finest to the coarsest
+	 */
+	public TimelineTier[] getTiers() {
+		TimelineTier[] timelineTiers = new TimelineTier[tiers.length];
+		for (int i = 0; i < tiers.length; i++) {
+			timelineTiers[i] = tiers[i].config;
+		}
+		return timelineTiers;
+	}
+
+	/**
+	 * Adds the split to the time range of the first tier containing the split start.
+	 *
+	 * @param split Split
+	 */
+	public void addSplit(Split split) {
+		addSplit(split.getStartMillis(), split.runningFor());
+	}
+
+	/**
+	 * Adds the split to the time range of the first tier containing the timestamp.
+	 *
+	 * @param timestampInMs when the split started, expressed in milliseconds
+	 * @param durationInNs how long the split was, expressed in nanoseconds
+	 */
+	public void addSplit(long timestampInMs, long durationInNs) {
+		Tier tier = tiers[0];
+		long number = Math.floorDiv(timestampInMs, tier.width);
+		int slot = tier.slot(number);
+		Columns columns = tier.columns;
+		if (columns == null || !columns.tryAddSplit(slot, number, durationInNs)) {
+			addStatistics(0, timestampInMs, 1, durationInNs, (double) durationInNs * durationInNs, durationInNs, durationInNs, durationInNs);
+		}
+	}
+
+	/**
+	 * Adds statistics to the time range of the tier, the slot is reused if it contains older time range
+	 * (statistics of the old time range roll up to the next tier). If the slot contains newer time range,
+	 * the statistics are added to the next tier.
+	 */
+	private synchronized void addStatistics(int tierIndex, long timestamp, long counter, long total, double squareTotal, long min, long max, long last) {
+		Tier tier = tiers[tierIndex];
+		long number = Math.floorDiv(timestamp, tier.width);
+		int slot = tier.slot(number);
+		Columns columns = tier.columns();
+		long slotNumber = columns.numbers.get(slot);
+		if (slotNumber > number) {
+			if (tierIndex + 1 < tiers.length) {
+				addStatistics(tierIndex + 1, timestamp, counter, total, squareTotal, min, max, last);
+			}
+			return;
+		}
+		if (slotNumber < number) {
+			// splits added concurrently go through this synchronized method until the slot is ready
+			columns.numbers.set(slot, NO_RANGE);
+			columns.awaitWriters(slot);
+			if (slotNumber != NO_RANGE && tierIndex + 1 < tiers.length && columns.counters.get(slot) > 0) {
+				addStatistics(tierIndex + 1, slotNumber * tier.width, columns.counters.get(slot), columns.totals.get(slot),
+					columns.getSquareTotal(slot), columns.mins.get(slot), columns.maxs.get(slot), columns.lasts.get(slot));
+			}
+			columns.clear(slot);
+			columns.numbers.set(slot, number);
+		}
+		columns.addStatistics(slot, counter, total, squareTotal, min, max, last);
+	}
+
+	/**
+	 * Samples time ranges of all tiers between given timestamps merged into the given number of equally wide
+	 * time ranges. Time range of a tier is merged into the sampled time range containing its start.
+	 * Only non-empty time ranges are returned. If the sampled time ranges are narrower than the time ranges
+	 * of the tier, some of them stay empty.
+	 *
+	 * @param from start of the sampled period in ms (inclusive)
+	 * @param to end of the sampled period in ms (exclusive)
+	 * @param points number of sampled time ranges
+	 * @return timeline sample with capacity equal to the number of points
+	 * @throws IllegalArgumentException if the period is empty or number of points is not positive
+	 */
+	public synchronized TimelineSample<StopwatchTimeRange> sample(long from, long to, int points) {
+		if (from >= to || points <= 0) {
+			throw new IllegalArgumentException("Expected non-empty period and positive number of points: " + from + "-" + to + "/" + points);
+		}
+		long width = Math.max(1, (to - from + points - 1) / points);
+		StopwatchTimeRange[] sampledRanges = new StopwatchTimeRange[points];
+		long lastEnd = getLastEnd();
+		long retentionStart = lastEnd == Long.MIN_VALUE ? Long.MAX_VALUE : lastEnd - retention;
+		for (Tier tier : tiers) {
+			Columns columns = tier.columns;
+			if (columns == null) {
+				continue;
+			}
+			for (int slot = 0; slot < tier.config.getCapacity(); slot++) {
+				long number = columns.numbers.get(slot);
+				long start = number * tier.width;
+				if (number == NO_RANGE || start < from || start >= to || start < retentionStart || columns.counters.get(slot) == 0) {
+					continue;
+				}
+				int index = (int) ((start - from) / width);
+				if (sampledRanges[index] == null) {
+					long sampledStart = from + index * width;
+					sampledRanges[index] = new StopwatchTimeRange(sampledStart, sampledStart + width);
+				}
+				sampledRanges[index].addStatistics(start, columns.counters.get(slot), columns.totals.get(slot),
+					columns.getSquareTotal(slot), columns.mins.get(slot), columns.maxs.get(slot), columns.lasts.get(slot));
+			}
+		}
+		List<StopwatchTimeRange> timeRanges = new ArrayList<>(points);
+		for (StopwatchTimeRange sampledRange : sampledRanges) {
+			if (sampledRange != null) {
+				timeRanges.add(sampledRange);
+			}
+		}
+		return new TimelineSample<>(points, width * SimonClock.NANOS_IN_MILLIS,
+			timeRanges.toArray(new StopwatchTimeRange[timeRanges.size()]));
+	}
+
+	/**
+	 * Samples the last period up to the end of the newest time range of the first tier, see
+	 * {@link #sample(long, long, int)}.
+	 *
+	 * @param period length of the sampled period in ms
+	 * @param points number of sampled time ranges
+	 * @return timeline sample with capacity equal to the number of points
+	 */
+	public synchronized TimelineSample<StopwatchTimeRange> sample(long period, int points) {
+		long to = getLastEnd();
+		if (to == Long.MIN_VALUE) {
+			return new TimelineSample<>(points, 0, new StopwatchTimeRange[0]);
+		}
+		return sample(to - period, to, points);
+	}
+
+	/** Returns the end of the newest time range of the first tier or {@link Long#MIN_VALUE} if there is none. */
+	private long getLastEnd() {
+		Tier tier = tiers[0];
+		Columns columns = tier.columns;
+		long lastNumber = NO_RANGE;
+		for (int slot = 0; columns != null && slot < tier.config.getCapacity(); slot++) {
+			lastNumber = Math.max(lastNumber, columns.numbers.get(slot));
+		}
+		return lastNumber == NO_RANGE ? Long.MIN_VALUE : (lastNumber + 1) * tier.width;
+	}
+
+	/** Ring of time ranges, columns with their statistics are allocated with the first time range of the tier. */
+	private static final class Tier {
+
+		private final TimelineTier config;
+		private final long width;
+		/** Columns of the time ranges, {@code null} until the first time range is added. */
+		private volatile Columns columns;
+
+		private Tier(TimelineTier config) {
+			this.config = config;
+			this.width = config.getWidth();
+		}
+
+		private int slot(long number) {
+			return (int) Math.floorMod(number, (long) config.getCapacity());
+		}
+
+		/** Returns the columns, allocates them if they do not exist yet - called with the timeline lock. */
+		private Columns columns() {
+			Columns columns = this.columns;
+			if (columns == null) {
+				columns = new Columns(config.getCapacity());
+				this.columns = columns;
+			}
+			return columns;
+		}
+	}
+
+	/** Statistics of the time ranges of one tier in columns. */
+	private static final class Columns {
+
+		/** Number (start divided by width) of the time range in each slot. */
+		private final AtomicLongArray numbers;
+		private final AtomicLongArray counters;
+		private final AtomicLongArray totals;
+		/** Sums of squares as raw bits of double. */
+		private final AtomicLongArray squareTotals;
+		private final AtomicLongArray mins;
+		private final AtomicLongArray maxs;
+		private final AtomicLongArray lasts;
+		/** Number of splits being added to the time range in each slot, the slot is not reused until they finish. */
+		private final AtomicIntegerArray writers;
+
+		private Columns(int capacity) {
+			numbers = new AtomicLongArray(capacity);
+			counters = new AtomicLongArray(capacity);
+			totals = new AtomicLongArray(capacity);
+			squareTotals = new AtomicLongArray(capacity);
+			mins = new AtomicLongArray(capacity);
+			maxs = new AtomicLongArray(capacity);
+			lasts = new AtomicLongArray(capacity);
+			writers = new AtomicIntegerArray(capacity);
+			for (int slot = 0; slot < capacity; slot++) {
+				numbers.set(slot, NO_RANGE);
+				clear(slot);
+			}
+		}
+
+		private void clear(int slot) {
+			counters.set(slot, 0);
+			totals.set(slot, 0);
+			squareTotals.set(slot, Double.doubleToRawLongBits(0D));
+			mins.set(slot, Long.MAX_VALUE);
+			maxs.set(slot, Long.MIN_VALUE);
+			lasts.set(slot, 0);
+		}
+
+		/**
+		 * Adds the split if the slot contains the time range with given number. Slot is marked as being written to,
+		 * so that it is not reused meanwhile - number of the time range is checked again after the mark.
+		 *
+		 * @return true if the split was added, false if the slot contains another time range
+		 */
+		private boolean tryAddSplit(int slot, long number, long duration) {
+			if (numbers.get(slot) != number) {
+				return false;
+			}
+			writers.incrementAndGet(slot);
+			try {
+				if (numbers.get(slot) != number) {
+					return false;
+				}
+				addSplit(slot, duration);
+				return true;
+			} finally {
+				writers.decrementAndGet(slot);
+			}
+		}
+
+		/** Waits until splits being added to the slot are finished, the slot number must be already changed. */
+		private void awaitWriters(int slot) {
+			while (writers.get(slot) != 0) {
+				Thread.yield();
+			}
+		}
+
+		private double getSquareTotal(int slot) {
+			return Double.longBitsToDouble(squareTotals.get(slot));
+		}
+
+		private void addSquareTotal(int slot, double value) {
+			long currentBits = squareTotals.get(slot);
+			while (!squareTotals.compareAndSet(slot, currentBits,
+				Double.doubleToRawLongBits(Double.longBitsToDouble(currentBits) + value))) {
+				currentBits = squareTotals.get(slot);
+			}
+		}
+
+		private void addSplit(int slot, long duration) {
+			totals.addAndGet(slot, duration);
+			addSquareTotal(slot, (double) duration * duration);
+			updateMin(slot, duration);
+			updateMax(slot, duration);
+			lasts.set(slot, duration);
+			counters.incrementAndGet(slot);
+		}
+
+		private void addStatistics(int slot, long counter, long total, double squareTotal, long min, long max, long last) {
+			totals.addAndGet(slot, total);
+			addSquareTotal(slot, squareTotal);
+			updateMin(slot, min);
+			updateMax(slot, max);
+			lasts.set(slot, last);
+			counters.addAndGet(slot, counter);
+		}
+
+		private void updateMin(int slot, long value) {
+			long current = mins.get(slot);
+			while (value < current && !mins.compareAndSet(slot, current, value)) {
+				current = mins.get(slot);
+			}
+		}
+
+		private void updateMax(int slot, long value) {
+			long current = maxs.get(slot);
+			while (value > current && !maxs.compareAndSet(slot, current, value)) {
+				current = maxs.get(slot);
+			}
+		}
+	}
+}
@@ -21,7 +21,7 @@ public class TimeRange {
 	/**
 	 * Timestamp of last change
 	 */
-	protected long lastTimestamp;
+	protected volatile long lastTimestamp;
 
 	/**
 	 * Main constructor.
@@ -1,21 +1,33 @@
 package org.javasimon.callback.timeline;
 
-import org.javasimon.callback.lastsplits.CircularList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Collection of values sorted on a time line.
+ * <p>
+ * Time ranges are kept in a ring, slot of the time range is computed from the timestamp:
+ * {@code (timestamp / timeRangeWidth) % capacity}. Time range in the slot is used if it starts at the same
+ * time (epoch check), otherwise it is replaced by a new time range using compare-and-set. Timeline is lock-free,
+ * time ranges must be thread safe.
  *
  * @author gerald
  */
 public abstract class Timeline<TR extends TimeRange> {
 
-	/** List of time ranges. */
-	protected final CircularList<TR> timeRanges;
+	/** Ring of time ranges indexed by the time range number modulo capacity. */
+	private final AtomicReferenceArray<TR> timeRanges;
+	/** Number of time ranges. */
+	private final int capacity;
 	/** Time range width in milliseconds. */
 	protected final long timeRangeWidth;
 
-	/** Last used time range. */
-	private TR lastTimeRange;
+	/** Number (start timestamp divided by width) of the newest time range. */
+	private final AtomicLong lastTimeRangeNumber = new AtomicLong(Long.MIN_VALUE);
 
 	/**
 	 * Main constructor.
@@ -24,7 +36,11 @@ public abstract class Timeline<TR extends TimeRange> {
 	 * @param timeRangeWidth Width of each time range
 	 */
 	protected Timeline(int capacity, long timeRangeWidth) {
-		this.timeRanges = new CircularList<>(capacity);
+		if (capacity <= 0 || timeRangeWidth <= 0) {
+			throw new IllegalArgumentException("Expected positive capacity and time range width: " + capacity + "/" + timeRangeWidth);
+		}
+		this.timeRanges = new AtomicReferenceArray<>(capacity);
+		this.capacity = capacity;
 		this.timeRangeWidth = timeRangeWidth;
 	}
 
@@ -38,34 +54,76 @@ public abstract class Timeline<TR extends TimeRange> {
 	protected abstract TR createTimeRange(long startTimestamp, long endTimestamp);
 
 	/**
-	 * Returns existing time range if it already exists or create a new one.
+	 * Returns existing time range if it already exists or create a new one. New time range is created only
+	 * for timestamps not older than the newest time range, late timestamps are added to the existing time range
+	 * only.
+	 *
+	 * @param timestamp timestamp in milliseconds
+	 * @return time range or null if the timestamp is too old
 	 */
 	protected final TR getOrCreateTimeRange(long timestamp) {
-		TR timeRange;
-		if (lastTimeRange == null || timestamp > lastTimeRange.getEndTimestamp()) {
-			// New time range
-			long roundedTimestamp = timestamp - timestamp % timeRangeWidth;
-			timeRange = createTimeRange(roundedTimestamp, roundedTimestamp + timeRangeWidth);
-			timeRanges.add(timeRange);
-			lastTimeRange = timeRange;
-		} else if (timestamp >= lastTimeRange.getStartTimestamp()) {
-			// Current time range
-			timeRange = lastTimeRange;
-		} else {
-			// Old time range
-			timeRange = null;
-			// Not very good from performance point of view
-			// iterating from end till start would be a better solution
-			for (TR oldTimeRange : timeRanges) {
-				if (oldTimeRange.containsTimestamp(timestamp)) {
-					timeRange = oldTimeRange;
-					break;
-				}
+		long number = Math.floorDiv(timestamp, timeRangeWidth);
+		int index = (int) Math.floorMod(number, (long) capacity);
+		long startTimestamp = number * timeRangeWidth;
+		TR timeRange = timeRanges.get(index);
+		while (timeRange == null || timeRange.getStartTimestamp() != startTimestamp) {
+			long lastNumber = lastTimeRangeNumber.get();
+			if (number < lastNumber || (timeRange != null && timeRange.getStartTimestamp() > startTimestamp)) {
+				// Old time range, dropped or replaced already
+				return null;
+			}
+			TR newTimeRange = createTimeRange(startTimestamp, startTimestamp + timeRangeWidth);
+			if (timeRanges.compareAndSet(index, timeRange, newTimeRange)) {
+				updateLastTimeRangeNumber(number);
+				return newTimeRange;
 			}
+			timeRange = timeRanges.get(index);
 		}
-
 		return timeRange;
 	}
 
+	private void updateLastTimeRangeNumber(long number) {
+		long lastNumber = lastTimeRangeNumber.get();
+		while (number > lastNumber && !lastTimeRangeNumber.compareAndSet(lastNumber, number)) {
+			lastNumber = lastTimeRangeNumber.get();
+		}
+	}
+
+	/**
+	 * Returns number of time ranges in the timeline.
+	 *
+	 * @return capacity
+	 */
+	protected final int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns time ranges of the last {@code capacity} periods, sorted from the oldest.
+	 *
+	 * @return list of time ranges
+	 */
+	protected final List<TR> getTimeRanges() {
+		List<TR> timeRangeList = new ArrayList<>(capacity);
+		long lastNumber = lastTimeRangeNumber.get();
+		if (lastNumber == Long.MIN_VALUE) {
+			return timeRangeList;
+		}
+		long firstStartTimestamp = (lastNumber - capacity + 1) * timeRangeWidth;
+		for (int i = 0; i < capacity; i++) {
+			TR timeRange = timeRanges.get(i);
+			if (timeRange != null && timeRange.getStartTimestamp() >= firstStartTimestamp) {
+				timeRangeList.add(timeRange);
+			}
+		}
+		Collections.sort(timeRangeList, new Comparator<TR>() {
+			@Override
+			public int compare(TR timeRange1, TR timeRange2) {
+				return Long.compare(timeRange1.getStartTimestamp(), timeRange2.getStartTimestamp());
+			}
+		});
+		return timeRangeList;
+	}
+
 	public abstract TimelineSample<TR> sample();
 }
@@ -13,6 +13,10 @@ import org.javasimon.callback.CallbackSkeleton;
  * <p>
  * Example: a timeline containing 6 time ranges of 10 minutes each can be used to
  * see evolution for an hour.
+ * <p>
+ * Callback created with {@link TimelineTier}s keeps {@link TieredStopwatchTimeline} instead - time ranges
+ * of multiple resolutions (e.g. 10 seconds for an hour, 1 minute for a day and 10 minutes for a week)
+ * with finer time ranges rolled up into coarser ones.
  *
  * @author gerald
  */
@@ -27,6 +31,8 @@ public class TimelineCallback extends CallbackSkeleton {
 	private final int timelineCapacity;
 	/** Width in milliseconds of the time ranges. */
 	private final long timeRangeWidth;
+	/** Tiers of the tiered timeline, null for simple timeline. */
+	private final TimelineTier[] tiers;
 
 	/**
 	 * Main constructor.
@@ -39,6 +45,23 @@ public class TimelineCallback extends CallbackSkeleton {
 		this.timelineAttributeName = timelineAttributeName;
 		this.timelineCapacity = timelineCapacity;
 		this.timeRangeWidth = timeRangeWidth;
+		this.tiers = null;
+	}
+
+	/**
+	 * Constructor of the callback keeping {@link TieredStopwatchTimeline} in Stopwatches.
+	 *
+	 * @param timelineAttributeName Simon attribute name used for storing Timeline
+	 * @param tiers tiers from the finest to the coarsest, {@link TieredStopwatchTimeline#defaultTiers()} if empty
+	 * @throws IllegalArgumentException if tier width is not a multiple of the previous tier width
+	 * @since 4.3
+	 */
+	public TimelineCallback(String timelineAttributeName, TimelineTier... tiers) {
+		this.timelineAttributeName = timelineAttributeName;
+		this.tiers = tiers.length == 0 ? TieredStopwatchTimeline.defaultTiers() : tiers.clone();
+		TieredStopwatchTimeline.checkTiers(this.tiers);
+		this.timelineCapacity = this.tiers[0].getCapacity();
+		this.timeRangeWidth = this.tiers[0].getWidth();
 	}
 
 	/**
@@ -60,13 +83,18 @@ public class TimelineCallback extends CallbackSkeleton {
 	}
 
 	/**
-	 * Returns timeline for given Stopwatch.
+	 * Adds the split to the timeline of given Stopwatch.
 	 *
 	 * @param stopwatch Stopwatch
-	 * @return Stopwatch timeline
+	 * @param split Split
 	 */
-	private StopwatchTimeline getStopwatchTimeline(Stopwatch stopwatch) {
-		return (StopwatchTimeline) stopwatch.getAttribute(timelineAttributeName);
+	private void addSplit(Stopwatch stopwatch, Split split) {
+		Object timeline = stopwatch.getAttribute(timelineAttributeName);
+		if (timeline instanceof StopwatchTimeline) {
+			((StopwatchTimeline) timeline).addSplit(split);
+		} else if (timeline instanceof TieredStopwatchTimeline) {
+			((TieredStopwatchTimeline) timeline).addSplit(split);
+		}
 	}
 
 	/**
@@ -77,23 +105,27 @@ public class TimelineCallback extends CallbackSkeleton {
 	@Override
 	public void onSimonCreated(Simon simon) {
 		if (simon instanceof Stopwatch) {
-			simon.setAttribute(timelineAttributeName, new StopwatchTimeline(timelineCapacity, timeRangeWidth));
+			if (tiers == null) {
+				simon.setAttribute(timelineAttributeName, new StopwatchTimeline(timelineCapacity, timeRangeWidth));
+			} else {
+				simon.setAttribute(timelineAttributeName, new TieredStopwatchTimeline(tiers));
+			}
 		}
 	}
 
 	@Override
 	public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
-		StopwatchTimeline timeline = getStopwatchTimeline(stopwatch);
-		if (timeline != null) {
-			timeline.addSplit(split);
-		}
+		addSplit(stopwatch, split);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean needsSample(Event event) {
+		return false;
 	}
 
 	@Override
 	public void onStopwatchStop(Split split, StopwatchSample sample) {
-		StopwatchTimeline timeline = getStopwatchTimeline(split.getStopwatch());
-		if (timeline != null) {
-			timeline.addSplit(split);
-		}
+		addSplit(split.getStopwatch(), split);
 	}
 }
@@ -0,0 +1,55 @@
+package org.javasimon.callback.timeline;
+
+import org.javasimon.clock.SimonClock;
+import org.javasimon.utils.SimonUtils;
+
+/**
+ * Resolution and retention of one tier of the {@link TieredStopwatchTimeline} - width of the time ranges
+ * and number of time ranges kept in the tier (e.g. 1 minute ranges for 24 hours).
+ *
+ * @since 4.3
+ */
+public final class TimelineTier {
+
+	/** Width of the time ranges in milliseconds. */
+	private final long width;
+	/** Number of time ranges. */
+	private final int capacity;
+
+	/**
+	 * Main constructor.
+	 *
+	 * @param width width of the time ranges in milliseconds
+	 * @param capacity number of time ranges
+	 * @throws IllegalArgumentException if width or capacity is not positive
+	 */
+	public TimelineTier(long width, int capacity) {
+		if (width <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Expected positive width and capacity: " + width + "/" + capacity);
+		}
+		this.width = width;
+		this.capacity = capacity;
+	}
+
+	public long getWidth() {
+		return width;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns time covered by the tier.
+	 *
+	 * @return width multiplied by capacity in milliseconds
+	 */
+	public long getLength() {
+		return width * capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "TimelineTier{" + SimonUtils.presentNanoTime(width * SimonClock.NANOS_IN_MILLIS) + " x " + capacity + '}';
+	}
+}
@@ -0,0 +1,120 @@
+package org.javasimon.clock;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clock with coarse millisecond time that is refreshed by a background ticker thread. Reading {@link #milliTime()}
+ * is just a read of a volatile field instead of the call to {@link System#currentTimeMillis()} - Stopwatch calls
+ * it on every start to update usage timestamps and Counter on every update. Precision of these timestamps is then
+ * limited by the resolution of the ticker. Nano time is not affected, this clock delegates {@link #nanoTime()}
+ * to {@link System#nanoTime()} so the measured splits are as precise as with {@link SimonClock#SYSTEM}.
+ * <p>
+ * Manager opts into this clock via its constructor ({@link org.javasimon.EnabledManager#EnabledManager(SimonClock)},
+ * {@link org.javasimon.SwitchingManager#SwitchingManager(SimonClock)}), default {@link org.javasimon.SimonManager}
+ * uses it if the system property {@code javasimon.clock.coarse} is set to {@code true}.
+ * <p>
+ * Ticker thread is a daemon thread and is started when the clock is created. After {@link #stop()} the clock does
+ * not become stale, it simply falls back to {@link System#currentTimeMillis()}.
+ *
+ * @since 4.3
+ */
+public final class CoarseClock implements SimonClock {
+
+	/** Default resolution of the millisecond time in ms - 10 ms. */
+	public static final long DEFAULT_RESOLUTION_MS = 10;
+
+	/** Value of {@link #millis} after the ticker was stopped. */
+	private static final long STOPPED = Long.MIN_VALUE;
+
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private final ScheduledExecutorService ticker;
+
+	private volatile long millis;
+
+	/** Creates coarse clock with the {@link #DEFAULT_RESOLUTION_MS default resolution} and starts its ticker. */
+	public CoarseClock() {
+		this(DEFAULT_RESOLUTION_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates coarse clock with the specified resolution and starts its ticker.
+	 *
+	 * @param resolution period of the millisecond time refresh
+	 * @param unit time unit of the resolution
+	 */
+	public CoarseClock(long resolution, TimeUnit unit) {
+		if (resolution <= 0) {
+			throw new IllegalArgumentException("Resolution must be positive, was: " + resolution);
+		}
+		millis = System.currentTimeMillis();
+		ticker = Executors.newSingleThreadScheduledExecutor(new TickerThreadFactory());
+		ticker.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				millis = System.currentTimeMillis();
+			}
+		}, resolution, resolution, unit);
+	}
+
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Returns cached millisecond time that is at most one resolution period old (unless the ticker thread
+	 * is starved), or current {@link System#currentTimeMillis()} if the clock was already stopped.
+	 *
+	 * @return current time in milliseconds with the resolution of the ticker
+	 */
+	@Override
+	public long milliTime() {
+		long cachedMillis = millis;
+		return cachedMillis != STOPPED ? cachedMillis : System.currentTimeMillis();
+	}
+
+	@Override
+	public long millisForNano(long nanos) {
+		return SimonClockUtils.millisForNano(nanos);
+	}
+
+	/**
+	 * Stops the ticker thread, the clock falls back to {@link System#currentTimeMillis()} afterwards.
+	 * Calling this method repeatedly has no further effect.
+	 */
+	public void stop() {
+		ticker.shutdownNow();
+		try {
+			// tick in progress must not overwrite the stopped mark
+			ticker.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		millis = STOPPED;
+	}
+
+	/**
+	 * Returns true if the ticker thread was stopped.
+	 *
+	 * @return true if {@link #stop()} was called
+	 */
+	public boolean isStopped() {
+		return ticker.isShutdown();
+	}
+
+	/** Ticker runs in a named daemon thread, so it does not prevent application stopping. */
+	private static class TickerThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "javasimon-coarseClock-" + THREAD_NUMBER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -15,7 +15,7 @@ import java.util.List;
  * @author Radovan Sninsky
  * @since 2.0
  */
-@SuppressWarnings("UnusedDeclaration")
+@SuppressWarnings({"UnusedDeclaration", "serial"})
 public interface SimonManagerMXBean extends Serializable {
 
 	/**
@@ -151,6 +151,19 @@ public interface SimonManagerMXBean extends Serializable {
 	 */
 	org.javasimon.jmx.StopwatchSample getIncrementStopwatchSample(String name, String key);
 
+	/**
+	 * Returns call tree profile of the root Stopwatch merged over the profile window in collapsed stack format
+	 * used by flame graph tools.
+	 *
+	 * @param name name of the root stopwatch
+	 * @return collapsed stacks or {@code null} if there is no call tree profile for the Stopwatch
+	 * @see org.javasimon.callback.calltree.CallTreeCallback#setProfileWindow(long, int)
+	 * @since 4.3
+	 */
+	default String getCallTreeProfile(String name) {
+		return null;
+	}
+
 	/**
 	 * Prints multi-line string containing Simon tree starting with the specified Simon to standard output.
 	 *
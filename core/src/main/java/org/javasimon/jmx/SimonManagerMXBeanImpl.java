@@ -1,6 +1,8 @@
 package org.javasimon.jmx;
 
 import org.javasimon.*;
+import org.javasimon.callback.calltree.CallTreeCallback;
+import org.javasimon.callback.calltree.CallTreeProfile;
 import org.javasimon.utils.SimonUtils;
 
 import java.util.ArrayList;
@@ -205,6 +207,12 @@ public class SimonManagerMXBeanImpl implements SimonManagerMXBean {
 		return new StopwatchSample(stopwatch.sampleIncrement(key));
 	}
 
+	@Override
+	public String getCallTreeProfile(String name) {
+		CallTreeProfile profile = CallTreeCallback.getCallTreeProfile(getSimonOfType(name, Stopwatch.class));
+		return profile == null ? null : profile.getCollapsedStacks();
+	}
+
 	@Override
 	public List<StopwatchSample> getStopwatchSamples(String namePattern) {
 		List<StopwatchSample> stopwatchSamples = new ArrayList<>();
@@ -72,6 +72,43 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setLast(last);
 	}
 
+	/**
+	 * JMX constructor used when the composite data contains also histogram bucket counts, see
+	 * {@link org.javasimon.LatencyHistogram}.
+	 *
+	 * @param name Simon's name
+	 * @param mean mean value (provided optionally)
+	 * @param stdDev standard deviation (provided optionally)
+	 * @param var variance (provided optionally)
+	 * @param varN variance N (provided optionally)
+	 * @param firstUsage first usage ms timestamp
+	 * @param lastUsage last usage ms timestamp
+	 * @param total sum of all measured times
+	 * @param note note (provided optionally)
+	 * @param counter count of measures
+	 * @param min minimal measured time
+	 * @param max maximal measured time
+	 * @param minTimestamp ms timestamp when minimal time was measured
+	 * @param maxTimestamp ms timestamp when maximal time was measured
+	 * @param active count of actual running measures
+	 * @param maxActive maximum parallel measures
+	 * @param maxActiveTimestamp ms timestamp time when maximum parallel measures happened
+	 * @param last last split value in ns
+	 * @param histogram histogram bucket counts (may be null)
+	 * @since 4.3
+	 */
+	@ConstructorProperties({"name", "mean", "standardDeviation", "variance", "varianceN", "note", "firstUsage", "lastUsage",
+		"total", "counter", "min", "max", "minTimestamp", "maxTimestamp", "active", "maxActive",
+		"maxActiveTimestamp", "last", "histogram"})
+	public StopwatchSample(String name, double mean, double stdDev, double var, double varN, String note, long firstUsage,
+		long lastUsage, long total, long counter, long min, long max, long minTimestamp,
+		long maxTimestamp, long active, long maxActive, long maxActiveTimestamp, long last, long[] histogram)
+	{
+		this(name, mean, stdDev, var, varN, note, firstUsage, lastUsage, total, counter, min, max, minTimestamp,
+			maxTimestamp, active, maxActive, maxActiveTimestamp, last);
+		setHistogram(histogram);
+	}
+
 	/**
 	 * Framework constructor for Simon MBean implementation to initialize all properties
 	 * by sample obtained from Simon.
@@ -98,6 +135,7 @@ public final class StopwatchSample extends org.javasimon.StopwatchSample {
 		setMaxActive(sample.getMaxActive());
 		setMaxActiveTimestamp(sample.getMaxActiveTimestamp());
 		setLast(sample.getLast());
+		setHistogram(sample.getHistogram());
 	}
 
 	/**
@@ -2,6 +2,7 @@ package org.javasimon.source;
 
 import org.javasimon.Manager;
 import org.javasimon.Simon;
+import org.javasimon.SimonHandle;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,13 +24,22 @@ public abstract class CachedMonitorSource<L, M extends Simon, K> implements Moni
 	private static class MonitorInformation {
 		private final boolean monitored;
 		private final String name;
+		/** Handle avoids lookup by name in the manager for every call. */
+		private final SimonHandle<Simon> handle;
 
-		public MonitorInformation(boolean monitored, Simon simon) {
+		public MonitorInformation(boolean monitored, Simon simon, Manager manager) {
 			this.monitored = monitored;
 			if (simon == null) {
 				name = null;
+				handle = null;
 			} else {
 				this.name = simon.getName();
+				this.handle = new SimonHandle<Simon>(manager, name) {
+					@Override
+					protected Simon resolve(Manager manager, String name) {
+						return manager.getSimon(name);
+					}
+				};
 			}
 		}
 
@@ -41,17 +51,17 @@ public abstract class CachedMonitorSource<L, M extends Simon, K> implements Moni
 			return name;
 		}
 
-		public Simon getMonitor(Manager manager) {
-			if (name == null) {
+		public Simon getMonitor() {
+			if (handle == null) {
 				return null;
 			} else {
-				return manager.getSimon(name);
+				return handle.get();
 			}
 		}
 	}
 
 	/** Not monitored monitor information. */
-	private static final MonitorInformation NULL_MONITOR_INFORMATION = new MonitorInformation(false, null);
+	private static final MonitorInformation NULL_MONITOR_INFORMATION = new MonitorInformation(false, null, null);
 
 	/** Map location key &rarr; monitor information. */
 	private final Map<K, MonitorInformation> monitorInformations = new ConcurrentHashMap<>();
@@ -82,7 +92,7 @@ public abstract class CachedMonitorSource<L, M extends Simon, K> implements Moni
 		if (monitorInformation == null) {
 			// Not found, let's call delegate
 			if (delegate.isMonitored(location)) {
-				monitorInformation = new MonitorInformation(true, delegate.getMonitor(location));
+				monitorInformation = new MonitorInformation(true, delegate.getMonitor(location), getManager());
 			} else {
 				monitorInformation = NULL_MONITOR_INFORMATION;
 			}
@@ -107,7 +117,7 @@ public abstract class CachedMonitorSource<L, M extends Simon, K> implements Moni
 
 	@SuppressWarnings("unchecked")
 	private M getMonitorOnce(L location) {
-		return (M) getMonitorInformation(location).getMonitor(getManager());
+		return (M) getMonitorInformation(location).getMonitor();
 	}
 
 	/**
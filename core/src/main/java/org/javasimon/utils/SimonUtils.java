@@ -16,6 +16,7 @@ import org.javasimon.SimonFilter;
 import org.javasimon.SimonManager;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
 
 /**
  * SimonUtils provides static utility methods.
@@ -411,6 +412,48 @@ public final class SimonUtils {
 		return stopwatchAggregate;
 	}
 
+	/**
+	 * Aggregate statistics from all stopwatches of the manager that pass specified filter. Unlike
+	 * {@link #calculateStopwatchAggregate(Simon, SimonFilter)} the filter does not prune the hierarchy, so it can be used
+	 * to aggregate e.g. all Stopwatches matching a pattern like {@code org.app.*.select}:
+	 * <pre>
+	 * {@code
+	 * StopwatchAggregate selects = SimonUtils.calculateStopwatchAggregate(manager, SimonPattern.createForStopwatch("org.app.*.select"));
+	 * long p99 = selects.getP99();
+	 * }
+	 * </pre>
+	 *
+	 * @param manager manager whose stopwatches are aggregated
+	 * @param filter filter to select stopwatches to aggregate
+	 * @return aggregated statistics
+	 * @since 4.3
+	 */
+	public static StopwatchAggregate calculateStopwatchAggregate(Manager manager, SimonFilter filter) {
+		StopwatchAggregate stopwatchAggregate = new StopwatchAggregate();
+		for (Simon simon : manager.getSimons(filter)) {
+			if (simon instanceof Stopwatch) {
+				stopwatchAggregate.addSample(((Stopwatch) simon).sample());
+			}
+		}
+		return stopwatchAggregate;
+	}
+
+	/**
+	 * Aggregate statistics from stopwatch samples, e.g. samples of the same Stopwatch obtained from multiple JVMs via JMX.
+	 * Histograms of the samples are merged, so quantiles of the aggregate are as accurate as quantiles of a single sample.
+	 *
+	 * @param samples stopwatch samples to aggregate
+	 * @return aggregated statistics
+	 * @since 4.3
+	 */
+	public static StopwatchAggregate calculateStopwatchAggregate(Iterable<? extends StopwatchSample> samples) {
+		StopwatchAggregate stopwatchAggregate = new StopwatchAggregate();
+		for (StopwatchSample sample : samples) {
+			stopwatchAggregate.addSample(sample);
+		}
+		return stopwatchAggregate;
+	}
+
 	private static void aggregateStopwatches(StopwatchAggregate aggregate, Simon simon, SimonFilter filter) {
 		if (filter.accept(simon)) {
 			if (simon instanceof Stopwatch) {
@@ -1,5 +1,8 @@
 package org.javasimon.utils;
 
+import java.util.Arrays;
+
+import org.javasimon.LatencyHistogram;
 import org.javasimon.Simon;
 import org.javasimon.SimonFilter;
 import org.javasimon.StopwatchSample;
@@ -7,6 +10,10 @@ import org.javasimon.StopwatchSample;
 /**
  * Holds aggregate values for stopwatches in a hierarchy as a result of
  * {@link SimonUtils#calculateStopwatchAggregate(Simon)} (optionally with {@link SimonFilter}).
+ * <p>
+ * Histograms of the stopwatches that have one (see {@link LatencyHistogram}) are merged, so that the aggregate
+ * provides quantiles of all the splits, e.g. {@link #getP99()}. Stopwatches without histogram do not contribute
+ * to the quantiles.
  *
  * @author <a href="mailto:ivan.mushketyk@gmail.com">Ivan Mushketyk</a>
  * @since 3.5
@@ -22,6 +29,7 @@ public class StopwatchAggregate {
 	private long active;
 	private long maxActive;
 	private long maxActiveTimestamp;
+	private long[] histogram;
 
 	StopwatchAggregate() {
 	}
@@ -107,6 +115,71 @@ public class StopwatchAggregate {
 		return maxActiveTimestamp;
 	}
 
+	/**
+	 * Returns merged bucket counts of histograms of all stopwatches in hierarchy.
+	 *
+	 * @return bucket counts or {@code null} if no stopwatch has histogram
+	 * @since 4.3
+	 */
+	public long[] getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * Returns the estimate of the quantile of split times of all stopwatches in hierarchy computed from merged
+	 * histograms, limited by the min and max.
+	 *
+	 * @param quantile quantile from 0 to 1 (e.g. 0.99 for the 99th percentile)
+	 * @return estimated quantile in ns or 0 if no stopwatch has histogram or there is no split
+	 * @since 4.3
+	 */
+	public long quantile(double quantile) {
+		if (histogram == null || counter == 0) {
+			return 0;
+		}
+		return Math.max(min, Math.min(max, LatencyHistogram.quantile(histogram, quantile)));
+	}
+
+	/**
+	 * Returns the median of split times of all stopwatches in hierarchy.
+	 *
+	 * @return median in ns or 0 if no stopwatch has histogram
+	 * @since 4.3
+	 */
+	public long getP50() {
+		return quantile(0.5);
+	}
+
+	/**
+	 * Returns the 90th percentile of split times of all stopwatches in hierarchy.
+	 *
+	 * @return 90th percentile in ns or 0 if no stopwatch has histogram
+	 * @since 4.3
+	 */
+	public long getP90() {
+		return quantile(0.9);
+	}
+
+	/**
+	 * Returns the 99th percentile of split times of all stopwatches in hierarchy.
+	 *
+	 * @return 99th percentile in ns or 0 if no stopwatch has histogram
+	 * @since 4.3
+	 */
+	public long getP99() {
+		return quantile(0.99);
+	}
+
+	/**
+	 * Returns the 99.9th percentile of split times of all stopwatches in hierarchy.
+	 *
+	 * @return 99.9th percentile in ns or 0 if no stopwatch has histogram
+	 * @since 4.3
+	 */
+	public long getP999() {
+		return quantile(0.999);
+	}
+
 	/**
 	 * Add stopwatch sample to current statistics aggregate.
 	 *
@@ -132,6 +205,13 @@ public class StopwatchAggregate {
 			maxActive = sample.getMaxActive();
 			maxActiveTimestamp = sample.getMaxActiveTimestamp();
 		}
+
+		if (sample.getHistogram() != null) {
+			if (histogram == null) {
+				histogram = new long[sample.getHistogram().length];
+			}
+			LatencyHistogram.merge(histogram, sample.getHistogram());
+		}
 	}
 
 	@Override
@@ -150,6 +230,7 @@ public class StopwatchAggregate {
 		if (min != aggregate.min) return false;
 		if (minTimestamp != aggregate.minTimestamp) return false;
 		if (total != aggregate.total) return false;
+		if (!Arrays.equals(histogram, aggregate.histogram)) return false;
 
 		return true;
 	}
@@ -165,6 +246,7 @@ public class StopwatchAggregate {
 		result = 31 * result + (int) (active ^ (active >>> 32));
 		result = 31 * result + (int) (maxActive ^ (maxActive >>> 32));
 		result = 31 * result + (int) (maxActiveTimestamp ^ (maxActiveTimestamp >>> 32));
+		result = 31 * result + Arrays.hashCode(histogram);
 		return result;
 	}
 
@@ -178,6 +260,10 @@ public class StopwatchAggregate {
 			", maxTimestamp=" + SimonUtils.presentTimestamp(maxTimestamp) +
 			", active=" + active +
 			", maxActive=" + maxActive +
-			", maxActiveTimestamp=" + SimonUtils.presentTimestamp(maxActiveTimestamp) + '}';
+			", maxActiveTimestamp=" + SimonUtils.presentTimestamp(maxActiveTimestamp) +
+			(histogram != null ? ", p50=" + SimonUtils.presentNanoTime(getP50()) +
+				", p90=" + SimonUtils.presentNanoTime(getP90()) +
+				", p99=" + SimonUtils.presentNanoTime(getP99()) +
+				", p999=" + SimonUtils.presentNanoTime(getP999()) : "") + '}';
 	}
 }
@@ -0,0 +1,118 @@
+package org.javasimon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link BufferedCounterImpl}.
+ */
+public final class BufferedCounterTest extends SimonUnitTest {
+
+	@Test
+	public void sameValuesAsSynchronizedCounter() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		Counter synchronizedCounter = manager.getCounter("synchronized");
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Counter bufferedCounter = manager.getCounter("buffered");
+		Assert.assertTrue(bufferedCounter instanceof BufferedCounterImpl);
+		assertSameSamples(bufferedCounter.sample(), synchronizedCounter.sample());
+
+		long[] operations = {5, -3, -4, 7, 0, -10, 2};
+		for (int i = 0; i < operations.length; i++) {
+			clock.setMillisNanosFollow(10 + i);
+			for (Counter counter : new Counter[] {synchronizedCounter, bufferedCounter}) {
+				if (i % 2 == 0) {
+					counter.increase(operations[i]);
+				} else {
+					counter.decrease(-operations[i]);
+				}
+			}
+			assertSameSamples(bufferedCounter.sample(), synchronizedCounter.sample());
+		}
+		clock.setMillisNanosFollow(100);
+		synchronizedCounter.set(-50);
+		bufferedCounter.set(-50);
+		assertSameSamples(bufferedCounter.sample(), synchronizedCounter.sample());
+	}
+
+	@Test
+	public void setMergesPendingUpdatesFirst() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Counter counter = manager.getCounter("set");
+		counter.increase(10);
+		counter.set(3);
+		counter.increase();
+
+		Assert.assertEquals(counter.getCounter(), 4);
+		Assert.assertEquals(counter.getIncrementSum(), 11);
+		Assert.assertEquals(counter.getMax(), 10);
+	}
+
+	@Test
+	public void incrementalSampling() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Counter counter = manager.getCounter("incremental");
+		counter.increase(3);
+		counter.sampleIncrement("key");
+		counter.increase(2);
+		counter.decrease();
+
+		CounterSample sample = counter.sampleIncrement("key");
+		Assert.assertEquals(sample.getCounter(), 1);
+		Assert.assertEquals(sample.getIncrementSum(), 2);
+		Assert.assertEquals(sample.getDecrementSum(), 1);
+		Assert.assertEquals(sample.getMax(), 2);
+		Assert.assertEquals(counter.getCounter(), 4);
+	}
+
+	@Test
+	public void concurrentUpdates() throws InterruptedException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		final Counter counter = manager.getCounter("concurrent");
+		final int loop = 10000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < loop; j++) {
+						counter.increase(2);
+						counter.decrease();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		CounterSample sample = counter.sample();
+		Assert.assertEquals(sample.getCounter(), (long) loop * threads.size());
+		Assert.assertEquals(sample.getIncrementSum(), 2L * loop * threads.size());
+		Assert.assertEquals(sample.getDecrementSum(), (long) loop * threads.size());
+		Assert.assertTrue(sample.getMax() >= sample.getCounter());
+	}
+
+	private void assertSameSamples(CounterSample sample, CounterSample expected) {
+		Assert.assertEquals(sample.getCounter(), expected.getCounter());
+		Assert.assertEquals(sample.getIncrementSum(), expected.getIncrementSum());
+		Assert.assertEquals(sample.getDecrementSum(), expected.getDecrementSum());
+		Assert.assertEquals(sample.getMax(), expected.getMax());
+		Assert.assertEquals(sample.getMin(), expected.getMin());
+		Assert.assertEquals(sample.getMaxTimestamp(), expected.getMaxTimestamp());
+		Assert.assertEquals(sample.getMinTimestamp(), expected.getMinTimestamp());
+		Assert.assertEquals(sample.getFirstUsage(), expected.getFirstUsage());
+		Assert.assertEquals(sample.getLastUsage(), expected.getLastUsage());
+	}
+}
@@ -0,0 +1,174 @@
+package org.javasimon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link BufferedStopwatchImpl}.
+ */
+public final class BufferedStopwatchTest extends SimonUnitTest {
+
+	private static final long[] SPLITS = {100, 300, 200, 1000000, 5, 5, 47};
+
+	@Test
+	public void sameStatisticsAsSynchronizedStopwatch() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		Stopwatch synchronizedStopwatch = manager.getStopwatch("synchronized");
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Stopwatch bufferedStopwatch = manager.getStopwatch("buffered");
+		Assert.assertTrue(bufferedStopwatch instanceof BufferedStopwatchImpl);
+
+		for (int i = 0; i < SPLITS.length; i++) {
+			clock.setMillisNanosFollow(10 + i);
+			synchronizedStopwatch.addSplit(Split.create(SPLITS[i], clock));
+			bufferedStopwatch.addSplit(Split.create(SPLITS[i], clock));
+			if (i == 3) {
+				// merge in the middle to test merging of the variance
+				Assert.assertEquals(bufferedStopwatch.getCounter(), 4);
+			}
+		}
+
+		StopwatchSample expected = synchronizedStopwatch.sample();
+		StopwatchSample sample = bufferedStopwatch.sample();
+		Assert.assertEquals(sample.getTotal(), expected.getTotal());
+		Assert.assertEquals(sample.getCounter(), expected.getCounter());
+		Assert.assertEquals(sample.getMin(), expected.getMin());
+		Assert.assertEquals(sample.getMax(), expected.getMax());
+		Assert.assertEquals(sample.getMinTimestamp(), expected.getMinTimestamp());
+		Assert.assertEquals(sample.getMaxTimestamp(), expected.getMaxTimestamp());
+		Assert.assertEquals(sample.getLast(), expected.getLast());
+		Assert.assertEquals(sample.getFirstUsage(), expected.getFirstUsage());
+		Assert.assertEquals(sample.getLastUsage(), expected.getLastUsage());
+		Assert.assertEquals(sample.getMean(), expected.getMean(), 1e-6);
+		Assert.assertEquals(sample.getVariance(), expected.getVariance(), expected.getVariance() * 1e-9);
+		Assert.assertEquals(sample.getVarianceN(), expected.getVarianceN(), expected.getVarianceN() * 1e-9);
+	}
+
+	@Test
+	public void activeSplits() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Stopwatch stopwatch = manager.getStopwatch(null);
+		Split split1 = stopwatch.start();
+		Split split2 = stopwatch.start();
+		Assert.assertEquals(stopwatch.getActive(), 2);
+		split1.stop();
+		Assert.assertEquals(stopwatch.getActive(), 1);
+		split2.stop("sub");
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getMaxActive(), 2);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+	}
+
+	@Test
+	public void splitsOfDeadThreadAreNotLost() throws InterruptedException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		final Stopwatch stopwatch = manager.getStopwatch("dead");
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				stopwatch.addSplit(Split.create(10));
+				stopwatch.addSplit(Split.create(20));
+			}
+		});
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(stopwatch.getCounter(), 2);
+		Assert.assertEquals(stopwatch.getTotal(), 30);
+		// buffer of the dead thread was removed after the merge, values are merged only once
+		Assert.assertEquals(stopwatch.sample().getTotal(), 30);
+	}
+
+	@Test
+	public void concurrentUpdatesWithoutMergeInterval() throws InterruptedException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		manager.configuration().setBufferMergeInterval(0);
+		final Stopwatch stopwatch = manager.getStopwatch("concurrent");
+		final int loop = 10000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < loop; j++) {
+						stopwatch.addSplit(Split.create(j % 10 + 1));
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertEquals(sample.getCounter(), (long) loop * threads.size());
+		Assert.assertEquals(sample.getTotal(), 55L * loop / 10 * threads.size());
+		Assert.assertEquals(sample.getMin(), 1);
+		Assert.assertEquals(sample.getMax(), 10);
+		Assert.assertEquals(sample.getMean(), 5.5, 1e-9);
+	}
+
+	@Test
+	public void incrementalSampling() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		Stopwatch stopwatch = manager.getStopwatch("incremental");
+		stopwatch.addSplit(Split.create(1000));
+		stopwatch.sampleIncrement("key");
+		stopwatch.addSplit(Split.create(10));
+		stopwatch.addSplit(Split.create(30));
+
+		StopwatchSample sample = stopwatch.sampleIncrement("key");
+		Assert.assertEquals(sample.getCounter(), 2);
+		Assert.assertEquals(sample.getTotal(), 40);
+		Assert.assertEquals(sample.getMax(), 30);
+		Assert.assertEquals(sample.getMin(), 10);
+		Assert.assertEquals(stopwatch.getCounter(), 3);
+	}
+
+	@Test
+	public void callbackSampleMergesOnlyOwnBuffer() throws InterruptedException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.BUFFERED);
+		manager.configuration().setBufferMergeInterval(60000);
+		final Stopwatch stopwatch = manager.getStopwatch("callback");
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				stopwatch.addSplit(Split.create(10));
+			}
+		});
+		thread.start();
+		thread.join();
+
+		final List<Long> sampledCounters = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
+				sampledCounters.add(sample.getCounter());
+			}
+		});
+		stopwatch.addSplit(Split.create(20));
+		stopwatch.addSplit(Split.create(30));
+		// split of the other thread is not merged for the callback samples
+		Assert.assertEquals(sampledCounters.toString(), "[1, 2]");
+		Assert.assertEquals(stopwatch.getCounter(), 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void negativeMergeInterval() {
+		new EnabledManager().configuration().setBufferMergeInterval(-1);
+	}
+}
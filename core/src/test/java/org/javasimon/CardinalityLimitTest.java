@@ -0,0 +1,174 @@
+package org.javasimon;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.javasimon.callback.CallbackSkeleton;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for cardinality limits configured via {@link ManagerConfiguration#setCardinalityLimit(String, int)}.
+ */
+public final class CardinalityLimitTest extends SimonUnitTest {
+
+	@Test
+	public void subtreeLimit() {
+		Manager manager = new EnabledManager();
+		final Queue<String> warnings = new LinkedList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onManagerWarning(String warning, Exception cause) {
+				warnings.add(warning);
+			}
+		});
+		manager.configuration().setCardinalityLimit("org.sql", 2);
+
+		Stopwatch first = manager.getStopwatch("org.sql.select1");
+		manager.getStopwatch("org.sql.select2");
+		Stopwatch overflow = manager.getStopwatch("org.sql.select3");
+		Assert.assertEquals(overflow.getName(), "org.sql._overflow");
+		Assert.assertSame(manager.getStopwatch("org.sql.select4"), overflow);
+		Assert.assertNull(manager.getSimon("org.sql.select3"));
+		Assert.assertSame(manager.getStopwatch("org.sql.select1"), first);
+		Assert.assertEquals(manager.getCounter("org.sql._rejected").getCounter(), 2);
+		Assert.assertEquals(warnings.size(), 1);
+		Assert.assertTrue(warnings.peek().contains("org.sql.select3"), warnings.peek());
+
+		// other subtrees are not limited
+		Assert.assertEquals(manager.getStopwatch("org.web.request1").getName(), "org.web.request1");
+		Assert.assertEquals(manager.getStopwatch("org.web.request2").getName(), "org.web.request2");
+		Assert.assertEquals(manager.getStopwatch("org.web.request3").getName(), "org.web.request3");
+
+		// destroyed Simon makes room for a new one
+		manager.destroySimon("org.sql.select1");
+		Assert.assertEquals(manager.getStopwatch("org.sql.select5").getName(), "org.sql.select5");
+		Assert.assertEquals(manager.getStopwatch("org.sql.select6").getName(), "org.sql._overflow");
+	}
+
+	@Test
+	public void destroyMissingSimonKeepsCount() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setCardinalityLimit("org.sql", 2);
+		manager.getStopwatch("org.sql.select1");
+
+		manager.destroySimon("org.sql.missing");
+		Assert.assertEquals(manager.configuration().cardinalityLimits()[0].getCount(), 1);
+		Assert.assertEquals(manager.getStopwatch("org.sql.select2").getName(), "org.sql.select2");
+		Assert.assertEquals(manager.getStopwatch("org.sql.select3").getName(), "org.sql._overflow");
+	}
+
+	@Test
+	public void globalLimitCountsExistingSimons() {
+		Manager manager = new EnabledManager();
+		manager.getStopwatch("a.b");
+		manager.getCounter("a.c");
+		manager.configuration().setCardinalityLimit(null, 3);
+
+		Assert.assertEquals(manager.getStopwatch("x").getName(), "x");
+		Assert.assertEquals(manager.getStopwatch("y.z").getName(), "_overflow");
+		Assert.assertNull(manager.getSimon("y"), "parents of rejected Simons are not created");
+		Assert.assertEquals(manager.getCounter("_rejected").getCounter(), 1);
+
+		// overflow Stopwatch exists, rejected Counter gets anonymous Counter
+		Counter counter = manager.getCounter("new-counter");
+		Assert.assertNull(counter.getName());
+
+		manager.clear();
+		Assert.assertEquals(manager.getStopwatch("p").getName(), "p");
+		Assert.assertEquals(manager.configuration().getCardinalityLimit(null), 3);
+	}
+
+	@Test
+	public void mostSpecificOverflow() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setCardinalityLimit("org", 10);
+		manager.configuration().setCardinalityLimit("org.sql", 1);
+
+		manager.getStopwatch("org.sql.s1");
+		Assert.assertEquals(manager.getStopwatch("org.sql.s2").getName(), "org.sql._overflow");
+		Assert.assertEquals(manager.getStopwatch("org.web").getName(), "org.web");
+
+		manager.configuration().removeCardinalityLimit("org.sql");
+		Assert.assertEquals(manager.configuration().getCardinalityLimit("org.sql"), 0);
+		Assert.assertEquals(manager.getStopwatch("org.sql.s2").getName(), "org.sql.s2");
+	}
+
+	@Test
+	public void limitNotExceededConcurrently() throws InterruptedException {
+		final Manager manager = new EnabledManager();
+		manager.configuration().setCardinalityLimit("con", 100);
+		final Queue<String> created = new ConcurrentLinkedQueue<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final int thread = i;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 100; j++) {
+						created.add(manager.getStopwatch("con.s" + thread + "-" + j).getName());
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// overflow and rejected Simons are children too
+		Assert.assertEquals(manager.getSimon("con").getChildren().size(), 102);
+		Assert.assertEquals(manager.getCounter("con._rejected").getCounter(), 300);
+	}
+
+	@Test
+	public void limitSetWhileSimonsAreCreated() throws InterruptedException {
+		final EnabledManager manager = new EnabledManager();
+		final int simons = 2000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final int offset = i * simons;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < simons; j++) {
+						manager.getCounter("race.c" + (offset + j));
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		manager.configuration().setCardinalityLimit("race", 100000);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// every Simon is counted exactly once, whether created before or after the limit was set
+		Assert.assertEquals(manager.configuration().cardinalityLimits()[0].getCount(), 4 * simons);
+	}
+
+	@Test
+	public void xmlConfiguration() {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <cardinality-limit max='1000'/>\n" +
+			"  <cardinality-limit prefix='org.javasimon.jdbc.sql' max='50'/>\n" +
+			"</simon-configuration>"));
+		Assert.assertEquals(manager.configuration().getCardinalityLimit(null), 1000);
+		Assert.assertEquals(manager.configuration().getCardinalityLimit("org.javasimon.jdbc.sql"), 50);
+		Assert.assertEquals(manager.configuration().getCardinalityLimit("org.javasimon"), 0);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void nonPositiveLimit() {
+		new EnabledManager().configuration().setCardinalityLimit("org", 0);
+	}
+}
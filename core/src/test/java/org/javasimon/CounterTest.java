@@ -157,6 +157,58 @@ public final class CounterTest extends SimonUnitTest {
 		Assert.assertFalse(counter.stopIncrementalSampling("nonexistent"));
 	}
 
+	@Test
+	public void incrementalSamplingWithSet() {
+		for (SimonImplementation implementation : SimonImplementation.values()) {
+			TestClock clock = new TestClock();
+			EnabledManager manager = new EnabledManager(clock);
+			manager.configuration().setDefaultImplementation(implementation);
+			Counter counter = manager.getCounter("incremental");
+
+			clock.setMillisNanosFollow(10);
+			counter.increase(10);
+			counter.sampleIncrement("A");
+			clock.setMillisNanosFollow(20);
+			counter.increase(5);
+			counter.sampleIncrement("B");
+			clock.setMillisNanosFollow(30);
+			counter.decrease(3);
+
+			// relative to the bookmarked counter
+			CounterSample sampleA = counter.sampleIncrementNoReset("A");
+			Assert.assertEquals(sampleA.getCounter(), 2);
+			Assert.assertEquals(sampleA.getMax(), 5);
+			Assert.assertEquals(sampleA.getMaxTimestamp(), 20);
+			Assert.assertEquals(sampleA.getMin(), 2);
+			Assert.assertEquals(sampleA.getMinTimestamp(), 30);
+			Assert.assertEquals(sampleA.getIncrementSum(), 5);
+			Assert.assertEquals(sampleA.getDecrementSum(), 3);
+			Assert.assertEquals(sampleA.getFirstUsage(), 20);
+			Assert.assertEquals(sampleA.getLastUsage(), 30);
+
+			// absolute after set
+			clock.setMillisNanosFollow(40);
+			counter.set(1);
+			counter.set(4);
+			counter.increase();
+			sampleA = counter.sampleIncrement("A");
+			Assert.assertEquals(sampleA.getCounter(), 5);
+			Assert.assertEquals(sampleA.getMax(), 5);
+			Assert.assertEquals(sampleA.getMaxTimestamp(), 40);
+			Assert.assertEquals(sampleA.getMin(), 1);
+			CounterSample sampleB = counter.sampleIncrement("B");
+			Assert.assertEquals(sampleB.getCounter(), 5);
+			Assert.assertEquals(sampleB.getMax(), 5);
+			Assert.assertEquals(sampleB.getMin(), -3);
+			Assert.assertEquals(sampleB.getMinTimestamp(), 30);
+
+			assertZeroSample(counter.sampleIncrement("A"));
+			Assert.assertTrue(counter.stopIncrementalSampling("A"));
+			Assert.assertTrue(counter.stopIncrementalSampling("B"));
+			Assert.assertEquals(counter.sampleIncrementNoReset("A").getCounter(), 5);
+		}
+	}
+
 	private void assertIncrementalSampleAfterIncrease(CounterSample sampleIncrement) {
 		Assert.assertEquals(sampleIncrement.getCounter(), 1);
 		Assert.assertEquals(sampleIncrement.getMax(), 1);
@@ -0,0 +1,145 @@
+package org.javasimon;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link IdleSimonsPurger}.
+ */
+public final class IdleSimonsPurgerTest extends SimonUnitTest {
+
+	@Test
+	public void idleSimonsDestroyed() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		final List<String> destroyed = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonDestroyed(Simon simon) {
+				destroyed.add(simon.getName());
+			}
+		});
+		IdleSimonsPurger purger = new IdleSimonsPurger(manager, 1, TimeUnit.MINUTES);
+
+		clock.setMillisNanosFollow(1000);
+		manager.getStopwatch("uri.old").start().stop();
+		manager.getCounter("sql.old").increase();
+		manager.getStopwatch("unused");
+		clock.setMillisNanosFollow(50000);
+		manager.getStopwatch("uri.recent").start().stop();
+		Split longSplit = manager.getStopwatch("long").start();
+
+		clock.setMillisNanosFollow(70000);
+		Assert.assertEquals(purger.purge(), 3);
+		// unknown Simon "sql" left without children is destroyed too
+		Assert.assertEquals(destroyed.size(), 3);
+		Assert.assertTrue(destroyed.contains("uri.old"));
+		Assert.assertTrue(destroyed.contains("sql.old"));
+		Assert.assertTrue(destroyed.contains("sql"));
+		Assert.assertNull(manager.getSimon("uri.old"));
+		Assert.assertNotNull(manager.getSimon("uri"));
+		Assert.assertNotNull(manager.getSimon("uri.recent"));
+		Assert.assertNotNull(manager.getSimon("unused"));
+		Assert.assertNotNull(manager.getSimon("long"));
+
+		// re-created as a new Simon
+		Stopwatch recreated = manager.getStopwatch("uri.old");
+		Assert.assertEquals(recreated.getCounter(), 0);
+		Assert.assertSame(recreated.getParent(), manager.getSimon("uri"));
+		longSplit.stop();
+	}
+
+	@Test
+	public void handleResolvesRecreatedSimon() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		StopwatchHandle handle = new StopwatchHandle(manager, "idle");
+		clock.setMillisNanosFollow(1000);
+		handle.start().stop();
+		Stopwatch original = handle.get();
+
+		clock.setMillisNanosFollow(100000);
+		Assert.assertEquals(new IdleSimonsPurger(manager, 1, TimeUnit.SECONDS).purge(), 1);
+		handle.start().stop();
+		Assert.assertNotSame(handle.get(), original);
+		Assert.assertSame(handle.get(), manager.getSimon("idle"));
+		Assert.assertEquals(handle.get().getCounter(), 1);
+	}
+
+	@Test
+	public void leastRecentlyUsedAboveBound() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		for (int i = 1; i <= 5; i++) {
+			clock.setMillisNanosFollow(i * 1000);
+			manager.getCounter("c" + i).increase();
+		}
+		IdleSimonsPurger purger = new IdleSimonsPurger(manager, 0, TimeUnit.MINUTES, 3);
+
+		Assert.assertEquals(purger.purge(), 2);
+		Assert.assertNull(manager.getSimon("c1"));
+		Assert.assertNull(manager.getSimon("c2"));
+		Assert.assertNotNull(manager.getSimon("c3"));
+		Assert.assertEquals(purger.purge(), 0);
+	}
+
+	@Test
+	public void simonsWithChildrenAreKept() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		clock.setMillisNanosFollow(1000);
+		manager.getStopwatch("parent").start().stop();
+		manager.getStopwatch("parent.child");
+
+		clock.setMillisNanosFollow(100000);
+		Assert.assertEquals(new IdleSimonsPurger(manager, 1, TimeUnit.SECONDS).purge(), 0);
+		Assert.assertNotNull(manager.getSimon("parent"));
+	}
+
+	@Test
+	public void switchingManager() {
+		SwitchingManager manager = new SwitchingManager(new TestClock());
+		manager.getCounter("c1").increase();
+		manager.getCounter("c2").increase();
+		IdleSimonsPurger purger = new IdleSimonsPurger(manager, 0, TimeUnit.MINUTES, 1);
+
+		manager.disable();
+		Assert.assertEquals(purger.purge(), 0);
+		manager.enable();
+		Assert.assertEquals(purger.purge(), 1);
+	}
+
+	@Test
+	public void periodicalPurge() {
+		ScheduledExecutorService executorService = mock(ScheduledExecutorService.class);
+		ScheduledFuture scheduledFuture = mock(ScheduledFuture.class);
+		when(executorService.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
+			.thenReturn(scheduledFuture);
+		IdleSimonsPurger purger = new IdleSimonsPurger(new EnabledManager(), 1, TimeUnit.HOURS, 0, executorService);
+
+		purger.start(1, TimeUnit.MINUTES);
+		verify(executorService).scheduleWithFixedDelay(any(Runnable.class), eq(1L), eq(1L), eq(TimeUnit.MINUTES));
+		purger.cancel();
+		verify(scheduledFuture).cancel(false);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void noPolicy() {
+		new IdleSimonsPurger(new EnabledManager(), 0, TimeUnit.MINUTES, 0);
+	}
+}
@@ -0,0 +1,216 @@
+package org.javasimon;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.javasimon.callback.CallbackSkeleton;
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link LatencyHistogram} and Stopwatch histogram.
+ */
+public final class LatencyHistogramTest extends SimonUnitTest {
+
+	@Test
+	public void bucketsAreContinuous() {
+		Assert.assertEquals(LatencyHistogram.bucketLowerBound(0), 0);
+		for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+			Assert.assertEquals(LatencyHistogram.bucketLowerBound(i), LatencyHistogram.bucketUpperBound(i - 1) + 1,
+				"bucket " + i);
+		}
+		for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+			Assert.assertEquals(LatencyHistogram.bucketIndex(LatencyHistogram.bucketLowerBound(i)), i);
+			Assert.assertEquals(LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(i)), i);
+		}
+	}
+
+	@Test
+	public void outOfRangeValues() {
+		Assert.assertEquals(LatencyHistogram.bucketIndex(-5), 0);
+		Assert.assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.BUCKET_COUNT - 1);
+		Assert.assertEquals(LatencyHistogram.bucketIndex(1L << 36), LatencyHistogram.BUCKET_COUNT - 1);
+		Assert.assertEquals(LatencyHistogram.bucketIndex((1L << 36) - 1), LatencyHistogram.BUCKET_COUNT - 1);
+		Assert.assertEquals(LatencyHistogram.bucketIndex((1L << 36) - (1L << 31)), LatencyHistogram.BUCKET_COUNT - 2);
+	}
+
+	@Test
+	public void relativeErrorIsBounded() {
+		for (long value = 1; value < (1L << 36); value = value * 3 / 2 + 1) {
+			int index = LatencyHistogram.bucketIndex(value);
+			long estimate = (LatencyHistogram.bucketLowerBound(index) + LatencyHistogram.bucketUpperBound(index)) / 2;
+			Assert.assertTrue(Math.abs(estimate - value) <= value / 64.0, value + " estimated as " + estimate);
+		}
+	}
+
+	@Test
+	public void quantiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(LatencyHistogram.quantile(histogram.snapshot(), 0.5), 0);
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		long[] counts = histogram.snapshot();
+		assertClose(LatencyHistogram.quantile(counts, 0.5), 500000);
+		assertClose(LatencyHistogram.quantile(counts, 0.9), 900000);
+		assertClose(LatencyHistogram.quantile(counts, 0.99), 990000);
+		assertClose(LatencyHistogram.quantile(counts, 1), 1000000);
+		assertClose(LatencyHistogram.quantile(counts, 0), 1000);
+	}
+
+	private void assertClose(long actual, long expected) {
+		Assert.assertTrue(Math.abs(actual - expected) <= expected / 64, actual + " instead of " + expected);
+	}
+
+	@Test
+	public void mergeAndEncoding() {
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		first.record(5);
+		first.record(1000);
+		second.record(1000);
+		second.record(Long.MAX_VALUE);
+		long[] merged = first.snapshot();
+		LatencyHistogram.merge(merged, second.snapshot());
+		Assert.assertEquals(merged[5], 1);
+		Assert.assertEquals(merged[LatencyHistogram.bucketIndex(1000)], 2);
+		Assert.assertEquals(merged[LatencyHistogram.BUCKET_COUNT - 1], 1);
+
+		merged[100] = 300;
+		merged[101] = Long.MAX_VALUE;
+		byte[] encoded = LatencyHistogram.encode(merged);
+		Assert.assertTrue(encoded.length < 30, "encoded length " + encoded.length);
+		Assert.assertEquals(LatencyHistogram.decode(encoded), merged);
+		Assert.assertEquals(LatencyHistogram.decode(LatencyHistogram.encode(new long[LatencyHistogram.BUCKET_COUNT])),
+			new long[LatencyHistogram.BUCKET_COUNT]);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void decodeTruncated() {
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		counts[500] = 1000;
+		byte[] encoded = LatencyHistogram.encode(counts);
+		LatencyHistogram.decode(Arrays.copyOf(encoded, encoded.length - 1));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void mergeDifferentLength() {
+		LatencyHistogram.merge(new long[LatencyHistogram.BUCKET_COUNT], new long[10]);
+	}
+
+	@Test
+	public void noHistogramByDefault() {
+		Stopwatch stopwatch = new EnabledManager().getStopwatch("stopwatch");
+		stopwatch.addSplit(Split.create(1000));
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertNull(sample.getHistogram());
+		Assert.assertEquals(sample.getP99(), 0);
+	}
+
+	@Test
+	public void stopwatchHistogram() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		manager.configuration().setDefaultHistogram(true);
+		Stopwatch stopwatch = manager.getStopwatch("stopwatch");
+		for (int i = 1; i <= 100; i++) {
+			stopwatch.addSplit(Split.create(i * 1000000L));
+		}
+		clock.setMillisNanosFollow(1000);
+		Split split = stopwatch.start();
+		clock.setMillisNanosFollow(1500);
+		split.stop();
+
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertEquals(sample.getCounter(), 101);
+		Assert.assertNotNull(sample.getHistogram());
+		assertClose(sample.getP50(), 51000000);
+		assertClose(sample.getP90(), 91000000);
+		assertClose(sample.getP99(), 100000000);
+		assertClose(sample.getP999(), 500000000);
+		Assert.assertTrue(sample.toString().contains("p99="), sample.toString());
+	}
+
+	@Test
+	public void quantileLimitedByMinMax() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setDefaultHistogram(true);
+		Stopwatch stopwatch = manager.getStopwatch("stopwatch");
+		stopwatch.addSplit(Split.create(1000));
+		// bucket of 1000 is 992-1023
+		Assert.assertEquals(stopwatch.sample().getP50(), 1000);
+		Assert.assertEquals(stopwatch.sample().getP999(), 1000);
+	}
+
+	@Test
+	public void callbackSampleWithoutHistogram() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setDefaultHistogram(true);
+		final List<StopwatchSample> samples = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+				samples.add(sample);
+			}
+
+			@Override
+			public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
+				samples.add(sample);
+			}
+		});
+		for (SimonImplementation implementation : SimonImplementation.values()) {
+			manager.configuration().setDefaultImplementation(implementation);
+			Stopwatch stopwatch = manager.getStopwatch(implementation.name());
+			stopwatch.start().stop();
+			stopwatch.addSplit(Split.create(1000));
+			Assert.assertNotNull(stopwatch.sample().getHistogram(), implementation.name());
+		}
+
+		// histogram is not copied into samples passed to callbacks on every split
+		Assert.assertEquals(samples.size(), 2 * SimonImplementation.values().length);
+		for (StopwatchSample sample : samples) {
+			Assert.assertNotEquals(sample.getCounter(), 0L);
+			Assert.assertNull(sample.getHistogram(), sample.getName());
+		}
+	}
+
+	@Test
+	public void incrementalSample() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setDefaultHistogram(true);
+		Stopwatch stopwatch = manager.getStopwatch("stopwatch");
+		stopwatch.sampleIncrement("key");
+		for (int i = 0; i < 100; i++) {
+			stopwatch.addSplit(Split.create(1000000L));
+		}
+		StopwatchSample first = stopwatch.sampleIncrement("key");
+		assertClose(first.getP50(), 1000000);
+
+		for (int i = 0; i < 10; i++) {
+			stopwatch.addSplit(Split.create(5000000L));
+		}
+		StopwatchSample second = stopwatch.sampleIncrement("key");
+		Assert.assertEquals(second.getCounter(), 10);
+		assertClose(second.getP50(), 5000000);
+		assertClose(stopwatch.sample().getP50(), 1000000);
+	}
+
+	@Test
+	public void patternConfiguration() {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.*' histogram='true'/>\n" +
+			"  <simon pattern='org.javasimon.skip' histogram='false'/>\n" +
+			"</simon-configuration>"));
+
+		Assert.assertNotNull(manager.getStopwatch("org.javasimon.stopwatch").sample().getHistogram());
+		Assert.assertNull(manager.getStopwatch("org.javasimon.skip").sample().getHistogram());
+		Assert.assertNull(manager.getStopwatch("other").sample().getHistogram());
+		// unknown Simon replaced by Stopwatch gets histogram too
+		manager.getStopwatch("org.javasimon.parent.child");
+		Assert.assertNotNull(manager.getStopwatch("org.javasimon.parent").sample().getHistogram());
+	}
+}
@@ -6,8 +6,16 @@ import org.javasimon.utils.SimonUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Tests SimonManager behavior.
@@ -198,4 +206,140 @@ public final class ManagerTest extends SimonUnitTest {
 		boolean incrementalSimonExisted = stopwatch.stopIncrementalSampling(key);
 		Assert.assertFalse(incrementalSimonExisted);
 	}
+
+	@Test
+	public void concurrentSimonCreation() throws InterruptedException {
+		final EnabledManager manager = new EnabledManager();
+		final AtomicInteger created = new AtomicInteger();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				created.incrementAndGet();
+			}
+		});
+		final int names = 50;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < names; j++) {
+						manager.getStopwatch("org.javasimon.concurrent.sw" + j % 5 + ".leaf" + j).start().stop();
+						manager.getCounter("org.javasimon.concurrent.counter" + j).increase();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(created.get(), 2 * names);
+		Assert.assertEquals(manager.getSimon("org.javasimon.concurrent").getChildren().size(), 5 + names);
+		for (int j = 0; j < names; j++) {
+			Simon stopwatch = manager.getSimon("org.javasimon.concurrent.sw" + j % 5 + ".leaf" + j);
+			Assert.assertEquals(((Stopwatch) stopwatch).getCounter(), 4);
+			Assert.assertTrue(stopwatch.getParent().getChildren().contains(stopwatch));
+			Assert.assertSame(stopwatch.getParent(), manager.getSimon(stopwatch.getParent().getName()));
+			Assert.assertEquals(((Counter) manager.getSimon("org.javasimon.concurrent.counter" + j)).getIncrementSum(), 4);
+		}
+	}
+
+	@Test(timeOut = 10000)
+	public void onSimonCreatedCalledWithoutManagerLock() throws InterruptedException {
+		final EnabledManager manager = new EnabledManager();
+		final AtomicReference<Simon> createdByOtherThread = new AtomicReference<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				if (simon.getName().equals("org.javasimon.first")) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							createdByOtherThread.set(manager.getCounter("org.javasimon.second"));
+						}
+					});
+					thread.start();
+					try {
+						thread.join();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}
+		});
+
+		manager.getStopwatch("org.javasimon.first");
+		Assert.assertSame(createdByOtherThread.get(), manager.getSimon("org.javasimon.second"));
+	}
+
+	@Test
+	public void unknownSimonReplacedOnceWithCallback() {
+		EnabledManager manager = new EnabledManager();
+		final List<String> created = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+				created.add(simon.getName());
+			}
+		});
+		manager.getStopwatch("org.javasimon.parent.child");
+		manager.getStopwatch("org.javasimon.parent");
+		manager.getStopwatch("org.javasimon.parent");
+		Assert.assertEquals(created, Arrays.asList("org.javasimon.parent.child", "org.javasimon.parent"));
+		Assert.assertSame(manager.getSimon("org.javasimon.parent.child").getParent(), manager.getSimon("org.javasimon.parent"));
+	}
+
+	@Test
+	public void patternLookupUsesHierarchy() {
+		EnabledManager manager = new EnabledManager();
+		manager.getStopwatch("org.javasimon.jdbc.conn");
+		manager.getStopwatch("org.javasimon.jdbc.sql.select");
+		manager.getCounter("org.javasimon.jdbc.conn.commits");
+		manager.getStopwatch("org.javasimon.jdbc4.stmt");
+		manager.getStopwatch("org.javasimon.web.index");
+		manager.getStopwatch("org.other.web");
+		manager.getStopwatch("orgx");
+
+		String[] patterns = {"*", "org*", "org.*", "org.javasimon.jdbc", "org.javasimon.jdbc*",
+			"org.javasimon.jdbc.*", "org.javasimon.j*conn", "org.javasimon.web.index", "org.javasimon.nothing*",
+			"nothing.at.all*", "*web", "*jdbc*"};
+		for (String pattern : patterns) {
+			for (SimonPattern simonPattern : Arrays.asList(SimonPattern.create(pattern),
+				SimonPattern.createForStopwatch(pattern), SimonPattern.createForCounter(pattern)))
+			{
+				Set<Simon> expected = new HashSet<>();
+				for (Simon simon : manager.getSimons(null)) {
+					if (simonPattern.accept(simon)) {
+						expected.add(simon);
+					}
+				}
+				Collection<Simon> simons = manager.getSimons(simonPattern);
+				Assert.assertEquals(new HashSet<>(simons), expected, simonPattern.toString());
+				Assert.assertEquals(simons.size(), expected.size(), simonPattern.toString());
+			}
+		}
+	}
+
+	@Test
+	public void subtreeSimons() {
+		EnabledManager manager = new EnabledManager();
+		manager.getStopwatch("org.javasimon.jdbc.conn");
+		manager.getCounter("org.javasimon.jdbc.conn.commits");
+		manager.getStopwatch("org.javasimon.jdbc4.stmt");
+
+		Collection<Simon> subtree = manager.getSubtreeSimons("org.javasimon.jdbc");
+		Assert.assertEquals(subtree.size(), 3);
+		Assert.assertTrue(subtree.contains(manager.getSimon("org.javasimon.jdbc")));
+		Assert.assertTrue(subtree.contains(manager.getSimon("org.javasimon.jdbc.conn")));
+		Assert.assertTrue(subtree.contains(manager.getSimon("org.javasimon.jdbc.conn.commits")));
+		Assert.assertEquals(manager.getSubtreeSimons(Manager.ROOT_SIMON_NAME).size(), manager.getSimonNames().size());
+		Assert.assertTrue(manager.getSubtreeSimons("org.nothing").isEmpty());
+
+		manager.destroySimon("org.javasimon.jdbc.conn.commits");
+		Assert.assertEquals(manager.getSubtreeSimons("org.javasimon.jdbc").size(), 2);
+	}
 }
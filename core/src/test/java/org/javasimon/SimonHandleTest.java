@@ -0,0 +1,93 @@
+package org.javasimon;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link StopwatchHandle} and {@link CounterHandle}.
+ */
+public final class SimonHandleTest {
+
+	@Test
+	public void handleResolvesSameSimon() {
+		Manager manager = new EnabledManager();
+		StopwatchHandle handle = new StopwatchHandle(manager, "handle.stopwatch");
+		Stopwatch stopwatch = handle.get();
+		Assert.assertSame(stopwatch, manager.getStopwatch("handle.stopwatch"));
+		Assert.assertSame(handle.get(), stopwatch);
+
+		handle.start().stop();
+		handle.addNanos(10);
+		Assert.assertEquals(stopwatch.getCounter(), 2);
+		Assert.assertEquals(handle.getName(), "handle.stopwatch");
+		Assert.assertSame(handle.getManager(), manager);
+	}
+
+	@Test
+	public void handleSurvivesClear() {
+		Manager manager = new EnabledManager();
+		CounterHandle handle = new CounterHandle(manager, "handle.counter");
+		handle.increase();
+		Counter counter = handle.get();
+
+		manager.clear();
+		handle.increase();
+		Assert.assertNotSame(handle.get(), counter);
+		Assert.assertSame(handle.get(), manager.getCounter("handle.counter"));
+		Assert.assertEquals(handle.get().getCounter(), 1);
+	}
+
+	@Test
+	public void handleSurvivesDestroy() {
+		Manager manager = new EnabledManager();
+		StopwatchHandle handle = new StopwatchHandle(manager, "handle.destroyed");
+		Stopwatch stopwatch = handle.get();
+		manager.destroySimon("handle.destroyed");
+		Assert.assertNotSame(handle.get(), stopwatch);
+		Assert.assertSame(handle.get(), manager.getSimon("handle.destroyed"));
+	}
+
+	@Test
+	public void handleFollowsUnknownSimonReplacement() {
+		Manager manager = new EnabledManager();
+		manager.getStopwatch("handle.parent.child");
+		SimonHandle<Simon> handle = new SimonHandle<Simon>(manager, "handle.parent") {
+			@Override
+			protected Simon resolve(Manager manager, String name) {
+				return manager.getSimon(name);
+			}
+		};
+		Assert.assertTrue(handle.get() instanceof UnknownSimon);
+		manager.getCounter("handle.parent");
+		Assert.assertTrue(handle.get() instanceof Counter);
+	}
+
+	@Test
+	public void handleFollowsEnableDisable() {
+		Manager manager = new SwitchingManager();
+		StopwatchHandle handle = new StopwatchHandle(manager, "handle.switching");
+		Stopwatch stopwatch = handle.get();
+		Assert.assertTrue(stopwatch instanceof StopwatchImpl);
+
+		manager.disable();
+		Assert.assertSame(handle.get(), NullStopwatch.INSTANCE);
+		manager.enable();
+		Assert.assertSame(handle.get(), stopwatch);
+
+		manager.clear();
+		Assert.assertNotSame(handle.get(), stopwatch);
+		Assert.assertSame(handle.get(), manager.getStopwatch("handle.switching"));
+	}
+
+	@Test
+	public void handleWithUnversionedManager() {
+		Manager manager = new DisabledManager();
+		StopwatchHandle handle = new StopwatchHandle(manager, "handle.disabled");
+		Assert.assertSame(handle.get(), NullStopwatch.INSTANCE);
+	}
+
+	@Test(expectedExceptions = SimonException.class)
+	public void anonymousSimonNotSupported() {
+		new StopwatchHandle(new EnabledManager(), null);
+	}
+}
@@ -19,6 +19,8 @@ public final class SimonTest extends SimonUnitTest {
 		Simon simon = SimonManager.getStopwatch(STOPWATCH_NAME);
 		Assert.assertFalse(simon.getAttributeNames().hasNext());
 		Assert.assertNull(simon.getAttribute("key"));
+		Assert.assertTrue(simon.getCopyAsSortedMap().isEmpty());
+		simon.removeAttribute("key");
 		simon.setAttribute("key", "value");
 		Iterator<String> attributeNamesIterator = simon.getAttributeNames();
 		Assert.assertTrue(attributeNamesIterator.hasNext());
@@ -43,4 +45,15 @@ public final class SimonTest extends SimonUnitTest {
 		Assert.assertFalse(simon.getAttributeNames().hasNext());
 		Assert.assertNull(simon.getAttribute("key"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void leafHasNoChildren() {
+		Simon parent = SimonManager.getStopwatch(STOPWATCH_NAME);
+		Assert.assertTrue(parent.getChildren().isEmpty());
+
+		Simon child = SimonManager.getStopwatch(STOPWATCH_NAME + ".child");
+		Assert.assertEquals(parent.getChildren().size(), 1);
+		Assert.assertSame(parent.getChildren().get(0), child);
+		Assert.assertTrue(child.getChildren().isEmpty());
+	}
+}
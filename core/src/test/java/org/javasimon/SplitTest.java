@@ -142,4 +142,31 @@ public final class SplitTest extends SimonUnitTest {
 		Assert.assertEquals(stopwatch.getCounter(), 0);
 		Assert.assertEquals(effectiveStopwatch.getCounter(), 0);
 	}
+
+	@Test
+	public void attributesWithoutAnyAttributeSet() {
+		Split split = Split.start();
+		Assert.assertNull(split.getAttribute("attr"));
+		Assert.assertFalse(split.getAttributeNames().hasNext());
+		Assert.assertTrue(split.getCopyAsSortedMap().isEmpty());
+		split.removeAttribute("attr");
+
+		split.setAttribute("attr", "value");
+		Assert.assertEquals(split.getAttribute("attr", String.class), "value");
+		Assert.assertEquals(split.getCopyAsSortedMap().size(), 1);
+		split.removeAttribute("attr");
+		Assert.assertNull(split.getAttribute("attr"));
+	}
+
+	@Test
+	public void attributesOfCreatedSplit() {
+		Split split = Split.create(100);
+		Assert.assertFalse(split.isEnabled());
+		split.setAttribute("attr", "value");
+		Assert.assertEquals(split.getAttribute("attr", String.class), "value");
+
+		// only the shared split of a disabled Stopwatch ignores attributes
+		Split.DISABLED.setAttribute("attr", "value");
+		Assert.assertNull(Split.DISABLED.getAttribute("attr"));
+	}
 }
@@ -1,7 +1,14 @@
 package org.javasimon;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.javasimon.callback.CallbackSkeleton;
 import org.javasimon.clock.TestClock;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
 /**
@@ -100,6 +107,194 @@ public final class StopwatchTest extends SimonUnitTest {
 		Assert.assertFalse(stopwatch.stopIncrementalSampling("nonexistent"));
 	}
 
+	@Test
+	public void incrementalSamplingWithMoreKeys() {
+		for (SimonImplementation implementation : SimonImplementation.values()) {
+			TestClock clock = new TestClock();
+			EnabledManager manager = new EnabledManager(clock);
+			manager.configuration().setDefaultImplementation(implementation);
+			Stopwatch stopwatch = manager.getStopwatch("incremental");
+
+			clock.setMillisNanosFollow(10);
+			stopwatch.addNanos(10).addNanos(20);
+			stopwatch.sampleIncrement("A");
+			clock.setMillisNanosFollow(20);
+			stopwatch.addNanos(30).addNanos(5);
+			stopwatch.sampleIncrement("B");
+			clock.setMillisNanosFollow(30);
+			stopwatch.addNanos(100);
+
+			StopwatchSample sampleA = stopwatch.sampleIncrementNoReset("A");
+			Assert.assertEquals(sampleA.getCounter(), 3);
+			Assert.assertEquals(sampleA.getTotal(), 135);
+			Assert.assertEquals(sampleA.getMin(), 5);
+			Assert.assertEquals(sampleA.getMinTimestamp(), 20);
+			Assert.assertEquals(sampleA.getMax(), 100);
+			Assert.assertEquals(sampleA.getMaxTimestamp(), 30);
+			Assert.assertEquals(sampleA.getFirstUsage(), 20);
+			Assert.assertEquals(sampleA.getLastUsage(), 30);
+			Assert.assertEquals(sampleA.getLast(), 100);
+			Assert.assertEquals(sampleA.getMean(), 45d);
+			// variance of 30, 5 and 100
+			Assert.assertEquals(sampleA.getVariance(), 2425d, 1e-6);
+			Assert.assertEquals(sampleA.getVarianceN(), 2425d * 2 / 3, 1e-6);
+			Assert.assertEquals(sampleA.getName(), "incremental");
+
+			StopwatchSample sampleB = stopwatch.sampleIncrement("B");
+			Assert.assertEquals(sampleB.getCounter(), 1);
+			Assert.assertEquals(sampleB.getMin(), 100);
+			Assert.assertEquals(sampleB.getMax(), 100);
+			Assert.assertEquals(sampleB.getFirstUsage(), 30);
+			Assert.assertEquals(sampleB.getVariance(), 0d);
+
+			assertZeroSample(stopwatch.sampleIncrement("B"));
+			Assert.assertEquals(stopwatch.sampleIncrement("A").getCounter(), 3);
+			assertZeroSample(stopwatch.sampleIncrement("A"));
+		}
+	}
+
+	@Test
+	public void primitiveApi() {
+		TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(10);
+		EnabledManager manager = new EnabledManager(clock);
+		Stopwatch stopwatch = manager.getStopwatch(null);
+
+		long token = stopwatch.startNanos();
+		Assert.assertEquals(token, clock.nanoTime());
+		Assert.assertEquals(stopwatch.getActive(), 1);
+		clock.setMillisNanosFollow(15);
+		Assert.assertEquals(stopwatch.stopNanos(token), 5000000);
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getMaxActive(), 1);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+		Assert.assertEquals(stopwatch.getTotal(), 5000000);
+		Assert.assertEquals(stopwatch.getLastUsage(), 15);
+
+		stopwatch.addNanos(1000000);
+		Assert.assertEquals(stopwatch.getCounter(), 2);
+		Assert.assertEquals(stopwatch.getTotal(), 6000000);
+		Assert.assertEquals(stopwatch.getMin(), 1000000);
+		assertStopwatchAndSampleAreEqual(stopwatch);
+	}
+
+	@Test
+	public void primitiveApiDisabled() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(null);
+		stopwatch.setState(SimonState.DISABLED, false);
+		long token = stopwatch.startNanos();
+		Assert.assertEquals(token, Stopwatch.DISABLED_TOKEN);
+		stopwatch.setState(SimonState.ENABLED, false);
+		Assert.assertEquals(stopwatch.stopNanos(token), 0);
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getCounter(), 0);
+
+		// token from enabled stopwatch is counted even if the stopwatch was disabled meanwhile (like Split)
+		token = stopwatch.startNanos();
+		stopwatch.setState(SimonState.DISABLED, false);
+		stopwatch.addNanos(10);
+		stopwatch.stopNanos(token);
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+
+		Stopwatch nullStopwatch = new DisabledManager().getStopwatch("whatever");
+		Assert.assertEquals(nullStopwatch.startNanos(), Stopwatch.DISABLED_TOKEN);
+		Assert.assertEquals(nullStopwatch.stopNanos(Stopwatch.DISABLED_TOKEN), 0);
+	}
+
+	@Test
+	public void primitiveApiCallbacks() {
+		TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(10);
+		EnabledManager manager = new EnabledManager(clock);
+		final List<String> events = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStart(Split split) {
+				events.add("start " + split.getStart() + " " + split.isRunning());
+			}
+
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+				events.add("stop " + split.getStart() + " " + split.runningFor() + " " + split.isRunning() + " " + sample.getCounter());
+			}
+
+			@Override
+			public void onStopwatchAdd(Stopwatch stopwatch, Split split, StopwatchSample sample) {
+				events.add("add " + split.runningFor() + " " + sample.getCounter());
+			}
+		});
+		Stopwatch stopwatch = manager.getStopwatch("callbacks");
+
+		long token = stopwatch.startNanos();
+		clock.setMillisNanosFollow(12);
+		stopwatch.stopNanos(token);
+		stopwatch.addNanos(7);
+		Assert.assertEquals(events, Arrays.asList("start 10000000 true", "stop 10000000 2000000 false 1", "add 7 2"));
+	}
+
+	@Test
+	public void primitiveApiIncrementalSampling() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(null);
+		stopwatch.addNanos(10);
+		stopwatch.sampleIncrement("");
+		stopwatch.addNanos(10);
+		assertIncrementalSampleAfterIncrease(stopwatch.sampleIncrement(""));
+		stopwatch.stopNanos(stopwatch.startNanos());
+		Assert.assertEquals(stopwatch.sampleIncrement("").getCounter(), 1);
+	}
+
+	@Test
+	public void disabledStopwatchReturnsSharedSplit() {
+		Stopwatch stopwatch = SimonManager.getStopwatch(null);
+		stopwatch.setState(SimonState.DISABLED, false);
+		Split split = stopwatch.start();
+		Assert.assertSame(stopwatch.start(), split);
+		Assert.assertSame(split.getStopwatch(), stopwatch);
+		Assert.assertFalse(split.isEnabled());
+		split.setAttribute("attr", "value");
+		Assert.assertNull(split.getAttribute("attr"));
+		Assert.assertSame(split.stop(), split);
+		Assert.assertEquals(stopwatch.getCounter(), 0);
+	}
+
+	@Test
+	public void disabledPathDoesNotAllocate() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+			|| !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported())
+		{
+			throw new SkipException("Thread allocated memory is not supported by the JVM");
+		}
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		Stopwatch disabledStopwatch = SimonManager.getStopwatch("org.javasimon.test.disabled");
+		disabledStopwatch.setState(SimonState.DISABLED, false);
+		SwitchingManager switchingManager = new SwitchingManager();
+		switchingManager.disable();
+		Stopwatch nullStopwatch = switchingManager.getStopwatch("org.javasimon.test.null");
+
+		long threadId = Thread.currentThread().getId();
+		exerciseDisabledPath(disabledStopwatch, nullStopwatch, 100);
+		long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+		exerciseDisabledPath(disabledStopwatch, nullStopwatch, 100000);
+		long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		// any allocation per call would allocate megabytes, some slack is left for the measurement and JIT itself
+		Assert.assertTrue(allocated < 64 * 1024, "Disabled path allocated " + allocated + " bytes");
+	}
+
+	private void exerciseDisabledPath(Stopwatch disabledStopwatch, Stopwatch nullStopwatch, int loop) {
+		for (int i = 0; i < loop; i++) {
+			disabledStopwatch.start().stop();
+			disabledStopwatch.stopNanos(disabledStopwatch.startNanos());
+			disabledStopwatch.addNanos(i);
+			nullStopwatch.start().stop();
+			nullStopwatch.stopNanos(nullStopwatch.startNanos());
+		}
+	}
+
 	private void assertIncrementalSampleAfterIncrease(StopwatchSample sample) {
 		Assert.assertEquals(sample.getTotal(), 10);
 		Assert.assertEquals(sample.getCounter(), 1);
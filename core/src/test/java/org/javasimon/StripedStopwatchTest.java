@@ -0,0 +1,151 @@
+package org.javasimon;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.clock.TestClock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link StripedStopwatchImpl} and its selection via {@link ManagerConfiguration}.
+ */
+public final class StripedStopwatchTest extends SimonUnitTest {
+
+	private static final long[] SPLITS = {100, 300, 200, 1000000, 5, 5, 47};
+
+	@Test
+	public void sameStatisticsAsSynchronizedStopwatch() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		Stopwatch synchronizedStopwatch = manager.getStopwatch("synchronized");
+		manager.configuration().setDefaultImplementation(SimonImplementation.STRIPED);
+		Stopwatch stripedStopwatch = manager.getStopwatch("striped");
+		Assert.assertTrue(stripedStopwatch instanceof StripedStopwatchImpl);
+
+		for (int i = 0; i < SPLITS.length; i++) {
+			clock.setMillisNanosFollow(10 + i);
+			synchronizedStopwatch.addSplit(Split.create(SPLITS[i], clock));
+			stripedStopwatch.addSplit(Split.create(SPLITS[i], clock));
+		}
+
+		StopwatchSample expected = synchronizedStopwatch.sample();
+		StopwatchSample sample = stripedStopwatch.sample();
+		Assert.assertEquals(sample.getTotal(), expected.getTotal());
+		Assert.assertEquals(sample.getCounter(), expected.getCounter());
+		Assert.assertEquals(sample.getMin(), expected.getMin());
+		Assert.assertEquals(sample.getMax(), expected.getMax());
+		Assert.assertEquals(sample.getMinTimestamp(), expected.getMinTimestamp());
+		Assert.assertEquals(sample.getMaxTimestamp(), expected.getMaxTimestamp());
+		Assert.assertEquals(sample.getLast(), expected.getLast());
+		Assert.assertEquals(sample.getFirstUsage(), expected.getFirstUsage());
+		Assert.assertEquals(sample.getLastUsage(), expected.getLastUsage());
+		Assert.assertEquals(sample.getMean(), expected.getMean(), 1e-6);
+		Assert.assertEquals(sample.getVariance(), expected.getVariance(), expected.getVariance() * 1e-9);
+		Assert.assertEquals(sample.getVarianceN(), expected.getVarianceN(), expected.getVarianceN() * 1e-9);
+		Assert.assertEquals(stripedStopwatch.getStandardDeviation(), sample.getStandardDeviation());
+	}
+
+	@Test
+	public void emptyStopwatch() {
+		Stopwatch stopwatch = new StripedStopwatchImpl(null, new EnabledManager());
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertEquals(sample.getCounter(), 0);
+		Assert.assertEquals(sample.getMin(), Long.MAX_VALUE);
+		Assert.assertEquals(sample.getMax(), 0);
+		Assert.assertEquals(sample.getMean(), 0d);
+		Assert.assertTrue(Double.isNaN(sample.getVariance()));
+
+		stopwatch.addSplit(Split.create(10));
+		Assert.assertEquals(stopwatch.getVariance(), 0d);
+	}
+
+	@Test
+	public void activeSplits() {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.STRIPED);
+		Stopwatch stopwatch = manager.getStopwatch(null);
+		Split split1 = stopwatch.start();
+		Split split2 = stopwatch.start();
+		Assert.assertEquals(stopwatch.getActive(), 2);
+		split1.stop();
+		Assert.assertEquals(stopwatch.getActive(), 1);
+		split2.stop("sub");
+		Assert.assertEquals(stopwatch.getActive(), 0);
+		Assert.assertEquals(stopwatch.getMaxActive(), 2);
+		Assert.assertEquals(stopwatch.getCounter(), 1);
+	}
+
+	@Test
+	public void usagesAndMaxActiveNotRewritten() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		manager.configuration().setDefaultImplementation(SimonImplementation.STRIPED);
+		Stopwatch stopwatch = manager.getStopwatch("usages");
+		clock.setMillisNanosFollow(20);
+		stopwatch.start().stop();
+		// split of a thread with older timestamp does not move the last usage backwards
+		clock.setMillisNanosFollow(10);
+		stopwatch.start().stop();
+		Assert.assertEquals(stopwatch.getFirstUsage(), 20);
+		Assert.assertEquals(stopwatch.getLastUsage(), 20);
+		// repeated maximum of active splits keeps the timestamp when it was first reached
+		clock.setMillisNanosFollow(30);
+		stopwatch.start().stop();
+		Assert.assertEquals(stopwatch.getMaxActive(), 1);
+		Assert.assertEquals(stopwatch.getMaxActiveTimestamp(), 20);
+		Assert.assertEquals(stopwatch.getLastUsage(), 30);
+	}
+
+	@Test
+	public void implementationSelectedByPattern() {
+		Manager manager = new EnabledManager();
+		manager.configuration().readConfig(new StringReader("<simon-configuration>\n" +
+			"  <simon pattern='org.javasimon.hot.*' implementation='striped'/>\n" +
+			"  <simon pattern='org.javasimon.hot.cold' implementation='synchronized'/>\n" +
+			"</simon-configuration>"));
+		Assert.assertEquals(manager.configuration().getConfig("org.javasimon.hot.x").getImplementation(), SimonImplementation.STRIPED);
+		Assert.assertTrue(manager.getStopwatch("org.javasimon.hot.servlet") instanceof StripedStopwatchImpl);
+		Assert.assertTrue(manager.getStopwatch("org.javasimon.hot.cold") instanceof StopwatchImpl);
+		Assert.assertTrue(manager.getStopwatch("org.javasimon.other") instanceof StopwatchImpl);
+		Assert.assertTrue(manager.getStopwatch(null) instanceof StopwatchImpl);
+
+		// unknown parent replaced by the stopwatch follows the configuration too
+		manager.getStopwatch("org.javasimon.hot.parent.child");
+		Assert.assertTrue(manager.getStopwatch("org.javasimon.hot.parent") instanceof StripedStopwatchImpl);
+	}
+
+	@Test
+	public void concurrentUpdates() throws InterruptedException {
+		EnabledManager manager = new EnabledManager();
+		manager.configuration().setDefaultImplementation(SimonImplementation.STRIPED);
+		final Stopwatch stopwatch = manager.getStopwatch("concurrent");
+		final int loop = 10000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 1; j <= loop; j++) {
+						stopwatch.start().stop();
+						stopwatch.addSplit(Split.create(j));
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		StopwatchSample sample = stopwatch.sample();
+		Assert.assertEquals(sample.getCounter(), 2L * loop * threads.size());
+		Assert.assertTrue(sample.getTotal() >= (long) threads.size() * loop * (loop + 1) / 2);
+		Assert.assertEquals(sample.getActive(), 0);
+		Assert.assertTrue(sample.getMax() >= loop);
+		Assert.assertTrue(sample.getMaxActive() >= 1);
+	}
+}
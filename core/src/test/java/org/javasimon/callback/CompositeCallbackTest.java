@@ -0,0 +1,123 @@
+package org.javasimon.callback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Simon;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.javasimon.callback.calltree.CallTreeCallback;
+import org.javasimon.jmx.JmxRegisterCallback;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests event dispatching of {@link CompositeCallbackImpl} based on {@link SelectiveCallback}.
+ */
+public final class CompositeCallbackTest {
+
+	@Test
+	public void skeletonInterestDetectedFromOverriddenMethods() {
+		CallbackSkeleton skeleton = new CallbackSkeleton();
+		for (Callback.Event event : Callback.Event.values()) {
+			Assert.assertFalse(skeleton.isInterestedIn(event), event.toString());
+		}
+
+		CallbackSkeleton createdOnly = new CallbackSkeleton() {
+			@Override
+			public void onSimonCreated(Simon simon) {
+			}
+		};
+		Assert.assertTrue(createdOnly.isInterestedIn(Callback.Event.CREATED));
+		Assert.assertTrue(createdOnly.isInterestedIn(Callback.Event.ALL));
+		Assert.assertFalse(createdOnly.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(createdOnly.needsSample(Callback.Event.STOPWATCH_STOP));
+
+		CallTreeCallback callTreeCallback = new CallTreeCallback();
+		Assert.assertTrue(callTreeCallback.isInterestedIn(Callback.Event.STOPWATCH_START));
+		Assert.assertTrue(callTreeCallback.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(callTreeCallback.needsSample(Callback.Event.STOPWATCH_STOP));
+	}
+
+	@Test
+	public void dispatchOnlyToInterestedCallbacks() {
+		CompositeCallback composite = new CompositeCallbackImpl();
+		Assert.assertFalse(composite.isInterestedIn(Callback.Event.ALL));
+
+		RecordingCallback recording = new RecordingCallback();
+		composite.addCallback(new JmxRegisterCallback("org.javasimon.test"));
+		composite.addCallback(recording);
+		Assert.assertTrue(composite.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(composite.needsSample(Callback.Event.STOPWATCH_STOP));
+		Assert.assertFalse(composite.isInterestedIn(Callback.Event.COUNTER_INCREASE));
+		Assert.assertTrue(composite.isInterestedIn(Callback.Event.CREATED));
+
+		composite.removeCallback(recording);
+		Assert.assertFalse(composite.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+	}
+
+	@Test
+	public void nestedCompositeAskedDynamically() {
+		CompositeCallback composite = new CompositeCallbackImpl();
+		composite.addCallback(new CompositeCallbackImpl());
+		Assert.assertFalse(composite.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+
+		CompositeCallback nested = new CompositeCallbackImpl();
+		composite.addCallback(nested);
+		// children added to nested composite later are taken into account
+		nested.addCallback(new AllEventsCallback());
+		Assert.assertTrue(composite.isInterestedIn(Callback.Event.STOPWATCH_STOP));
+		Assert.assertTrue(composite.needsSample(Callback.Event.COUNTER_SET));
+	}
+
+	@Test
+	public void samplesOnlyWhenNeeded() {
+		Manager manager = new EnabledManager();
+		final List<StopwatchSample> samples = new ArrayList<>();
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+				samples.add(sample);
+			}
+
+			@Override
+			public boolean needsSample(Event event) {
+				return false;
+			}
+		});
+		Stopwatch stopwatch = manager.getStopwatch("sampled");
+		stopwatch.start().stop();
+		Assert.assertEquals(samples.size(), 1);
+		Assert.assertNull(samples.get(0));
+
+		manager.callback().addCallback(new CallbackSkeleton() {
+			@Override
+			public void onStopwatchStop(Split split, StopwatchSample sample) {
+			}
+		});
+		stopwatch.start().stop();
+		Assert.assertEquals(samples.get(1).getCounter(), 2);
+	}
+
+	private static class RecordingCallback extends CallbackSkeleton {
+		@Override
+		public void onStopwatchStop(Split split, StopwatchSample sample) {
+		}
+
+		@Override
+		public boolean needsSample(Event event) {
+			return false;
+		}
+	}
+
+	/** Callback interested in all the events using default sample requirement of the skeleton. */
+	private static class AllEventsCallback extends CallbackSkeleton {
+		@Override
+		public boolean isInterestedIn(Event event) {
+			return true;
+		}
+	}
+}
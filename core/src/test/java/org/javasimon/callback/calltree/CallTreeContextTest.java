@@ -0,0 +1,201 @@
+package org.javasimon.callback.calltree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.TestClock;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for call tree context propagation ({@link CallTreeContext} and {@link CallTreeExecutors}).
+ */
+public class CallTreeContextTest extends SimonUnitTest {
+
+	private EnabledManager manager;
+	private CallTreeCallback callback;
+	private ExecutorService executorService;
+
+	@BeforeMethod
+	public void createCallback() {
+		manager = new EnabledManager();
+		callback = new CallTreeCallback(0L);
+		manager.callback().addCallback(callback);
+		executorService = CallTreeExecutors.executorService(callback, Executors.newFixedThreadPool(3));
+	}
+
+	@AfterMethod
+	public void shutdownExecutor() {
+		executorService.shutdownNow();
+	}
+
+	/** Task starting "task" stopwatch with nested "task.inner" stopwatch. */
+	private Runnable createTask() {
+		return new Runnable() {
+			@Override
+			public void run() {
+				Split split = manager.getStopwatch("task").start();
+				manager.getStopwatch("task.inner").start().stop();
+				split.stop();
+			}
+		};
+	}
+
+	@Test
+	public void executorServiceFanOut() throws Exception {
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		Split fanOutSplit = manager.getStopwatch("fanOut").start();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(executorService.submit(createTask()));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		fanOutSplit.stop();
+		rootSplit.stop();
+
+		CallTreeNode fanOutNode = CallTreeCallback.getLastCallTree(root).getRootNode().getChild("fanOut");
+		assertFalse(fanOutNode.isAsync());
+		CallTreeNode taskNode = fanOutNode.getChild("task");
+		assertTrue(taskNode.isAsync());
+		assertEquals(taskNode.getSplitCount(), 3);
+		assertTrue(taskNode.getWallTime() >= taskNode.getMax());
+		assertEquals(taskNode.getChild("task.inner").getSplitCount(), 3);
+		assertFalse(taskNode.getChild("task.inner").isAsync());
+		// tasks did not start new root calls
+		assertNull(CallTreeCallback.getLastCallTree(manager.getStopwatch("task")));
+	}
+
+	@Test
+	public void completableFuture() throws Exception {
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		Executor executor = CallTreeExecutors.contextExecutor(callback, executorService);
+		CompletableFuture<Integer> future = CompletableFuture.supplyAsync(new Supplier<Integer>() {
+			@Override
+			public Integer get() {
+				createTask().run();
+				return 1;
+			}
+		}, executor).thenApplyAsync(new Function<Integer, Integer>() {
+			@Override
+			public Integer apply(Integer value) {
+				Split split = manager.getStopwatch("then").start();
+				split.stop();
+				return value + 1;
+			}
+		}, executor);
+		assertEquals(future.get().intValue(), 2);
+		rootSplit.stop();
+
+		CallTreeNode rootNode = CallTreeCallback.getLastCallTree(root).getRootNode();
+		assertTrue(rootNode.getChild("task").isAsync());
+		assertTrue(rootNode.getChild("then").isAsync());
+		assertNull(CallTreeCallback.getLastCallTree(manager.getStopwatch("then")));
+	}
+
+	@Test
+	public void runAsync() throws Exception {
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		CallTreeExecutors.runAsync(callback, createTask()).get();
+		rootSplit.stop();
+		assertTrue(CallTreeCallback.getLastCallTree(root).getRootNode().getChild("task").isAsync());
+	}
+
+	@Test
+	public void overlappingTasks() {
+		final TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(1000);
+		final EnabledManager clockManager = new EnabledManager(clock);
+		clockManager.callback().addCallback(callback);
+		Stopwatch root = clockManager.getStopwatch("root");
+		Split rootSplit = root.start();
+		CallTreeContext context = callback.captureContext();
+
+		// tasks 1010-1060 ms and 1020-1080 ms, executed by the caller thread one after another
+		final long[][] times = {{1010, 1060}, {1020, 1080}};
+		for (final long[] taskTimes : times) {
+			context.wrap(new Runnable() {
+				@Override
+				public void run() {
+					clock.setMillisNanosFollow(taskTimes[0]);
+					Split split = clockManager.getStopwatch("task").start();
+					clock.setMillisNanosFollow(taskTimes[1]);
+					split.stop();
+				}
+			}).run();
+		}
+		clock.setMillisNanosFollow(1100);
+		rootSplit.stop();
+
+		CallTreeNode rootNode = CallTreeCallback.getLastCallTree(root).getRootNode();
+		CallTreeNode taskNode = rootNode.getChild("task");
+		assertEquals(rootNode.getTotal(), 100000000L);
+		assertEquals(taskNode.getTotal(), 110000000L);
+		assertEquals(taskNode.getWallTime(), 70000000L);
+		assertTrue(rootNode.toString().contains("async, wall 70.0 ms"), rootNode.toString());
+		// asynchronous time is not subtracted from the self time of the root
+		StringWriter stringWriter = new StringWriter();
+		rootNode.printCollapsedStacks(new PrintWriter(stringWriter));
+		assertEquals(stringWriter.toString(), "root 100000000\nroot;task 110000000\n");
+	}
+
+	@Test
+	public void lateTaskDropped() {
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		CallTreeContext context = callback.captureContext();
+		rootSplit.stop();
+		CallTree callTree = CallTreeCallback.getLastCallTree(root);
+
+		context.wrap(createTask()).run();
+		root.start().stop();
+		assertNull(callTree.getRootNode().getChild("task"));
+		assertNull(CallTreeCallback.getLastCallTree(root).getRootNode().getChild("task"));
+		assertNull(CallTreeCallback.getLastCallTree(manager.getStopwatch("task")));
+	}
+
+	@Test
+	public void unsampledContextIgnored() throws Exception {
+		callback.setSamplingRate(Integer.MAX_VALUE);
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		CallTreeContext context = callback.captureContext();
+		assertNotNull(context);
+		assertTrue(context.isIgnored());
+		executorService.submit(createTask()).get();
+		rootSplit.stop();
+		// task did not start a bogus root call
+		assertNull(CallTreeCallback.getLastCallTree(manager.getStopwatch("task")));
+	}
+
+	@Test
+	public void noContext() {
+		assertNull(callback.captureContext());
+		Runnable task = createTask();
+		assertTrue(CallTreeExecutors.wrap(callback, task) == task);
+	}
+}
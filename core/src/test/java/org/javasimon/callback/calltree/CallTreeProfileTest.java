@@ -0,0 +1,151 @@
+package org.javasimon.callback.calltree;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.TestClock;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link CallTreeProfile} and call tree sampling of {@link CallTreeCallback}.
+ */
+public class CallTreeProfileTest extends SimonUnitTest {
+
+	private static final long MINUTE = 60000;
+
+	/** Creates call tree: root (1000 ns) calling child (400 ns) calling leaf (100 ns). */
+	private CallTreeNode createCallTree() {
+		CallTreeNode rootNode = new CallTreeNode("root");
+		rootNode.addSplit(1000L);
+		CallTreeNode child = rootNode.addChild("child");
+		child.addSplit(400L);
+		child.addChild("leaf").addSplit(100L);
+		return rootNode;
+	}
+
+	@Test
+	public void collapsedStacks() {
+		CallTreeNode rootNode = createCallTree();
+		rootNode.getChild("child").addChild("idle").addSplit(300L);
+		CallTreeProfile profile = new CallTreeProfile(new TestClock(), MINUTE, 15);
+		profile.add(rootNode);
+		String collapsedStacks = profile.getCollapsedStacks();
+		assertTrue(collapsedStacks.startsWith("root 600\n"), collapsedStacks);
+		// child self time is 0, it is skipped
+		assertEquals(collapsedStacks.split("\n").length, 3);
+		assertTrue(collapsedStacks.contains("root;child;leaf 100\n"), collapsedStacks);
+		assertTrue(collapsedStacks.contains("root;child;idle 300\n"), collapsedStacks);
+	}
+
+	@Test
+	public void mergeAndExpire() {
+		TestClock clock = new TestClock();
+		CallTreeProfile profile = new CallTreeProfile(clock, MINUTE, 15);
+		assertNull(profile.getMergedTree());
+		assertEquals(profile.getCollapsedStacks(), "");
+
+		profile.add(createCallTree());
+		clock.setMillis(5 * MINUTE);
+		CallTreeNode other = createCallTree();
+		other.addChild("other").addSplit(200L);
+		profile.add(other);
+
+		CallTreeNode mergedTree = profile.getMergedTree();
+		assertEquals(profile.getSampleCount(), 2);
+		assertEquals(mergedTree.getSplitCount(), 2);
+		assertEquals(mergedTree.getTotal(), 2000L);
+		assertEquals(mergedTree.getChild("child").getChild("leaf").getTotal(), 200L);
+		assertEquals(mergedTree.getChild("other").getMax(), 200L);
+
+		// first call tree is out of the window
+		clock.setMillis(16 * MINUTE);
+		mergedTree = profile.getMergedTree();
+		assertEquals(profile.getSampleCount(), 1);
+		assertEquals(mergedTree.getSplitCount(), 1);
+		assertNotNull(mergedTree.getChild("other"));
+
+		clock.setMillis(30 * MINUTE);
+		assertNull(profile.getMergedTree());
+	}
+
+	@Test
+	public void mergeWindow() {
+		CallTreeProfile profile = new CallTreeProfile(new TestClock(), MINUTE, 15);
+		profile.add(createCallTree());
+		CallTreeProfile.MergedTree merged = profile.mergeWindow();
+		// later call tree does not change the merged tree taken before
+		profile.add(createCallTree());
+		assertEquals(merged.getSampleCount(), 1);
+		assertEquals(merged.getRootNode().getSplitCount(), 1);
+		assertEquals(merged.getCollapsedStacks(), "root 600\nroot;child 300\nroot;child;leaf 100\n");
+		assertEquals(profile.mergeWindow().getSampleCount(), 2);
+	}
+
+	@Test
+	public void maxNodes() {
+		CallTreeProfile profile = new CallTreeProfile(new TestClock(), MINUTE, 15, 2);
+		profile.add(createCallTree());
+		CallTreeNode mergedTree = profile.getMergedTree();
+		assertNotNull(mergedTree.getChild("child"));
+		assertNull(mergedTree.getChild("child").getChild("leaf"));
+	}
+
+	@Test
+	public void callbackProfile() {
+		TestClock clock = new TestClock();
+		clock.setMillisNanosFollow(MINUTE);
+		EnabledManager manager = new EnabledManager(clock);
+		CallTreeCallback callback = new CallTreeCallback(1000L);
+		callback.enableProfile();
+		manager.callback().addCallback(callback);
+		Stopwatch root = manager.getStopwatch("root");
+		for (int i = 0; i < 3; i++) {
+			Split rootSplit = root.start();
+			manager.getStopwatch("child").start().stop();
+			rootSplit.stop();
+		}
+		CallTreeProfile profile = CallTreeCallback.getCallTreeProfile(root);
+		assertEquals(profile.getWindowLength(), 15 * MINUTE);
+		assertEquals(profile.getSampleCount(), 3);
+		assertEquals(profile.getMergedTree().getChild("child").getSplitCount(), 3);
+		assertNull(CallTreeCallback.getCallTreeProfile(manager.getStopwatch("child")));
+	}
+
+	@Test
+	public void sampling() {
+		EnabledManager manager = new EnabledManager();
+		CallTreeCallback callback = new CallTreeCallback(1000L);
+		callback.setSamplingRate(Integer.MAX_VALUE);
+		callback.enableProfile();
+		manager.callback().addCallback(callback);
+		Stopwatch root = manager.getStopwatch("root");
+		int rootCalls = 100;
+		for (int i = 0; i < rootCalls; i++) {
+			Split rootSplit = root.start();
+			manager.getStopwatch("child").start().stop();
+			rootSplit.stop();
+		}
+		CallTreeProfile profile = CallTreeCallback.getCallTreeProfile(root);
+		// sampled with probability 1 / Integer.MAX_VALUE
+		assertTrue(profile == null || profile.getSampleCount() < rootCalls);
+
+		callback.setSamplingRate(1);
+		Split rootSplit = root.start();
+		manager.getStopwatch("child").start().stop();
+		rootSplit.stop();
+		profile = CallTreeCallback.getCallTreeProfile(root);
+		assertNotNull(profile);
+		assertEquals(profile.getMergedTree().getChild("child").getSplitCount(), profile.getSampleCount());
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void invalidSamplingRate() {
+		new CallTreeCallback().setSamplingRate(0);
+	}
+}
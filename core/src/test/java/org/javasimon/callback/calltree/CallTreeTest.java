@@ -1,12 +1,17 @@
 package org.javasimon.callback.calltree;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
+import org.javasimon.EnabledManager;
 import org.javasimon.SimonManager;
 import org.javasimon.SimonUnitTest;
 import org.javasimon.Split;
+import org.javasimon.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 /**
@@ -20,16 +25,26 @@ public class CallTreeTest extends SimonUnitTest {
 	private static final String NAME_PREFIX = "org.javasimon.test.";
 
 	/** Call tree under test. */
-	private CallTree callTree = new CallTree(null) {
-		@Override
-		public void onRootStopwatchStart(CallTreeNode rootNode, Split split) {
-			CallTreeTest.this.rootTreeNode = rootNode;
-		}
-	};
+	private CallTree callTree;
 
 	/** Root call tree node. */
 	private CallTreeNode rootTreeNode;
 
+	/** Creates call tree under test remembering the root node. */
+	private CallTree createCallTree(int maxNodes, int maxDepth) {
+		return new CallTree(null, maxNodes, maxDepth) {
+			@Override
+			public void onRootStopwatchStart(CallTreeNode rootNode, Split split) {
+				CallTreeTest.this.rootTreeNode = rootNode;
+			}
+		};
+	}
+
+	@BeforeMethod
+	public void resetCallTree() {
+		callTree = createCallTree(CallTree.DEFAULT_MAX_NODES, CallTree.DEFAULT_MAX_DEPTH);
+	}
+
 	/** Start a stopwatch and append it call stack. */
 	private Split startStopwatch(String name) {
 		Split split = SimonManager.getStopwatch(NAME_PREFIX + name).start();
@@ -80,4 +95,97 @@ public class CallTreeTest extends SimonUnitTest {
 		assertEquals(child21Node.getSplitCount(), 2);
 		LOGGER.debug(rootTreeNode.toString());
 	}
+
+	/** Test aggregated statistics of tree nodes. */
+	@Test
+	public void testNodeStatistics() {
+		CallTreeNode node = new CallTreeNode("node");
+		assertEquals(node.getMin(), 0L);
+		node.addSplit(300L);
+		node.addSplit(100L);
+		node.addSplit(200L);
+		assertEquals(node.getSplitCount(), 3);
+		assertEquals(node.getTotal(), 600L);
+		assertEquals(node.getMin(), 100L);
+		assertEquals(node.getMax(), 300L);
+		CallTreeNode child = node.addChild("child");
+		child.addSplit(150L);
+		assertEquals(child.getPercent().intValue(), 25);
+		assertNull(node.getPercent());
+	}
+
+	/** Test tree size and depth limits. */
+	@Test
+	public void testLimits() {
+		callTree = createCallTree(3, 2);
+		Split rootSplit = startStopwatch("root");
+		Split child1Split = startStopwatch("child1");
+		Split tooDeepSplit = startStopwatch("child1.tooDeep");
+		stopStopwatch(tooDeepSplit);
+		stopStopwatch(child1Split);
+		Split child2Split = startStopwatch("child2");
+		stopStopwatch(child2Split);
+		Split child3Split = startStopwatch("child3");
+		Split child31Split = startStopwatch("child3.m1");
+		stopStopwatch(child31Split);
+		stopStopwatch(child3Split);
+		child1Split = startStopwatch("child1");
+		stopStopwatch(child1Split);
+		stopStopwatch(rootSplit);
+
+		assertEquals(callTree.getNodeCount(), 3);
+		assertEquals(callTree.getDroppedSplitCount(), 3);
+		assertEquals(rootTreeNode.getChildren().size(), 2);
+		assertNull(rootTreeNode.getChild(NAME_PREFIX + "child3"));
+		assertEquals(rootTreeNode.getChild(NAME_PREFIX + "child1").getSplitCount(), 2);
+		assertEquals(rootTreeNode.getChild(NAME_PREFIX + "child1").getChildren().size(), 0);
+	}
+
+	/** Test nodes are reused once the call tree is recycled. */
+	@Test
+	public void testRecycle() {
+		Split rootSplit = startStopwatch("root");
+		stopStopwatch(startStopwatch("child"));
+		stopStopwatch(rootSplit);
+		CallTreeNode firstRoot = rootTreeNode;
+		CallTreeNode firstChild = firstRoot.getChild(NAME_PREFIX + "child");
+		callTree.recycle();
+		assertNull(callTree.getRootNode());
+
+		rootSplit = startStopwatch("root2");
+		stopStopwatch(startStopwatch("child2"));
+		stopStopwatch(rootSplit);
+		assertEquals(callTree.getNodeCount(), 2);
+		assertSame(rootTreeNode.getChild(NAME_PREFIX + "child2"), firstRoot);
+		assertSame(rootTreeNode, firstChild);
+		assertEquals(rootTreeNode.getSplitCount(), 1);
+		assertEquals(rootTreeNode.getChildren().size(), 1);
+	}
+
+	/** Test callback keeps the call tree per thread and recycles it unless it was remembered. */
+	@Test
+	public void testCallbackRecycle() {
+		EnabledManager manager = new EnabledManager();
+		CallTreeCallback callback = new CallTreeCallback(1000L);
+		callback.setMaxNodes(10);
+		manager.callback().addCallback(callback);
+		Stopwatch root = manager.getStopwatch("root");
+		Split rootSplit = root.start();
+		manager.getStopwatch("child").start().stop();
+		rootSplit.stop();
+		assertNull(CallTreeCallback.getLastCallTree(root));
+
+		callback.setLogThreshold(0L);
+		rootSplit = root.start();
+		manager.getStopwatch("child").start().stop();
+		rootSplit.stop();
+		CallTree lastCallTree = CallTreeCallback.getLastCallTree(root);
+		assertEquals(lastCallTree.getMaxNodes(), 10);
+		assertEquals(lastCallTree.getNodeCount(), 2);
+		assertEquals(lastCallTree.getRootNode().getName(), "root");
+
+		// remembered tree is not reused by the next call
+		manager.getStopwatch("other").start().stop();
+		assertEquals(lastCallTree.getRootNode().getName(), "root");
+	}
 }
@@ -0,0 +1,63 @@
+package org.javasimon.callback.lastsplits;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.SimonUnitTest;
+import org.testng.annotations.Test;
+
+/** Unit test for ring buffer of {@link LastSplits}. */
+public class LastSplitsTest extends SimonUnitTest {
+
+	@Test
+	public void testRingBuffer() {
+		LastSplits lastSplits = new LastSplits(3);
+		assertEquals(lastSplits.getCount(), 0);
+		assertNull(lastSplits.getMean());
+		assertEquals(lastSplits.toString(), "LastSplits[size=0]");
+		for (long i = 1; i <= 5; i++) {
+			lastSplits.add(i * 10000L, i * 100L);
+		}
+		assertEquals(lastSplits.getCount(), 3);
+		assertEquals(lastSplits.getMin().longValue(), 300L);
+		assertEquals(lastSplits.getMax().longValue(), 500L);
+		assertEquals(lastSplits.getMean(), 400D, 0.001D);
+		assertEquals(lastSplits.getTrend(), 100D, 0.001D);
+		assertTrue(lastSplits.toString().startsWith("LastSplits[size=3,values=[300 ns,400 ns,500 ns]"), lastSplits.toString());
+		lastSplits.clear();
+		assertEquals(lastSplits.getCount(), 0);
+		assertNull(lastSplits.getMax());
+		lastSplits.add(60000L, 600L);
+		assertEquals(lastSplits.getCount(), 1);
+		assertEquals(lastSplits.getMin().longValue(), 600L);
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		final LastSplits lastSplits = new LastSplits(1000);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						lastSplits.add(i, 42L);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(lastSplits.getCount(), 1000);
+		assertEquals(lastSplits.getMin().longValue(), 42L);
+		assertEquals(lastSplits.getMax().longValue(), 42L);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new LastSplits(0);
+	}
+}
@@ -0,0 +1,140 @@
+package org.javasimon.callback.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.Test;
+
+/** Unit test for {@link AutoQuantilesCallback}. */
+public class AutoQuantilesCallbackTest extends SimonUnitTest {
+
+	private static final long MS = 1000000L;
+
+	private Manager createManager(AutoQuantilesCallback callback) {
+		Manager manager = new EnabledManager();
+		manager.callback().addCallback(callback);
+		return manager;
+	}
+
+	private void addSplits(Stopwatch stopwatch, long fromMs, long toMs, int count) {
+		for (int i = 0; i < count; i++) {
+			stopwatch.addSplit(Split.create((fromMs + (toMs - fromMs) * i / count) * MS));
+		}
+	}
+
+	private int totalCount(Buckets buckets) {
+		int total = 0;
+		for (BucketSample bucketSample : buckets.sample().getBuckets()) {
+			total += bucketSample.getCount();
+		}
+		return total;
+	}
+
+	@Test
+	public void warmup() {
+		Manager manager = createManager(new AutoQuantilesCallback(10, 8));
+		Stopwatch stopwatch = manager.getStopwatch("warmup");
+		addSplits(stopwatch, 10, 20, 10);
+		assertNull(QuantilesCallback.getBuckets(stopwatch));
+		assertNotNull(stopwatch.getAttribute(AutoQuantilesCallback.ATTR_NAME_BUCKETS_VALUES));
+
+		addSplits(stopwatch, 10, 20, 1);
+		Buckets buckets = QuantilesCallback.getBuckets(stopwatch);
+		assertNotNull(buckets);
+		assertNull(stopwatch.getAttribute(AutoQuantilesCallback.ATTR_NAME_BUCKETS_VALUES));
+		assertEquals(totalCount(buckets), 11);
+		assertEquals(buckets.getMin(), 9 * MS);
+		assertEquals(buckets.getMax(), 21 * MS);
+	}
+
+	@Test
+	public void rescaleWhenSplitsGrow() {
+		Manager manager = createManager(new AutoQuantilesCallback(10, 10));
+		Stopwatch stopwatch = manager.getStopwatch("drift");
+		addSplits(stopwatch, 10, 20, 1000);
+		Buckets initial = QuantilesCallback.getBuckets(stopwatch);
+		// warmup values were around 10 ms, buckets were rescaled as the splits grew
+		assertTrue(initial.getMax() >= 20 * MS, "max " + initial.getMax());
+		assertEquals(totalCount(initial), 1000);
+		assertEquals(initial.getUnderflowMin(), Long.MAX_VALUE);
+
+		// latency grows ten times
+		addSplits(stopwatch, 100, 200, 1000);
+		Buckets rescaled = QuantilesCallback.getBuckets(stopwatch);
+		assertNotSame(rescaled, initial);
+		assertTrue(rescaled.getMax() >= 200 * MS, "max " + rescaled.getMax());
+		assertEquals(totalCount(rescaled), 2000);
+		// quantiles of both old and new values can be computed
+		double p90 = rescaled.getQuantile(0.9);
+		assertTrue(p90 > 100 * MS && p90 < 200 * MS, "p90 " + p90);
+		double p25 = rescaled.getQuantile(0.25);
+		assertTrue(p25 < 100 * MS, "p25 " + p25);
+	}
+
+	@Test
+	public void rescaleWhenSplitsDrop() {
+		Manager manager = createManager(new AutoQuantilesCallback(BucketsType.EXPONENTIAL, 10, 10));
+		Stopwatch stopwatch = manager.getStopwatch("drift");
+		addSplits(stopwatch, 100, 200, 500);
+		addSplits(stopwatch, 2, 10, 500);
+		Buckets buckets = QuantilesCallback.getBuckets(stopwatch);
+		assertTrue(buckets.getMin() <= 2 * MS, "min " + buckets.getMin());
+		assertEquals(totalCount(buckets), 1000);
+		assertTrue(buckets.getQuantile(0.1) < 10 * MS);
+	}
+
+	@Test
+	public void fewOutliersDoNotRescale() {
+		AutoQuantilesCallback callback = new AutoQuantilesCallback(10, 10);
+		callback.setRescaleRatio(0.05);
+		Manager manager = createManager(callback);
+		Stopwatch stopwatch = manager.getStopwatch("outliers");
+		addSplits(stopwatch, 10, 20, 1000);
+		Buckets buckets = QuantilesCallback.getBuckets(stopwatch);
+		addSplits(stopwatch, 500, 500, 30);
+		assertSame(QuantilesCallback.getBuckets(stopwatch), buckets);
+		assertEquals(buckets.getOverflowMax(), 500 * MS);
+
+		addSplits(stopwatch, 500, 500, 30);
+		assertNotSame(QuantilesCallback.getBuckets(stopwatch), buckets);
+	}
+
+	@Test
+	public void quantilesAfterOutlierRescale() {
+		AutoQuantilesCallback callback = new AutoQuantilesCallback(10, 10);
+		callback.setRescaleRatio(0.05);
+		Manager manager = createManager(callback);
+		Stopwatch stopwatch = manager.getStopwatch("outliers");
+		addSplits(stopwatch, 10, 20, 1000);
+		Buckets initial = QuantilesCallback.getBuckets(stopwatch);
+		addSplits(stopwatch, 500, 500, 60);
+		Buckets rescaled = QuantilesCallback.getBuckets(stopwatch);
+		assertNotSame(rescaled, initial);
+		assertTrue(rescaled.getMax() > 500 * MS, "max " + rescaled.getMax());
+		// resolution of the old buckets is kept
+		assertTrue(rescaled.getBucketNb() > initial.getBucketNb(), "bucket nb " + rescaled.getBucketNb());
+		assertEquals(totalCount(rescaled), 1060);
+
+		double median = rescaled.getMedian();
+		assertTrue(median > 10 * MS && median < 20 * MS, "median " + median);
+		double p90 = rescaled.getQuantile(0.9);
+		assertTrue(p90 > 10 * MS && p90 < 20 * MS, "p90 " + p90);
+		// outliers counted before rescaling are placed between the old max and the highest outlier
+		double p99 = rescaled.getQuantile(0.99);
+		assertTrue(p99 > 100 * MS && p99 <= rescaled.getMax(), "p99 " + p99);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void invalidRescaleRatio() {
+		new AutoQuantilesCallback().setRescaleRatio(0);
+	}
+}
@@ -0,0 +1,155 @@
+package org.javasimon.callback.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.javasimon.clock.TestClock;
+import org.testng.annotations.Test;
+
+/** Unit test for sliding window of {@link Buckets}. */
+public class BucketsWindowTest extends SimonUnitTest {
+
+	private static final long MINUTE = 60000;
+
+	private void addValues(Buckets buckets, long from, long to) {
+		for (long value = from; value < to; value++) {
+			buckets.addValue(value);
+		}
+	}
+
+	@Test
+	public void windowForgetsOldValues() {
+		TestClock clock = new TestClock();
+		Buckets buckets = new LinearBuckets(0, 1000, 10);
+		buckets.setWindow(clock, 10000, 90);
+		assertEquals(buckets.getWindowLength(), 15 * MINUTE);
+
+		clock.setMillis(1000);
+		addValues(buckets, 0, 300);
+		clock.setMillis(3 * MINUTE);
+		addValues(buckets, 600, 900);
+
+		WindowSample lastMinute = buckets.sampleWindow(MINUTE);
+		assertEquals(lastMinute.getCount(), 300);
+		assertEquals(lastMinute.getMedian(), 750, 1D);
+		WindowSample lastFiveMinutes = buckets.sampleWindow(5 * MINUTE);
+		assertEquals(lastFiveMinutes.getCount(), 600);
+		assertEquals(lastFiveMinutes.getMedian(), buckets.getMedian(), 0.001D);
+
+		// old values are still counted in the buckets, but out of any window
+		clock.setMillis(20 * MINUTE);
+		assertEquals(buckets.sampleWindow(15 * MINUTE).getCount(), 0);
+		assertNull(buckets.sampleWindow(15 * MINUTE).getMedian());
+		addValues(buckets, 300, 600);
+		assertEquals(buckets.sampleWindow(15 * MINUTE).getMedian(), 450, 1D);
+		assertEquals(buckets.getTotalCount(), 900);
+	}
+
+	@Test
+	public void slotReused() {
+		TestClock clock = new TestClock();
+		Buckets buckets = new LinearBuckets(0, 1000, 10);
+		buckets.setWindow(clock, 1000, 3);
+		addValues(buckets, 0, 10);
+		clock.setMillis(3000);
+		addValues(buckets, 500, 505);
+		// the same slot as time 0, counts of the old period are cleared
+		assertEquals(buckets.sampleWindow(1000).getCount(), 5);
+		assertEquals(buckets.sampleWindow(3000).getCount(), 5);
+		assertEquals(buckets.sampleWindow(10000).getWindow(), 3000);
+	}
+
+	@Test
+	public void sampleContainsWindows() {
+		TestClock clock = new TestClock();
+		Buckets buckets = new ExponentialBuckets(1, 1000, 10);
+		assertEquals(buckets.sample().getWindows().length, 0);
+		assertNull(buckets.sampleWindow(MINUTE));
+
+		buckets.setWindow(clock, 10000, 360);
+		addValues(buckets, 1, 1000);
+		WindowSample[] windows = buckets.sample().getWindows();
+		assertEquals(windows.length, 4);
+		assertEquals(windows[0].getWindow(), MINUTE);
+		assertEquals(windows[1].getWindow(), 5 * MINUTE);
+		assertEquals(windows[2].getWindow(), 15 * MINUTE);
+		assertEquals(windows[3].getWindow(), 60 * MINUTE);
+		assertEquals(windows[3].getCount(), 999);
+		assertTrue(windows[0].getPercentile99() > windows[0].getPercentile90());
+
+		buckets.setWindow(clock, 1000, 10);
+		windows = buckets.sample().getWindows();
+		assertEquals(windows.length, 1);
+		assertEquals(windows[0].getWindow(), 10000);
+	}
+
+	@Test
+	public void addBucketsMovesWindow() {
+		TestClock clock = new TestClock();
+		Buckets old = new LinearBuckets(0, 100, 10);
+		old.setWindow(clock, 10000, 90);
+		addValues(old, 0, 100);
+		clock.setMillis(10 * MINUTE);
+		addValues(old, 50, 60);
+
+		Buckets rescaled = new LinearBuckets(0, 1000, 10);
+		rescaled.setWindow(clock, 10000, 90);
+		rescaled.addBuckets(old);
+		assertEquals(rescaled.sampleWindow(MINUTE).getCount(), 10);
+		assertEquals(rescaled.sampleWindow(15 * MINUTE).getCount(), 110);
+	}
+
+	@Test
+	public void callbackWindow() {
+		TestClock clock = new TestClock();
+		EnabledManager manager = new EnabledManager(clock);
+		FixedQuantilesCallback callback = new FixedQuantilesCallback(0L, 100L, 10);
+		callback.enableWindow();
+		manager.callback().addCallback(callback);
+		Stopwatch stopwatch = manager.getStopwatch("windowed");
+		for (int i = 0; i < 100; i++) {
+			stopwatch.addSplit(Split.create(i * 1000000L));
+		}
+		WindowSample[] windows = QuantilesCallback.sampleBuckets(stopwatch).getWindows();
+		assertEquals(windows.length, 3);
+		assertEquals(windows[2].getCount(), 100);
+
+		clock.setMillis(2 * MINUTE);
+		windows = QuantilesCallback.sampleBuckets(stopwatch).getWindows();
+		assertEquals(windows[0].getCount(), 0);
+		assertEquals(windows[1].getCount(), 100);
+	}
+
+	@Test
+	public void propertiesWindow() {
+		Properties properties = new Properties();
+		properties.setProperty(".min", "0");
+		properties.setProperty(".max", "1000");
+		properties.setProperty(".nb", "10");
+		properties.setProperty("web.windowSlots", "6");
+		properties.setProperty("web.slow.windowSlot", "1000");
+		properties.setProperty("web.off.windowSlots", "0");
+		EnabledManager manager = new EnabledManager();
+		PropertiesQuantilesCallback callback = new PropertiesQuantilesCallback(properties);
+
+		assertEquals(callback.createBuckets(manager.getStopwatch("other")).getWindowLength(), 0);
+		assertEquals(callback.createBuckets(manager.getStopwatch("web.fast")).getWindowLength(), 60000);
+		assertEquals(callback.createBuckets(manager.getStopwatch("web.slow")).getWindowLength(), 6000);
+		assertEquals(callback.createBuckets(manager.getStopwatch("web.off")).getWindowLength(), 0);
+		callback.setWindow(1000, 5);
+		assertNotNull(callback.createBuckets(manager.getStopwatch("other")).sampleWindow(1000));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void invalidWindow() {
+		new LinearBuckets(0, 1000, 10).setWindow(new TestClock(), 0, 10);
+	}
+}
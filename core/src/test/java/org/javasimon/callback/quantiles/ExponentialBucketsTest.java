@@ -6,6 +6,7 @@ import org.javasimon.SimonUnitTest;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 /**
  * @author Alexej Vlasov
@@ -70,4 +71,32 @@ public class ExponentialBucketsTest extends SimonUnitTest {
 		buckets.addValue(1050);
 		assertEquals(buckets.getQuantile(0.9D), 1000D, 0.1D);// End of second bucket
 	}
+
+	@Test
+	public void testBucketIndexMatchesBounds() {
+		for (int bucketNb : new int[] {3, 8, 50, 200}) {
+			Buckets buckets = new ExponentialBuckets(1000L, 1000000000L, bucketNb);
+			List<Bucket> bucketList = buckets.getBuckets();
+			for (long value = 900L; value < 1100000000L; value = value * 21 / 20) {
+				assertSame(buckets.getBucketForValue(value), expectedBucket(bucketList, value), "value " + value);
+			}
+			for (Bucket bucket : bucketList.subList(1, bucketNb + 1)) {
+				if (bucket.getMin() < bucket.getMax()) {
+					assertSame(buckets.getBucketForValue(bucket.getMin()), bucket);
+					assertSame(buckets.getBucketForValue(bucket.getMax() - 1), bucket);
+				}
+			}
+		}
+	}
+
+	/** Last bucket with min lower or equal to the value (upper bounds are exclusive). */
+	private Bucket expectedBucket(List<Bucket> bucketList, long value) {
+		Bucket expected = bucketList.get(0);
+		for (Bucket bucket : bucketList.subList(1, bucketList.size())) {
+			if (value >= bucket.getMin() && bucket.getMin() < bucket.getMax()) {
+				expected = bucket;
+			}
+		}
+		return expected;
+	}
 }
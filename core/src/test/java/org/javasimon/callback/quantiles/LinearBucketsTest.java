@@ -6,6 +6,7 @@ import org.javasimon.SimonUnitTest;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 /**
  * @author gquintana
@@ -70,4 +71,62 @@ public class LinearBucketsTest extends SimonUnitTest {
 		buckets.addValue(300);
 		assertEquals(200D, buckets.getQuantile(0.9D), 0.1D);// End of second bucket
 	}
+
+	@Test
+	public void testBucketIndexMatchesBounds() {
+		for (int bucketNb : new int[] {3, 8, 50, 200}) {
+			Buckets buckets = new LinearBuckets(1000L, 1000000L, bucketNb);
+			List<Bucket> bucketList = buckets.getBuckets();
+			for (long value = 990L; value < 1000100L; value += 97) {
+				assertSame(buckets.getBucketForValue(value), expectedBucket(bucketList, value), "value " + value);
+			}
+			for (Bucket bucket : bucketList.subList(1, bucketNb + 1)) {
+				assertSame(buckets.getBucketForValue(bucket.getMin() + 1), bucket);
+				// max of the whole range belongs to the last bucket (+infinity)
+				assertSame(buckets.getBucketForValue(Math.min(bucket.getMax(), buckets.getMax() - 1)), bucket);
+			}
+		}
+	}
+
+	/** First real bucket containing the value (bounds are inclusive), remainder of the range goes to the last one. */
+	private Bucket expectedBucket(List<Bucket> bucketList, long value) {
+		int bucketNb = bucketList.size() - 2;
+		if (value < bucketList.get(1).getMin()) {
+			return bucketList.get(0);
+		}
+		if (value >= bucketList.get(bucketNb + 1).getMin()) {
+			return bucketList.get(bucketNb + 1);
+		}
+		for (Bucket bucket : bucketList.subList(1, bucketNb + 1)) {
+			if (bucket.contains(value)) {
+				return bucket;
+			}
+		}
+		return bucketList.get(bucketNb);
+	}
+
+	@Test
+	public void testConcurrentAdd() throws InterruptedException {
+		final Buckets buckets = new LinearBuckets(0L, 1000L, 10);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						buckets.addValue(j % 1100);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		int total = 0;
+		for (BucketSample bucketSample : buckets.sample().getBuckets()) {
+			total += bucketSample.getCount();
+		}
+		assertEquals(total, 40000);
+	}
 }
@@ -51,6 +51,61 @@ public class StopwatchTimelineTest extends SimonUnitTest {
 		assertEquals(timeRanges[2].getCounter(), 3);
 	}
 
+	@Test
+	public void ringRotation() {
+		// 3 ranges of 1 minute
+		StopwatchTimeline timeline = new StopwatchTimeline(3, 60 * 1000);
+		for (int minute = 0; minute < 5; minute++) {
+			timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, minute, 30), 100 + minute));
+		}
+		// minute 1 range was replaced, the split is dropped
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 1, 40), 1000));
+		// minute 2 range still exists
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 2, 40), 1000));
+		StopwatchTimeRange[] timeRanges = timeline.sample().getTimeRanges();
+		assertEquals(timeRanges.length, 3);
+		assertEquals(timeRanges[0].getStartTimestamp(), createTimestamp(2012, 7, 12, 21, 2, 0));
+		assertEquals(timeRanges[0].getCounter(), 2);
+		assertEquals(timeRanges[0].getMax(), 1000);
+		assertEquals(timeRanges[2].getLast(), 104);
+
+		// gap longer than the timeline, old ranges are not sampled
+		timeline.addSplit(createSplit(createTimestamp(2012, 7, 12, 21, 10, 0), 200));
+		timeRanges = timeline.sample().getTimeRanges();
+		assertEquals(timeRanges.length, 1);
+		assertEquals(timeRanges[0].getEndTimestamp(), createTimestamp(2012, 7, 12, 21, 11, 0));
+	}
+
+	@Test
+	public void concurrentSplits() throws InterruptedException {
+		final StopwatchTimeline timeline = new StopwatchTimeline(10, 60 * 1000);
+		final long start = createTimestamp(2012, 7, 12, 21, 0, 0);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final long duration = i + 1;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						timeline.addSplit(createSplit(start + (j % 5) * 60 * 1000, duration));
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		StopwatchTimeRange[] timeRanges = timeline.sample().getTimeRanges();
+		assertEquals(timeRanges.length, 5);
+		for (StopwatchTimeRange timeRange : timeRanges) {
+			assertEquals(timeRange.getCounter(), 800);
+			assertEquals(timeRange.getTotal(), 2000);
+			assertEquals(timeRange.getMin(), 1);
+			assertEquals(timeRange.getMax(), 4);
+		}
+	}
+
 	@Test
 	public void issue113() {
 		Manager manager = new EnabledManager();
@@ -0,0 +1,179 @@
+package org.javasimon.callback.timeline;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for {@link TieredStopwatchTimeline}.
+ */
+public class TieredStopwatchTimelineTest extends SimonUnitTest {
+
+	private static final long SECOND = 1000;
+	private static final long MINUTE = 60 * SECOND;
+
+	/** 10 s for 1 minute, 1 minute for 10 minutes. */
+	private TieredStopwatchTimeline createTimeline() {
+		return new TieredStopwatchTimeline(new TimelineTier(10 * SECOND, 6), new TimelineTier(MINUTE, 10));
+	}
+
+	private long totalCounter(TimelineSample<StopwatchTimeRange> sample) {
+		long counter = 0;
+		for (StopwatchTimeRange timeRange : sample.getTimeRanges()) {
+			counter += timeRange.getCounter();
+		}
+		return counter;
+	}
+
+	@Test
+	public void finestTier() {
+		TieredStopwatchTimeline timeline = createTimeline();
+		timeline.addSplit(1 * SECOND, 100);
+		timeline.addSplit(5 * SECOND, 300);
+		timeline.addSplit(12 * SECOND, 200);
+
+		TimelineSample<StopwatchTimeRange> sample = timeline.sample(0, MINUTE, 6);
+		StopwatchTimeRange[] timeRanges = sample.getTimeRanges();
+		assertEquals(timeRanges.length, 2);
+		assertEquals(timeRanges[0].getStartTimestamp(), 0);
+		assertEquals(timeRanges[0].getEndTimestamp(), 10 * SECOND);
+		assertEquals(timeRanges[0].getCounter(), 2);
+		assertEquals(timeRanges[0].getMin(), 100);
+		assertEquals(timeRanges[0].getMax(), 300);
+		assertEquals(timeRanges[0].getLast(), 300);
+		assertEquals(timeRanges[1].getTotal(), 200);
+		assertEquals(sample.getWidth(), 10 * SECOND * 1000000L);
+	}
+
+	@Test
+	public void rollUp() {
+		TieredStopwatchTimeline timeline = createTimeline();
+		for (long time = 0; time < 5 * MINUTE; time += SECOND) {
+			timeline.addSplit(time, time / SECOND);
+		}
+		// first tier keeps the last minute, older splits rolled up into minute ranges
+		assertEquals(totalCounter(timeline.sample(0, 5 * MINUTE, 5)), 300);
+		StopwatchTimeRange[] minutes = timeline.sample(0, 5 * MINUTE, 5).getTimeRanges();
+		assertEquals(minutes.length, 5);
+		for (int i = 0; i < minutes.length; i++) {
+			assertEquals(minutes[i].getCounter(), 60);
+			assertEquals(minutes[i].getMin(), i * 60);
+			assertEquals(minutes[i].getMax(), i * 60 + 59);
+			assertEquals(minutes[i].getLast(), i * 60 + 59);
+		}
+		// 10 s resolution is available for the last minute only
+		assertEquals(timeline.sample(4 * MINUTE, 5 * MINUTE, 6).getTimeRanges().length, 6);
+		assertEquals(timeline.sample(0, MINUTE, 6).getTimeRanges().length, 1);
+
+		// 20 minutes later everything older than 10 minutes is gone
+		timeline.addSplit(25 * MINUTE, 1);
+		timeline.addSplit(25 * MINUTE + 10 * SECOND, 1);
+		TimelineSample<StopwatchTimeRange> sample = timeline.sample(30 * MINUTE, 30);
+		assertEquals(totalCounter(sample), 2);
+		// the last 30 minutes up to the end of the newest range (25:20) in minute points
+		assertEquals(sample.getTimeRanges().length, 1);
+		assertEquals(sample.getTimeRanges()[0].getStartTimestamp(), 24 * MINUTE + 20 * SECOND);
+	}
+
+	@Test
+	public void lateSplitGoesToCoarserTier() {
+		TieredStopwatchTimeline timeline = createTimeline();
+		timeline.addSplit(2 * MINUTE, 10);
+		timeline.addSplit(3 * MINUTE, 10);
+		// slot of 2:00 was reused for 3:00, splits roll up to minute tier
+		timeline.addSplit(2 * MINUTE + 5 * SECOND, 20);
+		StopwatchTimeRange[] timeRanges = timeline.sample(2 * MINUTE, 3 * MINUTE, 1).getTimeRanges();
+		assertEquals(timeRanges.length, 1);
+		assertEquals(timeRanges[0].getCounter(), 2);
+		assertEquals(timeRanges[0].getMax(), 20);
+	}
+
+	@Test
+	public void unusedTimeline() {
+		// columns of the tiers are not allocated yet
+		TieredStopwatchTimeline timeline = createTimeline();
+		assertEquals(timeline.sample(MINUTE, 6).getTimeRanges().length, 0);
+		assertEquals(timeline.sample(0, MINUTE, 6).getTimeRanges().length, 0);
+
+		// late split allocates the coarser tier before any roll-up
+		timeline.addSplit(3 * MINUTE, 10);
+		timeline.addSplit(2 * MINUTE, 20);
+		assertEquals(totalCounter(timeline.sample(0, 5 * MINUTE, 5)), 2);
+	}
+
+	@Test
+	public void varianceOfLongSplits() {
+		TieredStopwatchTimeline timeline = createTimeline();
+		// squares of 10 s and 30 s in ns overflow long
+		timeline.addSplit(SECOND, 10 * SECOND * 1000000L);
+		timeline.addSplit(2 * SECOND, 30 * SECOND * 1000000L);
+		StopwatchTimeRange timeRange = timeline.sample(0, 10 * SECOND, 1).getTimeRanges()[0];
+		assertEquals(timeRange.getStandardDeviation(), 10 * SECOND * 1000000D, 1D);
+
+		// rolled up statistics keep the sum of squares
+		timeline.addSplit(2 * MINUTE, 1);
+		timeRange = timeline.sample(0, MINUTE, 1).getTimeRanges()[0];
+		assertEquals(timeRange.getCounter(), 2);
+		assertEquals(timeRange.getStandardDeviation(), 10 * SECOND * 1000000D, 1D);
+	}
+
+	@Test
+	public void concurrentSplitsCountedOnce() throws InterruptedException {
+		final TieredStopwatchTimeline timeline = createTimeline();
+		final int loop = 3000;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// slots of the first tier are reused every minute while other threads add splits
+					for (int j = 0; j < loop; j++) {
+						timeline.addSplit(j * 100L, 1);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(totalCounter(timeline.sample(0, 5 * MINUTE, 5)), 4 * loop);
+	}
+
+	@Test
+	public void callback() {
+		Manager manager = new EnabledManager();
+		manager.callback().addCallback(new TimelineCallback("tiered"));
+		Stopwatch stopwatch = manager.getStopwatch("tiered");
+		stopwatch.addSplit(Split.create(1000));
+		stopwatch.start().stop();
+		TieredStopwatchTimeline timeline = (TieredStopwatchTimeline) stopwatch.getAttribute("tiered");
+		assertNotNull(timeline);
+		assertEquals(timeline.getTiers().length, 3);
+		TimelineSample<StopwatchTimeRange> sample = timeline.sample(timeline.getTiers()[0].getLength(), 60);
+		assertEquals(totalCounter(sample), 2);
+		assertTrue(sample.getTimeRanges().length >= 1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void tierWidthNotMultiple() {
+		new TieredStopwatchTimeline(new TimelineTier(10 * SECOND, 6), new TimelineTier(15 * SECOND, 10));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void invalidSamplePoints() {
+		createTimeline().sample(0, MINUTE, 0);
+	}
+}
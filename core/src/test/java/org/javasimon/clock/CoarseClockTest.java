@@ -0,0 +1,78 @@
+package org.javasimon.clock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for {@link CoarseClock}.
+ */
+public final class CoarseClockTest {
+
+	@Test
+	public void millisAreRefreshedByTicker() throws InterruptedException {
+		CoarseClock clock = new CoarseClock(1, TimeUnit.MILLISECONDS);
+		try {
+			long before = System.currentTimeMillis();
+			Assert.assertTrue(clock.milliTime() <= before);
+			Thread.sleep(100);
+			long millis = clock.milliTime();
+			Assert.assertTrue(millis > before, "millis " + millis + " not refreshed since " + before);
+			Assert.assertTrue(millis <= System.currentTimeMillis());
+		} finally {
+			clock.stop();
+		}
+	}
+
+	@Test
+	public void stoppedClockFallsBackToSystemTime() {
+		CoarseClock clock = new CoarseClock(1, TimeUnit.HOURS);
+		Assert.assertFalse(clock.isStopped());
+		clock.stop();
+		Assert.assertTrue(clock.isStopped());
+		long before = System.currentTimeMillis();
+		long millis = clock.milliTime();
+		Assert.assertTrue(millis >= before && millis <= System.currentTimeMillis());
+		clock.stop();
+	}
+
+	@Test
+	public void nanoTimeIsNotCached() {
+		CoarseClock clock = new CoarseClock(1, TimeUnit.HOURS);
+		try {
+			long before = System.nanoTime();
+			long nanos = clock.nanoTime();
+			Assert.assertTrue(nanos >= before && nanos <= System.nanoTime());
+			Assert.assertEquals(clock.millisForNano(nanos), SimonClockUtils.millisForNano(nanos));
+		} finally {
+			clock.stop();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void resolutionMustBePositive() {
+		new CoarseClock(0, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void managerUsesCoarseClock() {
+		CoarseClock clock = new CoarseClock(1, TimeUnit.HOURS);
+		try {
+			Manager manager = new EnabledManager(clock);
+			Assert.assertEquals(manager.milliTime(), clock.milliTime());
+			Stopwatch stopwatch = manager.getStopwatch("coarse");
+			stopwatch.start().stop();
+			StopwatchSample sample = stopwatch.sample();
+			Assert.assertEquals(sample.getCounter(), 1);
+			// start uses cached millis that are not refreshed for an hour
+			Assert.assertEquals(sample.getFirstUsage(), clock.milliTime());
+		} finally {
+			clock.stop();
+		}
+	}
+}
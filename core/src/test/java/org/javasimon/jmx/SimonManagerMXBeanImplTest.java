@@ -5,6 +5,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import org.javasimon.Counter;
 import org.javasimon.Manager;
@@ -13,6 +14,10 @@ import org.javasimon.SimonException;
 import org.javasimon.SimonPattern;
 import org.javasimon.SimonState;
 import org.javasimon.Stopwatch;
+import org.javasimon.callback.calltree.CallTreeCallback;
+import org.javasimon.callback.calltree.CallTreeNode;
+import org.javasimon.callback.calltree.CallTreeProfile;
+import org.javasimon.clock.TestClock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -271,4 +276,16 @@ public class SimonManagerMXBeanImplTest {
 	public void getIncrementStopwatchSampleForWrongType() {
 		managerMXBean.getIncrementStopwatchSample("base.counter.aaa", "key");
 	}
+
+	@Test
+	public void getCallTreeProfile() {
+		CallTreeProfile profile = new CallTreeProfile(new TestClock(), 1000, 10);
+		CallTreeNode rootNode = new CallTreeNode("base.stopwatch.aaa");
+		rootNode.addSplit(100L);
+		profile.add(rootNode);
+		when(stopwatchA.getAttribute(CallTreeCallback.ATTR_NAME_PROFILE)).thenReturn(profile);
+
+		assertEquals(managerMXBean.getCallTreeProfile("base.stopwatch.aaa"), "base.stopwatch.aaa 100\n");
+		assertNull(managerMXBean.getCallTreeProfile("base.stopwatch.bbb"));
+	}
 }
\ No newline at end of file
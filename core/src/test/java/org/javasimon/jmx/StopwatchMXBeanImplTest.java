@@ -3,6 +3,11 @@ package org.javasimon.jmx;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 
+import java.lang.management.ManagementFactory;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -37,6 +42,30 @@ public class StopwatchMXBeanImplTest {
 		verify(stopwatch).sampleIncrement(key);
 	}
 
+	@Test
+	public void testHistogramOverJmx() throws Exception {
+		StopwatchSample sample = new StopwatchSample();
+		sample.setCounter(1);
+		sample.setMin(1000);
+		sample.setMax(1000);
+		long[] histogram = new long[org.javasimon.LatencyHistogram.BUCKET_COUNT];
+		histogram[org.javasimon.LatencyHistogram.bucketIndex(1000)] = 1;
+		sample.setHistogram(histogram);
+		when(stopwatch.sample()).thenReturn(sample);
+
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.javasimon.test:type=Stopwatch,name=histogram");
+		mBeanServer.registerMBean(stopwatchMXBean, name);
+		try {
+			StopwatchMXBean proxy = JMX.newMXBeanProxy(mBeanServer, name, StopwatchMXBean.class);
+			org.javasimon.jmx.StopwatchSample remoteSample = proxy.sample();
+			Assert.assertEquals(remoteSample.getHistogram(), histogram);
+			Assert.assertEquals(remoteSample.getP99(), 1000);
+		} finally {
+			mBeanServer.unregisterMBean(name);
+		}
+	}
+
 	@Test
 	public void testStopIncrementSampling() {
 		String key = "key";
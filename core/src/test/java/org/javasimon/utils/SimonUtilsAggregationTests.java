@@ -5,9 +5,14 @@ import static org.mockito.Mockito.when;
 
 import org.javasimon.Counter;
 import org.javasimon.CounterSample;
+import org.javasimon.EnabledManager;
+import org.javasimon.LatencyHistogram;
+import org.javasimon.Manager;
 import org.javasimon.Simon;
 import org.javasimon.SimonFilter;
+import org.javasimon.SimonPattern;
 import org.javasimon.SimonUnitTest;
+import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 import org.javasimon.StopwatchSample;
 import org.testng.Assert;
@@ -187,4 +192,74 @@ public class SimonUtilsAggregationTests extends SimonUnitTest {
 		CounterAggregate aggregate = SimonUtils.calculateCounterAggregate(counterHierarchy, rejectRoot);
 		Assert.assertEquals(aggregate.getCounter(), 0);
 	}
+
+	@Test
+	public void testHierarchyQuantiles() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setDefaultHistogram(true);
+		for (int i = 1; i <= 90; i++) {
+			manager.getStopwatch("app.sql.select").addSplit(Split.create(1000000L));
+		}
+		for (int i = 1; i <= 10; i++) {
+			manager.getStopwatch("app.sql.update").addSplit(Split.create(100000000L));
+		}
+		manager.getStopwatch("app.web.index").addSplit(Split.create(5000000000L));
+
+		StopwatchAggregate sql = SimonUtils.calculateStopwatchAggregate(manager.getSimon("app.sql"));
+		Assert.assertEquals(sql.getCounter(), 100);
+		assertClose(sql.getP50(), 1000000L);
+		assertClose(sql.getP90(), 1000000L);
+		assertClose(sql.getP99(), 100000000L);
+		assertClose(SimonUtils.calculateStopwatchAggregate(manager.getSimon("app")).getP999(), 5000000000L);
+	}
+
+	@Test
+	public void testPatternAggregate() {
+		Manager manager = new EnabledManager();
+		manager.configuration().setDefaultHistogram(true);
+		manager.getStopwatch("app.order.select").addSplit(Split.create(2000000L));
+		manager.getStopwatch("app.user.select").addSplit(Split.create(4000000L));
+		manager.getStopwatch("app.user.update").addSplit(Split.create(8000000L));
+		// without histogram - counted, but not in quantiles
+		manager.configuration().setDefaultHistogram(false);
+		manager.getStopwatch("app.item.select").addSplit(Split.create(1000L));
+
+		StopwatchAggregate aggregate = SimonUtils.calculateStopwatchAggregate(manager,
+			SimonPattern.createForStopwatch("app.*.select"));
+		Assert.assertEquals(aggregate.getCounter(), 3);
+		assertClose(aggregate.getP50(), 2000000L);
+		assertClose(aggregate.quantile(1), 4000000L);
+	}
+
+	@Test
+	public void testSamplesFromMultipleJvms() {
+		Manager jvm1 = new EnabledManager();
+		Manager jvm2 = new EnabledManager();
+		jvm1.configuration().setDefaultHistogram(true);
+		jvm2.configuration().setDefaultHistogram(true);
+		for (int i = 0; i < 60; i++) {
+			jvm1.getStopwatch("request").addSplit(Split.create(10000000L));
+		}
+		for (int i = 0; i < 50; i++) {
+			jvm2.getStopwatch("request").addSplit(Split.create(30000000L));
+		}
+		jvm2.getStopwatch("request").addSplit(Split.create(90000000L));
+
+		// histogram shipped in encoded form
+		StopwatchSample remote = jvm2.getStopwatch("request").sample();
+		byte[] encoded = LatencyHistogram.encode(remote.getHistogram());
+		Assert.assertTrue(encoded.length < 10, "encoded length " + encoded.length);
+		remote.setHistogram(LatencyHistogram.decode(encoded));
+
+		StopwatchAggregate aggregate = SimonUtils.calculateStopwatchAggregate(
+			Arrays.asList(jvm1.getStopwatch("request").sample(), remote));
+		Assert.assertEquals(aggregate.getCounter(), 111);
+		assertClose(aggregate.getP50(), 10000000L);
+		assertClose(aggregate.getP90(), 30000000L);
+		assertClose(aggregate.getP999(), 90000000L);
+	}
+
+	private void assertClose(long actual, long expected) {
+		Assert.assertTrue(Math.abs(actual - expected) <= expected / 64, actual + " instead of " + expected);
+	}
 }
@@ -0,0 +1,81 @@
+package org.javasimon.examples.perf;
+
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.Stopwatch;
+import org.javasimon.StopwatchSample;
+import org.javasimon.clock.CoarseClock;
+import org.javasimon.clock.SimonClock;
+import org.javasimon.utils.BenchmarkUtils;
+import org.javasimon.utils.GoogleChartImageGenerator;
+
+/**
+ * Compares start-stop cycle of a Stopwatch for manager using {@link SimonClock#SYSTEM} and {@link CoarseClock}.
+ * Both Split based and primitive ({@link Stopwatch#startNanos()}) cycles are measured.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public final class CoarseClockStartStop {
+
+	private static final int LOOP = 10000000;
+
+	private CoarseClockStartStop() {
+	}
+
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		CoarseClock coarseClock = new CoarseClock();
+		try {
+			final Stopwatch systemStopwatch = new EnabledManager(SimonClock.SYSTEM).getStopwatch("system");
+			final Stopwatch coarseStopwatch = new EnabledManager(coarseClock).getStopwatch("coarse");
+			StopwatchSample[] results = BenchmarkUtils.run(1, 3,
+				new SplitTask("system-split", systemStopwatch),
+				new SplitTask("coarse-split", coarseStopwatch),
+				new NanosTask("system-nanos", systemStopwatch),
+				new NanosTask("coarse-nanos", coarseStopwatch)
+			);
+
+			System.out.println("\nGoogle Chart avg:\n" +
+				GoogleChartImageGenerator.barChart("10M start-stop with system/coarse clock", results));
+		} finally {
+			coarseClock.stop();
+		}
+	}
+
+	private static class SplitTask extends BenchmarkUtils.Task {
+
+		private final Stopwatch stopwatch;
+
+		SplitTask(String name, Stopwatch stopwatch) {
+			super(name);
+			this.stopwatch = stopwatch;
+		}
+
+		@Override
+		public void perform() throws Exception {
+			for (int i = 0; i < LOOP; i++) {
+				stopwatch.start().stop();
+			}
+		}
+	}
+
+	private static class NanosTask extends BenchmarkUtils.Task {
+
+		private final Stopwatch stopwatch;
+
+		NanosTask(String name, Stopwatch stopwatch) {
+			super(name);
+			this.stopwatch = stopwatch;
+		}
+
+		@Override
+		public void perform() throws Exception {
+			for (int i = 0; i < LOOP; i++) {
+				stopwatch.stopNanos(stopwatch.startNanos());
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package org.javasimon.examples.perf;
+
+import java.util.Random;
+
+import org.javasimon.StopwatchSample;
+import org.javasimon.callback.quantiles.Buckets;
+import org.javasimon.callback.quantiles.BucketsType;
+import org.javasimon.utils.BenchmarkUtils;
+import org.javasimon.utils.GoogleChartImageGenerator;
+
+/**
+ * Measures adding values to linear and exponential quantiles {@link Buckets} with 8 to 200 buckets by many threads
+ * at once. Total number of added values is the same for each task regardless of the number of threads.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public final class QuantilesBucketsContention {
+
+	private static final int TOTAL_LOOP = 10000000;
+	private static final int CPUS = Runtime.getRuntime().availableProcessors();
+	private static final long MIN = 1000000L;
+	private static final long MAX = 1000000000L;
+
+	/** Random values slightly over the range of the buckets, shared by all tasks. */
+	private static final long[] VALUES = new long[4096];
+
+	static {
+		Random random = new Random(47);
+		for (int i = 0; i < VALUES.length; i++) {
+			VALUES[i] = (long) (random.nextDouble() * MAX * 1.1);
+		}
+	}
+
+	private QuantilesBucketsContention() {
+	}
+
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.out.println("Available processors: " + CPUS);
+		StopwatchSample[] results = BenchmarkUtils.run(1, 3,
+			new AddValueTask(BucketsType.LINEAR, 8, 1),
+			new AddValueTask(BucketsType.LINEAR, 200, 1),
+			new AddValueTask(BucketsType.EXPONENTIAL, 8, 1),
+			new AddValueTask(BucketsType.EXPONENTIAL, 200, 1),
+			new AddValueTask(BucketsType.LINEAR, 8, CPUS * 2),
+			new AddValueTask(BucketsType.LINEAR, 50, CPUS * 2),
+			new AddValueTask(BucketsType.LINEAR, 200, CPUS * 2),
+			new AddValueTask(BucketsType.EXPONENTIAL, 8, CPUS * 2),
+			new AddValueTask(BucketsType.EXPONENTIAL, 50, CPUS * 2),
+			new AddValueTask(BucketsType.EXPONENTIAL, 200, CPUS * 2)
+		);
+
+		System.out.println("\nGoogle Chart avg:\n" +
+			GoogleChartImageGenerator.barChart("10M values added to quantiles buckets", results));
+	}
+
+	private static class AddValueTask extends BenchmarkUtils.Task {
+
+		private final BucketsType bucketsType;
+		private final int bucketNb;
+		private final int threads;
+
+		AddValueTask(BucketsType bucketsType, int bucketNb, int threads) {
+			super(bucketsType.name().toLowerCase() + "-" + bucketNb + "-" + threads);
+			this.bucketsType = bucketsType;
+			this.bucketNb = bucketNb;
+			this.threads = threads;
+		}
+
+		@Override
+		public void perform() throws Exception {
+			final Buckets buckets = bucketsType.createBuckets(null, MIN, MAX, bucketNb);
+			final int loop = TOTAL_LOOP / threads;
+
+			Thread[] workers = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				final int offset = i * 31;
+				workers[i] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int j = 0; j < loop; j++) {
+							buckets.addValue(VALUES[(offset + j) & (VALUES.length - 1)]);
+						}
+					}
+				});
+				workers[i].start();
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+	}
+}
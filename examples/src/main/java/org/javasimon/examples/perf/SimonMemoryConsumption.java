@@ -1,66 +1,82 @@
 package org.javasimon.examples.perf;
 
-import org.javasimon.SimonManager;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
 import org.javasimon.Split;
 import org.javasimon.Stopwatch;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 
+/**
+ * Measures heap consumed per Simon for high-cardinality deployments - many leaf Stopwatches (e.g. per normalized
+ * SQL or URI) grouped under shared parents. Each round creates its own manager with 10K, 100K and 1M Stopwatches
+ * and reports bytes per Stopwatch including its name, parent and the manager's index. Run with enough heap,
+ * e.g. {@code -Xmx2g}, and preferably with {@code -XX:+UseSerialGC} so the measurements are stable.
+ */
 public class SimonMemoryConsumption {
 
+	/** Number of leaf Stopwatches under one parent. */
+	private static final int LEAVES_PER_PARENT = 1000;
+
 	private static long baseline;
-	private static int count;
 
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 */
 	public static void main(String[] args) {
-
 		reportAbsolute("EMPTY");
-		count = 100000;
-		Stopwatch[] stopwatches = new Stopwatch[count];
-
-		setBaseLine("BASE-LINE");
-
-		for (int i = 0; i < stopwatches.length; i++) {
-			stopwatches[i] = SimonManager.getStopwatch(null);
+		for (int count : new int[] {10000, 100000, 1000000}) {
+			measure(count);
 		}
+	}
 
-		report("100K stopwatches");
-
-		for (int i = 0; i < stopwatches.length; i++) {
-			stopwatches[i] = SimonManager.getStopwatch(null);
+	private static void measure(int count) {
+		setBaseLine("\nBASE-LINE");
+		Manager manager = new EnabledManager();
+		Stopwatch[] stopwatches = new Stopwatch[count];
+		for (int i = 0; i < count; i++) {
+			stopwatches[i] = manager.getStopwatch(name(i));
 		}
-
-		report("100K stopwatches again");
+		report(count + " stopwatches", count);
 
 		for (Stopwatch stopwatch : stopwatches) {
 			stopwatch.start().stop();
 		}
-		report("after 100K start/stop");
+		report(count + " stopwatches after start/stop", count);
+
 		for (Stopwatch stopwatch : stopwatches) {
 			something(stopwatch);
 		}
-		report("after 100K (2 keys each)");
+		report(count + " stopwatches after incremental sampling (2 keys each)", count);
 
-		System.out.println("array-len = " + stopwatches.length);
-		report("after array.length");
+		// keeps the manager and Simons reachable until the last report
+		System.out.println("simons = " + manager.getSimonNames().size() + ", array-len = " + stopwatches.length);
 	}
 
-	private static void report(final String what) {
+	private static String name(int i) {
+		return "org.javasimon.examples.sql.group" + i / LEAVES_PER_PARENT + ".stmt" + i;
+	}
+
+	private static void report(String what, int count) {
 		MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
 		memoryMXBean.gc();
+		memoryMXBean.gc();
 		long used = memoryMXBean.getHeapMemoryUsage().getUsed();
 		long delta = used - baseline;
-		System.out.println(what + ": " + delta + " (total=" + used + "), " + (delta / count) + "/unit");
+		System.out.println(what + ": " + delta + " (total=" + used + "), " + (delta / count) + " B/Simon");
 	}
 
-	private static void reportAbsolute(final String what) {
+	private static void reportAbsolute(String what) {
 		MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
 		memoryMXBean.gc();
 		memoryMXBean.gc();
 		System.out.println(what + ": " + memoryMXBean.getHeapMemoryUsage().getUsed());
 	}
 
-	private static void setBaseLine(final String what) {
+	private static void setBaseLine(String what) {
 		MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
 		memoryMXBean.gc();
 		memoryMXBean.gc();
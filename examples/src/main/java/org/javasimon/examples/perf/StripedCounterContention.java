@@ -0,0 +1,86 @@
+package org.javasimon.examples.perf;
+
+import org.javasimon.Counter;
+import org.javasimon.EnabledManager;
+import org.javasimon.Manager;
+import org.javasimon.SimonImplementation;
+import org.javasimon.StopwatchSample;
+import org.javasimon.utils.BenchmarkUtils;
+import org.javasimon.utils.GoogleChartImageGenerator;
+
+/**
+ * Compares throughput of increase-decrease cycle on a single Counter shared by many threads for the default
+ * {@link SimonImplementation#SYNCHRONIZED}, {@link SimonImplementation#STRIPED} and
+ * {@link SimonImplementation#BUFFERED} implementation.
+ * Counter fluctuates within a small range, so min/max are rarely updated.
+ * Total number of cycles is the same for each task regardless of the number of threads.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public final class StripedCounterContention {
+
+	private static final int TOTAL_LOOP = 10000000;
+	private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+	private StripedCounterContention() {
+	}
+
+	/**
+	 * Entry point of the demo application.
+	 *
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		System.out.println("Available processors: " + CPUS);
+		StopwatchSample[] results = BenchmarkUtils.run(1, 3,
+			new ContentionTask(SimonImplementation.SYNCHRONIZED, 1),
+			new ContentionTask(SimonImplementation.STRIPED, 1),
+			new ContentionTask(SimonImplementation.BUFFERED, 1),
+			new ContentionTask(SimonImplementation.SYNCHRONIZED, CPUS * 2),
+			new ContentionTask(SimonImplementation.STRIPED, CPUS * 2),
+			new ContentionTask(SimonImplementation.BUFFERED, CPUS * 2),
+			new ContentionTask(SimonImplementation.SYNCHRONIZED, CPUS * 8),
+			new ContentionTask(SimonImplementation.STRIPED, CPUS * 8),
+			new ContentionTask(SimonImplementation.BUFFERED, CPUS * 8)
+		);
+
+		System.out.println("\nGoogle Chart avg:\n" +
+			GoogleChartImageGenerator.barChart("10M increase-decrease on one Counter", results));
+	}
+
+	private static class ContentionTask extends BenchmarkUtils.Task {
+
+		private final SimonImplementation implementation;
+		private final int threads;
+
+		ContentionTask(SimonImplementation implementation, int threads) {
+			super(implementation.name().toLowerCase() + "-" + threads);
+			this.implementation = implementation;
+			this.threads = threads;
+		}
+
+		@Override
+		public void perform() throws Exception {
+			Manager manager = new EnabledManager();
+			manager.configuration().setDefaultImplementation(implementation);
+			final Counter counter = manager.getCounter("contended");
+			final int loop = TOTAL_LOOP / threads;
+
+			Thread[] workers = new Thread[threads];
+			for (int i = 0; i < threads; i++) {
+				workers[i] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int j = 0; j < loop; j++) {
+							counter.increase();
+							counter.decrease();
+						}
+					}
+				});
+				workers[i].start();
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+	}
+}
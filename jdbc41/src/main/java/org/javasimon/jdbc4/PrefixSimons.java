@@ -0,0 +1,60 @@
+package org.javasimon.jdbc4;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.javasimon.CounterHandle;
+import org.javasimon.StopwatchHandle;
+
+/**
+ * Handles to Simons that are the same for all connections (statements, result sets) with the same prefix.
+ * Handles are resolved only once per prefix, so that connections and statements do not concatenate names
+ * and look them up in the manager every time they are created.
+ *
+ * @since 4.3
+ */
+final class PrefixSimons {
+
+	private static final Map<String, PrefixSimons> PREFIXES = new ConcurrentHashMap<>();
+
+	/** Lifespan of connections. */
+	final StopwatchHandle conn;
+
+	/** Commits of all connections. */
+	final CounterHandle commits;
+
+	/** Rollbacks of all connections. */
+	final CounterHandle rollbacks;
+
+	/** Lifespan of statements. */
+	final StopwatchHandle stmt;
+
+	/** Lifespan of result sets. */
+	final StopwatchHandle rset;
+
+	private PrefixSimons(String prefix) {
+		conn = new StopwatchHandle(prefix + ".conn");
+		commits = new CounterHandle(prefix + ".conn.commits");
+		rollbacks = new CounterHandle(prefix + ".conn.rollbacks");
+		stmt = new StopwatchHandle(prefix + ".stmt");
+		rset = new StopwatchHandle(prefix + ".rset");
+	}
+
+	/**
+	 * Returns handles for the specified prefix.
+	 *
+	 * @param prefix hierarchy prefix for JDBC Simons
+	 * @return handles for the prefix
+	 */
+	static PrefixSimons forPrefix(String prefix) {
+		PrefixSimons simons = PREFIXES.get(prefix);
+		if (simons == null) {
+			simons = new PrefixSimons(prefix);
+			PrefixSimons previous = PREFIXES.putIfAbsent(prefix, simons);
+			if (previous != null) {
+				simons = previous;
+			}
+		}
+		return simons;
+	}
+}
@@ -19,8 +19,6 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 
-import org.javasimon.Counter;
-import org.javasimon.SimonManager;
 import org.javasimon.Split;
 
 /**
@@ -54,8 +52,7 @@ public final class SimonConnection implements Connection {
 	private String prefix;
 
 	private Split life;
-	private Counter commits;
-	private Counter rollbacks;
+	private final PrefixSimons simons;
 
 	/**
 	 * Class constructor, initializes Simons (lifespan, active, commits
@@ -71,9 +68,8 @@ public final class SimonConnection implements Connection {
 		this.wrapperSupport = new WrapperSupport<>(this.conn, Connection.class);
 		this.prefix = prefix;
 
-		commits = SimonManager.getCounter(prefix + ".conn.commits");
-		rollbacks = SimonManager.getCounter(prefix + ".conn.rollbacks");
-		life = SimonManager.getStopwatch(prefix + ".conn").start();
+		simons = PrefixSimons.forPrefix(prefix);
+		life = simons.conn.start();
 	}
 
 	public SimonConnection(Connection conn, String prefix) {
@@ -101,7 +97,7 @@ public final class SimonConnection implements Connection {
 	public void commit() throws SQLException {
 		conn.commit();
 
-		commits.increase();
+		simons.commits.increase();
 	}
 
 	/**
@@ -113,7 +109,7 @@ public final class SimonConnection implements Connection {
 	public void rollback() throws SQLException {
 		conn.rollback();
 
-		rollbacks.increase();
+		simons.rollbacks.increase();
 	}
 
 	/**
@@ -126,7 +122,7 @@ public final class SimonConnection implements Connection {
 	public void rollback(Savepoint savepoint) throws SQLException {
 		conn.rollback(savepoint);
 
-		rollbacks.increase();
+		simons.rollbacks.increase();
 	}
 
 	/**
@@ -22,8 +22,8 @@ import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Map;
 
-import org.javasimon.SimonManager;
 import org.javasimon.Split;
+import org.javasimon.StopwatchHandle;
 
 /**
  * Simon JDBC proxy result set implementation class.
@@ -43,6 +43,7 @@ public final class SimonResultSet implements ResultSet {
 	private final WrapperSupport<ResultSet> wrapperSupport;
 	private SimonStatement stmt;
 	private String stmtPrefix;
+	private final StopwatchHandle next;
 
 	/**
 	 * Class constructor, initializes Simons (lifespan) related to result set.
@@ -58,7 +59,8 @@ public final class SimonResultSet implements ResultSet {
 		this.stmt = stmt;
 		this.stmtPrefix = stmtPrefix;
 
-		split = SimonManager.getStopwatch(prefix + ".rset").start();
+		next = new StopwatchHandle(stmtPrefix + ".next");
+		split = PrefixSimons.forPrefix(prefix).rset.start();
 	}
 
 	/**
@@ -69,7 +71,7 @@ public final class SimonResultSet implements ResultSet {
 	 */
 	@Override
 	public boolean next() throws SQLException {
-		try (Split ignored = SimonManager.getStopwatch(stmtPrefix + ".next").start()) {
+		try (Split ignored = next.start()) {
 			return rset.next();
 		}
 	}
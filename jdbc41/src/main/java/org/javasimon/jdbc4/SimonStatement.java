@@ -70,7 +70,7 @@ public class SimonStatement implements Statement {
 		this.stmt = stmt;
 		this.prefix = prefix;
 		this.wrapperSupport = new WrapperSupport<>(stmt, Statement.class);
-		this.split = SimonManager.getStopwatch(prefix + ".stmt").start();
+		this.split = PrefixSimons.forPrefix(prefix).stmt.start();
 		this.sqlNormalizerFactory = sqlNormalizerFactory;
 	}
 